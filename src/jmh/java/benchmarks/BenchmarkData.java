@@ -0,0 +1,318 @@
+package benchmarks;
+
+import ips.DiscreteFlight;
+import ips.ExtendedHofkinModel;
+import ips.MHDynModel;
+import ips.NetworkHofkinModel;
+import ips.NetworkInput;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import scenarios.DiscreteScenario;
+import scenarios.DiscreteScenarioTree;
+import util.BTSParser;
+import util.DiscretizerUtil;
+import util.SyntheticWorkload;
+
+/**
+ * Seeded synthetic data for the benchmarks, so that every run measures the
+ * same work without needing the BTS files.
+ */
+final class BenchmarkData {
+    static final long SEED = 20170715L;
+    static final String AIRPORT = "ORD";
+    static final ZoneId AIRPORT_ZONE = ZoneId.of("America/Chicago");
+    static final OffsetDateTime START = LocalDateTime.of(2017, 7, 15, 7, 0).atZone(AIRPORT_ZONE)
+            .toOffsetDateTime();
+    static final int LOW_CAPACITY = 40;
+    static final int HIGH_CAPACITY = 60;
+    static final int ARRIVALS_PER_HOUR = 55;
+
+    private static final String[] ORIGINS = {"ATL", "DFW", "LGA", "SFO", "DCA", "DEN", "BOS", "SEA", "MIA", "PHX"};
+    private static final long MIN_DURATION_MINUTES = 45;
+    private static final long MAX_DURATION_MINUTES = 330;
+
+    private BenchmarkData() {
+
+    }
+
+    static OffsetDateTime getEnd(int horizonHours) {
+        return START.plusHours(horizonHours);
+    }
+
+    static HashSet<BTSParser.FlightStruct> makeFlights(long seed, int numFlights, int horizonHours) {
+        return new SyntheticWorkload(seed, numFlights, START, Duration.ofHours(horizonHours)).generateFlights();
+    }
+
+    static BTSParser.ResultStruct makeBTSResult(long seed, int numFlights, int horizonHours) throws IOException {
+        return BTSParser.separateForGDPPlanning(makeFlights(seed, numFlights, horizonHours), START,
+                getEnd(horizonHours));
+    }
+
+    /**
+     * Writes a file in the BTS on-time format with the given number of
+     * records, a quarter of which are destined for {@link #AIRPORT}.
+     */
+    static File writeBTSFile(long seed, int numRecords) throws IOException {
+        Random random = new Random(seed);
+        File file = File.createTempFile("bts-benchmark", ".csv");
+        file.deleteOnExit();
+        BufferedWriter writer = new BufferedWriter(new FileWriter(file));
+        writer.write(BTSParser.COL_NAME_YEAR + "," + BTSParser.COL_NAME_MONTH + "," + BTSParser.COL_NAME_DAY + ","
+                + BTSParser.COL_NAME_ORIGIN_APT + "," + BTSParser.COL_NAME_DEST_APT + ","
+                + BTSParser.COL_NAME_DEP_TIME + "," + BTSParser.COL_NAME_ARR_TIME + ","
+                + BTSParser.COL_NAME_DURATION + "\n");
+        for (int r = 0; r < numRecords; r++) {
+            String origin = ORIGINS[random.nextInt(ORIGINS.length)];
+            String dest = random.nextInt(4) == 0 ? AIRPORT : ORIGINS[random.nextInt(ORIGINS.length)];
+            int depMinute = 5 * 60 + random.nextInt(17 * 60);
+            long duration = MIN_DURATION_MINUTES + random.nextInt((int) (MAX_DURATION_MINUTES - MIN_DURATION_MINUTES));
+            int arrMinute = (int) ((depMinute + duration) % (24 * 60));
+            writer.write("2017,7,15," + origin + "," + dest + "," + formatTime(depMinute) + ","
+                    + formatTime(arrMinute) + "," + duration + ".00\n");
+        }
+        writer.close();
+        return file;
+    }
+
+    private static String formatTime(int minuteOfDay) {
+        return String.format("%d%02d", minuteOfDay / 60, minuteOfDay % 60);
+    }
+
+    /**
+     * Scenarios in which the capacity changes from low to high, with the
+     * change periods spread evenly over the horizon. There are at most as
+     * many scenarios as time periods.
+     */
+    static List<DiscreteScenario> makeScenarios(int numTimePeriods, int numScenarios, int periodsPerHour) {
+        int count = Math.min(numScenarios, numTimePeriods);
+        List<DiscreteScenario> scenarios = new ArrayList<DiscreteScenario>(count);
+        for (int k = 0; k < count; k++) {
+            int changePeriod = (int) ((long) k * numTimePeriods / count);
+            ArrayList<Integer> capacities = new ArrayList<Integer>(numTimePeriods);
+            for (int t = 0; t < numTimePeriods; t++) {
+                int rate = t < changePeriod ? LOW_CAPACITY : HIGH_CAPACITY;
+                capacities.add(rate * (t + 1) / periodsPerHour - rate * t / periodsPerHour);
+            }
+            scenarios.add(new DiscreteScenario(changePeriod, 1.0 / count, capacities));
+        }
+        return scenarios;
+    }
+
+    static int getNumTimePeriods(int horizonHours, int discMinutes) {
+        return DiscretizerUtil.getNumTimePeriods(START, getEnd(horizonHours), Duration.ofMinutes(discMinutes));
+    }
+
+    /**
+     * An input backed by arrays, so that building a model does not include
+     * the cost of the parsers or the scenario tree.
+     */
+    static MockInput makeInput(long seed, int numScenarios, int horizonHours, int discMinutes) {
+        Duration disc = Duration.ofMinutes(discMinutes);
+        int numTimePeriods = getNumTimePeriods(horizonHours, discMinutes);
+        int periodsPerHour = Math.max(1, 60 / discMinutes);
+        DiscreteScenarioTree tree = new DiscreteScenarioTree(numTimePeriods,
+                makeScenarios(numTimePeriods, numScenarios, periodsPerHour), 0);
+
+        List<Integer> scenarioIds = new ArrayList<Integer>(tree.getScenarioIds());
+        double[] probabilities = new double[scenarioIds.size()];
+        double[][] capacities = new double[scenarioIds.size()][numTimePeriods];
+        for (int sPos = 0; sPos < scenarioIds.size(); sPos++) {
+            DiscreteScenario scenario = tree.getScenario(scenarioIds.get(sPos));
+            probabilities[sPos] = scenario.getProbability();
+            for (int t = 0; t < numTimePeriods; t++) {
+                capacities[sPos][t] = scenario.getCapacity(t);
+            }
+        }
+        List<List<List<Integer>>> nodes = new ArrayList<List<List<Integer>>>(numTimePeriods);
+        for (int t = 0; t < numTimePeriods; t++) {
+            List<List<Integer>> periodNodes = new ArrayList<List<Integer>>();
+            for (HashSet<Integer> node : tree.getScenarioNodes(t)) {
+                List<Integer> positions = new ArrayList<Integer>();
+                for (int s : node) {
+                    positions.add(scenarioIds.indexOf(s));
+                }
+                periodNodes.add(positions);
+            }
+            nodes.add(periodNodes);
+        }
+
+        BTSParser.FlightStruct[] flights = makeFlights(seed, ARRIVALS_PER_HOUR * horizonHours, horizonHours)
+                .toArray(new BTSParser.FlightStruct[0]);
+        double[] enroute = new double[numTimePeriods];
+        List<DiscreteFlight> sitting = new ArrayList<DiscreteFlight>();
+        TreeMap<Integer, double[]> departing = new TreeMap<Integer, double[]>();
+        for (BTSParser.FlightStruct f : flights) {
+            if (f.getDepartureTime().isBefore(START)) {
+                enroute[DiscretizerUtil.timeToIndex(f.getArrivalTime(), START, disc)]++;
+                continue;
+            }
+            int depIndex = DiscretizerUtil.timeToIndex(f.getDepartureTime(), START, disc);
+            int duration = DiscretizerUtil.durationToTimePeriods(f.getFlightDuration(), disc);
+            sitting.add(new DiscreteFlight(f.getFlightId(), depIndex, duration));
+            double[] demand = departing.get(duration);
+            if (demand == null) {
+                demand = new double[numTimePeriods];
+                departing.put(duration, demand);
+            }
+            demand[depIndex]++;
+        }
+        return new MockInput(numTimePeriods, probabilities, capacities, nodes, sitting, departing, enroute);
+    }
+
+    /**
+     * A network of the first airports of {@link #ORIGINS} with flights
+     * between every pair of them, each of which can depart the given number
+     * of flights per period. Every airport shares the same scenarios.
+     */
+    static NetworkInput makeNetwork(long seed, int numAirports, int numScenarios, int numTimePeriods,
+                                    int departureCapacity) {
+        Random random = new Random(seed);
+        DiscreteScenarioTree tree = new DiscreteScenarioTree(numTimePeriods,
+                makeScenarios(numTimePeriods, numScenarios, 4), 0);
+        Map<String, DiscreteScenarioTree> trees = new HashMap<String, DiscreteScenarioTree>();
+        Map<String, List<Integer>> capacities = new HashMap<String, List<Integer>>();
+        for (int a = 0; a < numAirports; a++) {
+            trees.put(ORIGINS[a], tree);
+            capacities.put(ORIGINS[a], Collections.nCopies(numTimePeriods, departureCapacity));
+        }
+        Map<NetworkHofkinModel.Bucket, List<Integer>> demands = new HashMap<NetworkHofkinModel.Bucket, List<Integer>>();
+        for (int o = 0; o < numAirports; o++) {
+            for (int d = 0; d < numAirports; d++) {
+                if (o == d) {
+                    continue;
+                }
+                List<Integer> demand = new ArrayList<Integer>(numTimePeriods);
+                for (int t = 0; t < numTimePeriods; t++) {
+                    demand.add(t < numTimePeriods / 2 ? random.nextInt(3) : 0);
+                }
+                demands.put(new NetworkHofkinModel.Bucket(ORIGINS[o], ORIGINS[d], 1 + random.nextInt(3)), demand);
+            }
+        }
+        return new NetworkInput(numTimePeriods, 1.0, 3.0, 3.0 * 60, trees, Collections.<String, Integer>emptyMap(),
+                demands, Collections.<String, List<Integer>>emptyMap(), capacities);
+    }
+
+    /**
+     * Implements the inputs of both models, with scenarios numbered by
+     * position.
+     */
+    static final class MockInput implements ExtendedHofkinModel.Input, MHDynModel.Input {
+        private final int numTimePeriods;
+        private final double[] probabilities;
+        private final double[][] capacities;
+        private final List<Integer> scenarios;
+        private final List<List<List<Integer>>> nodes;
+        private final List<DiscreteFlight> flights;
+        private final TreeMap<Integer, double[]> departing;
+        private final double[] enroute;
+
+        private MockInput(int numTimePeriods, double[] probabilities, double[][] capacities,
+                          List<List<List<Integer>>> nodes, List<DiscreteFlight> flights,
+                          TreeMap<Integer, double[]> departing, double[] enroute) {
+            this.numTimePeriods = numTimePeriods;
+            this.probabilities = probabilities;
+            this.capacities = capacities;
+            this.nodes = nodes;
+            this.flights = flights;
+            this.departing = departing;
+            this.enroute = enroute;
+            this.scenarios = new ArrayList<Integer>(probabilities.length);
+            for (int s = 0; s < probabilities.length; s++) {
+                scenarios.add(s);
+            }
+        }
+
+        @Override
+        public int getNumTimePeriods() {
+            return numTimePeriods;
+        }
+
+        @Override
+        public double getGroundCost() {
+            return 1.0;
+        }
+
+        @Override
+        public double getAirCost() {
+            return 3.0;
+        }
+
+        @Override
+        public double getDivertCost() {
+            return 3.0 * 60;
+        }
+
+        @Override
+        public int getMaxAirborne() {
+            return HIGH_CAPACITY - LOW_CAPACITY;
+        }
+
+        @Override
+        public double getScenProbability(int s) {
+            return probabilities[s];
+        }
+
+        @Override
+        public Iterable<Integer> getScenarios() {
+            return scenarios;
+        }
+
+        @Override
+        public Iterable<? extends Iterable<Integer>> getNodes(int i) {
+            return nodes.get(i);
+        }
+
+        @Override
+        public double getCapacity(int scenario, int timePeriod) {
+            return capacities[scenario][timePeriod];
+        }
+
+        @Override
+        public Iterable<Integer> getFlightDurations() {
+            return departing.keySet();
+        }
+
+        @Override
+        public double getNumDeparting(int duration, int timePeriod) {
+            return departing.get(duration)[timePeriod];
+        }
+
+        @Override
+        public Iterable<DiscreteFlight> getFlights() {
+            return flights;
+        }
+
+        @Override
+        public double getEnroute(int i) {
+            return enroute[i];
+        }
+
+        // Both inputs default to periods of equal length, so the defaults
+        // have to be chosen explicitly.
+        @Override
+        public int getArrivalPeriod(int duration, int timePeriod) {
+            return timePeriod + duration;
+        }
+
+        @Override
+        public double getPeriodLength(int timePeriod) {
+            return 1.0;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package benchmarks;
+
+import ips.DHoffkinFlightParser;
+import ips.MHFlightParser;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import util.BTSParser;
+import util.DiscretizerUtil;
+
+/**
+ * Mapping flight times to time periods, both directly through
+ * DiscretizerUtil and through the demand wrappers of the two models.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DiscretizationBenchmark {
+    @Param({"500", "5000"})
+    public int numFlights;
+
+    @Param({"3", "6"})
+    public int horizonHours;
+
+    @Param({"2", "5", "15"})
+    public int discMinutes;
+
+    private Duration discretization;
+    private BTSParser.ResultStruct btsResult;
+    private OffsetDateTime[] arrivalTimes;
+    private Duration[] durations;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        discretization = Duration.ofMinutes(discMinutes);
+        btsResult = BenchmarkData.makeBTSResult(BenchmarkData.SEED, numFlights, horizonHours);
+        arrivalTimes = new OffsetDateTime[numFlights];
+        durations = new Duration[numFlights];
+        int f = 0;
+        for (BTSParser.FlightStruct flight : BenchmarkData.makeFlights(BenchmarkData.SEED, numFlights, horizonHours)) {
+            arrivalTimes[f] = flight.getArrivalTime();
+            durations[f] = flight.getFlightDuration();
+            f++;
+        }
+    }
+
+    @Benchmark
+    public int getNumTimePeriods() {
+        return DiscretizerUtil.getNumTimePeriods(BenchmarkData.START, BenchmarkData.getEnd(horizonHours),
+                discretization);
+    }
+
+    @Benchmark
+    public void timeToIndex(Blackhole blackhole) {
+        for (OffsetDateTime time : arrivalTimes) {
+            blackhole.consume(DiscretizerUtil.timeToIndex(time, BenchmarkData.START, discretization));
+        }
+    }
+
+    @Benchmark
+    public void durationToTimePeriods(Blackhole blackhole) {
+        for (Duration duration : durations) {
+            blackhole.consume(DiscretizerUtil.durationToTimePeriods(duration, discretization));
+        }
+    }
+
+    @Benchmark
+    public DHoffkinFlightParser.DemandStruct wrapDHoffkin() {
+        return DHoffkinFlightParser.wrapBTSOutput(btsResult, discretization);
+    }
+
+    @Benchmark
+    public MHFlightParser.DemandStruct wrapMH() {
+        return MHFlightParser.wrapBTSOutput(btsResult, discretization);
+    }
+}
@@ -0,0 +1,70 @@
+package benchmarks;
+
+import ips.DHoffkinPlan;
+import ips.ExtendedHofkinModel;
+import ips.GroundHoldingHeuristic;
+import ips.MHDynModel;
+import ips.MHFallbackPlans;
+import ips.MHPlan;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Decoding the values of a solved model into a plan, which is the work done
+ * after the single bulk read of the values. The values come from the
+ * heuristics, so no Gurobi license is needed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExtractionBenchmark {
+    @Param({"4", "16", "64"})
+    public int numScenarios;
+
+    @Param({"6"})
+    public int horizonHours;
+
+    @Param({"5", "15"})
+    public int discMinutes;
+
+    private BenchmarkData.MockInput input;
+    private ExtendedHofkinModel.Layout dhLayout;
+    private double[] dhValues;
+    private MHDynModel.Layout mhdLayout;
+    private double[] mhdValues;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        input = BenchmarkData.makeInput(BenchmarkData.SEED, numScenarios, horizonHours, discMinutes);
+        dhLayout = new ExtendedHofkinModel.Layout(input);
+        dhValues = GroundHoldingHeuristic.solve(input).getValues();
+        mhdLayout = new MHDynModel.Layout(input, true);
+        mhdValues = new MHFallbackPlans(input, true).heuristic();
+    }
+
+    @Benchmark
+    public DHoffkinPlan decodeDHoffkin() {
+        return new DHoffkinPlan(input, dhLayout, dhValues);
+    }
+
+    @Benchmark
+    public MHPlan decodeMhd() {
+        return new MHPlan(input, mhdLayout, mhdValues);
+    }
+}
@@ -0,0 +1,58 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import util.BTSParser;
+
+/**
+ * Reading and filtering a BTS file, which every run of the experiments does
+ * once per airport and start time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IngestBenchmark {
+    @Param({"10000", "100000"})
+    public int numRecords;
+
+    @Param({"6", "24"})
+    public int horizonHours;
+
+    private File btsFile;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        btsFile = BenchmarkData.writeBTSFile(BenchmarkData.SEED, numRecords);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        btsFile.delete();
+    }
+
+    @Benchmark
+    public HashSet<BTSParser.FlightStruct> filterByAirportAndTimeRange() throws IOException {
+        return BTSParser.filterByAirportAndTimeRange(btsFile, BenchmarkData.START,
+                BenchmarkData.getEnd(horizonHours), BenchmarkData.AIRPORT);
+    }
+}
@@ -0,0 +1,86 @@
+package benchmarks;
+
+import ips.MHCuts;
+import ips.MHDynModel;
+
+import java.util.concurrent.TimeUnit;
+
+import lp.BranchAndBound;
+import lp.Solution;
+import lp.SparseModel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Solving the MH and MHD models with and without the cuts of
+ * {@link MHCuts} added up front, with the built-in branch and bound, so no
+ * Gurobi license is needed. The solves are deterministic, and the nodes
+ * and simplex iterations they take are printed at the end of each trial.
+ * The instances are kept to an hour of 15-minute periods: with 10-minute
+ * periods the cuts take the branch and bound thousands of nodes, and minutes
+ * for four scenarios.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MHCutsBenchmark {
+    @Param({"2", "4"})
+    public int numScenarios;
+
+    @Param({"1"})
+    public int horizonHours;
+
+    @Param({"15"})
+    public int discMinutes;
+
+    @Param({"false", "true"})
+    public boolean withDiversions;
+
+    @Param({"NONE", "UPFRONT"})
+    public MHCuts.Mode cuts;
+
+    private SparseModel model;
+    private BranchAndBound solver;
+    private Solution lastSolution;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        MHDynModel.Input input = BenchmarkData.makeInput(BenchmarkData.SEED, numScenarios, horizonHours,
+                discMinutes);
+        if (cuts == MHCuts.Mode.UPFRONT) {
+            model = MHCuts.buildModel(input, withDiversions);
+        } else if (cuts == MHCuts.Mode.NONE) {
+            model = withDiversions ? MHDynModel.buildMhdModel(input) : MHDynModel.buildMhModel(input);
+        } else {
+            throw new IllegalArgumentException("Lazy cuts need a Gurobi callback.");
+        }
+        solver = new BranchAndBound();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.println(cuts + ": " + lastSolution.getNodes() + " nodes, " + lastSolution.getIterations()
+                + " simplex iterations, objective " + lastSolution.getObjective());
+    }
+
+    @Benchmark
+    public Solution solve() {
+        lastSolution = solver.solve(model);
+        return lastSolution;
+    }
+}
@@ -0,0 +1,125 @@
+package benchmarks;
+
+import ips.AggregatedMHModel;
+import ips.DHoffkinPresolve;
+import ips.ExtendedHofkinModel;
+import ips.MHDynModel;
+import ips.ModelCache;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import lp.ModelData;
+import lp.MpsWriter;
+import lp.SparseModel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Assembling the sparse models of both formulations, which is everything up
+ * to handing the model to Gurobi. No Gurobi license is needed.
+ * <p>
+ * The cache benchmarks compare the work {@link ModelCache} does for the DHD
+ * model with {@link #buildDHoffkin()}: a miss builds the model and writes it
+ * to a file, and a hit only computes the data to patch the stored model
+ * with. Reading the file into Gurobi is left out of both.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ModelAssemblyBenchmark {
+    @Param({"4", "16", "64"})
+    public int numScenarios;
+
+    @Param({"3", "6"})
+    public int horizonHours;
+
+    @Param({"2", "5", "15"})
+    public int discMinutes;
+
+    private BenchmarkData.MockInput input;
+    // The mock input is an input of both formulations, which the
+    // fingerprints tell apart by type.
+    private ExtendedHofkinModel.Input dhoffkinInput;
+    private File directory;
+    private ModelCache cache;
+    private File missFile;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        input = BenchmarkData.makeInput(BenchmarkData.SEED, numScenarios, horizonHours, discMinutes);
+        dhoffkinInput = input;
+        directory = File.createTempFile("models", "");
+        if (!directory.delete() || !directory.mkdir()) {
+            throw new IOException("Cannot create model cache directory " + directory + ".");
+        }
+        cache = new ModelCache(directory);
+        cache.put("DHD", ModelCache.fingerprint(dhoffkinInput), ExtendedHofkinModel.buildModel(input));
+        missFile = new File(directory, "miss.mps");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    @Benchmark
+    public SparseModel buildDHoffkin() {
+        return ExtendedHofkinModel.buildModel(input);
+    }
+
+    @Benchmark
+    public SparseModel cacheMissDHoffkin() throws IOException {
+        ModelCache.fingerprint(dhoffkinInput);
+        SparseModel model = ExtendedHofkinModel.buildModel(input);
+        MpsWriter.write(model, missFile);
+        return model;
+    }
+
+    @Benchmark
+    public ModelData cacheHitDHoffkin() {
+        if (!cache.contains("DHD", ModelCache.fingerprint(dhoffkinInput))) {
+            throw new IllegalStateException("The model must be stored.");
+        }
+        return ExtendedHofkinModel.buildData(input);
+    }
+
+    @Benchmark
+    public DHoffkinPresolve presolveDHoffkin() {
+        return DHoffkinPresolve.presolve(input);
+    }
+
+    @Benchmark
+    public SparseModel buildMh() {
+        return MHDynModel.buildMhModel(input);
+    }
+
+    @Benchmark
+    public SparseModel buildMhd() {
+        return MHDynModel.buildMhdModel(input);
+    }
+
+    @Benchmark
+    public SparseModel buildAggregatedMhd() {
+        return AggregatedMHModel.buildModel(input, true);
+    }
+}
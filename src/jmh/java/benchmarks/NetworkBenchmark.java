@@ -0,0 +1,82 @@
+package benchmarks;
+
+import gurobi.GRBException;
+import ips.NetworkHofkinModel;
+import ips.NetworkInput;
+import ips.NetworkLagrangian;
+
+import java.util.concurrent.TimeUnit;
+
+import lp.BranchAndBound;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Solving a network of airports with shared departure capacities: the joint
+ * model, its Lagrangian decomposition, and the programs of the airports on
+ * their own, which ignore the departure capacities. All use the built-in
+ * branch and bound, so no Gurobi license is needed; the objectives of the
+ * plans show what the departure capacities cost.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NetworkBenchmark {
+    private static final int NUM_TIME_PERIODS = 12;
+
+    @Param({"2", "4"})
+    public int numAirports;
+
+    @Param({"2", "4"})
+    public int numScenarios;
+
+    @Param({"2"})
+    public int departureCapacity;
+
+    private NetworkInput input;
+    private NetworkHofkinModel.Solver solver;
+    private NetworkLagrangian lagrangian;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        input = BenchmarkData.makeNetwork(BenchmarkData.SEED, numAirports, numScenarios, NUM_TIME_PERIODS,
+                departureCapacity);
+        solver = NetworkHofkinModel.withBranchAndBound(new BranchAndBound());
+        lagrangian = new NetworkLagrangian(20, 1e-4, numAirports);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        lagrangian.shutdown();
+    }
+
+    @Benchmark
+    public NetworkHofkinModel.NetworkPlan joint() throws GRBException {
+        return NetworkHofkinModel.solve(input, solver);
+    }
+
+    @Benchmark
+    public NetworkLagrangian.Result lagrangian() throws GRBException, InterruptedException {
+        return lagrangian.solve(input, solver);
+    }
+
+    @Benchmark
+    public NetworkHofkinModel.NetworkPlan independent() throws GRBException {
+        return NetworkHofkinModel.solveIndependently(input, solver);
+    }
+}
@@ -0,0 +1,67 @@
+package benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import scenarios.DiscreteScenario;
+import scenarios.DiscreteScenarioTree;
+import scenarios.ScenarioTreeFactory;
+
+/**
+ * Building the scenario tree, which partitions the scenarios into nodes in
+ * every time period.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScenarioTreeBenchmark {
+    @Param({"4", "16", "64"})
+    public int numScenarios;
+
+    @Param({"3", "6"})
+    public int horizonHours;
+
+    @Param({"2", "5", "15"})
+    public int discMinutes;
+
+    @Param({"0", "6"})
+    public int lookahead;
+
+    private int numTimePeriods;
+    private int periodsPerHour;
+    private List<DiscreteScenario> scenarios;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        numTimePeriods = BenchmarkData.getNumTimePeriods(horizonHours, discMinutes);
+        periodsPerHour = Math.max(1, 60 / discMinutes);
+        scenarios = BenchmarkData.makeScenarios(numTimePeriods, numScenarios, periodsPerHour);
+    }
+
+    @Benchmark
+    public DiscreteScenarioTree makeLoToHigh() {
+        return ScenarioTreeFactory.makeLoToHigh(numTimePeriods, 0, Math.min(numScenarios, numTimePeriods),
+                BenchmarkData.LOW_CAPACITY, BenchmarkData.HIGH_CAPACITY, periodsPerHour, false, lookahead);
+    }
+
+    @Benchmark
+    public DiscreteScenarioTree construct() {
+        return new DiscreteScenarioTree(numTimePeriods, scenarios, lookahead);
+    }
+}
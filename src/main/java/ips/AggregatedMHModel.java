@@ -0,0 +1,513 @@
+package ips;
+
+import gurobi.GRB;
+import gurobi.GRBEnv;
+import gurobi.GRBException;
+import gurobi.GRBModel;
+import gurobi.GRBVar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+
+import lp.LinearExpr;
+import lp.SparseModel;
+import solve.SolveInstrumentation;
+import solve.SolveMetrics;
+
+/**
+ * A variant of the MH and MHD models of {@link MHDynModel} in which flights
+ * with the same scheduled departure period and the same duration are
+ * grouped into a cohort. Flights in a cohort are interchangeable, so instead
+ * of one binary variable per flight, period and scenario, there is one
+ * general integer variable per cohort, period and scenario which counts how
+ * many of its flights depart in that period. This removes the symmetry
+ * between identical flights without changing the optimal objective.
+ * <p>
+ * A per-flight assignment can be recovered from a solution with
+ * {@link #getFlightDepartures(Layout, double[])}. The air, divert and land
+ * variables and the arrival constraints have the same names as in
+ * {@link MHDynModel}, so {@link MHDynModel#getAverageDiversions} also works
+ * with this model.
+ */
+public final class AggregatedMHModel {
+
+    private AggregatedMHModel() {
+
+    }
+
+    /**
+     * Flights which are scheduled to depart in the same period and have the
+     * same duration. The flights are sorted by id.
+     */
+    public static final class Cohort {
+        private final int departTimePeriod;
+        private final int flightDuration;
+        private final List<DiscreteFlight> flights;
+        // The arrival period for each departure period, from the scheduled
+        // one on.
+        private final int[] arrivalPeriods;
+
+        private Cohort(int departTimePeriod, int flightDuration, List<DiscreteFlight> flights,
+                       int[] arrivalPeriods) {
+            this.departTimePeriod = departTimePeriod;
+            this.flightDuration = flightDuration;
+            this.flights = Collections.unmodifiableList(flights);
+            this.arrivalPeriods = arrivalPeriods;
+        }
+
+        public int getDepartTimePeriod() {
+            return departTimePeriod;
+        }
+
+        public int getFlightDuration() {
+            return flightDuration;
+        }
+
+        public int getSize() {
+            return flights.size();
+        }
+
+        public List<DiscreteFlight> getFlights() {
+            return flights;
+        }
+    }
+
+    public static GRBModel solveModel(MHDynModel.Input input, GRBEnv myEnv, boolean withDiversions,
+                                      boolean verbose) throws GRBException {
+        GRBModel myModel = setupModel(input, myEnv, withDiversions, verbose);
+        myModel.optimize();
+        return myModel;
+    }
+
+    /**
+     * Solves the model while recording the time of each phase and the
+     * progress of the solve in the given metrics.
+     */
+    public static GRBModel solveModel(MHDynModel.Input input, GRBEnv myEnv, boolean withDiversions,
+                                      boolean verbose, SolveMetrics metrics) throws GRBException {
+        GRBModel myModel = setupModel(input, myEnv, withDiversions, verbose, metrics);
+        SolveInstrumentation.optimize(myModel, metrics);
+        return myModel;
+    }
+
+    /**
+     * Sets up the model while recording the time of each phase in the given
+     * metrics, if any.
+     */
+    public static GRBModel setupModel(MHDynModel.Input input, GRBEnv myEnv, boolean withDiversions,
+                                      boolean verbose, SolveMetrics metrics) throws GRBException {
+        GRBModel myModel = SolveInstrumentation.load(buildModel(input, withDiversions, metrics), myEnv, metrics);
+        if (!verbose) {
+            myModel.set(GRB.IntParam.OutputFlag, 0);
+        }
+        return myModel;
+    }
+
+    public static GRBModel setupModel(MHDynModel.Input input, GRBEnv myEnv, boolean withDiversions,
+                                      boolean verbose) throws GRBException {
+        return setupModel(input, myEnv, withDiversions, verbose, null);
+    }
+
+    /**
+     * Builds the aggregated MH model, or the aggregated MHD model if
+     * withDiversions is set, without any solver.
+     */
+    public static SparseModel buildModel(MHDynModel.Input input, boolean withDiversions) {
+        return buildModel(input, withDiversions, null);
+    }
+
+    /**
+     * Builds the model, recording the time of each phase in the metrics
+     * unless they are null.
+     */
+    private static SparseModel buildModel(MHDynModel.Input input, boolean withDiversions, SolveMetrics metrics) {
+        Layout layout = new Layout(input, withDiversions);
+        SparseModel myModel = new SparseModel(layout.getNumVars(), layout.getNumVars(), 3 * layout.getNumVars());
+        if (metrics != null) {
+            metrics.startPhase(SolveMetrics.BUILD_VARS);
+        }
+        addVars(myModel, input, layout);
+        if (metrics != null) {
+            metrics.endPhase(SolveMetrics.BUILD_VARS);
+            metrics.startPhase(SolveMetrics.BUILD_CONSTRS);
+        }
+        addConstraints(myModel, input, layout);
+        if (metrics != null) {
+            metrics.endPhase(SolveMetrics.BUILD_CONSTRS);
+        }
+        return myModel;
+    }
+
+    private static void addVars(SparseModel model, MHDynModel.Input input, Layout layout) {
+        addCohortVars(model, input, layout);
+        addAirVars(model, input, layout);
+        if (layout.hasDiversions()) {
+            addDivertVars(model, input, layout);
+            addLandVars(model, input, layout);
+        }
+    }
+
+    private static void addConstraints(SparseModel model, MHDynModel.Input input, Layout layout) {
+        addCohortConstraints(model, input, layout);
+        addArrivalConstraints(model, input, layout);
+        addAntiAnticipatoryConstraints(model, input, layout);
+    }
+
+    /**
+     * The position of each variable in the model. Cohort variables come
+     * first, grouped by cohort, then time period, then scenario, followed by
+     * the air, divert and land variables in the same order as in
+     * {@link MHDynModel.Layout}.
+     */
+    public static final class Layout {
+        private final int numTimePeriods;
+        private final Cohort[] cohorts;
+        private final int[] cohortStarts;
+        private final int[] scenarios;
+        private final HashMap<Integer, Integer> scenarioPositions;
+        private final boolean withDiversions;
+        private final int airStart;
+        private final int numVars;
+
+        public Layout(MHDynModel.Input input, boolean withDiversions) {
+            this.withDiversions = withDiversions;
+            numTimePeriods = input.getNumTimePeriods();
+            scenarioPositions = new HashMap<Integer, Integer>();
+            for (int s : input.getScenarios()) {
+                scenarioPositions.put(s, scenarioPositions.size());
+            }
+            scenarios = new int[scenarioPositions.size()];
+            for (int s : input.getScenarios()) {
+                scenarios[scenarioPositions.get(s)] = s;
+            }
+            cohorts = makeCohorts(input);
+            cohortStarts = new int[cohorts.length];
+            int count = 0;
+            for (int c = 0; c < cohorts.length; c++) {
+                cohortStarts[c] = count;
+                count += getNumDepartPeriods(cohorts[c]) * scenarios.length;
+            }
+            airStart = count;
+            int numPerScenario = withDiversions ? 3 : 1;
+            numVars = airStart + numPerScenario * scenarios.length * numTimePeriods;
+        }
+
+        private static Cohort[] makeCohorts(MHDynModel.Input input) {
+            // Keys are (departTimePeriod, flightDuration) pairs.
+            HashMap<List<Integer>, List<DiscreteFlight>> groups = new HashMap<List<Integer>, List<DiscreteFlight>>();
+            for (DiscreteFlight f : input.getFlights()) {
+                List<Integer> key = new ArrayList<Integer>(2);
+                key.add(f.getDepartTimePeriod());
+                key.add(f.getFlightDuration());
+                List<DiscreteFlight> group = groups.get(key);
+                if (group == null) {
+                    group = new ArrayList<DiscreteFlight>();
+                    groups.put(key, group);
+                }
+                group.add(f);
+            }
+            Comparator<DiscreteFlight> byId = new Comparator<DiscreteFlight>() {
+                @Override
+                public int compare(DiscreteFlight f1, DiscreteFlight f2) {
+                    return Integer.compare(f1.getFlightId(), f2.getFlightId());
+                }
+            };
+            List<Cohort> cohortList = new ArrayList<Cohort>(groups.size());
+            for (List<DiscreteFlight> group : groups.values()) {
+                Collections.sort(group, byId);
+                DiscreteFlight first = group.get(0);
+                cohortList.add(new Cohort(first.getDepartTimePeriod(), first.getFlightDuration(), group,
+                        getArrivalPeriods(input, first)));
+            }
+            // Sorted so that the layout does not depend on hash order.
+            Collections.sort(cohortList, new Comparator<Cohort>() {
+                @Override
+                public int compare(Cohort c1, Cohort c2) {
+                    if (c1.departTimePeriod != c2.departTimePeriod) {
+                        return Integer.compare(c1.departTimePeriod, c2.departTimePeriod);
+                    }
+                    return Integer.compare(c1.flightDuration, c2.flightDuration);
+                }
+            });
+            return cohortList.toArray(new Cohort[cohortList.size()]);
+        }
+
+        /**
+         * The arrival periods of a flight for each period from its scheduled
+         * one up to the last in which it arrives by the end of the horizon.
+         */
+        private static int[] getArrivalPeriods(MHDynModel.Input input, DiscreteFlight f) {
+            int numTimePeriods = input.getNumTimePeriods();
+            int[] arrivals = new int[Math.max(0, numTimePeriods + 1 - f.getDepartTimePeriod())];
+            int count = 0;
+            for (int t = f.getDepartTimePeriod(); t <= numTimePeriods; t++) {
+                int arrival = input.getArrivalPeriod(f.getFlightDuration(), t);
+                if (arrival > numTimePeriods) {
+                    break;
+                }
+                arrivals[count++] = arrival;
+            }
+            return Arrays.copyOf(arrivals, count);
+        }
+
+        public int getNumTimePeriods() {
+            return numTimePeriods;
+        }
+
+        public int getNumVars() {
+            return numVars;
+        }
+
+        public boolean hasDiversions() {
+            return withDiversions;
+        }
+
+        public int getNumScenarios() {
+            return scenarios.length;
+        }
+
+        public int getScenario(int position) {
+            return scenarios[position];
+        }
+
+        public int getScenarioPosition(int scenario) {
+            return scenarioPositions.get(scenario);
+        }
+
+        public int getNumCohorts() {
+            return cohorts.length;
+        }
+
+        public Cohort getCohort(int position) {
+            return cohorts[position];
+        }
+
+        /**
+         * A cohort may depart from its scheduled period up to the last period
+         * in which it arrives by the end of the horizon. With periods of equal
+         * length, this is period numTimePeriods - duration.
+         */
+        public int getNumDepartPeriods(Cohort c) {
+            return c.arrivalPeriods.length;
+        }
+
+        /**
+         * The period in which the cohort arrives if it departs in the given
+         * period, which must be one of its departure periods.
+         */
+        public int getArrivalPeriod(Cohort c, int timePeriod) {
+            return c.arrivalPeriods[timePeriod - c.getDepartTimePeriod()];
+        }
+
+        public int cohortVar(int cohortPos, int timePeriod, int scenarioPos) {
+            return cohortStarts[cohortPos]
+                    + (timePeriod - cohorts[cohortPos].getDepartTimePeriod()) * scenarios.length + scenarioPos;
+        }
+
+        public int airVar(int scenarioPos, int timePeriod) {
+            return airStart + scenarioPos * numTimePeriods + timePeriod;
+        }
+
+        public int divertVar(int scenarioPos, int timePeriod) {
+            return airStart + (scenarios.length + scenarioPos) * numTimePeriods + timePeriod;
+        }
+
+        public int landVar(int scenarioPos, int timePeriod) {
+            return airStart + (2 * scenarios.length + scenarioPos) * numTimePeriods + timePeriod;
+        }
+    }
+
+    /**
+     * Recovers the departure period of each flight in each scenario from the
+     * variable values of a solution. Within a cohort, flights are assigned to
+     * the departure periods in order of flight id, so that the earliest
+     * departure slots go to the lowest ids. Since the cohort counts of
+     * scenarios that share a node agree, this assignment is also
+     * non-anticipative. The result maps each scenario to a map from flight id
+     * to departure period.
+     */
+    public static HashMap<Integer, HashMap<Integer, Integer>> getFlightDepartures(Layout layout, double[] values) {
+        HashMap<Integer, HashMap<Integer, Integer>> departures = new HashMap<Integer, HashMap<Integer, Integer>>();
+        for (int sPos = 0; sPos < layout.getNumScenarios(); sPos++) {
+            HashMap<Integer, Integer> scenarioDepartures = new HashMap<Integer, Integer>();
+            for (int c = 0; c < layout.getNumCohorts(); c++) {
+                Cohort cohort = layout.getCohort(c);
+                Iterator<DiscreteFlight> flightIter = cohort.getFlights().iterator();
+                int lastPeriod = cohort.getDepartTimePeriod() + layout.getNumDepartPeriods(cohort) - 1;
+                for (int j = cohort.getDepartTimePeriod(); j <= lastPeriod; j++) {
+                    long count = Math.round(values[layout.cohortVar(c, j, sPos)]);
+                    for (long k = 0; k < count && flightIter.hasNext(); k++) {
+                        scenarioDepartures.put(flightIter.next().getFlightId(), j);
+                    }
+                }
+                if (flightIter.hasNext()) {
+                    throw new IllegalArgumentException("Solution does not assign every flight of the cohort departing "
+                            + "at " + cohort.getDepartTimePeriod() + " with duration " + cohort.getFlightDuration()
+                            + " in scenario " + layout.getScenario(sPos) + ".");
+                }
+            }
+            departures.put(layout.getScenario(sPos), scenarioDepartures);
+        }
+        return departures;
+    }
+
+    /**
+     * Recovers the departure period of each flight in each scenario from a
+     * solved model built by {@link #setupModel}.
+     */
+    public static HashMap<Integer, HashMap<Integer, Integer>> getFlightDepartures(MHDynModel.Input input,
+                                                                                  GRBModel model,
+                                                                                  boolean withDiversions)
+            throws GRBException {
+        Layout layout = new Layout(input, withDiversions);
+        GRBVar[] vars = model.getVars();
+        double[] values = model.get(GRB.DoubleAttr.X, vars);
+        return getFlightDepartures(layout, values);
+    }
+
+    public static String getCohortVarName(int departTimePeriod, int duration, int timePeriod, int scenario) {
+        return "DEP_COHORT;Sched:" + departTimePeriod + ",Dur:" + duration + ",Time:" + timePeriod
+                + ",Scen:" + scenario;
+    }
+
+    public static String getCohortConstrName(int scenario, int departTimePeriod, int duration) {
+        return "COHORT_NODE:" + scenario + "," + departTimePeriod + "," + duration;
+    }
+
+    public static String getCohortAAConstrName(int scenario1, int scenario2, int departTimePeriod, int duration,
+                                               int t) {
+        return "COHORT_AA:" + scenario1 + "," + scenario2 + "," + departTimePeriod + "," + duration + "," + t;
+    }
+
+    private static void addCohortVars(SparseModel model, MHDynModel.Input input, Layout layout) {
+        double groundCost = input.getGroundCost();
+        for (int c = 0; c < layout.getNumCohorts(); c++) {
+            Cohort cohort = layout.getCohort(c);
+            int depIndex = cohort.getDepartTimePeriod();
+            double delay = 0.0;
+            for (int j = depIndex; j < depIndex + layout.getNumDepartPeriods(cohort); j++) {
+                for (int sPos = 0; sPos < layout.getNumScenarios(); sPos++) {
+                    int s = layout.getScenario(sPos);
+                    model.addVar(0.0, cohort.getSize(), groundCost * delay * input.getScenProbability(s),
+                            SparseModel.INTEGER, getCohortVarName(depIndex, cohort.getFlightDuration(), j, s));
+                }
+                delay += input.getPeriodLength(j);
+            }
+        }
+    }
+
+    private static void addAirVars(SparseModel model, MHDynModel.Input input, Layout layout) {
+        double maxAirborne = input.getMaxAirborne();
+        double upper = maxAirborne == MHDynModel.UNLIMITED ? SparseModel.INFINITY : maxAirborne;
+        for (int sPos = 0; sPos < layout.getNumScenarios(); sPos++) {
+            int s = layout.getScenario(sPos);
+            double probability = input.getScenProbability(s);
+            for (int i = 0; i < layout.getNumTimePeriods(); i++) {
+                model.addVar(0.0, upper, input.getAirCost() * probability * input.getPeriodLength(i),
+                        SparseModel.INTEGER, MHDynModel.getAirVarName(s, i));
+            }
+        }
+    }
+
+    private static void addDivertVars(SparseModel model, MHDynModel.Input input, Layout layout) {
+        for (int sPos = 0; sPos < layout.getNumScenarios(); sPos++) {
+            int s = layout.getScenario(sPos);
+            double probability = input.getScenProbability(s);
+            for (int i = 0; i < layout.getNumTimePeriods(); i++) {
+                model.addVar(0.0, SparseModel.INFINITY, input.getDivertCost() * probability, SparseModel.INTEGER,
+                        MHDynModel.getDivertVarName(s, i));
+            }
+        }
+    }
+
+    private static void addLandVars(SparseModel model, MHDynModel.Input input, Layout layout) {
+        for (int sPos = 0; sPos < layout.getNumScenarios(); sPos++) {
+            int s = layout.getScenario(sPos);
+            for (int i = 0; i < layout.getNumTimePeriods(); i++) {
+                model.addVar(0.0, input.getCapacity(s, i), 0.0, SparseModel.INTEGER,
+                        MHDynModel.getLandVarName(s, i));
+            }
+        }
+    }
+
+    private static void addCohortConstraints(SparseModel model, MHDynModel.Input input, Layout layout) {
+        for (int sPos = 0; sPos < layout.getNumScenarios(); sPos++) {
+            for (int c = 0; c < layout.getNumCohorts(); c++) {
+                Cohort cohort = layout.getCohort(c);
+                int depIndex = cohort.getDepartTimePeriod();
+                LinearExpr times = new LinearExpr(layout.getNumDepartPeriods(cohort));
+                for (int j = depIndex; j < depIndex + layout.getNumDepartPeriods(cohort); j++) {
+                    times.addTerm(1.0, layout.cohortVar(c, j, sPos));
+                }
+                model.addConstr(times, SparseModel.EQUAL, cohort.getSize(),
+                        getCohortConstrName(layout.getScenario(sPos), depIndex, cohort.getFlightDuration()));
+            }
+        }
+    }
+
+    private static void addArrivalConstraints(SparseModel model, MHDynModel.Input input, Layout layout) {
+        int numTimePeriods = layout.getNumTimePeriods();
+        for (int sPos = 0; sPos < layout.getNumScenarios(); sPos++) {
+            int s = layout.getScenario(sPos);
+            LinearExpr[] inFlows = new LinearExpr[numTimePeriods];
+            for (int t = 0; t < numTimePeriods; t++) {
+                inFlows[t] = new LinearExpr();
+                inFlows[t].addConstant(input.getEnroute(t));
+            }
+            for (int c = 0; c < layout.getNumCohorts(); c++) {
+                Cohort cohort = layout.getCohort(c);
+                int end = cohort.getDepartTimePeriod() + layout.getNumDepartPeriods(cohort);
+                for (int j = cohort.getDepartTimePeriod(); j < end; j++) {
+                    int arrival = layout.getArrivalPeriod(cohort, j);
+                    if (arrival < numTimePeriods) {
+                        inFlows[arrival].addTerm(1.0, layout.cohortVar(c, j, sPos));
+                    }
+                }
+            }
+            for (int t = 0; t < numTimePeriods; t++) {
+                LinearExpr inFlow = inFlows[t];
+                if (t > 0) {
+                    inFlow.addTerm(1.0, layout.airVar(sPos, t - 1));
+                }
+                if (layout.hasDiversions()) {
+                    LinearExpr outFlow = new LinearExpr(3);
+                    outFlow.addTerm(1.0, layout.airVar(sPos, t));
+                    outFlow.addTerm(1.0, layout.divertVar(sPos, t));
+                    outFlow.addTerm(1.0, layout.landVar(sPos, t));
+                    model.addConstr(inFlow, SparseModel.EQUAL, outFlow, MHDynModel.getArrivalNodeConstrName(s, t));
+                } else {
+                    LinearExpr outFlow = new LinearExpr(1);
+                    outFlow.addConstant(input.getCapacity(s, t));
+                    outFlow.addTerm(1.0, layout.airVar(sPos, t));
+                    model.addConstr(inFlow, SparseModel.LESS_EQUAL, outFlow,
+                            MHDynModel.getArrivalNodeConstrName(s, t));
+                }
+            }
+        }
+    }
+
+    private static void addAntiAnticipatoryConstraints(SparseModel model, MHDynModel.Input input, Layout layout) {
+        for (int c = 0; c < layout.getNumCohorts(); c++) {
+            Cohort cohort = layout.getCohort(c);
+            int depIndex = cohort.getDepartTimePeriod();
+            for (int i = depIndex; i < depIndex + layout.getNumDepartPeriods(cohort); i++) {
+                for (Iterable<Integer> nodes : input.getNodes(i)) {
+                    Iterator<Integer> scenIter = nodes.iterator();
+                    int firstScen = scenIter.next();
+                    int firstPos = layout.getScenarioPosition(firstScen);
+                    while (scenIter.hasNext()) {
+                        int nextScen = scenIter.next();
+                        model.addConstr(layout.cohortVar(c, i, firstPos), SparseModel.EQUAL,
+                                layout.cohortVar(c, i, layout.getScenarioPosition(nextScen)),
+                                getCohortAAConstrName(firstScen, nextScen, depIndex, cohort.getFlightDuration(), i));
+                    }
+                }
+            }
+        }
+    }
+}
@@ -13,6 +13,7 @@ import java.util.Set;
 import util.BTSParser;
 import util.BTSParser.FlightStruct;
 import util.DiscretizerUtil;
+import util.TimeGrid;
 
 public final class DHoffkinFlightParser {
 	private DHoffkinFlightParser() {
@@ -29,9 +30,26 @@ public final class DHoffkinFlightParser {
 		
 		private final int numTimePeriods;
 
+		// The periods of the demands, or null if they all have the same
+		// length, in which durations are measured.
+		private final TimeGrid grid;
+
 		public DemandStruct(Map<Integer, ? extends List<Integer>> demandMap,
 				List<Integer> enroute) {
+			this(demandMap, enroute, null);
+		}
+
+		/**
+		 * Demands over the periods of the grid, with durations in the units
+		 * of the grid.
+		 */
+		public DemandStruct(Map<Integer, ? extends List<Integer>> demandMap,
+				List<Integer> enroute, TimeGrid grid) {
 			super();
+			if (grid != null && grid.getNumTimePeriods() != enroute.size()) {
+				throw new IllegalArgumentException("The grid must have one period per demand, but had "
+						+ grid.getNumTimePeriods() + " for " + enroute.size() + ".");
+			}
 			this.demandMap = new HashMap<Integer, ArrayList<Integer>>();
 			for (Entry<Integer, ? extends List<Integer>> demandEntry : demandMap
 					.entrySet()) {
@@ -40,6 +58,7 @@ public final class DHoffkinFlightParser {
 			}
 			this.enroute = new ArrayList<Integer>(enroute);
 			this.numTimePeriods =enroute.size();
+			this.grid = grid;
 		}
 
 		public int getDemand(int flightDuration, int timePeriod) {
@@ -57,6 +76,15 @@ public final class DHoffkinFlightParser {
 		public Set<Integer> getDurations(){
 			return new HashSet<Integer>(demandMap.keySet());
 		}
+
+		/**
+		 * The grid of the demands, or null if the periods all have the same
+		 * length.
+		 */
+		public TimeGrid getGrid() {
+			return grid;
+		}
+
 		@Override
 		public String toString() {
 			String myString = "Demand by duration: \n";
@@ -96,6 +124,38 @@ public final class DHoffkinFlightParser {
 		return new DemandStruct(demandMap, enroute);
 	}
 
+	/**
+	 * Discretizes the flights over the periods of the grid, which need not
+	 * have the same length. Durations are measured in the units of the grid.
+	 */
+	public static DemandStruct wrapBTSOutput(BTSParser.ResultStruct btsResults,
+			TimeGrid grid) {
+		int numTimePeriods = grid.getNumTimePeriods();
+		HashMap<Integer, ArrayList<Integer>> demandMap = new HashMap<Integer, ArrayList<Integer>>();
+		for (BTSParser.FlightStruct f : btsResults.getSittingFlights()) {
+			int flightDur = grid.durationToUnits(f.getFlightDuration());
+			if (!demandMap.containsKey(flightDur)) {
+				initializeDurationCategory(flightDur, numTimePeriods, demandMap);
+			}
+			int depIndex = grid.timeToIndex(f.getDepartureTime());
+			ArrayList<Integer> demandsForThisDuration = demandMap.get(flightDur);
+			demandsForThisDuration.set(depIndex, demandsForThisDuration.get(depIndex) + 1);
+		}
+		return new DemandStruct(demandMap, wrapEnrouteFlights(btsResults.getAirborneFlights(), grid), grid);
+	}
+
+	public static ArrayList<Integer> wrapEnrouteFlights(Set<FlightStruct> airborneFlights, TimeGrid grid) {
+		ArrayList<Integer> enroute = new ArrayList<Integer>(grid.getNumTimePeriods());
+		for (int i = 0; i < grid.getNumTimePeriods(); i++) {
+			enroute.add(0);
+		}
+		for (BTSParser.FlightStruct f : airborneFlights) {
+			int arrIndex = grid.timeToIndex(f.getArrivalTime());
+			enroute.set(arrIndex, enroute.get(arrIndex) + 1);
+		}
+		return enroute;
+	}
+
 	public static ArrayList<Integer> wrapEnrouteFlights(
 			Set<FlightStruct> airborneFlights, int numTimePeriods,
 			OffsetDateTime startTime, Duration discretization) {
@@ -2,6 +2,7 @@ package ips;
 
 import ips.ExtendedHofkinModel.Input;
 import scenarios.DiscreteScenarioTree;
+import util.TimeGrid;
 
 public class DHoffkinInput implements Input {
 	private final int numTimePeriods;
@@ -85,4 +86,16 @@ public class DHoffkinInput implements Input {
 		return demands.getEnroute(i);
 	}
 
+	@Override
+	public int getArrivalPeriod(int duration, int timePeriod) {
+		TimeGrid grid = demands.getGrid();
+		return grid == null ? timePeriod + duration : grid.getArrivalPeriod(duration, timePeriod);
+	}
+
+	@Override
+	public double getPeriodLength(int timePeriod) {
+		TimeGrid grid = demands.getGrid();
+		return grid == null ? 1.0 : grid.getPeriodLengthInUnits(timePeriod);
+	}
+
 }
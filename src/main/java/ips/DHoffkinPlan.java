@@ -0,0 +1,150 @@
+package ips;
+
+import gurobi.GRB;
+import gurobi.GRBException;
+import gurobi.GRBModel;
+
+/**
+ * A solution of {@link ExtendedHofkinModel}, with the GROUND, DEPART, AIR,
+ * LAND and DIVERT values of every scenario. The values are stored in the
+ * order of {@link ExtendedHofkinModel.Layout}, which is also the variable
+ * order of the models built by {@link ExtendedHofkinModel#setupModel}.
+ */
+public class DHoffkinPlan {
+    private final ExtendedHofkinModel.Layout layout;
+    private final double[] values;
+    private final double objective;
+    private final ScenarioFlows flows;
+
+    public DHoffkinPlan(ExtendedHofkinModel.Input input, ExtendedHofkinModel.Layout layout, double[] values) {
+        if (values.length != layout.getNumVars()) {
+            throw new IllegalArgumentException("Expected " + layout.getNumVars() + " values, but got "
+                    + values.length + ".");
+        }
+        this.layout = layout;
+        this.values = values.clone();
+        this.objective = computeObjective(input, layout, values);
+        this.flows = computeFlows(input, layout, values);
+    }
+
+    /**
+     * Reads the plan from a solved model built by
+     * {@link ExtendedHofkinModel#setupModel}.
+     */
+    public static DHoffkinPlan fromModel(ExtendedHofkinModel.Input input, GRBModel model) throws GRBException {
+        return new DHoffkinPlan(input, new ExtendedHofkinModel.Layout(input),
+                model.get(GRB.DoubleAttr.X, model.getVars()));
+    }
+
+    private static double computeObjective(ExtendedHofkinModel.Input input, ExtendedHofkinModel.Layout layout,
+                                           double[] values) {
+        double sum = 0.0;
+        for (int sPos = 0; sPos < layout.getNumScenarios(); sPos++) {
+            double scenarioCost = 0.0;
+            for (int dPos = 0; dPos < layout.getNumDurations(); dPos++) {
+                for (int i = 0; i < layout.getNumGroundPeriods(layout.getDuration(dPos)); i++) {
+                    scenarioCost += input.getGroundCost() * input.getPeriodLength(i)
+                            * values[layout.groundVar(sPos, dPos, i)];
+                }
+            }
+            for (int i = 0; i < layout.getNumTimePeriods(); i++) {
+                scenarioCost += input.getAirCost() * input.getPeriodLength(i) * values[layout.airVar(sPos, i)]
+                        + input.getDivertCost() * values[layout.divertVar(sPos, i)];
+            }
+            sum += input.getScenProbability(layout.getScenario(sPos)) * scenarioCost;
+        }
+        return sum;
+    }
+
+    private static ScenarioFlows computeFlows(ExtendedHofkinModel.Input input, ExtendedHofkinModel.Layout layout,
+                                              double[] values) {
+        int numTimePeriods = layout.getNumTimePeriods();
+        int numScenarios = layout.getNumScenarios();
+        int[] scenarios = new int[numScenarios];
+        double[] probabilities = new double[numScenarios];
+        int[] ground = new int[numScenarios * numTimePeriods];
+        int[] air = new int[numScenarios * numTimePeriods];
+        int[] land = new int[numScenarios * numTimePeriods];
+        int[] divert = new int[numScenarios * numTimePeriods];
+        for (int sPos = 0; sPos < numScenarios; sPos++) {
+            scenarios[sPos] = layout.getScenario(sPos);
+            probabilities[sPos] = input.getScenProbability(scenarios[sPos]);
+            int offset = sPos * numTimePeriods;
+            for (int dPos = 0; dPos < layout.getNumDurations(); dPos++) {
+                int numGroundPeriods = layout.getNumGroundPeriods(layout.getDuration(dPos));
+                int start = layout.groundVar(sPos, dPos, 0);
+                for (int i = 0; i < numGroundPeriods; i++) {
+                    ground[offset + i] += (int) Math.round(values[start + i]);
+                }
+            }
+            int airStart = layout.airVar(sPos, 0);
+            int landStart = layout.landVar(sPos, 0);
+            int divertStart = layout.divertVar(sPos, 0);
+            for (int i = 0; i < numTimePeriods; i++) {
+                air[offset + i] = (int) Math.round(values[airStart + i]);
+                land[offset + i] = (int) Math.round(values[landStart + i]);
+                divert[offset + i] = (int) Math.round(values[divertStart + i]);
+            }
+        }
+        return new ScenarioFlows(numTimePeriods, scenarios, probabilities, ground, air, land, divert);
+    }
+
+    public ExtendedHofkinModel.Layout getLayout() {
+        return layout;
+    }
+
+    /**
+     * The expected cost of the plan.
+     */
+    public double getObjective() {
+        return objective;
+    }
+
+    /**
+     * The ground holds, airborne queues, landings and diversions of each
+     * scenario.
+     */
+    public ScenarioFlows getFlows() {
+        return flows;
+    }
+
+    public double[] getValues() {
+        return values.clone();
+    }
+
+    public double getGround(int scenario, int duration, int timePeriod) {
+        return values[layout.groundVar(layout.getScenarioPosition(scenario), layout.getDurationPosition(duration),
+                timePeriod)];
+    }
+
+    public double getDepart(int scenario, int duration, int timePeriod) {
+        return values[layout.departVar(layout.getScenarioPosition(scenario), layout.getDurationPosition(duration),
+                timePeriod)];
+    }
+
+    public double getAir(int scenario, int timePeriod) {
+        return values[layout.airVar(layout.getScenarioPosition(scenario), timePeriod)];
+    }
+
+    public double getLand(int scenario, int timePeriod) {
+        return values[layout.landVar(layout.getScenarioPosition(scenario), timePeriod)];
+    }
+
+    public double getDivert(int scenario, int timePeriod) {
+        return values[layout.divertVar(layout.getScenarioPosition(scenario), timePeriod)];
+    }
+
+    /**
+     * Sets the plan as the MIP start of a model built by
+     * {@link ExtendedHofkinModel#setupModel} from the same input.
+     */
+    public void applyAsMipStart(GRBModel model) throws GRBException {
+        model.set(GRB.DoubleAttr.Start, model.getVars(), values);
+    }
+
+    @Override
+    public String toString() {
+        return "Obj: " + objective + ", Scenarios: " + layout.getNumScenarios() + ", Durations: "
+                + layout.getNumDurations() + ", Time periods: " + layout.getNumTimePeriods();
+    }
+}
@@ -0,0 +1,487 @@
+package ips;
+
+import gurobi.GRB;
+import gurobi.GRBEnv;
+import gurobi.GRBException;
+import gurobi.GRBModel;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+import lp.GurobiAdapter;
+import lp.LinearExpr;
+import lp.SparseModel;
+import solve.PolicyResult;
+import solve.SolvePolicy;
+
+/**
+ * Shrinks the DHD model of {@link ExtendedHofkinModel} using what is known
+ * about its network flow structure, before it is handed to a solver.
+ * <ul>
+ * <li>Durations with no departures at all are dropped, with their ground and
+ * departure variables and their departure nodes.</li>
+ * <li>Ground and departure variables before the first departure of their
+ * duration are fixed to zero, as are the air, land and divert variables of
+ * periods in which no flight can have arrived yet.</li>
+ * <li>Scenarios which share a node of the tree share their ground and
+ * departure variables, so the anti-anticipatory constraints disappear.</li>
+ * <li>Ground and departure variables are bounded by the cumulative demand of
+ * their duration, and the land and divert variables by the flights which can
+ * have arrived. The air variables are bounded by the longest queue which
+ * can build up if flights land whenever there is capacity, comparing the
+ * flights which can arrive with the cumulative capacity of the scenario.
+ * Landing is free, so some optimal plan lands flights as early as it can,
+ * and this bound keeps it.</li>
+ * </ul>
+ * Variables whose bounds meet are substituted out, and constraints left
+ * without variables are dropped. The values of a solution of the reduced
+ * model are mapped back to the order of {@link ExtendedHofkinModel.Layout} by
+ * {@link #postsolve}, so plans and fallbacks work as for the full model.
+ */
+public final class DHoffkinPresolve {
+    private static final double TOLERANCE = 1e-9;
+
+    /**
+     * The size of the model before and after the presolve, and what each
+     * reduction contributed.
+     */
+    public static final class Reduction {
+        private final int numVarsBefore;
+        private final int numConstrsBefore;
+        private final int numNonZerosBefore;
+        private final int numVarsAfter;
+        private final int numConstrsAfter;
+        private final int numNonZerosAfter;
+        private final int numEmptyDurations;
+        private final int numFixedVars;
+        private final int numMergedVars;
+        private final int numBoundedAirVars;
+        private final double runtime;
+
+        private Reduction(SparseModel before, SparseModel after, int numEmptyDurations, int numFixedVars,
+                          int numMergedVars, int numBoundedAirVars, double runtime) {
+            this.numVarsBefore = before.getNumVars();
+            this.numConstrsBefore = before.getNumConstrs();
+            this.numNonZerosBefore = before.getNumNonZeros();
+            this.numVarsAfter = after.getNumVars();
+            this.numConstrsAfter = after.getNumConstrs();
+            this.numNonZerosAfter = after.getNumNonZeros();
+            this.numEmptyDurations = numEmptyDurations;
+            this.numFixedVars = numFixedVars;
+            this.numMergedVars = numMergedVars;
+            this.numBoundedAirVars = numBoundedAirVars;
+            this.runtime = runtime;
+        }
+
+        public int getNumVarsBefore() {
+            return numVarsBefore;
+        }
+
+        public int getNumConstrsBefore() {
+            return numConstrsBefore;
+        }
+
+        public int getNumNonZerosBefore() {
+            return numNonZerosBefore;
+        }
+
+        public int getNumVarsAfter() {
+            return numVarsAfter;
+        }
+
+        public int getNumConstrsAfter() {
+            return numConstrsAfter;
+        }
+
+        public int getNumNonZerosAfter() {
+            return numNonZerosAfter;
+        }
+
+        /**
+         * The durations without any departures.
+         */
+        public int getNumEmptyDurations() {
+            return numEmptyDurations;
+        }
+
+        /**
+         * The variables of the full model whose value is known.
+         */
+        public int getNumFixedVars() {
+            return numFixedVars;
+        }
+
+        /**
+         * The variables of the full model which share a variable of the
+         * reduced model with another one.
+         */
+        public int getNumMergedVars() {
+            return numMergedVars;
+        }
+
+        /**
+         * The air variables whose bound was tightened below the airborne
+         * limit, including those fixed to zero.
+         */
+        public int getNumBoundedAirVars() {
+            return numBoundedAirVars;
+        }
+
+        /**
+         * The time the presolve took, in seconds.
+         */
+        public double getRuntime() {
+            return runtime;
+        }
+
+        @Override
+        public String toString() {
+            return "Vars: " + numVarsBefore + " -> " + numVarsAfter + ", Constrs: " + numConstrsBefore + " -> "
+                    + numConstrsAfter + ", NonZeros: " + numNonZerosBefore + " -> " + numNonZerosAfter
+                    + ", Empty durations: " + numEmptyDurations + ", Fixed: " + numFixedVars + ", Merged: "
+                    + numMergedVars + ", Bounded air: " + numBoundedAirVars + ", Runtime: " + runtime;
+        }
+    }
+
+    private final ExtendedHofkinModel.Input input;
+    private final SparseModel model;
+    // The column of each variable of the full model in the reduced model, or
+    // -1 if its value is fixed.
+    private final int[] columns;
+    private final double[] fixedValues;
+    // A variable of the full model for each column of the reduced model.
+    private final int[] representatives;
+    private final Reduction reduction;
+
+    private DHoffkinPresolve(ExtendedHofkinModel.Input input, SparseModel model, int[] columns,
+                             double[] fixedValues, int[] representatives, Reduction reduction) {
+        this.input = input;
+        this.model = model;
+        this.columns = columns;
+        this.fixedValues = fixedValues;
+        this.representatives = representatives;
+        this.reduction = reduction;
+    }
+
+    /**
+     * Builds the DHD model of the input and reduces it.
+     *
+     * @throws IllegalStateException if the reductions show the model to be
+     *                               infeasible
+     */
+    public static DHoffkinPresolve presolve(ExtendedHofkinModel.Input input) {
+        long start = System.nanoTime();
+        SparseModel full = ExtendedHofkinModel.buildModel(input);
+        ExtendedHofkinModel.Layout layout = new ExtendedHofkinModel.Layout(input);
+        int numVars = full.getNumVars();
+        int numTimePeriods = layout.getNumTimePeriods();
+        int numScenarios = layout.getNumScenarios();
+        int numDurations = layout.getNumDurations();
+        double[] lb = full.getLowerBounds();
+        double[] ub = full.getUpperBounds();
+
+        // Ground and departure variables hold at most the flights of their
+        // duration scheduled so far, which also rules out those before the
+        // first departure and all of an empty duration.
+        int numEmptyDurations = 0;
+        double[] reachable = new double[numTimePeriods];
+        for (int dPos = 0; dPos < numDurations; dPos++) {
+            int d = layout.getDuration(dPos);
+            double cumulative = 0.0;
+            for (int i = 0; i < layout.getNumDepartPeriods(d); i++) {
+                double departing = input.getNumDeparting(d, i);
+                cumulative += departing;
+                int arrival = layout.getArrivalPeriod(dPos, i);
+                if (arrival < numTimePeriods) {
+                    reachable[arrival] += departing;
+                }
+                for (int sPos = 0; sPos < numScenarios; sPos++) {
+                    tighten(ub, layout.departVar(sPos, dPos, i), cumulative);
+                    if (i < layout.getNumGroundPeriods(d)) {
+                        tighten(ub, layout.groundVar(sPos, dPos, i), cumulative);
+                    }
+                }
+            }
+            if (cumulative == 0.0) {
+                numEmptyDurations++;
+            }
+        }
+
+        // The flights which can have arrived by each period, and the longest
+        // queue they can form if flights land whenever there is capacity:
+        // the most arrivals in any window ending in the period, less the
+        // capacity of the window. En-route flights arrive when they are due,
+        // so those due before the window cannot arrive in it.
+        double cumulativeEnroute = 0.0;
+        double[] cumulativeReachable = new double[numTimePeriods];
+        double[] cumulativeEnrouteBefore = new double[numTimePeriods];
+        for (int i = 0; i < numTimePeriods; i++) {
+            cumulativeEnrouteBefore[i] = cumulativeEnroute;
+            cumulativeEnroute += input.getEnroute(i);
+            cumulativeReachable[i] = (i > 0 ? cumulativeReachable[i - 1] : 0.0) + reachable[i]
+                    + input.getEnroute(i);
+        }
+        int numBoundedAirVars = 0;
+        for (int sPos = 0; sPos < numScenarios; sPos++) {
+            int s = layout.getScenario(sPos);
+            double cumulativeCapacity = 0.0;
+            double best = 0.0;
+            for (int i = 0; i < numTimePeriods; i++) {
+                // The window starting in period i.
+                best = Math.max(best, cumulativeCapacity - cumulativeEnrouteBefore[i]);
+                // Flights land in whole numbers.
+                cumulativeCapacity += Math.floor(input.getCapacity(s, i) + TOLERANCE);
+                double queue = Math.max(0.0, cumulativeReachable[i] - cumulativeCapacity + best);
+                if (tighten(ub, layout.airVar(sPos, i), queue)) {
+                    numBoundedAirVars++;
+                }
+                tighten(ub, layout.landVar(sPos, i), cumulativeReachable[i]);
+                tighten(ub, layout.divertVar(sPos, i), cumulativeReachable[i]);
+            }
+        }
+
+        // Scenarios in a node share their ground and departure variables.
+        int[] parents = new int[numVars];
+        for (int j = 0; j < numVars; j++) {
+            parents[j] = j;
+        }
+        for (int dPos = 0; dPos < numDurations; dPos++) {
+            int d = layout.getDuration(dPos);
+            for (int i = 0; i < layout.getNumDepartPeriods(d); i++) {
+                for (Iterable<Integer> node : input.getNodes(i)) {
+                    Iterator<Integer> scenIter = node.iterator();
+                    if (!scenIter.hasNext()) {
+                        continue;
+                    }
+                    int firstPos = layout.getScenarioPosition(scenIter.next());
+                    while (scenIter.hasNext()) {
+                        int nextPos = layout.getScenarioPosition(scenIter.next());
+                        union(parents, layout.departVar(firstPos, dPos, i), layout.departVar(nextPos, dPos, i));
+                        if (i < layout.getNumGroundPeriods(d)) {
+                            union(parents, layout.groundVar(firstPos, dPos, i),
+                                    layout.groundVar(nextPos, dPos, i));
+                        }
+                    }
+                }
+            }
+        }
+
+        // The bounds of a group are those all of its variables share.
+        double[] groupLb = new double[numVars];
+        double[] groupUb = new double[numVars];
+        Arrays.fill(groupLb, Double.NEGATIVE_INFINITY);
+        Arrays.fill(groupUb, Double.POSITIVE_INFINITY);
+        for (int j = 0; j < numVars; j++) {
+            int root = find(parents, j);
+            groupLb[root] = Math.max(groupLb[root], lb[j]);
+            groupUb[root] = Math.min(groupUb[root], ub[j]);
+        }
+
+        SparseModel reduced = new SparseModel(numVars, full.getNumConstrs(), full.getNumNonZeros());
+        int[] columns = new int[numVars];
+        double[] fixedValues = new double[numVars];
+        int[] representatives = new int[numVars];
+        int[] rootColumns = new int[numVars];
+        Arrays.fill(rootColumns, -1);
+        int numFixedVars = 0;
+        int numMergedVars = 0;
+        for (int j = 0; j < numVars; j++) {
+            int root = find(parents, j);
+            if (groupUb[root] < groupLb[root] - TOLERANCE) {
+                throw new IllegalStateException("The bounds of " + full.getVarName(j) + " are infeasible after "
+                        + "presolve.");
+            }
+            if (groupUb[root] - groupLb[root] <= TOLERANCE) {
+                columns[j] = -1;
+                fixedValues[j] = groupLb[root];
+                numFixedVars++;
+            } else if (rootColumns[root] >= 0) {
+                columns[j] = rootColumns[root];
+                reduced.setObjective(columns[j], reduced.getObjective(columns[j]) + full.getObjective(j));
+                numMergedVars++;
+            } else {
+                columns[j] = reduced.addVar(groupLb[root], groupUb[root], full.getObjective(j),
+                        full.getVarType(j), full.getVarName(j));
+                rootColumns[root] = columns[j];
+                representatives[columns[j]] = j;
+            }
+        }
+
+        // Rows over the columns, with fixed variables moved to the right-hand
+        // side. A row without columns must hold on its own.
+        LinearExpr row = new LinearExpr();
+        for (int c = 0; c < full.getNumConstrs(); c++) {
+            row.clear();
+            double rhs = full.getRhs(c);
+            for (int k = full.getRowStart(c); k < full.getRowEnd(c); k++) {
+                int j = full.getColIndex(k);
+                if (columns[j] < 0) {
+                    rhs -= full.getValue(k) * fixedValues[j];
+                } else {
+                    row.addTerm(full.getValue(k), columns[j]);
+                }
+            }
+            if (isEmpty(row)) {
+                if (!holds(full.getSense(c), rhs)) {
+                    throw new IllegalStateException("Constraint " + full.getConstrName(c)
+                            + " is infeasible after presolve.");
+                }
+                continue;
+            }
+            reduced.addConstr(row, full.getSense(c), rhs, full.getConstrName(c));
+        }
+
+        Reduction reduction = new Reduction(full, reduced, numEmptyDurations, numFixedVars, numMergedVars,
+                numBoundedAirVars, (System.nanoTime() - start) / 1e9);
+        return new DHoffkinPresolve(input, reduced, columns, fixedValues,
+                Arrays.copyOf(representatives, reduced.getNumVars()), reduction);
+    }
+
+    private static boolean tighten(double[] ub, int var, double bound) {
+        if (bound < ub[var]) {
+            ub[var] = bound;
+            return true;
+        }
+        return false;
+    }
+
+    private static int find(int[] parents, int var) {
+        while (parents[var] != var) {
+            parents[var] = parents[parents[var]];
+            var = parents[var];
+        }
+        return var;
+    }
+
+    private static void union(int[] parents, int var1, int var2) {
+        int root1 = find(parents, var1);
+        int root2 = find(parents, var2);
+        if (root1 != root2) {
+            parents[Math.max(root1, root2)] = Math.min(root1, root2);
+        }
+    }
+
+    /**
+     * Whether the terms of the row cancel, as those of an anti-anticipatory
+     * constraint between merged variables do.
+     */
+    private static boolean isEmpty(LinearExpr row) {
+        double[] sums = new double[row.size()];
+        for (int k = 0; k < row.size(); k++) {
+            int m = 0;
+            while (row.getVar(m) != row.getVar(k)) {
+                m++;
+            }
+            sums[m] += row.getCoeff(k);
+        }
+        for (double sum : sums) {
+            if (Math.abs(sum) > TOLERANCE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean holds(char sense, double rhs) {
+        if (sense == SparseModel.LESS_EQUAL) {
+            return rhs >= -TOLERANCE;
+        } else if (sense == SparseModel.GREATER_EQUAL) {
+            return rhs <= TOLERANCE;
+        }
+        return Math.abs(rhs) <= TOLERANCE;
+    }
+
+    /**
+     * The reduced model.
+     */
+    public SparseModel getModel() {
+        return model;
+    }
+
+    public Reduction getReduction() {
+        return reduction;
+    }
+
+    /**
+     * The values of the full model, in the order of
+     * {@link ExtendedHofkinModel.Layout}, from those of the reduced model.
+     */
+    public double[] postsolve(double[] reducedValues) {
+        if (reducedValues.length != model.getNumVars()) {
+            throw new IllegalArgumentException("Expected " + model.getNumVars() + " values, but got "
+                    + reducedValues.length + ".");
+        }
+        double[] values = new double[columns.length];
+        for (int j = 0; j < columns.length; j++) {
+            values[j] = columns[j] < 0 ? fixedValues[j] : reducedValues[columns[j]];
+        }
+        return values;
+    }
+
+    /**
+     * The values of the reduced model from those of the full model, which
+     * must satisfy the anti-anticipatory constraints.
+     */
+    public double[] reduce(double[] values) {
+        if (values.length != columns.length) {
+            throw new IllegalArgumentException("Expected " + columns.length + " values, but got "
+                    + values.length + ".");
+        }
+        double[] reducedValues = new double[representatives.length];
+        for (int c = 0; c < representatives.length; c++) {
+            reducedValues[c] = values[representatives[c]];
+        }
+        return reducedValues;
+    }
+
+    /**
+     * Sets up the reduced model in Gurobi.
+     */
+    public GRBModel setupModel(GRBEnv env, boolean verbose) throws GRBException {
+        GRBModel grbModel = GurobiAdapter.toGurobi(model, env);
+        if (!verbose) {
+            grbModel.set(GRB.IntParam.OutputFlag, 0);
+        }
+        return grbModel;
+    }
+
+    /**
+     * Solves the reduced model under the given policy, with the same
+     * fallbacks as {@link ExtendedHofkinModel#solveModel(ExtendedHofkinModel.Input, GRBEnv, boolean,
+     * SolvePolicy)}. The model is disposed before returning, and the values
+     * of the result are those of the full model.
+     */
+    public PolicyResult solveModel(GRBEnv env, boolean verbose, SolvePolicy policy) throws GRBException {
+        // A fallback plan need not keep to the bounds of the presolve, so it
+        // is served as it was built rather than through the reduced values.
+        final DHoffkinPlan[] fallback = new DHoffkinPlan[1];
+        GRBModel grbModel = setupModel(env, verbose);
+        PolicyResult result;
+        try {
+            result = policy.solve(grbModel, new SolvePolicy.FallbackPlans() {
+                @Override
+                public double[] heuristic() {
+                    fallback[0] = GroundHoldingHeuristic.solve(input);
+                    return reduce(fallback[0].getValues());
+                }
+
+                @Override
+                public double[] roundRelaxation(double[] relaxedValues) {
+                    fallback[0] = GroundHoldingHeuristic.roundRelaxation(input, postsolve(relaxedValues));
+                    return reduce(fallback[0].getValues());
+                }
+            });
+        } finally {
+            grbModel.dispose();
+        }
+        if (result.getBranch() == PolicyResult.Branch.HEURISTIC
+                || result.getBranch() == PolicyResult.Branch.LP_ROUNDING) {
+            return new PolicyResult(result.getBranch(), result.getStatus(), fallback[0].getObjective(),
+                    result.getBound(), result.getRuntime(), fallback[0].getValues());
+        } else if (!result.hasValues()) {
+            return result;
+        }
+        return new PolicyResult(result.getBranch(), result.getStatus(), result.getObjective(), result.getBound(),
+                result.getRuntime(), postsolve(result.getValues()));
+    }
+}
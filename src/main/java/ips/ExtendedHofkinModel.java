@@ -4,12 +4,22 @@ import gurobi.GRB;
 
 import gurobi.GRBEnv;
 import gurobi.GRBException;
-import gurobi.GRBLinExpr;
 import gurobi.GRBModel;
-import gurobi.GRBVar;
 
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
 
+import lp.LinearExpr;
+import lp.ModelData;
+import lp.SparseModel;
+import solve.EnvPool;
+import solve.LeasedModel;
+import solve.PolicyResult;
+import solve.SolveInstrumentation;
+import solve.SolveMetrics;
+import solve.SolvePolicy;
+
 public final class ExtendedHofkinModel {
     public final static int UNLIMITED = -1;
 
@@ -42,20 +52,53 @@ public final class ExtendedHofkinModel {
 
         double getEnroute(int i);
 
-    }
+        /**
+         * The period in which flights of the given duration arrive if they
+         * depart in the given period. By default all periods have the same
+         * length and durations are in periods.
+         */
+        default int getArrivalPeriod(int duration, int timePeriod) {
+            return timePeriod + duration;
+        }
 
-    public static double getAverageDiversions(Input input, GRBModel model) throws GRBException{
-        double sum = 0.0;
-        for(int i=0; i < input.getNumTimePeriods(); i++){
-            for(int s: input.getScenarios()) {
-                sum += model.getVarByName(getDivertVarName(s, i)).get(GRB.DoubleAttr.X) * input.getScenProbability(s);
-            }
+        /**
+         * The length of the period in the unit of the durations. The ground
+         * and air costs of a period are scaled by its length.
+         */
+        default double getPeriodLength(int timePeriod) {
+            return 1.0;
         }
-        return sum;
+
     }
 
+    /**
+     * The expected number of diversions of a model built by
+     * {@link #setupModel}, from a single read of all values.
+     */
+    public static double getAverageDiversions(Input input, GRBModel model) throws GRBException {
+        return DHoffkinPlan.fromModel(input, model).getFlows().getExpectedDiversions();
+    }
+
+    /**
+     * Solves the model on an environment leased from
+     * {@link EnvPool#getDefault()}. The lease is held until the model is
+     * disposed, and the environment is not returned to the pool before
+     * then. The caller must dispose the model: once all environments are
+     * held by live models, the next caller waits for at most
+     * {@link EnvPool#DEFAULT_LEASE_TIMEOUT} seconds and then fails.
+     */
     public static GRBModel solveModel(Input myInput) throws GRBException {
-        return solveModel(myInput, new GRBEnv(), false);
+        GRBModel myModel = setupModel(myInput, false);
+        boolean solved = false;
+        try {
+            myModel.optimize();
+            solved = true;
+        } finally {
+            if (!solved) {
+                myModel.dispose();
+            }
+        }
+        return myModel;
     }
 
     public static GRBModel solveModel(Input myInput, GRBEnv env, boolean verbose) throws GRBException {
@@ -67,168 +110,527 @@ public final class ExtendedHofkinModel {
         return myModel;
     }
 
-    public static GRBModel setupModel(Input myInput) throws GRBException {
-        return setupModel(myInput, new GRBEnv(), false);
+    /**
+     * Solves the model while recording the time of each phase and the
+     * progress of the solve in the given metrics.
+     */
+    public static GRBModel solveModel(Input myInput, GRBEnv env, boolean verbose, SolveMetrics metrics)
+            throws GRBException {
+        GRBModel myModel = setupModel(myInput, env, verbose, metrics);
+        SolveInstrumentation.optimize(myModel, metrics);
+        return myModel;
     }
 
-    public static GRBModel setupModel(Input myInput, boolean verbose) throws GRBException {
-        return setupModel(myInput, new GRBEnv(), verbose);
+    /**
+     * Solves the model under the given policy. If the solve hits a limit of
+     * the policy, the fallback is {@link GroundHoldingHeuristic#solve} or
+     * {@link GroundHoldingHeuristic#roundRelaxation}. The model is disposed
+     * before returning, and the values of the result are in the order of
+     * {@link Layout}.
+     */
+    public static PolicyResult solveModel(final Input myInput, GRBEnv env, boolean verbose, SolvePolicy policy)
+            throws GRBException {
+        GRBModel myModel = setupModel(myInput, env, verbose);
+        try {
+            return policy.solve(myModel, new SolvePolicy.FallbackPlans() {
+                @Override
+                public double[] heuristic() {
+                    return GroundHoldingHeuristic.solve(myInput).getValues();
+                }
+
+                @Override
+                public double[] roundRelaxation(double[] relaxedValues) {
+                    return GroundHoldingHeuristic.roundRelaxation(myInput, relaxedValues).getValues();
+                }
+            });
+        } finally {
+            myModel.dispose();
+        }
+    }
+
+    /**
+     * Solves the model in overlapping time blocks of the given length with
+     * {@link TimeBlockDecomposition}, each under the block policy. If a
+     * polish policy is given, the full model is then solved under it,
+     * starting from the stitched plan.
+     */
+    public static DHoffkinPlan solveDecomposed(Input myInput, GRBEnv env, boolean verbose, int blockLength,
+                                               int overlap, SolvePolicy blockPolicy, SolvePolicy polishPolicy)
+            throws GRBException {
+        TimeBlockDecomposition decomposition = new TimeBlockDecomposition(blockLength, overlap);
+        DHoffkinPlan plan = decomposition.solve(myInput, TimeBlockDecomposition.withGurobi(env, blockPolicy, verbose))
+                .getPlan();
+        if (polishPolicy != null) {
+            plan = TimeBlockDecomposition.polish(myInput, plan, env, verbose, polishPolicy);
+        }
+        return plan;
     }
 
-    private static GRBModel setupModel(Input myInput, GRBEnv myEnv, boolean verbose) throws GRBException {
-        GRBModel myModel = new GRBModel(myEnv);
+    /**
+     * Sets up the model while recording the time of each phase in the given
+     * metrics, if any.
+     */
+    public static GRBModel setupModel(Input myInput, GRBEnv env, boolean verbose, SolveMetrics metrics)
+            throws GRBException {
+        GRBModel myModel = SolveInstrumentation.load(buildModel(myInput, metrics), env, metrics);
         if (!verbose) {
-            myModel.getEnv().set(GRB.IntParam.OutputFlag, 0);
+            myModel.set(GRB.IntParam.OutputFlag, 0);
         }
-        addVars(myModel, myInput);
-        myModel.update();
-        addConstraints(myModel, myInput);
-        myModel.update();
         return myModel;
     }
 
-    private static void addVars(GRBModel myModel, Input myInput) throws GRBException {
-        addGroundVars(myModel, myInput);
-        addDepartVars(myModel, myInput);
-        addAirVars(myModel, myInput);
-        addLandVars(myModel, myInput);
-        addDivertVars(myModel, myInput);
+    /**
+     * Sets up the model like {@link #setupModel(Input, boolean)}, so the
+     * caller must dispose it.
+     */
+    public static GRBModel setupModel(Input myInput) throws GRBException {
+        return setupModel(myInput, false);
     }
 
-    private static void addGroundVars(GRBModel model, Input myInput)
-            throws GRBException {
+    /**
+     * Sets up the model on an environment leased from
+     * {@link EnvPool#getDefault()}. The lease is held until the model is
+     * disposed, and the environment is not returned to the pool before
+     * then. The caller must dispose the model: once all environments are
+     * held by live models, the next caller waits for at most
+     * {@link EnvPool#DEFAULT_LEASE_TIMEOUT} seconds and then fails.
+     */
+    public static GRBModel setupModel(Input myInput, boolean verbose) throws GRBException {
+        return LeasedModel.load(EnvPool.getDefault(), buildModel(myInput), verbose);
+    }
+
+    public static GRBModel setupModel(Input myInput, GRBEnv myEnv, boolean verbose) throws GRBException {
+        return setupModel(myInput, myEnv, verbose, null);
+    }
+
+    /**
+     * Builds the model without any solver. Variables are stored in the order
+     * given by {@link Layout}.
+     */
+    public static SparseModel buildModel(Input myInput) {
+        return buildModel(myInput, null);
+    }
+
+    /**
+     * The bounds, objective coefficients and right-hand sides of the model
+     * {@link #buildModel(Input)} builds, without its constraint matrix. These
+     * are enough to patch a model of the same structure with the input.
+     */
+    public static ModelData buildData(Input myInput) {
+        Layout layout = new Layout(myInput);
+        int numTimePeriods = layout.getNumTimePeriods();
+        int numDepartureRows = 0;
+        for (int dPos = 0; dPos < layout.getNumDurations(); dPos++) {
+            numDepartureRows += layout.getNumDepartPeriods(layout.getDuration(dPos)) * layout.getNumScenarios();
+        }
+        int numArrivalRows = layout.getNumScenarios() * numTimePeriods;
+        ModelData data = new ModelData(layout.getNumVars(),
+                numDepartureRows + numArrivalRows + countAntiAnticipatoryConstraints(myInput, layout));
+
         double groundCost = myInput.getGroundCost();
-        int numTimePeriods = myInput.getNumTimePeriods();
-        for (int s : myInput.getScenarios()) {
+        double airCost = myInput.getAirCost();
+        double divertCost = myInput.getDivertCost();
+        double maxAirborne = myInput.getMaxAirborne() != UNLIMITED ? myInput.getMaxAirborne() : SparseModel.INFINITY;
+        for (int sPos = 0; sPos < layout.getNumScenarios(); sPos++) {
+            int s = layout.getScenario(sPos);
             double probability = myInput.getScenProbability(s);
-            for (int d : myInput.getFlightDurations()) {
-                for (int i = 0; i < numTimePeriods - d; i++) {
-                    model.addVar(0.0, GRB.INFINITY, groundCost * probability,
-                            GRB.INTEGER, getGroundVarName(s, i, d));
+            for (int dPos = 0; dPos < layout.getNumDurations(); dPos++) {
+                int d = layout.getDuration(dPos);
+                for (int i = 0; i < layout.getNumGroundPeriods(d); i++) {
+                    data.setVar(layout.groundVar(sPos, dPos, i), 0.0, SparseModel.INFINITY,
+                            groundCost * probability * myInput.getPeriodLength(i));
+                }
+                for (int i = 0; i < layout.getNumDepartPeriods(d); i++) {
+                    data.setVar(layout.departVar(sPos, dPos, i), 0.0, SparseModel.INFINITY, 0.0);
+                }
+            }
+            for (int i = 0; i < numTimePeriods; i++) {
+                data.setVar(layout.airVar(sPos, i), 0.0, maxAirborne,
+                        airCost * probability * myInput.getPeriodLength(i));
+                data.setVar(layout.landVar(sPos, i), 0.0, myInput.getCapacity(s, i), 0.0);
+                data.setVar(layout.divertVar(sPos, i), 0.0, SparseModel.INFINITY, divertCost * probability);
+            }
+        }
+
+        // The rows in the order addConstraints adds them. The
+        // anti-anticipatory rows come last and have no right-hand side.
+        int row = 0;
+        for (int dPos = 0; dPos < layout.getNumDurations(); dPos++) {
+            int d = layout.getDuration(dPos);
+            for (int i = 0; i < layout.getNumDepartPeriods(d); i++) {
+                for (int jPos = 0; jPos < layout.getNumScenarios(); jPos++) {
+                    data.setRhs(row++, -myInput.getNumDeparting(d, i));
+                }
+            }
+        }
+        for (int jPos = 0; jPos < layout.getNumScenarios(); jPos++) {
+            for (int i = 0; i < numTimePeriods; i++) {
+                data.setRhs(row++, -myInput.getEnroute(i));
+            }
+        }
+        return data;
+    }
+
+    private static int countAntiAnticipatoryConstraints(Input myInput, Layout layout) {
+        int count = 0;
+        for (int dPos = 0; dPos < layout.getNumDurations(); dPos++) {
+            int d = layout.getDuration(dPos);
+            for (int i = 0; i < layout.getNumDepartPeriods(d); i++) {
+                int rowsPerPair = i < layout.getNumGroundPeriods(d) ? 2 : 1;
+                for (Iterable<Integer> node : myInput.getNodes(i)) {
+                    int size = 0;
+                    for (int s : node) {
+                        size++;
+                    }
+                    count += Math.max(0, size - 1) * rowsPerPair;
                 }
             }
         }
+        return count;
+    }
 
+    /**
+     * Builds the model without its anti-anticipatory constraints, which
+     * {@link LazyAntiAnticipativity} adds as they are needed.
+     */
+    static SparseModel buildModelWithoutAntiAnticipativity(Input myInput) {
+        Layout layout = new Layout(myInput);
+        SparseModel myModel = new SparseModel(layout.getNumVars(), layout.getNumVars(), 3 * layout.getNumVars());
+        addVars(myModel, myInput, layout);
+        addDepartureNodeConstraints(myModel, myInput, layout);
+        addArrivalNodeConstraints(myModel, myInput, layout);
+        return myModel;
     }
 
-    private static void addDepartVars(GRBModel model, Input myInput)
-            throws GRBException {
-        int numTimePeriods = myInput.getNumTimePeriods();
-        for (int s : myInput.getScenarios()) {
+    /**
+     * Builds the model, recording the time of each phase in the metrics
+     * unless they are null.
+     */
+    private static SparseModel buildModel(Input myInput, SolveMetrics metrics) {
+        Layout layout = new Layout(myInput);
+        SparseModel myModel = new SparseModel(layout.getNumVars(), layout.getNumVars(), 3 * layout.getNumVars());
+        if (metrics != null) {
+            metrics.startPhase(SolveMetrics.BUILD_VARS);
+        }
+        addVars(myModel, myInput, layout);
+        if (metrics != null) {
+            metrics.endPhase(SolveMetrics.BUILD_VARS);
+            metrics.startPhase(SolveMetrics.BUILD_CONSTRS);
+        }
+        addConstraints(myModel, myInput, layout);
+        if (metrics != null) {
+            metrics.endPhase(SolveMetrics.BUILD_CONSTRS);
+        }
+        return myModel;
+    }
+
+    /**
+     * The position of each variable in the model. Scenarios and durations are
+     * ordered as the input iterates over them. Ground variables come first,
+     * grouped by scenario, then duration, then time period; departure
+     * variables follow in the same order, and then the air, land and divert
+     * variables, each grouped by scenario and then time period.
+     */
+    public static final class Layout {
+        private final int numTimePeriods;
+        private final int[] scenarios;
+        private final int[] durations;
+        private final HashMap<Integer, Integer> scenarioPositions;
+        private final HashMap<Integer, Integer> durationPositions;
+        private final int[] numDepartPeriods;
+        private final int[][] arrivalPeriods;
+        private final int[] groundOffsets;
+        private final int[] departOffsets;
+        private final int groundPerScenario;
+        private final int departPerScenario;
+        private final int departStart;
+        private final int airStart;
+        private final int landStart;
+        private final int divertStart;
+        private final int numVars;
+
+        public Layout(Input myInput) {
+            numTimePeriods = myInput.getNumTimePeriods();
+            scenarioPositions = new HashMap<Integer, Integer>();
+            for (int s : myInput.getScenarios()) {
+                scenarioPositions.put(s, scenarioPositions.size());
+            }
+            scenarios = new int[scenarioPositions.size()];
+            for (int s : myInput.getScenarios()) {
+                scenarios[scenarioPositions.get(s)] = s;
+            }
+            durationPositions = new HashMap<Integer, Integer>();
             for (int d : myInput.getFlightDurations()) {
-                for (int i = 0; i < numTimePeriods + 1 - d; i++) {
-                    model.addVar(0.0, GRB.INFINITY, 0.0, GRB.INTEGER, getDepartVarName(s, i, d));
+                durationPositions.put(d, durationPositions.size());
+            }
+            durations = new int[durationPositions.size()];
+            for (int d : myInput.getFlightDurations()) {
+                durations[durationPositions.get(d)] = d;
+            }
+
+            // Flights may depart as long as they arrive by the end of the
+            // horizon. Arrival periods do not decrease with the departure
+            // period, so the departure periods are a prefix of the horizon.
+            numDepartPeriods = new int[durations.length];
+            arrivalPeriods = new int[durations.length][];
+            for (int k = 0; k < durations.length; k++) {
+                int[] arrivals = new int[numTimePeriods + 1];
+                int count = 0;
+                while (count <= numTimePeriods) {
+                    int arrival = myInput.getArrivalPeriod(durations[k], count);
+                    if (arrival > numTimePeriods) {
+                        break;
+                    }
+                    arrivals[count++] = arrival;
+                }
+                numDepartPeriods[k] = count;
+                arrivalPeriods[k] = Arrays.copyOf(arrivals, count);
+            }
+
+            groundOffsets = new int[durations.length];
+            departOffsets = new int[durations.length];
+            int groundCount = 0;
+            int departCount = 0;
+            for (int k = 0; k < durations.length; k++) {
+                groundOffsets[k] = groundCount;
+                departOffsets[k] = departCount;
+                groundCount += Math.max(0, numDepartPeriods[k] - 1);
+                departCount += numDepartPeriods[k];
+            }
+            groundPerScenario = groundCount;
+            departPerScenario = departCount;
+            departStart = scenarios.length * groundPerScenario;
+            airStart = departStart + scenarios.length * departPerScenario;
+            landStart = airStart + scenarios.length * numTimePeriods;
+            divertStart = landStart + scenarios.length * numTimePeriods;
+            numVars = divertStart + scenarios.length * numTimePeriods;
+        }
+
+        public int getNumTimePeriods() {
+            return numTimePeriods;
+        }
+
+        public int getNumVars() {
+            return numVars;
+        }
+
+        public int getNumScenarios() {
+            return scenarios.length;
+        }
+
+        public int getNumDurations() {
+            return durations.length;
+        }
+
+        public int getScenario(int position) {
+            return scenarios[position];
+        }
+
+        public int getDuration(int position) {
+            return durations[position];
+        }
+
+        public int getScenarioPosition(int scenario) {
+            return scenarioPositions.get(scenario);
+        }
+
+        public int getDurationPosition(int duration) {
+            return durationPositions.get(duration);
+        }
+
+        /**
+         * Ground variables exist for every departure period but the last.
+         * With periods of equal length, these are 0 to numTimePeriods - d - 1.
+         */
+        public int getNumGroundPeriods(int duration) {
+            return Math.max(0, getNumDepartPeriods(duration) - 1);
+        }
+
+        /**
+         * Departure variables exist for the periods in which a flight of the
+         * duration arrives by the end of the horizon. With periods of equal
+         * length, these are 0 to numTimePeriods - d.
+         */
+        public int getNumDepartPeriods(int duration) {
+            return numDepartPeriods[durationPositions.get(duration)];
+        }
+
+        /**
+         * The period in which the flights of the duration at the given
+         * position arrive if they depart in the given period, which must be a
+         * departure period. A flight which departs in the last departure
+         * period may arrive in period numTimePeriods, after the horizon.
+         */
+        public int getArrivalPeriod(int durationPos, int timePeriod) {
+            return arrivalPeriods[durationPos][timePeriod];
+        }
+
+        public int groundVar(int scenarioPos, int durationPos, int timePeriod) {
+            return scenarioPos * groundPerScenario + groundOffsets[durationPos] + timePeriod;
+        }
+
+        public int departVar(int scenarioPos, int durationPos, int timePeriod) {
+            return departStart + scenarioPos * departPerScenario + departOffsets[durationPos] + timePeriod;
+        }
+
+        public int airVar(int scenarioPos, int timePeriod) {
+            return airStart + scenarioPos * numTimePeriods + timePeriod;
+        }
+
+        public int landVar(int scenarioPos, int timePeriod) {
+            return landStart + scenarioPos * numTimePeriods + timePeriod;
+        }
+
+        public int divertVar(int scenarioPos, int timePeriod) {
+            return divertStart + scenarioPos * numTimePeriods + timePeriod;
+        }
+    }
+
+    private static void addVars(SparseModel myModel, Input myInput, Layout layout) {
+        addGroundVars(myModel, myInput, layout);
+        addDepartVars(myModel, myInput, layout);
+        addAirVars(myModel, myInput, layout);
+        addLandVars(myModel, myInput, layout);
+        addDivertVars(myModel, myInput, layout);
+    }
+
+    private static void addGroundVars(SparseModel model, Input myInput, Layout layout) {
+        double groundCost = myInput.getGroundCost();
+        for (int sPos = 0; sPos < layout.getNumScenarios(); sPos++) {
+            int s = layout.getScenario(sPos);
+            double probability = myInput.getScenProbability(s);
+            for (int dPos = 0; dPos < layout.getNumDurations(); dPos++) {
+                int d = layout.getDuration(dPos);
+                for (int i = 0; i < layout.getNumGroundPeriods(d); i++) {
+                    model.addVar(0.0, SparseModel.INFINITY, groundCost * probability * myInput.getPeriodLength(i),
+                            SparseModel.INTEGER, getGroundVarName(s, i, d));
                 }
             }
         }
 
     }
 
-    private static void addAirVars(GRBModel model, Input myInput)
-            throws GRBException {
+    private static void addDepartVars(SparseModel model, Input myInput, Layout layout) {
+        for (int sPos = 0; sPos < layout.getNumScenarios(); sPos++) {
+            int s = layout.getScenario(sPos);
+            for (int dPos = 0; dPos < layout.getNumDurations(); dPos++) {
+                int d = layout.getDuration(dPos);
+                for (int i = 0; i < layout.getNumDepartPeriods(d); i++) {
+                    model.addVar(0.0, SparseModel.INFINITY, 0.0, SparseModel.INTEGER, getDepartVarName(s, i, d));
+                }
+            }
+        }
+
+    }
+
+    private static void addAirVars(SparseModel model, Input myInput, Layout layout) {
         double airCost = myInput.getAirCost();
         int numTimePeriods = myInput.getNumTimePeriods();
         double maxAirborne = myInput.getMaxAirborne();
 
-        for (int s : myInput.getScenarios()) {
+        for (int sPos = 0; sPos < layout.getNumScenarios(); sPos++) {
+            int s = layout.getScenario(sPos);
             double probability = myInput.getScenProbability(s);
             for (int i = 0; i < numTimePeriods; i++) {
+                double cost = airCost * probability * myInput.getPeriodLength(i);
                 if (maxAirborne != UNLIMITED) {
-                    model.addVar(0.0, maxAirborne, airCost * probability, GRB.INTEGER, getAirVarName(s, i));
+                    model.addVar(0.0, maxAirborne, cost, SparseModel.INTEGER, getAirVarName(s, i));
                 } else {
-                    model.addVar(0.0, GRB.INFINITY, airCost * probability, GRB.INTEGER, getAirVarName(s, i));
+                    model.addVar(0.0, SparseModel.INFINITY, cost, SparseModel.INTEGER, getAirVarName(s, i));
                 }
             }
         }
 
     }
 
-    private static void addLandVars(GRBModel model, Input myInput) throws GRBException {
+    private static void addLandVars(SparseModel model, Input myInput, Layout layout) {
         int numTimePeriods = myInput.getNumTimePeriods();
-        for (int s : myInput.getScenarios()) {
+        for (int sPos = 0; sPos < layout.getNumScenarios(); sPos++) {
+            int s = layout.getScenario(sPos);
             for (int i = 0; i < numTimePeriods; i++) {
                 model.addVar(0.0, myInput.getCapacity(s, i), 0.0,
-                        GRB.INTEGER, getLandVarName(s, i));
+                        SparseModel.INTEGER, getLandVarName(s, i));
             }
         }
     }
 
-    private static void addDivertVars(GRBModel model, Input myInput) throws GRBException {
+    private static void addDivertVars(SparseModel model, Input myInput, Layout layout) {
         double divertCost = myInput.getDivertCost();
         int numTimePeriods = myInput.getNumTimePeriods();
-        for (int s : myInput.getScenarios()) {
+        for (int sPos = 0; sPos < layout.getNumScenarios(); sPos++) {
+            int s = layout.getScenario(sPos);
             double probability = myInput.getScenProbability(s);
             for (int i = 0; i < numTimePeriods; i++) {
-                model.addVar(0.0, GRB.INFINITY, divertCost * probability,
-                        GRB.INTEGER, getDivertVarName(s, i));
+                model.addVar(0.0, SparseModel.INFINITY, divertCost * probability,
+                        SparseModel.INTEGER, getDivertVarName(s, i));
             }
         }
     }
 
     public static String getGroundVarName(int scenario, int timePeriod, int duration) {
-        return "GROUND: " + scenario + "," + timePeriod + "," + duration;
+        return "GROUND:" + scenario + "," + timePeriod + "," + duration;
     }
 
     public static String getGroundAAConstrName(int scenario1, int scenario2, int timePeriod, int duration) {
-        return "GROUND_AA: " + scenario1 + "," + scenario2 + "," + timePeriod + "," + duration;
+        return "GROUND_AA:" + scenario1 + "," + scenario2 + "," + timePeriod + "," + duration;
     }
 
     public static String getDepartVarName(int scenario, int timePeriod, int duration) {
-        return "DEPART: " + scenario + "," + timePeriod + "," + duration;
+        return "DEPART:" + scenario + "," + timePeriod + "," + duration;
     }
 
     public static String getDepartAAConstrName(int scenario1, int scenario2, int timePeriod, int duration) {
-        return "DEPART_AA: " + scenario1 + "," + scenario2 + "," + timePeriod + "," + duration;
+        return "DEPART_AA:" + scenario1 + "," + scenario2 + "," + timePeriod + "," + duration;
     }
 
     public static String getAirVarName(int scenario, int timePeriod) {
-        return "AIR: " + scenario + "," + timePeriod;
+        return "AIR:" + scenario + "," + timePeriod;
     }
 
     public static String getLandVarName(int scenario, int timePeriod) {
-        return "LAND: " + scenario + "," + timePeriod;
+        return "LAND:" + scenario + "," + timePeriod;
     }
 
     public static String getDivertVarName(int scenario, int timePeriod) {
-        return "DIVERT: " + scenario + "," + timePeriod;
+        return "DIVERT:" + scenario + "," + timePeriod;
     }
 
     public static String getDepartureNodeConstrName(int scenario, int timePeriod, int duration) {
-        return "DEP_NODE: " + scenario + "," + timePeriod + "," + duration;
+        return "DEP_NODE:" + scenario + "," + timePeriod + "," + duration;
     }
 
     public static String getArrivalNodeConstrName(int scenario, int timePeriod) {
-        return "ARR_NODE: " + scenario + "," + timePeriod;
+        return "ARR_NODE:" + scenario + "," + timePeriod;
     }
 
-    private static void addConstraints(GRBModel model, Input myInput) throws GRBException {
-        addDepartureNodeConstraints(model, myInput);
-        addArrivalNodeConstraints(model, myInput);
-        addAntiAnticipatoryConstraints(model, myInput);
+    private static void addConstraints(SparseModel model, Input myInput, Layout layout) {
+        addDepartureNodeConstraints(model, myInput, layout);
+        addArrivalNodeConstraints(model, myInput, layout);
+        addAntiAnticipatoryConstraints(model, myInput, layout);
     }
 
-    private static void addAntiAnticipatoryConstraints(GRBModel model,
-                                                       Input myInput) throws GRBException {
+    private static void addAntiAnticipatoryConstraints(SparseModel model, Input myInput, Layout layout) {
         //Add anti-anticipatory constraints
 
-        int numTimePeriods = myInput.getNumTimePeriods();
-        for (int d : myInput.getFlightDurations()) {
-            for (int i = 0; i < numTimePeriods + 1 - d; i++) {
+        for (int dPos = 0; dPos < layout.getNumDurations(); dPos++) {
+            int d = layout.getDuration(dPos);
+            for (int i = 0; i < layout.getNumDepartPeriods(d); i++) {
                 for (Iterable<Integer> nodes : myInput.getNodes(i)) {
                     Iterator<Integer> scenIter = nodes.iterator();
                     if (scenIter.hasNext()) {
                         int firstScen = scenIter.next();
+                        int firstPos = layout.getScenarioPosition(firstScen);
 
                         while (scenIter.hasNext()) {
                             int nextScen = scenIter.next();
-                            GRBVar firstDepartVar = model.getVarByName(getDepartVarName(firstScen, i, d));
-                            GRBVar nextDepartVar = model.getVarByName(getDepartVarName(nextScen, i, d));
-                            model.addConstr(firstDepartVar, GRB.EQUAL, nextDepartVar, getDepartAAConstrName(firstScen, nextScen, i, d));
-
-                            if (i < numTimePeriods - d) {
-                                GRBVar firstGroundVar = model.getVarByName(getGroundVarName(firstScen, i, d));
-                                GRBVar nextGroundVar = model.getVarByName(getGroundVarName(nextScen, i, d));
-                                model.addConstr(firstGroundVar, GRB.EQUAL, nextGroundVar, getGroundAAConstrName(firstScen, nextScen, i, d));
+                            int nextPos = layout.getScenarioPosition(nextScen);
+                            model.addConstr(layout.departVar(firstPos, dPos, i), SparseModel.EQUAL,
+                                    layout.departVar(nextPos, dPos, i), getDepartAAConstrName(firstScen, nextScen, i, d));
+
+                            if (i < layout.getNumGroundPeriods(d)) {
+                                model.addConstr(layout.groundVar(firstPos, dPos, i), SparseModel.EQUAL,
+                                        layout.groundVar(nextPos, dPos, i),
+                                        getGroundAAConstrName(firstScen, nextScen, i, d));
                             }
                         }
                     }
@@ -238,50 +640,63 @@ public final class ExtendedHofkinModel {
 
     }
 
-    private static void addArrivalNodeConstraints(GRBModel model, Input myInput) throws GRBException {
+    private static void addArrivalNodeConstraints(SparseModel model, Input myInput, Layout layout) {
         int numTimePeriods = myInput.getNumTimePeriods();
-        for (int j : myInput.getScenarios()) {
+        int numDurations = layout.getNumDurations();
+        // The departure periods from which each duration arrives in each
+        // period. Arrival periods do not decrease with the departure period,
+        // so they form a range, from first[kPos][i] up to first[kPos][i + 1].
+        int[][] first = new int[numDurations][numTimePeriods + 1];
+        for (int kPos = 0; kPos < numDurations; kPos++) {
+            int numDepartPeriods = layout.getNumDepartPeriods(layout.getDuration(kPos));
+            int departPeriod = 0;
+            for (int i = 0; i <= numTimePeriods; i++) {
+                while (departPeriod < numDepartPeriods && layout.getArrivalPeriod(kPos, departPeriod) < i) {
+                    departPeriod++;
+                }
+                first[kPos][i] = departPeriod;
+            }
+        }
+        for (int jPos = 0; jPos < layout.getNumScenarios(); jPos++) {
+            int j = layout.getScenario(jPos);
 
             for (int i = 0; i < numTimePeriods; i++) {
-                GRBLinExpr inFlow = new GRBLinExpr();
+                LinearExpr inFlow = new LinearExpr(numDurations + 1);
                 inFlow.addConstant(myInput.getEnroute(i));
-                for (int k : myInput.getFlightDurations()) {
-                    if (i - k >= 0) {
-                        inFlow.addTerm(1.0, model.getVarByName(getDepartVarName(j, i - k, k)));
+                for (int kPos = 0; kPos < numDurations; kPos++) {
+                    for (int departPeriod = first[kPos][i]; departPeriod < first[kPos][i + 1]; departPeriod++) {
+                        inFlow.addTerm(1.0, layout.departVar(jPos, kPos, departPeriod));
                     }
                 }
                 if (i > 0) {
-                    inFlow.addTerm(1.0, model.getVarByName(getAirVarName(j, i - 1)));
+                    inFlow.addTerm(1.0, layout.airVar(jPos, i - 1));
                 }
-                GRBLinExpr outFlow = new GRBLinExpr();
-                outFlow.addTerm(1.0, model.getVarByName(getAirVarName(j, i)));
-                outFlow.addTerm(1.0, model.getVarByName(getLandVarName(j, i)));
-                outFlow.addTerm(1.0, model.getVarByName(getDivertVarName(j, i)));
-                model.addConstr(inFlow, GRB.EQUAL, outFlow, getArrivalNodeConstrName(j, i));
+                LinearExpr outFlow = new LinearExpr(3);
+                outFlow.addTerm(1.0, layout.airVar(jPos, i));
+                outFlow.addTerm(1.0, layout.landVar(jPos, i));
+                outFlow.addTerm(1.0, layout.divertVar(jPos, i));
+                model.addConstr(inFlow, SparseModel.EQUAL, outFlow, getArrivalNodeConstrName(j, i));
             }
         }
     }
 
-    private static void addDepartureNodeConstraints(GRBModel model,
-                                                    Input myInput) throws GRBException {
-        int numTimePeriods = myInput.getNumTimePeriods();
-        for (int d : myInput.getFlightDurations()) {
-            for (int i = 0; i < numTimePeriods + 1 - d; i++) {
-                for (int j : myInput.getScenarios()) {
-                    GRBLinExpr inFlow = new GRBLinExpr();
-                    GRBLinExpr outFlow = new GRBLinExpr();
+    private static void addDepartureNodeConstraints(SparseModel model, Input myInput, Layout layout) {
+        for (int dPos = 0; dPos < layout.getNumDurations(); dPos++) {
+            int d = layout.getDuration(dPos);
+            for (int i = 0; i < layout.getNumDepartPeriods(d); i++) {
+                for (int jPos = 0; jPos < layout.getNumScenarios(); jPos++) {
+                    int j = layout.getScenario(jPos);
+                    LinearExpr inFlow = new LinearExpr(1);
+                    LinearExpr outFlow = new LinearExpr(2);
                     inFlow.addConstant(myInput.getNumDeparting(d, i));
                     if (i > 0) {
-                        inFlow.addTerm(1.0, model
-                                .getVarByName(getGroundVarName(j, i - 1, d)));
+                        inFlow.addTerm(1.0, layout.groundVar(jPos, dPos, i - 1));
                     }
-                    if (i < numTimePeriods - d) {
-                        outFlow.addTerm(1.0,
-                                model.getVarByName(getGroundVarName(j, i, d)));
+                    if (i < layout.getNumGroundPeriods(d)) {
+                        outFlow.addTerm(1.0, layout.groundVar(jPos, dPos, i));
                     }
-                    outFlow.addTerm(1.0,
-                            model.getVarByName(getDepartVarName(j, i, d)));
-                    model.addConstr(inFlow, GRB.EQUAL, outFlow,
+                    outFlow.addTerm(1.0, layout.departVar(jPos, dPos, i));
+                    model.addConstr(inFlow, SparseModel.EQUAL, outFlow,
                             getDepartureNodeConstrName(j, i, d));
                 }
             }
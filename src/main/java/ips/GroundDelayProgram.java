@@ -0,0 +1,289 @@
+package ips;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+
+import util.BTSParser;
+import util.TimeGrid;
+
+/**
+ * A ground delay program for individual flights, derived from the
+ * first-stage decisions of a {@link DHoffkinPlan}. The first stage is the
+ * leading time periods in which the scenario tree has a single node, so
+ * that the departures of every scenario agree. Outside the first stage the
+ * plan depends on which scenario occurs, and the flights are left to a
+ * later planning cycle.
+ * <p>
+ * The plan only says how many flights of each duration depart in each
+ * period. Within a duration, flights are released first come first served
+ * in the order of their scheduled departures, ties broken by flight id. A
+ * flight released in a later period than its scheduled one has its
+ * departure delayed by the time between the starts of the two periods, and
+ * its arrival is delayed by the same amount.
+ */
+public class GroundDelayProgram {
+
+    /**
+     * The control of one sitting flight.
+     */
+    public static final class FlightControl {
+        private final BTSParser.FlightStruct flight;
+        private final int scheduledPeriod;
+        private final int controlledPeriod;
+        private final Duration delay;
+
+        private FlightControl(BTSParser.FlightStruct flight, int scheduledPeriod, int controlledPeriod,
+                              TimeGrid grid) {
+            this.flight = flight;
+            this.scheduledPeriod = scheduledPeriod;
+            this.controlledPeriod = controlledPeriod;
+            this.delay = controlledPeriod < 0 ? null
+                    : Duration.between(grid.getPeriodStart(scheduledPeriod), grid.getPeriodStart(controlledPeriod));
+        }
+
+        public BTSParser.FlightStruct getFlight() {
+            return flight;
+        }
+
+        public int getScheduledPeriod() {
+            return scheduledPeriod;
+        }
+
+        /**
+         * Whether the flight is released in the first stage. Otherwise its
+         * departure is left to a later planning cycle.
+         */
+        public boolean isControlled() {
+            return controlledPeriod >= 0;
+        }
+
+        /**
+         * The period in which the flight departs, or -1 if it is not
+         * controlled.
+         */
+        public int getControlledPeriod() {
+            return controlledPeriod;
+        }
+
+        /**
+         * The ground delay, or null if the flight is not controlled.
+         */
+        public Duration getDelay() {
+            return delay;
+        }
+
+        /**
+         * The controlled departure time, or null if the flight is not
+         * controlled.
+         */
+        public OffsetDateTime getControlledDeparture() {
+            return delay == null ? null : flight.getDepartureTime().plus(delay);
+        }
+
+        /**
+         * The controlled arrival time, or null if the flight is not
+         * controlled.
+         */
+        public OffsetDateTime getControlledArrival() {
+            return delay == null ? null : flight.getArrivalTime().plus(delay);
+        }
+
+        @Override
+        public String toString() {
+            return "Flight: " + flight.getFlightId() + ", Scheduled: " + flight.getDepartureTime()
+                    + ", Controlled: " + getControlledDeparture() + ", Delay: " + delay;
+        }
+    }
+
+    private final int firstStageLength;
+    private final List<FlightControl> controls;
+    private final HashMap<Integer, FlightControl> controlsById;
+
+    private GroundDelayProgram(int firstStageLength, List<FlightControl> controls) {
+        this.firstStageLength = firstStageLength;
+        this.controls = Collections.unmodifiableList(controls);
+        this.controlsById = new HashMap<Integer, FlightControl>();
+        for (FlightControl control : controls) {
+            controlsById.put(control.getFlight().getFlightId(), control);
+        }
+    }
+
+    /**
+     * Assigns the sitting flights from which the input was built to the
+     * first-stage departures of the plan, for an input whose periods all have
+     * the given length. The flights are discretized in the same way as by
+     * {@link DHoffkinFlightParser#wrapSittingFlights}. Inputs built on a
+     * grid with periods of different lengths are rejected, and need the
+     * overload taking their grid.
+     */
+    public static GroundDelayProgram fromPlan(ExtendedHofkinModel.Input input, DHoffkinPlan plan,
+                                              Collection<BTSParser.FlightStruct> sittingFlights,
+                                              OffsetDateTime startTime, Duration discretization) {
+        TimeGrid grid = new TimeGrid(startTime, Collections.nCopies(input.getNumTimePeriods(), discretization),
+                discretization);
+        return fromPlan(input, plan, sittingFlights, grid);
+    }
+
+    /**
+     * Assigns the sitting flights from which the input was built to the
+     * first-stage departures of the plan. The flights are discretized over
+     * the grid of the input, in the same way as by
+     * {@link DHoffkinFlightParser#wrapBTSOutput(BTSParser.ResultStruct, TimeGrid)},
+     * whose periods must have the lengths of the periods of the input. Runs
+     * in O(F log F) for F flights, plus the size of the first stage of the
+     * plan.
+     */
+    public static GroundDelayProgram fromPlan(ExtendedHofkinModel.Input input, DHoffkinPlan plan,
+                                              Collection<BTSParser.FlightStruct> sittingFlights, TimeGrid grid) {
+        if (grid.getNumTimePeriods() != input.getNumTimePeriods()) {
+            throw new IllegalArgumentException("The grid must have one period per period of the input, but had "
+                    + grid.getNumTimePeriods() + " for " + input.getNumTimePeriods() + ".");
+        }
+        for (int t = 0; t < grid.getNumTimePeriods(); t++) {
+            if (Math.abs(grid.getPeriodLengthInUnits(t) - input.getPeriodLength(t)) > 1e-9) {
+                throw new IllegalArgumentException("Period " + t + " of the input must have the length "
+                        + grid.getPeriodLengthInUnits(t) + " of the grid, but was " + input.getPeriodLength(t)
+                        + ".");
+            }
+        }
+        ExtendedHofkinModel.Layout layout = plan.getLayout();
+        int firstStageLength = getFirstStageLength(input);
+
+        // The flights of each duration, in the order in which they are
+        // released.
+        int numDurations = layout.getNumDurations();
+        List<List<BTSParser.FlightStruct>> queues = new ArrayList<List<BTSParser.FlightStruct>>(numDurations);
+        for (int dPos = 0; dPos < numDurations; dPos++) {
+            queues.add(new ArrayList<BTSParser.FlightStruct>());
+        }
+        HashMap<Integer, Integer> durationPositions = new HashMap<Integer, Integer>();
+        for (int dPos = 0; dPos < numDurations; dPos++) {
+            durationPositions.put(layout.getDuration(dPos), dPos);
+        }
+        for (BTSParser.FlightStruct f : sittingFlights) {
+            int d = grid.durationToUnits(f.getFlightDuration());
+            Integer dPos = durationPositions.get(d);
+            if (dPos == null) {
+                throw new IllegalArgumentException("Flight " + f.getFlightId() + " has duration " + d
+                        + ", which is not in the plan.");
+            }
+            queues.get(dPos).add(f);
+        }
+        Comparator<BTSParser.FlightStruct> bySchedule = new Comparator<BTSParser.FlightStruct>() {
+            @Override
+            public int compare(BTSParser.FlightStruct f1, BTSParser.FlightStruct f2) {
+                int c = f1.getDepartureTime().compareTo(f2.getDepartureTime());
+                return c != 0 ? c : Integer.compare(f1.getFlightId(), f2.getFlightId());
+            }
+        };
+
+        List<FlightControl> controls = new ArrayList<FlightControl>();
+        for (int dPos = 0; dPos < numDurations; dPos++) {
+            List<BTSParser.FlightStruct> queue = queues.get(dPos);
+            Collections.sort(queue, bySchedule);
+            int d = layout.getDuration(dPos);
+            int last = Math.min(firstStageLength, layout.getNumDepartPeriods(d));
+            int next = 0;
+            // In the first stage every scenario has the same departures, so
+            // those of the first scenario are used.
+            for (int i = 0; i < last; i++) {
+                int departing = (int) Math.round(plan.getDepart(layout.getScenario(0), d, i));
+                for (int k = 0; k < departing; k++, next++) {
+                    if (next >= queue.size()) {
+                        throw new IllegalArgumentException("The plan departs more flights of duration " + d
+                                + " than there are.");
+                    }
+                    BTSParser.FlightStruct f = queue.get(next);
+                    int scheduled = grid.timeToIndex(f.getDepartureTime());
+                    if (scheduled > i) {
+                        throw new IllegalArgumentException("The plan departs flight " + f.getFlightId()
+                                + " in period " + i + ", before its scheduled period " + scheduled + ".");
+                    }
+                    controls.add(new FlightControl(f, scheduled, i, grid));
+                }
+            }
+            for (; next < queue.size(); next++) {
+                BTSParser.FlightStruct f = queue.get(next);
+                controls.add(new FlightControl(f, grid.timeToIndex(f.getDepartureTime()), -1, grid));
+            }
+        }
+        return new GroundDelayProgram(firstStageLength, controls);
+    }
+
+    /**
+     * The number of leading time periods in which the scenario tree has a
+     * single node.
+     */
+    public static int getFirstStageLength(ExtendedHofkinModel.Input input) {
+        int length = 0;
+        while (length < input.getNumTimePeriods() && isSingleNode(input.getNodes(length))) {
+            length++;
+        }
+        return length;
+    }
+
+    private static boolean isSingleNode(Iterable<? extends Iterable<Integer>> nodes) {
+        Iterator<? extends Iterable<Integer>> iterator = nodes.iterator();
+        if (!iterator.hasNext()) {
+            return false;
+        }
+        iterator.next();
+        return !iterator.hasNext();
+    }
+
+    public int getFirstStageLength() {
+        return firstStageLength;
+    }
+
+    /**
+     * The controls of all sitting flights, grouped by duration and in the
+     * order of release within a duration.
+     */
+    public List<FlightControl> getControls() {
+        return controls;
+    }
+
+    /**
+     * The control of the flight with the given id, or null if the flight is
+     * not part of the program.
+     */
+    public FlightControl getControl(int flightId) {
+        return controlsById.get(flightId);
+    }
+
+    public int getNumControlled() {
+        int count = 0;
+        for (FlightControl control : controls) {
+            if (control.isControlled()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * The total ground delay of the controlled flights.
+     */
+    public Duration getTotalDelay() {
+        Duration total = Duration.ZERO;
+        for (FlightControl control : controls) {
+            if (control.isControlled()) {
+                total = total.plus(control.getDelay());
+            }
+        }
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        return "First stage: " + firstStageLength + ", Flights: " + controls.size() + ", Controlled: "
+                + getNumControlled() + ", Total delay: " + getTotalDelay();
+    }
+}
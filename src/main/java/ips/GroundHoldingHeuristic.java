@@ -0,0 +1,296 @@
+package ips;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A greedy ground holding heuristic for {@link ExtendedHofkinModel}, in the
+ * style of ration-by-schedule. Flights reserve landing slots in the order in
+ * which they would arrive: en-route flights first, then departures in time
+ * order. A flight may only depart if it can get a landing slot in every
+ * scenario of its node in the scenario tree, so the plan is
+ * non-anticipative. Otherwise it is held on the ground for another period.
+ * <p>
+ * With an airborne buffer B, a flight may also depart if it would have to
+ * wait in the air for a later slot, provided fewer than B reserved flights
+ * are airborne in each period it waits. Flights which can no longer be held,
+ * because they have to depart by the last period in which they arrive
+ * within the horizon, depart regardless. Once the departures are fixed, the
+ * AIR, LAND and DIVERT values of each scenario follow by landing flights as
+ * early as possible and diverting any flights above the airborne limit.
+ * <p>
+ * The result is a feasible solution of the model, which can be used as a MIP
+ * start.
+ */
+public final class GroundHoldingHeuristic {
+
+    private GroundHoldingHeuristic() {
+
+    }
+
+    public static DHoffkinPlan solve(ExtendedHofkinModel.Input input) {
+        return solve(input, 0);
+    }
+
+    public static DHoffkinPlan solve(ExtendedHofkinModel.Input input, int airborneBuffer) {
+        int maxAirborne = input.getMaxAirborne();
+        if (airborneBuffer < 0 || (maxAirborne != ExtendedHofkinModel.UNLIMITED && airborneBuffer > maxAirborne)) {
+            throw new IllegalArgumentException("Airborne buffer must be between 0 and the maximum number of "
+                    + "airborne flights, " + maxAirborne + ", but was " + airborneBuffer + ".");
+        }
+        final ExtendedHofkinModel.Layout layout = new ExtendedHofkinModel.Layout(input);
+        int numTimePeriods = layout.getNumTimePeriods();
+        int numScenarios = layout.getNumScenarios();
+        int numDurations = layout.getNumDurations();
+        double[] values = new double[layout.getNumVars()];
+
+        int[][] capacity = getCapacities(input, layout);
+        SlotBook[] books = new SlotBook[numScenarios];
+        for (int sPos = 0; sPos < numScenarios; sPos++) {
+            books[sPos] = new SlotBook(capacity[sPos]);
+        }
+        for (int t = 0; t < numTimePeriods; t++) {
+            int enroute = (int) Math.round(input.getEnroute(t));
+            for (int sPos = 0; sPos < numScenarios; sPos++) {
+                for (int k = 0; k < enroute; k++) {
+                    books[sPos].reserve(t);
+                }
+            }
+        }
+
+        // Durations are processed in increasing order, so within a period the
+        // earlier landing slots are handed out first.
+        int[] durationOrder = new int[numDurations];
+        Integer[] sorted = new Integer[numDurations];
+        for (int dPos = 0; dPos < numDurations; dPos++) {
+            sorted[dPos] = dPos;
+        }
+        Arrays.sort(sorted, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer d1, Integer d2) {
+                return Integer.compare(layout.getDuration(d1), layout.getDuration(d2));
+            }
+        });
+        for (int k = 0; k < numDurations; k++) {
+            durationOrder[k] = sorted[k];
+        }
+
+        int[][] queue = new int[numScenarios][numDurations];
+        for (int i = 0; i < numTimePeriods; i++) {
+            for (int[] node : getNodes(input, layout, i)) {
+                for (int dPos : durationOrder) {
+                    int d = layout.getDuration(dPos);
+                    if (i >= layout.getNumDepartPeriods(d)) {
+                        continue;
+                    }
+                    // Scenarios in a node share their history, so they have
+                    // the same queue.
+                    int waiting = queue[node[0]][dPos] + (int) Math.round(input.getNumDeparting(d, i));
+                    int departing;
+                    if (i == layout.getNumDepartPeriods(d) - 1) {
+                        departing = waiting;
+                    } else {
+                        departing = 0;
+                        int arrival = layout.getArrivalPeriod(dPos, i);
+                        while (departing < waiting && canReserveAll(books, node, arrival, airborneBuffer)) {
+                            for (int sPos : node) {
+                                books[sPos].reserve(arrival);
+                            }
+                            departing++;
+                        }
+                    }
+                    for (int sPos : node) {
+                        queue[sPos][dPos] = waiting - departing;
+                        values[layout.departVar(sPos, dPos, i)] = departing;
+                        if (i < layout.getNumGroundPeriods(d)) {
+                            values[layout.groundVar(sPos, dPos, i)] = waiting - departing;
+                        }
+                    }
+                }
+            }
+        }
+
+        completeArrivals(input, layout, capacity, values);
+        return new DHoffkinPlan(input, layout, values);
+    }
+
+    /**
+     * Rounds a solution of the LP relaxation of the model to a feasible
+     * plan. In each node of the scenario tree, the cumulative departures of
+     * each duration are rounded down, and flights which can no longer be held
+     * depart regardless. As in {@link #solve}, the AIR, LAND and DIVERT
+     * values follow from the departures.
+     */
+    public static DHoffkinPlan roundRelaxation(ExtendedHofkinModel.Input input, double[] relaxedValues) {
+        ExtendedHofkinModel.Layout layout = new ExtendedHofkinModel.Layout(input);
+        if (relaxedValues.length != layout.getNumVars()) {
+            throw new IllegalArgumentException("Expected " + layout.getNumVars() + " values, but got "
+                    + relaxedValues.length + ".");
+        }
+        int numTimePeriods = layout.getNumTimePeriods();
+        int numScenarios = layout.getNumScenarios();
+        int numDurations = layout.getNumDurations();
+        double[] values = new double[layout.getNumVars()];
+
+        // The relaxation is non-anticipative, so the scenarios of a node
+        // have the same departures up to rounding errors. The values of the
+        // first scenario of the node are used for all of them.
+        int[][] queue = new int[numScenarios][numDurations];
+        int[][] departed = new int[numScenarios][numDurations];
+        double[][] relaxedDeparted = new double[numScenarios][numDurations];
+        for (int i = 0; i < numTimePeriods; i++) {
+            for (int[] node : getNodes(input, layout, i)) {
+                for (int dPos = 0; dPos < numDurations; dPos++) {
+                    int d = layout.getDuration(dPos);
+                    if (i >= layout.getNumDepartPeriods(d)) {
+                        continue;
+                    }
+                    int first = node[0];
+                    int waiting = queue[first][dPos] + (int) Math.round(input.getNumDeparting(d, i));
+                    double cumulative = relaxedDeparted[first][dPos] + relaxedValues[layout.departVar(first, dPos, i)];
+                    int departing;
+                    if (i == layout.getNumDepartPeriods(d) - 1) {
+                        departing = waiting;
+                    } else {
+                        departing = Math.min(waiting,
+                                Math.max(0, (int) Math.floor(cumulative + 1e-6) - departed[first][dPos]));
+                    }
+                    int total = departed[first][dPos] + departing;
+                    for (int sPos : node) {
+                        queue[sPos][dPos] = waiting - departing;
+                        departed[sPos][dPos] = total;
+                        relaxedDeparted[sPos][dPos] = cumulative;
+                        values[layout.departVar(sPos, dPos, i)] = departing;
+                        if (i < layout.getNumGroundPeriods(d)) {
+                            values[layout.groundVar(sPos, dPos, i)] = waiting - departing;
+                        }
+                    }
+                }
+            }
+        }
+
+        completeArrivals(input, layout, getCapacities(input, layout), values);
+        return new DHoffkinPlan(input, layout, values);
+    }
+
+    /**
+     * Fills in the AIR, LAND and DIVERT values of each scenario from the
+     * departures, landing flights as early as possible and diverting any
+     * flights above the airborne limit.
+     */
+    private static void completeArrivals(ExtendedHofkinModel.Input input, ExtendedHofkinModel.Layout layout,
+                                         int[][] capacity, double[] values) {
+        int maxAirborne = input.getMaxAirborne();
+        int numTimePeriods = layout.getNumTimePeriods();
+        int numDurations = layout.getNumDurations();
+        int[] arriving = new int[numTimePeriods];
+        for (int sPos = 0; sPos < layout.getNumScenarios(); sPos++) {
+            for (int t = 0; t < numTimePeriods; t++) {
+                arriving[t] = (int) Math.round(input.getEnroute(t));
+            }
+            for (int dPos = 0; dPos < numDurations; dPos++) {
+                int d = layout.getDuration(dPos);
+                for (int i = 0; i < layout.getNumDepartPeriods(d); i++) {
+                    int arrival = layout.getArrivalPeriod(dPos, i);
+                    if (arrival < numTimePeriods) {
+                        arriving[arrival] += (int) values[layout.departVar(sPos, dPos, i)];
+                    }
+                }
+            }
+            int airborne = 0;
+            for (int t = 0; t < numTimePeriods; t++) {
+                int total = airborne + arriving[t];
+                int landing = Math.min(total, capacity[sPos][t]);
+                int remaining = total - landing;
+                int diverting = maxAirborne == ExtendedHofkinModel.UNLIMITED ? 0 : Math.max(0, remaining - maxAirborne);
+                airborne = remaining - diverting;
+                values[layout.landVar(sPos, t)] = landing;
+                values[layout.divertVar(sPos, t)] = diverting;
+                values[layout.airVar(sPos, t)] = airborne;
+            }
+        }
+    }
+
+    private static int[][] getCapacities(ExtendedHofkinModel.Input input, ExtendedHofkinModel.Layout layout) {
+        int[][] capacity = new int[layout.getNumScenarios()][layout.getNumTimePeriods()];
+        for (int sPos = 0; sPos < layout.getNumScenarios(); sPos++) {
+            for (int t = 0; t < layout.getNumTimePeriods(); t++) {
+                capacity[sPos][t] = (int) Math.floor(input.getCapacity(layout.getScenario(sPos), t) + 1e-9);
+            }
+        }
+        return capacity;
+    }
+
+    private static List<int[]> getNodes(ExtendedHofkinModel.Input input, ExtendedHofkinModel.Layout layout,
+                                        int timePeriod) {
+        List<int[]> nodes = new ArrayList<int[]>();
+        for (Iterable<Integer> node : input.getNodes(timePeriod)) {
+            List<Integer> positions = new ArrayList<Integer>();
+            for (int s : node) {
+                positions.add(layout.getScenarioPosition(s));
+            }
+            int[] nodePositions = new int[positions.size()];
+            for (int k = 0; k < nodePositions.length; k++) {
+                nodePositions[k] = positions.get(k);
+            }
+            nodes.add(nodePositions);
+        }
+        return nodes;
+    }
+
+    private static boolean canReserveAll(SlotBook[] books, int[] node, int arrival, int airborneBuffer) {
+        for (int sPos : node) {
+            if (!books[sPos].canReserve(arrival, airborneBuffer)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The landing slots of one scenario. Each reserved flight lands in the
+     * first free slot at or after its arrival, and is counted as airborne in
+     * every period it waits. A slot at numTimePeriods stands for still being
+     * in the air at the end of the horizon, and is never full.
+     */
+    private static final class SlotBook {
+        private final int[] free;
+        private final int[] airborne;
+
+        private SlotBook(int[] capacity) {
+            free = capacity.clone();
+            airborne = new int[capacity.length];
+        }
+
+        private int firstFreeSlot(int arrival) {
+            int slot = arrival;
+            while (slot < free.length && free[slot] <= 0) {
+                slot++;
+            }
+            return slot;
+        }
+
+        private boolean canReserve(int arrival, int airborneBuffer) {
+            int slot = arrival;
+            while (slot < free.length && free[slot] <= 0) {
+                if (airborne[slot] >= airborneBuffer) {
+                    return false;
+                }
+                slot++;
+            }
+            return true;
+        }
+
+        private void reserve(int arrival) {
+            int slot = firstFreeSlot(arrival);
+            for (int t = arrival; t < slot; t++) {
+                airborne[t]++;
+            }
+            if (slot < free.length) {
+                free[slot]--;
+            }
+        }
+    }
+}
@@ -0,0 +1,459 @@
+package ips;
+
+import gurobi.GRB;
+import gurobi.GRBCallback;
+import gurobi.GRBEnv;
+import gurobi.GRBException;
+import gurobi.GRBLinExpr;
+import gurobi.GRBModel;
+import gurobi.GRBVar;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+import lp.BranchAndBound;
+import lp.GurobiAdapter;
+import lp.SimplexSolver;
+import lp.Solution;
+import lp.SparseModel;
+
+/**
+ * Builds the DHD model of {@link ExtendedHofkinModel} with only a core of
+ * its anti-anticipatory constraints, and adds the others when a solution
+ * violates them.
+ * <p>
+ * The ground variables of a duration are determined by its departures, so
+ * scenarios which agree on the departures up to a period also agree on the
+ * ground variables, and the ground constraints are never needed. Of the
+ * departure constraints, the core holds those of the leading periods, by
+ * default the periods in which all scenarios still share the root of the
+ * tree. The others are either added as lazy constraints by a Gurobi
+ * callback, or in rounds: the relaxation is solved and the violated
+ * constraints added until it violates none, and then the same is done with
+ * the MIP. Either way the final solution satisfies all anti-anticipatory
+ * constraints and is optimal for the full model. Since the variables are the
+ * same as in the full model, its values are in the order of
+ * {@link ExtendedHofkinModel.Layout}.
+ */
+public class LazyAntiAnticipativity {
+    public static final double DEFAULT_TOLERANCE = 1e-6;
+    public static final int DEFAULT_MAX_ROWS_PER_ROUND = 500;
+
+    /**
+     * Solves the model of a round, or its relaxation. Returns null if there
+     * is no solution.
+     */
+    public interface Solver {
+        double[] solve(SparseModel model) throws GRBException;
+
+        double[] solveRelaxation(SparseModel model) throws GRBException;
+    }
+
+    /**
+     * Solves the rounds with Gurobi in the given environment.
+     */
+    public static Solver withGurobi(final GRBEnv env, final boolean verbose) {
+        return new Solver() {
+            @Override
+            public double[] solve(SparseModel sparseModel) throws GRBException {
+                GRBModel model = setup(sparseModel);
+                try {
+                    model.optimize();
+                    return model.get(GRB.IntAttr.SolCount) > 0 ? model.get(GRB.DoubleAttr.X, model.getVars()) : null;
+                } finally {
+                    model.dispose();
+                }
+            }
+
+            @Override
+            public double[] solveRelaxation(SparseModel sparseModel) throws GRBException {
+                GRBModel model = setup(sparseModel);
+                GRBModel relaxed = null;
+                try {
+                    relaxed = model.relax();
+                    relaxed.optimize();
+                    return relaxed.get(GRB.IntAttr.Status) == GRB.Status.OPTIMAL
+                            ? relaxed.get(GRB.DoubleAttr.X, relaxed.getVars()) : null;
+                } finally {
+                    if (relaxed != null) {
+                        relaxed.dispose();
+                    }
+                    model.dispose();
+                }
+            }
+
+            private GRBModel setup(SparseModel sparseModel) throws GRBException {
+                GRBModel model = GurobiAdapter.toGurobi(sparseModel, env);
+                if (!verbose) {
+                    model.set(GRB.IntParam.OutputFlag, 0);
+                }
+                return model;
+            }
+        };
+    }
+
+    /**
+     * Solves the rounds with the pure-Java simplex and branch and bound.
+     */
+    public static Solver withBranchAndBound(final SimplexSolver lpSolver, final BranchAndBound solver) {
+        return new Solver() {
+            @Override
+            public double[] solve(SparseModel model) {
+                Solution solution = solver.solve(model);
+                return solution.hasValues() ? solution.getValues() : null;
+            }
+
+            @Override
+            public double[] solveRelaxation(SparseModel model) {
+                Solution solution = lpSolver.solve(model);
+                return solution.hasValues() ? solution.getValues() : null;
+            }
+        };
+    }
+
+    /**
+     * The outcome of {@link #solveInRounds}.
+     */
+    public static final class Result {
+        private final double[] values;
+        private final double objective;
+        private final int numRelaxationRounds;
+        private final int numMipRounds;
+        private final int numRowsAdded;
+        private final double runtime;
+
+        private Result(double[] values, double objective, int numRelaxationRounds, int numMipRounds,
+                       int numRowsAdded, double runtime) {
+            this.values = values;
+            this.objective = objective;
+            this.numRelaxationRounds = numRelaxationRounds;
+            this.numMipRounds = numMipRounds;
+            this.numRowsAdded = numRowsAdded;
+            this.runtime = runtime;
+        }
+
+        /**
+         * The values of the solution, in the order of
+         * {@link ExtendedHofkinModel.Layout}.
+         */
+        public double[] getValues() {
+            return values.clone();
+        }
+
+        public double getObjective() {
+            return objective;
+        }
+
+        public int getNumRelaxationRounds() {
+            return numRelaxationRounds;
+        }
+
+        public int getNumMipRounds() {
+            return numMipRounds;
+        }
+
+        /**
+         * The anti-anticipatory constraints added beyond the core.
+         */
+        public int getNumRowsAdded() {
+            return numRowsAdded;
+        }
+
+        /**
+         * The wall time of all rounds, in seconds.
+         */
+        public double getRuntime() {
+            return runtime;
+        }
+
+        @Override
+        public String toString() {
+            return "Obj: " + objective + ", Relaxation rounds: " + numRelaxationRounds + ", MIP rounds: "
+                    + numMipRounds + ", Rows added: " + numRowsAdded + ", Runtime: " + runtime;
+        }
+    }
+
+    private final ExtendedHofkinModel.Input input;
+    private final int coreHorizon;
+    // The departure constraints, as pairs of variables which must be equal,
+    // with the scenarios, period and duration they are named after.
+    private final int[] firstVars;
+    private final int[] nextVars;
+    private final int[] firstScenarios;
+    private final int[] nextScenarios;
+    private final int[] periods;
+    private final int[] durations;
+    private final int numCoreRows;
+
+    /**
+     * The core holds the constraints of the periods in which the tree has a
+     * single node.
+     */
+    public LazyAntiAnticipativity(ExtendedHofkinModel.Input input) {
+        this(input, getRootPeriods(input));
+    }
+
+    /**
+     * The core holds the constraints of the periods before coreHorizon.
+     */
+    public LazyAntiAnticipativity(ExtendedHofkinModel.Input input, int coreHorizon) {
+        if (coreHorizon < 0) {
+            throw new IllegalArgumentException("Core horizon must be non-negative, but was " + coreHorizon + ".");
+        }
+        this.input = input;
+        this.coreHorizon = coreHorizon;
+        ExtendedHofkinModel.Layout layout = new ExtendedHofkinModel.Layout(input);
+        List<int[]> rows = new ArrayList<int[]>();
+        for (int dPos = 0; dPos < layout.getNumDurations(); dPos++) {
+            int d = layout.getDuration(dPos);
+            for (int i = 0; i < layout.getNumDepartPeriods(d); i++) {
+                for (Iterable<Integer> node : input.getNodes(i)) {
+                    Iterator<Integer> scenIter = node.iterator();
+                    if (!scenIter.hasNext()) {
+                        continue;
+                    }
+                    int firstScen = scenIter.next();
+                    int firstPos = layout.getScenarioPosition(firstScen);
+                    while (scenIter.hasNext()) {
+                        int nextScen = scenIter.next();
+                        int nextPos = layout.getScenarioPosition(nextScen);
+                        rows.add(new int[]{layout.departVar(firstPos, dPos, i), layout.departVar(nextPos, dPos, i),
+                                firstScen, nextScen, i, d});
+                    }
+                }
+            }
+        }
+        // Core rows first, so that the core is a prefix.
+        List<int[]> ordered = new ArrayList<int[]>(rows.size());
+        for (int[] row : rows) {
+            if (row[4] < coreHorizon) {
+                ordered.add(row);
+            }
+        }
+        numCoreRows = ordered.size();
+        for (int[] row : rows) {
+            if (row[4] >= coreHorizon) {
+                ordered.add(row);
+            }
+        }
+        int numRows = ordered.size();
+        firstVars = new int[numRows];
+        nextVars = new int[numRows];
+        firstScenarios = new int[numRows];
+        nextScenarios = new int[numRows];
+        periods = new int[numRows];
+        durations = new int[numRows];
+        for (int r = 0; r < numRows; r++) {
+            int[] row = ordered.get(r);
+            firstVars[r] = row[0];
+            nextVars[r] = row[1];
+            firstScenarios[r] = row[2];
+            nextScenarios[r] = row[3];
+            periods[r] = row[4];
+            durations[r] = row[5];
+        }
+    }
+
+    /**
+     * The number of leading periods in which all scenarios share one node.
+     */
+    public static int getRootPeriods(ExtendedHofkinModel.Input input) {
+        int i = 0;
+        while (i < input.getNumTimePeriods()) {
+            Iterator<? extends Iterable<Integer>> nodes = input.getNodes(i).iterator();
+            if (!nodes.hasNext()) {
+                break;
+            }
+            nodes.next();
+            if (nodes.hasNext()) {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    public int getCoreHorizon() {
+        return coreHorizon;
+    }
+
+    /**
+     * The departure constraints of the full model. The full model also has
+     * the ground constraints, which are never needed.
+     */
+    public int getNumRows() {
+        return firstVars.length;
+    }
+
+    public int getNumCoreRows() {
+        return numCoreRows;
+    }
+
+    /**
+     * The model with the core constraints.
+     */
+    public SparseModel buildCoreModel() {
+        SparseModel model = ExtendedHofkinModel.buildModelWithoutAntiAnticipativity(input);
+        for (int r = 0; r < numCoreRows; r++) {
+            addRow(model, r);
+        }
+        return model;
+    }
+
+    private void addRow(SparseModel model, int row) {
+        model.addConstr(firstVars[row], SparseModel.EQUAL, nextVars[row],
+                ExtendedHofkinModel.getDepartAAConstrName(firstScenarios[row], nextScenarios[row], periods[row],
+                        durations[row]));
+    }
+
+    /**
+     * The constraints beyond the core violated by more than the tolerance at
+     * the given values, most violated first, at most maxRows of them.
+     */
+    public List<Integer> separate(double[] values, boolean[] added, double tolerance, int maxRows) {
+        List<Integer> violated = new ArrayList<Integer>();
+        final double[] violations = new double[firstVars.length];
+        for (int r = numCoreRows; r < firstVars.length; r++) {
+            if (added != null && added[r]) {
+                continue;
+            }
+            violations[r] = Math.abs(values[firstVars[r]] - values[nextVars[r]]);
+            if (violations[r] > tolerance) {
+                violated.add(r);
+            }
+        }
+        if (violated.size() > maxRows) {
+            Collections.sort(violated, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer r1, Integer r2) {
+                    return Double.compare(violations[r2], violations[r1]);
+                }
+            });
+            violated = new ArrayList<Integer>(violated.subList(0, maxRows));
+        }
+        return violated;
+    }
+
+    /**
+     * Solves the core model, adding the violated constraints in rounds,
+     * first on the relaxation and then on the MIP. If the MIP still violates
+     * constraints after maxMipRounds, all remaining constraints are added
+     * for the last round.
+     */
+    public Result solveInRounds(Solver solver, int maxMipRounds, double tolerance, int maxRowsPerRound)
+            throws GRBException {
+        long start = System.nanoTime();
+        SparseModel model = buildCoreModel();
+        boolean[] added = new boolean[firstVars.length];
+        int numRowsAdded = 0;
+
+        int relaxationRounds = 0;
+        while (true) {
+            double[] values = solver.solveRelaxation(model);
+            relaxationRounds++;
+            if (values == null) {
+                throw new IllegalStateException("The relaxation has no solution.");
+            }
+            List<Integer> violated = separate(values, added, tolerance, maxRowsPerRound);
+            if (violated.isEmpty()) {
+                break;
+            }
+            numRowsAdded += add(model, violated, added);
+        }
+
+        int mipRounds = 0;
+        while (true) {
+            double[] values = solver.solve(model);
+            mipRounds++;
+            if (values == null) {
+                throw new IllegalStateException("The model has no solution.");
+            }
+            List<Integer> violated = separate(values, added, tolerance, maxRowsPerRound);
+            if (violated.isEmpty()) {
+                return new Result(values, model.getObjectiveValue(values), relaxationRounds, mipRounds,
+                        numRowsAdded, (System.nanoTime() - start) / 1e9);
+            }
+            if (mipRounds >= maxMipRounds) {
+                violated = separate(values, added, Double.NEGATIVE_INFINITY, Integer.MAX_VALUE);
+            }
+            numRowsAdded += add(model, violated, added);
+        }
+    }
+
+    private int add(SparseModel model, List<Integer> rows, boolean[] added) {
+        for (int r : rows) {
+            addRow(model, r);
+            added[r] = true;
+        }
+        return rows.size();
+    }
+
+    /**
+     * Adds violated constraints as lazy constraints, at integer solutions and
+     * at node relaxations solved to optimality. The model must have the
+     * LazyConstraints parameter set, which {@link #setupModel} does.
+     */
+    public class Separator extends GRBCallback {
+        private final GRBVar[] vars;
+        private final boolean[] added = new boolean[firstVars.length];
+        private final double tolerance;
+        private final int maxRowsPerRound;
+        private int numRowsAdded = 0;
+
+        public Separator(GRBVar[] vars, double tolerance, int maxRowsPerRound) {
+            this.vars = vars;
+            this.tolerance = tolerance;
+            this.maxRowsPerRound = maxRowsPerRound;
+        }
+
+        @Override
+        protected void callback() {
+            try {
+                double[] values;
+                int maxRows;
+                if (where == GRB.CB_MIPSOL) {
+                    // An integer solution is only accepted if it violates
+                    // nothing, so all its violations are added.
+                    values = getSolution(vars);
+                    maxRows = Integer.MAX_VALUE;
+                } else if (where == GRB.CB_MIPNODE && getIntInfo(GRB.CB_MIPNODE_STATUS) == GRB.OPTIMAL) {
+                    values = getNodeRel(vars);
+                    maxRows = maxRowsPerRound;
+                } else {
+                    return;
+                }
+                for (int r : separate(values, added, tolerance, maxRows)) {
+                    GRBLinExpr expr = new GRBLinExpr();
+                    expr.addTerm(1.0, vars[firstVars[r]]);
+                    expr.addTerm(-1.0, vars[nextVars[r]]);
+                    addLazy(expr, GRB.EQUAL, 0.0);
+                    added[r] = true;
+                    numRowsAdded++;
+                }
+            } catch (GRBException e) {
+                throw new IllegalStateException("Separating anti-anticipatory constraints failed.", e);
+            }
+        }
+
+        public int getNumRowsAdded() {
+            return numRowsAdded;
+        }
+    }
+
+    /**
+     * Sets up the core model with a {@link Separator} as its callback, so it
+     * cannot be combined with other callbacks.
+     */
+    public GRBModel setupModel(GRBEnv env, boolean verbose) throws GRBException {
+        GRBModel model = GurobiAdapter.toGurobi(buildCoreModel(), env);
+        if (!verbose) {
+            model.set(GRB.IntParam.OutputFlag, 0);
+        }
+        model.set(GRB.IntParam.LazyConstraints, 1);
+        model.setCallback(new Separator(model.getVars(), DEFAULT_TOLERANCE, DEFAULT_MAX_ROWS_PER_ROUND));
+        return model;
+    }
+}
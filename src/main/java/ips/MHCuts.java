@@ -0,0 +1,325 @@
+package ips;
+
+import gurobi.GRB;
+import gurobi.GRBCallback;
+import gurobi.GRBEnv;
+import gurobi.GRBException;
+import gurobi.GRBLinExpr;
+import gurobi.GRBModel;
+import gurobi.GRBVar;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+import lp.GurobiAdapter;
+import lp.LinearExpr;
+import lp.SparseModel;
+
+/**
+ * Valid inequalities for the MH and MHD models of {@link MHDynModel}, which
+ * can be added to the model up front or separated lazily in a Gurobi
+ * callback.
+ * <p>
+ * Cohort cuts use that flights with the same scheduled period and duration
+ * are interchangeable: their columns and costs are the same, so any plan can
+ * be rearranged to depart them in the order of their position, in every
+ * scenario at once, without changing its cost or breaking
+ * non-anticipativity. For consecutive flights f and g of a cohort, g has
+ * departed by t only if f has:
+ * <pre>
+ * sum of DEP(g, j) for j &lt;= t - sum of DEP(f, j) for j &lt;= t &lt;= 0
+ * </pre>
+ * These cut off symmetric copies of plans, both integer and fractional,
+ * which otherwise have to be branched on one by one. Up front they are
+ * added in the aggregated form sum of j * DEP(f, j) &lt;= sum of j * DEP(g, j),
+ * which has one row per pair and scenario.
+ */
+public final class MHCuts {
+    /**
+     * How the cuts are added to a model.
+     */
+    public enum Mode {
+        /**
+         * No cuts.
+         */
+        NONE,
+        /**
+         * All cuts are added when the model is built.
+         */
+        UPFRONT,
+        /**
+         * Violated cuts are added as lazy constraints at integer solutions
+         * and at node relaxations. Gurobi turns off the presolve reductions
+         * which are not valid for rows it has not seen, so compare the node
+         * counts and solve times with both other modes.
+         */
+        LAZY
+    }
+
+    /**
+     * A cut expr &lt;= rhs over the variables of the model.
+     */
+    public static final class Cut {
+        private final LinearExpr expr;
+        private final double rhs;
+        private final String name;
+
+        private Cut(LinearExpr expr, double rhs, String name) {
+            this.expr = expr;
+            this.rhs = rhs;
+            this.name = name;
+        }
+
+        public LinearExpr getExpr() {
+            return expr;
+        }
+
+        public double getRhs() {
+            return rhs;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * By how much the values violate the cut.
+         */
+        public double getViolation(double[] values) {
+            double activity = 0.0;
+            for (int k = 0; k < expr.size(); k++) {
+                activity += expr.getCoeff(k) * values[expr.getVar(k)];
+            }
+            return activity - rhs;
+        }
+    }
+
+    public static final double DEFAULT_TOLERANCE = 1e-6;
+    public static final int DEFAULT_MAX_CUTS_PER_ROUND = 200;
+
+    private MHCuts() {
+
+    }
+
+    public static String getCohortCutName(int scenario, int flightId1, int flightId2, int timePeriod) {
+        return "COHORT:" + scenario + "," + flightId1 + "," + flightId2 + "," + timePeriod;
+    }
+
+    public static String getCohortCutName(int scenario, int flightId1, int flightId2) {
+        return "COHORT:" + scenario + "," + flightId1 + "," + flightId2;
+    }
+
+    /**
+     * Builds the MH or MHD model with the cuts added up front.
+     */
+    public static SparseModel buildModel(MHDynModel.Input input, boolean withDiversions) {
+        SparseModel model = withDiversions ? MHDynModel.buildMhdModel(input) : MHDynModel.buildMhModel(input);
+        addCuts(model, new MHDynModel.Layout(input, withDiversions));
+        return model;
+    }
+
+    /**
+     * Adds the aggregated cohort cuts to a model built by
+     * {@link MHDynModel}. Returns the number of cuts added.
+     */
+    public static int addCuts(SparseModel model, MHDynModel.Layout layout) {
+        int count = 0;
+        for (int[] pair : getCohortPairs(layout)) {
+            for (int sPos = 0; sPos < layout.getNumScenarios(); sPos++) {
+                add(model, aggregatedCohortCut(layout, sPos, pair[0], pair[1]));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void add(SparseModel model, Cut cut) {
+        model.addConstr(cut.getExpr(), SparseModel.LESS_EQUAL, cut.getRhs(), cut.getName());
+    }
+
+    /**
+     * Consecutive flights, by position, of each cohort.
+     */
+    public static List<int[]> getCohortPairs(MHDynModel.Layout layout) {
+        // Keys are (departTimePeriod, flightDuration) pairs.
+        HashMap<List<Integer>, Integer> lastPositions = new HashMap<List<Integer>, Integer>();
+        List<int[]> pairs = new ArrayList<int[]>();
+        for (int fPos = 0; fPos < layout.getNumFlights(); fPos++) {
+            DiscreteFlight f = layout.getFlight(fPos);
+            List<Integer> key = new ArrayList<Integer>(2);
+            key.add(f.getDepartTimePeriod());
+            key.add(f.getFlightDuration());
+            Integer last = lastPositions.put(key, fPos);
+            if (last != null) {
+                pairs.add(new int[]{last, fPos});
+            }
+        }
+        return pairs;
+    }
+
+    private static Cut cohortCut(MHDynModel.Layout layout, int sPos, int fPos, int gPos, int t) {
+        DiscreteFlight f = layout.getFlight(fPos);
+        DiscreteFlight g = layout.getFlight(gPos);
+        LinearExpr expr = new LinearExpr(2 * (t - f.getDepartTimePeriod() + 1));
+        for (int j = f.getDepartTimePeriod(); j <= t; j++) {
+            expr.addTerm(1.0, layout.departVar(gPos, j, sPos));
+            expr.addTerm(-1.0, layout.departVar(fPos, j, sPos));
+        }
+        return new Cut(expr, 0.0, getCohortCutName(layout.getScenario(sPos), f.getFlightId(), g.getFlightId(), t));
+    }
+
+    private static Cut aggregatedCohortCut(MHDynModel.Layout layout, int sPos, int fPos, int gPos) {
+        DiscreteFlight f = layout.getFlight(fPos);
+        DiscreteFlight g = layout.getFlight(gPos);
+        int start = f.getDepartTimePeriod();
+        int end = start + layout.getNumDepartPeriods(fPos);
+        LinearExpr expr = new LinearExpr(2 * (end - start));
+        for (int j = start + 1; j < end; j++) {
+            expr.addTerm(j - start, layout.departVar(fPos, j, sPos));
+            expr.addTerm(start - j, layout.departVar(gPos, j, sPos));
+        }
+        return new Cut(expr, 0.0, getCohortCutName(layout.getScenario(sPos), f.getFlightId(), g.getFlightId()));
+    }
+
+    /**
+     * The cuts violated by more than the tolerance at the given values, most
+     * violated first, at most maxCuts of them. The values are in the order
+     * of the layout.
+     */
+    public static List<Cut> separate(MHDynModel.Layout layout, List<int[]> cohortPairs, double[] values,
+                                     double tolerance, int maxCuts) {
+        List<Cut> cuts = new ArrayList<Cut>();
+        List<Double> violations = new ArrayList<Double>();
+        for (int sPos = 0; sPos < layout.getNumScenarios(); sPos++) {
+            for (int[] pair : cohortPairs) {
+                DiscreteFlight f = layout.getFlight(pair[0]);
+                int end = f.getDepartTimePeriod() + layout.getNumDepartPeriods(pair[0]);
+                double difference = 0.0;
+                for (int t = f.getDepartTimePeriod(); t < end; t++) {
+                    difference += values[layout.departVar(pair[1], t, sPos)]
+                            - values[layout.departVar(pair[0], t, sPos)];
+                    if (difference > tolerance) {
+                        cuts.add(cohortCut(layout, sPos, pair[0], pair[1], t));
+                        violations.add(difference);
+                    }
+                }
+            }
+        }
+        return mostViolated(cuts, violations, maxCuts);
+    }
+
+    private static List<Cut> mostViolated(final List<Cut> cuts, final List<Double> violations, int maxCuts) {
+        if (cuts.size() <= maxCuts) {
+            return cuts;
+        }
+        List<Integer> order = new ArrayList<Integer>(cuts.size());
+        for (int k = 0; k < cuts.size(); k++) {
+            order.add(k);
+        }
+        Collections.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer k1, Integer k2) {
+                return Double.compare(violations.get(k2), violations.get(k1));
+            }
+        });
+        List<Cut> selected = new ArrayList<Cut>(maxCuts);
+        for (int k = 0; k < maxCuts; k++) {
+            selected.add(cuts.get(order.get(k)));
+        }
+        return selected;
+    }
+
+    /**
+     * Adds violated cuts as lazy constraints, at integer solutions and at
+     * node relaxations solved to optimality. The model must have the
+     * LazyConstraints parameter set, which {@link #setupModel} does.
+     */
+    public static class Separator extends GRBCallback {
+        private final MHDynModel.Layout layout;
+        private final List<int[]> cohortPairs;
+        private final GRBVar[] vars;
+        private final double tolerance;
+        private final int maxCutsPerRound;
+        private int numCuts = 0;
+        private int numRounds = 0;
+
+        public Separator(MHDynModel.Layout layout, GRBVar[] vars) {
+            this(layout, vars, DEFAULT_TOLERANCE, DEFAULT_MAX_CUTS_PER_ROUND);
+        }
+
+        public Separator(MHDynModel.Layout layout, GRBVar[] vars, double tolerance, int maxCutsPerRound) {
+            this.layout = layout;
+            this.cohortPairs = getCohortPairs(layout);
+            this.vars = vars;
+            this.tolerance = tolerance;
+            this.maxCutsPerRound = maxCutsPerRound;
+        }
+
+        @Override
+        protected void callback() {
+            try {
+                double[] values;
+                if (where == GRB.CB_MIPSOL) {
+                    values = getSolution(vars);
+                } else if (where == GRB.CB_MIPNODE && getIntInfo(GRB.CB_MIPNODE_STATUS) == GRB.OPTIMAL) {
+                    values = getNodeRel(vars);
+                } else {
+                    return;
+                }
+                List<Cut> cuts = separate(layout, cohortPairs, values, tolerance, maxCutsPerRound);
+                for (Cut cut : cuts) {
+                    GRBLinExpr expr = new GRBLinExpr();
+                    LinearExpr row = cut.getExpr();
+                    for (int k = 0; k < row.size(); k++) {
+                        expr.addTerm(row.getCoeff(k), vars[row.getVar(k)]);
+                    }
+                    addLazy(expr, GRB.LESS_EQUAL, cut.getRhs());
+                }
+                if (!cuts.isEmpty()) {
+                    numCuts += cuts.size();
+                    numRounds++;
+                }
+            } catch (GRBException e) {
+                throw new IllegalStateException("Cut separation failed.", e);
+            }
+        }
+
+        /**
+         * The lazy constraints added so far.
+         */
+        public int getNumCuts() {
+            return numCuts;
+        }
+
+        /**
+         * The callbacks in which lazy constraints were added.
+         */
+        public int getNumRounds() {
+            return numRounds;
+        }
+    }
+
+    /**
+     * Sets up the MH or MHD model with cuts in the given mode. In the LAZY
+     * mode a {@link Separator} is installed as the callback of the model, so
+     * it cannot be combined with other callbacks.
+     */
+    public static GRBModel setupModel(MHDynModel.Input input, boolean withDiversions, GRBEnv env, boolean verbose,
+                                      Mode mode) throws GRBException {
+        MHDynModel.Layout layout = new MHDynModel.Layout(input, withDiversions);
+        SparseModel sparseModel = mode == Mode.UPFRONT ? buildModel(input, withDiversions)
+                : withDiversions ? MHDynModel.buildMhdModel(input) : MHDynModel.buildMhModel(input);
+        GRBModel model = GurobiAdapter.toGurobi(sparseModel, env);
+        if (!verbose) {
+            model.set(GRB.IntParam.OutputFlag, 0);
+        }
+        if (mode == Mode.LAZY) {
+            model.set(GRB.IntParam.LazyConstraints, 1);
+            model.setCallback(new Separator(layout, model.getVars()));
+        }
+        return model;
+    }
+}
@@ -3,11 +3,24 @@ package ips;
 import gurobi.GRB;
 import gurobi.GRBEnv;
 import gurobi.GRBException;
-import gurobi.GRBLinExpr;
 import gurobi.GRBModel;
 import gurobi.GRBVar;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+
+import lp.LinearExpr;
+import lp.ModelData;
+import lp.SparseModel;
+import solve.EnvPool;
+import solve.LeasedModel;
+import solve.PolicyResult;
+import solve.SolveInstrumentation;
+import solve.SolveMetrics;
+import solve.SolvePolicy;
 
 public class MHDynModel {
     public final static int UNLIMITED = -1;
@@ -35,13 +48,48 @@ public class MHDynModel {
 
         double getEnroute(int i);
 
+        /**
+         * The period in which a flight of the given duration arrives if it
+         * departs in the given period. By default all periods have the same
+         * length and durations are in periods.
+         */
+        default int getArrivalPeriod(int duration, int timePeriod) {
+            return timePeriod + duration;
+        }
+
+        /**
+         * The length of the period in the unit of the durations. The ground
+         * and air costs of a period are scaled by its length.
+         */
+        default double getPeriodLength(int timePeriod) {
+            return 1.0;
+        }
+
     }
 
+    /**
+     * The expected number of diversions. The divert variables are found by
+     * name, so that this also works for {@link AggregatedMHModel}, and read
+     * together.
+     */
     public static double getAverageDiversions(Input input, GRBModel model) throws GRBException {
+        int numTimePeriods = input.getNumTimePeriods();
+        List<Integer> scenarios = new ArrayList<Integer>();
+        for (int s : input.getScenarios()) {
+            scenarios.add(s);
+        }
+        GRBVar[] divertVars = new GRBVar[scenarios.size() * numTimePeriods];
+        for (int sPos = 0; sPos < scenarios.size(); sPos++) {
+            for (int i = 0; i < numTimePeriods; i++) {
+                divertVars[sPos * numTimePeriods + i] = model.getVarByName(getDivertVarName(scenarios.get(sPos), i));
+            }
+        }
+        double[] diversions = model.get(GRB.DoubleAttr.X, divertVars);
         double sum = 0.0;
-        for (int i = 0; i < input.getNumTimePeriods(); i++) {
-            for (int s : input.getScenarios()) {
-                sum += model.getVarByName(getDivertVarName(s, i)).get(GRB.DoubleAttr.X) * input.getScenProbability(s);
+        for (int sPos = 0; sPos < scenarios.size(); sPos++) {
+            double probability = input.getScenProbability(scenarios.get(sPos));
+            for (int i = 0; i < numTimePeriods; i++) {
+                sum += diversions[sPos * numTimePeriods + i] * probability;
             }
         }
         return sum;
@@ -54,16 +102,8 @@ public class MHDynModel {
         return myModel;
     }
 
-    private static GRBModel setupMhModel(Input input, GRBEnv myEnv, boolean verbose) throws GRBException {
-        GRBModel myModel = new GRBModel(myEnv);
-        if (!verbose) {
-            myModel.set(GRB.IntParam.OutputFlag, 0);
-        }
-        addMhVars(myModel, input);
-        myModel.update();
-        addMhConstraints(myModel, input);
-        myModel.update();
-        return myModel;
+    public static GRBModel setupMhModel(Input input, GRBEnv myEnv, boolean verbose) throws GRBException {
+        return setupModel(input, false, myEnv, verbose, null);
     }
 
     public static GRBModel solveMhdModel(Input input, GRBEnv myEnv, boolean verbose) throws GRBException {
@@ -72,214 +112,612 @@ public class MHDynModel {
         return myModel;
     }
 
-    public static GRBModel solveMhdModel(Input input) throws GRBException {
-        return solveMhdModel(input, new GRBEnv(), false);
+    /**
+     * Solves the MH model while recording the time of each phase and the
+     * progress of the solve in the given metrics.
+     */
+    public static GRBModel solveMhModel(Input input, GRBEnv myEnv, boolean verbose, SolveMetrics metrics)
+            throws GRBException {
+        GRBModel myModel = setupMhModel(input, myEnv, verbose, metrics);
+        SolveInstrumentation.optimize(myModel, metrics);
+        return myModel;
     }
 
-    private static GRBModel setupMhdModel(Input input, GRBEnv myEnv, boolean verbose) throws GRBException {
-        GRBModel myModel = new GRBModel(myEnv);
+    /**
+     * Solves the MHD model while recording the time of each phase and the
+     * progress of the solve in the given metrics.
+     */
+    public static GRBModel solveMhdModel(Input input, GRBEnv myEnv, boolean verbose, SolveMetrics metrics)
+            throws GRBException {
+        GRBModel myModel = setupMhdModel(input, myEnv, verbose, metrics);
+        SolveInstrumentation.optimize(myModel, metrics);
+        return myModel;
+    }
+
+    /**
+     * Solves the MH model under the given policy, with the fallback plans of
+     * {@link MHFallbackPlans}. The model is disposed before returning, and the
+     * values of the result are in the order of {@link Layout}.
+     */
+    public static PolicyResult solveMhModel(Input input, GRBEnv myEnv, boolean verbose, SolvePolicy policy)
+            throws GRBException {
+        return solveWithPolicy(setupMhModel(input, myEnv, verbose), new MHFallbackPlans(input, false), policy);
+    }
+
+    /**
+     * Solves the MHD model under the given policy, with the fallback plans of
+     * {@link MHFallbackPlans}. The model is disposed before returning, and the
+     * values of the result are in the order of {@link Layout}.
+     */
+    public static PolicyResult solveMhdModel(Input input, GRBEnv myEnv, boolean verbose, SolvePolicy policy)
+            throws GRBException {
+        return solveWithPolicy(setupMhdModel(input, myEnv, verbose), new MHFallbackPlans(input, true), policy);
+    }
+
+    private static PolicyResult solveWithPolicy(GRBModel myModel, MHFallbackPlans plans, SolvePolicy policy)
+            throws GRBException {
+        try {
+            return policy.solve(myModel, plans);
+        } finally {
+            myModel.dispose();
+        }
+    }
+
+    /**
+     * Sets up the MH model while recording the time of each phase in the
+     * given metrics, if any.
+     */
+    public static GRBModel setupMhModel(Input input, GRBEnv myEnv, boolean verbose, SolveMetrics metrics)
+            throws GRBException {
+        return setupModel(input, false, myEnv, verbose, metrics);
+    }
+
+    /**
+     * Sets up the MHD model while recording the time of each phase in the
+     * given metrics, if any.
+     */
+    public static GRBModel setupMhdModel(Input input, GRBEnv myEnv, boolean verbose, SolveMetrics metrics)
+            throws GRBException {
+        return setupModel(input, true, myEnv, verbose, metrics);
+    }
+
+    private static GRBModel setupModel(Input input, boolean withDiversions, GRBEnv myEnv, boolean verbose,
+                                       SolveMetrics metrics) throws GRBException {
+        GRBModel myModel = SolveInstrumentation.load(buildModel(input, withDiversions, metrics), myEnv, metrics);
         if (!verbose) {
             myModel.set(GRB.IntParam.OutputFlag, 0);
         }
-        addMhdVars(myModel, input);
-        myModel.update();
-        addMhdConstraints(myModel, input);
-        myModel.update();
         return myModel;
     }
 
+    /**
+     * Solves the MHD model on an environment leased from
+     * {@link EnvPool#getDefault()}. The lease is held until the model is
+     * disposed, and the environment is not returned to the pool before
+     * then. The caller must dispose the model: once all environments are
+     * held by live models, the next caller waits for at most
+     * {@link EnvPool#DEFAULT_LEASE_TIMEOUT} seconds and then fails.
+     */
+    public static GRBModel solveMhdModel(Input input) throws GRBException {
+        GRBModel myModel = LeasedModel.load(EnvPool.getDefault(), buildMhdModel(input), false);
+        boolean solved = false;
+        try {
+            myModel.optimize();
+            solved = true;
+        } finally {
+            if (!solved) {
+                myModel.dispose();
+            }
+        }
+        return myModel;
+    }
+
+    public static GRBModel setupMhdModel(Input input, GRBEnv myEnv, boolean verbose) throws GRBException {
+        return setupModel(input, true, myEnv, verbose, null);
+    }
 
-    private static void addMhdVars(GRBModel myModel, Input input) throws GRBException {
-        addDepartVars(myModel, input);
-        addAirVars(myModel, input);
-        addDivertVars(myModel, input);
-        addLandVars(myModel, input);
+    /**
+     * Builds the MH model without any solver.
+     */
+    public static SparseModel buildMhModel(Input input) {
+        return buildModel(input, false, null);
     }
 
-    private static void addMhVars(GRBModel myModel, Input input) throws GRBException {
-        addDepartVars(myModel, input);
-        addAirVars(myModel, input);
+    /**
+     * Builds the MHD model without any solver.
+     */
+    public static SparseModel buildMhdModel(Input input) {
+        return buildModel(input, true, null);
     }
 
+    /**
+     * The bounds, objective coefficients and right-hand sides of the model
+     * {@link #buildMhModel(Input)} builds, without its constraint matrix.
+     */
+    public static ModelData buildMhData(Input input) {
+        return buildData(input, false);
+    }
 
-    private static String getDepartVarName(int flightId, int timeIndex, int scenario) {
-        return "DEP; FID: " + flightId + ", Time: " + timeIndex + ", Scen: " + scenario;
+    /**
+     * The bounds, objective coefficients and right-hand sides of the model
+     * {@link #buildMhdModel(Input)} builds, without its constraint matrix.
+     */
+    public static ModelData buildMhdData(Input input) {
+        return buildData(input, true);
     }
 
-    private static void addDepartVars(GRBModel model, Input input) throws GRBException {
-        int numTimePeriods = input.getNumTimePeriods();
+    private static ModelData buildData(Input input, boolean withDiversions) {
+        Layout layout = new Layout(input, withDiversions);
+        int numTimePeriods = layout.getNumTimePeriods();
+        int numDepartureRows = layout.getNumScenarios() * layout.getNumFlights();
+        int numArrivalRows = layout.getNumScenarios() * numTimePeriods;
+        ModelData data = new ModelData(layout.getNumVars(),
+                numDepartureRows + numArrivalRows + countAntiAnticipatoryConstraints(input, layout));
+
         double groundCost = input.getGroundCost();
-        for (DiscreteFlight f : input.getFlights()) {
+        for (int fPos = 0; fPos < layout.getNumFlights(); fPos++) {
+            int depIndex = layout.getFlight(fPos).getDepartTimePeriod();
+            double delay = 0.0;
+            for (int j = depIndex; j < depIndex + layout.getNumDepartPeriods(fPos); j++) {
+                for (int sPos = 0; sPos < layout.getNumScenarios(); sPos++) {
+                    double probability = input.getScenProbability(layout.getScenario(sPos));
+                    data.setVar(layout.departVar(fPos, j, sPos), 0.0, 1.0, groundCost * delay * probability);
+                }
+                delay += input.getPeriodLength(j);
+            }
+        }
+        double airCost = input.getAirCost();
+        double divertCost = input.getDivertCost();
+        double maxAirborne = input.getMaxAirborne() != UNLIMITED ? input.getMaxAirborne() : SparseModel.INFINITY;
+        for (int sPos = 0; sPos < layout.getNumScenarios(); sPos++) {
+            int s = layout.getScenario(sPos);
+            double probability = input.getScenProbability(s);
+            for (int i = 0; i < numTimePeriods; i++) {
+                data.setVar(layout.airVar(sPos, i), 0.0, maxAirborne,
+                        airCost * probability * input.getPeriodLength(i));
+                if (withDiversions) {
+                    data.setVar(layout.divertVar(sPos, i), 0.0, SparseModel.INFINITY, divertCost * probability);
+                    data.setVar(layout.landVar(sPos, i), 0.0, input.getCapacity(s, i), 0.0);
+                }
+            }
+        }
+
+        // The rows in the order the constraints are added. The
+        // anti-anticipatory rows come last and have no right-hand side.
+        int row = 0;
+        for (int k = 0; k < numDepartureRows; k++) {
+            data.setRhs(row++, 1.0);
+        }
+        for (int sPos = 0; sPos < layout.getNumScenarios(); sPos++) {
+            int s = layout.getScenario(sPos);
+            for (int t = 0; t < numTimePeriods; t++) {
+                if (withDiversions) {
+                    data.setRhs(row++, -input.getEnroute(t));
+                } else {
+                    data.setRhs(row++, input.getCapacity(s, t) - input.getEnroute(t));
+                }
+            }
+        }
+        return data;
+    }
+
+    private static int countAntiAnticipatoryConstraints(Input input, Layout layout) {
+        int count = 0;
+        for (int fPos = 0; fPos < layout.getNumFlights(); fPos++) {
+            int start = layout.getFlight(fPos).getDepartTimePeriod();
+            for (int i = start; i < start + layout.getNumDepartPeriods(fPos); i++) {
+                for (Iterable<Integer> node : input.getNodes(i)) {
+                    int size = 0;
+                    for (int s : node) {
+                        size++;
+                    }
+                    count += size - 1;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Builds the MH or MHD model, recording the time of each phase in the
+     * metrics unless they are null.
+     */
+    private static SparseModel buildModel(Input input, boolean withDiversions, SolveMetrics metrics) {
+        Layout layout = new Layout(input, withDiversions);
+        SparseModel myModel = new SparseModel(layout.getNumVars(), layout.getNumVars(), 3 * layout.getNumVars());
+        if (metrics != null) {
+            metrics.startPhase(SolveMetrics.BUILD_VARS);
+        }
+        if (withDiversions) {
+            addMhdVars(myModel, input, layout);
+        } else {
+            addMhVars(myModel, input, layout);
+        }
+        if (metrics != null) {
+            metrics.endPhase(SolveMetrics.BUILD_VARS);
+            metrics.startPhase(SolveMetrics.BUILD_CONSTRS);
+        }
+        if (withDiversions) {
+            addMhdConstraints(myModel, input, layout);
+        } else {
+            addMhConstraints(myModel, input, layout);
+        }
+        if (metrics != null) {
+            metrics.endPhase(SolveMetrics.BUILD_CONSTRS);
+        }
+        return myModel;
+    }
+
+    /**
+     * The position of each variable in the model. Departure variables come
+     * first, grouped by flight, then time period, then scenario. The air
+     * variables follow, grouped by scenario and then time period, and in the
+     * MHD model the divert and land variables follow in the same way.
+     */
+    public static final class Layout {
+        private final int numTimePeriods;
+        private final DiscreteFlight[] flights;
+        private final int[] flightStarts;
+        private final int[] numDepartPeriods;
+        private final int[] arrivalStarts;
+        private final int[] arrivalPeriods;
+        private final int[] scenarios;
+        private final HashMap<Integer, Integer> scenarioPositions;
+        private final HashMap<Integer, Integer> flightPositions;
+        private final int airStart;
+        private final int divertStart;
+        private final int landStart;
+        private final int numVars;
+
+        public Layout(Input input, boolean withDiversions) {
+            numTimePeriods = input.getNumTimePeriods();
+            scenarioPositions = new HashMap<Integer, Integer>();
+            for (int s : input.getScenarios()) {
+                scenarioPositions.put(s, scenarioPositions.size());
+            }
+            scenarios = new int[scenarioPositions.size()];
+            for (int s : input.getScenarios()) {
+                scenarios[scenarioPositions.get(s)] = s;
+            }
+            List<DiscreteFlight> flightList = new ArrayList<DiscreteFlight>();
+            for (DiscreteFlight f : input.getFlights()) {
+                flightList.add(f);
+            }
+            flights = flightList.toArray(new DiscreteFlight[flightList.size()]);
+            flightPositions = new HashMap<Integer, Integer>();
+            flightStarts = new int[flights.length];
+            numDepartPeriods = new int[flights.length];
+            arrivalStarts = new int[flights.length + 1];
+            // A flight may depart from its scheduled period as long as it
+            // arrives by the end of the horizon. Arrival periods do not
+            // decrease with the departure period.
+            int[] arrivals = new int[numTimePeriods + 1];
+            List<int[]> arrivalLists = new ArrayList<int[]>(flights.length);
+            int count = 0;
+            for (int k = 0; k < flights.length; k++) {
+                flightPositions.put(flights[k].getFlightId(), k);
+                int numPeriods = 0;
+                for (int t = flights[k].getDepartTimePeriod(); t <= numTimePeriods; t++) {
+                    int arrival = input.getArrivalPeriod(flights[k].getFlightDuration(), t);
+                    if (arrival > numTimePeriods) {
+                        break;
+                    }
+                    arrivals[numPeriods++] = arrival;
+                }
+                numDepartPeriods[k] = numPeriods;
+                arrivalLists.add(Arrays.copyOf(arrivals, numPeriods));
+                arrivalStarts[k + 1] = arrivalStarts[k] + numPeriods;
+                flightStarts[k] = count;
+                count += numPeriods * scenarios.length;
+            }
+            arrivalPeriods = new int[arrivalStarts[flights.length]];
+            for (int k = 0; k < flights.length; k++) {
+                System.arraycopy(arrivalLists.get(k), 0, arrivalPeriods, arrivalStarts[k], numDepartPeriods[k]);
+            }
+            airStart = count;
+            if (withDiversions) {
+                divertStart = airStart + scenarios.length * numTimePeriods;
+                landStart = divertStart + scenarios.length * numTimePeriods;
+                numVars = landStart + scenarios.length * numTimePeriods;
+            } else {
+                divertStart = -1;
+                landStart = -1;
+                numVars = airStart + scenarios.length * numTimePeriods;
+            }
+        }
+
+        public int getNumTimePeriods() {
+            return numTimePeriods;
+        }
+
+        public int getNumVars() {
+            return numVars;
+        }
+
+        public boolean hasDiversions() {
+            return divertStart >= 0;
+        }
+
+        public int getNumScenarios() {
+            return scenarios.length;
+        }
+
+        public int getScenario(int position) {
+            return scenarios[position];
+        }
+
+        public int getScenarioPosition(int scenario) {
+            return scenarioPositions.get(scenario);
+        }
+
+        public int getNumFlights() {
+            return flights.length;
+        }
+
+        public DiscreteFlight getFlight(int position) {
+            return flights[position];
+        }
+
+        public int getFlightPosition(int flightId) {
+            return flightPositions.get(flightId);
+        }
+
+        /**
+         * A flight may depart from its scheduled period up to the last period
+         * in which it arrives by the end of the horizon. With periods of equal
+         * length, this is period numTimePeriods - duration.
+         */
+        public int getNumDepartPeriods(DiscreteFlight f) {
+            return getNumDepartPeriods(flightPositions.get(f.getFlightId()));
+        }
+
+        public int getNumDepartPeriods(int flightPos) {
+            return numDepartPeriods[flightPos];
+        }
+
+        /**
+         * The period in which the flight at the given position arrives if it
+         * departs in the given period, which must be one of its departure
+         * periods. A flight which departs in its last departure period may
+         * arrive in period numTimePeriods, after the horizon.
+         */
+        public int getArrivalPeriod(int flightPos, int timePeriod) {
+            return arrivalPeriods[arrivalStarts[flightPos] + timePeriod - flights[flightPos].getDepartTimePeriod()];
+        }
+
+        public int departVar(int flightPos, int timePeriod, int scenarioPos) {
+            return flightStarts[flightPos] + (timePeriod - flights[flightPos].getDepartTimePeriod()) * scenarios.length
+                    + scenarioPos;
+        }
+
+        public int airVar(int scenarioPos, int timePeriod) {
+            return airStart + scenarioPos * numTimePeriods + timePeriod;
+        }
+
+        public int divertVar(int scenarioPos, int timePeriod) {
+            return divertStart + scenarioPos * numTimePeriods + timePeriod;
+        }
+
+        public int landVar(int scenarioPos, int timePeriod) {
+            return landStart + scenarioPos * numTimePeriods + timePeriod;
+        }
+    }
+
+    private static void addMhdVars(SparseModel myModel, Input input, Layout layout) {
+        addDepartVars(myModel, input, layout);
+        addAirVars(myModel, input, layout);
+        addDivertVars(myModel, input, layout);
+        addLandVars(myModel, input, layout);
+    }
+
+    private static void addMhVars(SparseModel myModel, Input input, Layout layout) {
+        addDepartVars(myModel, input, layout);
+        addAirVars(myModel, input, layout);
+    }
+
+
+    public static String getDepartVarName(int flightId, int timeIndex, int scenario) {
+        return "DEP;FID:" + flightId + ",Time:" + timeIndex + ",Scen:" + scenario;
+    }
+
+    private static void addDepartVars(SparseModel model, Input input, Layout layout) {
+        double groundCost = input.getGroundCost();
+        for (int fPos = 0; fPos < layout.getNumFlights(); fPos++) {
+            DiscreteFlight f = layout.getFlight(fPos);
             int depIndex = f.getDepartTimePeriod();
-            for (int j = depIndex; j < numTimePeriods + 1 - f.getFlightDuration(); j++) {
-                for (int s : input.getScenarios()) {
+            // The delay of departing in period j is the length of the periods
+            // from the scheduled one up to j.
+            double delay = 0.0;
+            for (int j = depIndex; j < depIndex + layout.getNumDepartPeriods(fPos); j++) {
+                for (int sPos = 0; sPos < layout.getNumScenarios(); sPos++) {
+                    int s = layout.getScenario(sPos);
                     double probability = input.getScenProbability(s);
-                    model.addVar(0.0, 1.0, groundCost * (j - depIndex) * probability,
-                            GRB.BINARY, getDepartVarName(f.getFlightId(), j, s));
+                    model.addVar(0.0, 1.0, groundCost * delay * probability,
+                            SparseModel.BINARY, getDepartVarName(f.getFlightId(), j, s));
                 }
+                delay += input.getPeriodLength(j);
             }
         }
     }
 
 
-    private static void addAirVars(GRBModel model, Input myInput)
-            throws GRBException {
+    private static void addAirVars(SparseModel model, Input myInput, Layout layout) {
         double airCost = myInput.getAirCost();
         int numTimePeriods = myInput.getNumTimePeriods();
         double maxAirborne = myInput.getMaxAirborne();
 
-        for (int s : myInput.getScenarios()) {
+        for (int sPos = 0; sPos < layout.getNumScenarios(); sPos++) {
+            int s = layout.getScenario(sPos);
             double probability = myInput.getScenProbability(s);
             for (int i = 0; i < numTimePeriods; i++) {
+                double cost = airCost * probability * myInput.getPeriodLength(i);
                 if (maxAirborne != UNLIMITED) {
-                    model.addVar(0.0, maxAirborne, airCost * probability,
-                            GRB.INTEGER, getAirVarName(s, i));
+                    model.addVar(0.0, maxAirborne, cost, SparseModel.INTEGER, getAirVarName(s, i));
                 } else {
-                    model.addVar(0.0, GRB.INFINITY, airCost * probability,
-                            GRB.INTEGER, getAirVarName(s, i));
+                    model.addVar(0.0, SparseModel.INFINITY, cost, SparseModel.INTEGER, getAirVarName(s, i));
                 }
             }
         }
     }
 
-    private static void addLandVars(GRBModel model, Input myInput) throws GRBException {
+    private static void addLandVars(SparseModel model, Input myInput, Layout layout) {
         int numTimePeriods = myInput.getNumTimePeriods();
-        for (int s : myInput.getScenarios()) {
+        for (int sPos = 0; sPos < layout.getNumScenarios(); sPos++) {
+            int s = layout.getScenario(sPos);
             for (int i = 0; i < numTimePeriods; i++) {
                 model.addVar(0.0, myInput.getCapacity(s, i), 0.0,
-                        GRB.INTEGER, getLandVarName(s, i));
+                        SparseModel.INTEGER, getLandVarName(s, i));
             }
         }
     }
 
-    private static void addDivertVars(GRBModel model, Input myInput) throws GRBException {
+    private static void addDivertVars(SparseModel model, Input myInput, Layout layout) {
         double divertCost = myInput.getDivertCost();
         int numTimePeriods = myInput.getNumTimePeriods();
-        for (int s : myInput.getScenarios()) {
+        for (int sPos = 0; sPos < layout.getNumScenarios(); sPos++) {
+            int s = layout.getScenario(sPos);
             double probability = myInput.getScenProbability(s);
             for (int i = 0; i < numTimePeriods; i++) {
-                model.addVar(0.0, GRB.INFINITY, divertCost * probability,
-                        GRB.INTEGER, getDivertVarName(s, i));
+                model.addVar(0.0, SparseModel.INFINITY, divertCost * probability,
+                        SparseModel.INTEGER, getDivertVarName(s, i));
             }
         }
     }
 
 
     public static String getAirVarName(int scenario, int timePeriod) {
-        return "AIR: " + scenario + "," + timePeriod;
+        return "AIR:" + scenario + "," + timePeriod;
     }
 
     public static String getLandVarName(int scenario, int timePeriod) {
-        return "LAND: " + scenario + "," + timePeriod;
+        return "LAND:" + scenario + "," + timePeriod;
     }
 
     public static String getDivertVarName(int scenario, int timePeriod) {
-        return "DIVERT: " + scenario + "," + timePeriod;
+        return "DIVERT:" + scenario + "," + timePeriod;
     }
 
     public static String getDepartAAConstrName(int scenario1, int scenario2, int flightId, int t) {
-        return "DEPART_AA: " + scenario1 + "," + scenario2 + "," + flightId + "," + t;
+        return "DEPART_AA:" + scenario1 + "," + scenario2 + "," + flightId + "," + t;
     }
 
     public static String getDepartureConstrName(int scenario, int flightId) {
-        return "DEP_NODE: " + scenario + "," + flightId;
+        return "DEP_NODE:" + scenario + "," + flightId;
     }
 
     public static String getArrivalNodeConstrName(int scenario, int timePeriod) {
-        return "ARR_NODE: " + scenario + "," + timePeriod;
+        return "ARR_NODE:" + scenario + "," + timePeriod;
     }
 
-    private static void addMhdConstraints(GRBModel model, Input input) throws GRBException {
-        addDepartureConstraints(model, input);
-        addArrivalMhdNodeConstraints(model, input);
-        addAntiAnticipatoryConstraints(model, input);
+    private static void addMhdConstraints(SparseModel model, Input input, Layout layout) {
+        addDepartureConstraints(model, input, layout);
+        addArrivalMhdNodeConstraints(model, input, layout);
+        addAntiAnticipatoryConstraints(model, input, layout);
     }
 
-    private static void addMhConstraints(GRBModel model, Input input) throws GRBException {
-        addDepartureConstraints(model, input);
-        addArrivalMhNodeConstraints(model, input);
-        addAntiAnticipatoryConstraints(model, input);
+    private static void addMhConstraints(SparseModel model, Input input, Layout layout) {
+        addDepartureConstraints(model, input, layout);
+        addArrivalMhNodeConstraints(model, input, layout);
+        addAntiAnticipatoryConstraints(model, input, layout);
     }
 
 
-    private static void addAntiAnticipatoryConstraints(GRBModel model,
-                                                       Input input) throws GRBException {
-        int numTimePeriods = input.getNumTimePeriods();
-        for (DiscreteFlight f : input.getFlights()) {
+    private static void addAntiAnticipatoryConstraints(SparseModel model, Input input, Layout layout) {
+        for (int fPos = 0; fPos < layout.getNumFlights(); fPos++) {
+            DiscreteFlight f = layout.getFlight(fPos);
             int flightId = f.getFlightId();
-            for (int i = f.getDepartTimePeriod(); i < numTimePeriods + 1 - f.getFlightDuration(); i++) {
+            int end = f.getDepartTimePeriod() + layout.getNumDepartPeriods(fPos);
+            for (int i = f.getDepartTimePeriod(); i < end; i++) {
                 for (Iterable<Integer> nodes : input.getNodes(i)) {
                     Iterator<Integer> scenIter = nodes.iterator();
                     int firstScen = scenIter.next();
+                    int firstPos = layout.getScenarioPosition(firstScen);
                     while (scenIter.hasNext()) {
                         int nextScen = scenIter.next();
-                        GRBVar firstDepartVar = model.getVarByName(getDepartVarName(flightId, i, firstScen));
-                        GRBVar nextDepartVar = model.getVarByName(getDepartVarName(flightId, i, nextScen));
-                        model.addConstr(firstDepartVar, GRB.EQUAL, nextDepartVar, getDepartAAConstrName(firstScen, nextScen, flightId, i));
+                        model.addConstr(layout.departVar(fPos, i, firstPos), SparseModel.EQUAL,
+                                layout.departVar(fPos, i, layout.getScenarioPosition(nextScen)),
+                                getDepartAAConstrName(firstScen, nextScen, flightId, i));
                     }
                 }
             }
         }
     }
 
-    private static void addDepartureConstraints(GRBModel model, Input input) throws GRBException {
+    private static void addDepartureConstraints(SparseModel model, Input input, Layout layout) {
+        for (int sPos = 0; sPos < layout.getNumScenarios(); sPos++) {
+            for (int fPos = 0; fPos < layout.getNumFlights(); fPos++) {
+                DiscreteFlight f = layout.getFlight(fPos);
+                int numDepartPeriods = layout.getNumDepartPeriods(fPos);
+                LinearExpr times = new LinearExpr(numDepartPeriods);
+                for (int t = f.getDepartTimePeriod(); t < f.getDepartTimePeriod() + numDepartPeriods; t++) {
+                    times.addTerm(1.0, layout.departVar(fPos, t, sPos));
+                }
+                model.addConstr(times, SparseModel.EQUAL, 1.0, getDepartureConstrName(f.getFlightId(),
+                        layout.getScenario(sPos)));
+            }
+        }
+    }
+
+    /**
+     * Collects, for every time period, the departure variables of the given
+     * scenario whose flights arrive in that period. This replaces a scan over
+     * all flights for every arrival period.
+     */
+    private static LinearExpr[] getArrivingFlows(Input input, Layout layout, int sPos) {
         int numTimePeriods = input.getNumTimePeriods();
-        for (int s : input.getScenarios()) {
-            for (DiscreteFlight f : input.getFlights()) {
-                GRBLinExpr times = new GRBLinExpr();
-                for (int t = f.getDepartTimePeriod(); t < numTimePeriods + 1 - f.getFlightDuration(); t++) {
-                    times.addTerm(1.0, model.getVarByName(getDepartVarName(f.getFlightId(), t, s)));
+        LinearExpr[] inFlows = new LinearExpr[numTimePeriods];
+        for (int t = 0; t < numTimePeriods; t++) {
+            inFlows[t] = new LinearExpr();
+            inFlows[t].addConstant(input.getEnroute(t));
+        }
+        for (int fPos = 0; fPos < layout.getNumFlights(); fPos++) {
+            DiscreteFlight f = layout.getFlight(fPos);
+            int end = f.getDepartTimePeriod() + layout.getNumDepartPeriods(fPos);
+            for (int j = f.getDepartTimePeriod(); j < end; j++) {
+                int arrival = layout.getArrivalPeriod(fPos, j);
+                if (arrival < numTimePeriods) {
+                    inFlows[arrival].addTerm(1.0, layout.departVar(fPos, j, sPos));
                 }
-                model.addConstr(times, GRB.EQUAL, 1.0, getDepartureConstrName(f.getFlightId(), s));
             }
         }
+        return inFlows;
     }
 
-    private static void addArrivalMhdNodeConstraints(GRBModel model, Input input) throws GRBException {
+    private static void addArrivalMhdNodeConstraints(SparseModel model, Input input, Layout layout) {
         int numTimePeriods = input.getNumTimePeriods();
-        for (int s : input.getScenarios()) {
+        for (int sPos = 0; sPos < layout.getNumScenarios(); sPos++) {
+            int s = layout.getScenario(sPos);
+            LinearExpr[] inFlows = getArrivingFlows(input, layout, sPos);
             for (int t = 0; t < numTimePeriods; t++) {
-                GRBLinExpr inFlow = new GRBLinExpr();
-                inFlow.addConstant(input.getEnroute(t));
-                for (DiscreteFlight f : input.getFlights()) {
-                    int dur = f.getFlightDuration();
-                    if (t - dur >= f.getDepartTimePeriod()) {
-                        inFlow.addTerm(1.0, model.getVarByName(getDepartVarName(f.getFlightId(), t - dur, s)));
-                    }
-                }
+                LinearExpr inFlow = inFlows[t];
                 if (t > 0) {
-                    inFlow.addTerm(1.0, model.getVarByName(getAirVarName(s, t - 1)));
+                    inFlow.addTerm(1.0, layout.airVar(sPos, t - 1));
                 }
-                GRBLinExpr outFlow = new GRBLinExpr();
-                outFlow.addTerm(1.0, model.getVarByName(getAirVarName(s, t)));
-                outFlow.addTerm(1.0, model.getVarByName(getDivertVarName(s, t)));
-                outFlow.addTerm(1.0, model.getVarByName(getLandVarName(s, t)));
+                LinearExpr outFlow = new LinearExpr(3);
+                outFlow.addTerm(1.0, layout.airVar(sPos, t));
+                outFlow.addTerm(1.0, layout.divertVar(sPos, t));
+                outFlow.addTerm(1.0, layout.landVar(sPos, t));
 
-                model.addConstr(inFlow, GRB.EQUAL, outFlow, getArrivalNodeConstrName(s, t));
+                model.addConstr(inFlow, SparseModel.EQUAL, outFlow, getArrivalNodeConstrName(s, t));
             }
         }
     }
 
-    private static void addArrivalMhNodeConstraints(GRBModel model, Input input) throws GRBException {
+    private static void addArrivalMhNodeConstraints(SparseModel model, Input input, Layout layout) {
         int numTimePeriods = input.getNumTimePeriods();
-        for (int s : input.getScenarios()) {
+        for (int sPos = 0; sPos < layout.getNumScenarios(); sPos++) {
+            int s = layout.getScenario(sPos);
+            LinearExpr[] inFlows = getArrivingFlows(input, layout, sPos);
             for (int t = 0; t < numTimePeriods; t++) {
-                GRBLinExpr inFlow = new GRBLinExpr();
-                inFlow.addConstant(input.getEnroute(t));
-                for (DiscreteFlight f : input.getFlights()) {
-                    int dur = f.getFlightDuration();
-                    if (t - dur >= f.getDepartTimePeriod()) {
-                        inFlow.addTerm(1.0, model.getVarByName(getDepartVarName(f.getFlightId(), t - dur, s)));
-                    }
-                }
+                LinearExpr inFlow = inFlows[t];
                 if (t > 0) {
-                    inFlow.addTerm(1.0, model.getVarByName(getAirVarName(s, t - 1)));
+                    inFlow.addTerm(1.0, layout.airVar(sPos, t - 1));
                 }
-                GRBLinExpr outFlow = new GRBLinExpr();
+                LinearExpr outFlow = new LinearExpr(1);
                 outFlow.addConstant(input.getCapacity(s, t));
-                outFlow.addTerm(1.0, model.getVarByName(getAirVarName(s, t)));
+                outFlow.addTerm(1.0, layout.airVar(sPos, t));
 
-                model.addConstr(inFlow, GRB.LESS_EQUAL, outFlow, getArrivalNodeConstrName(s, t));
+                model.addConstr(inFlow, SparseModel.LESS_EQUAL, outFlow, getArrivalNodeConstrName(s, t));
             }
         }
     }
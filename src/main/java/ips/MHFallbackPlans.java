@@ -0,0 +1,274 @@
+package ips;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TreeSet;
+
+import solve.SolvePolicy;
+
+/**
+ * The fallback plans of the MH and MHD models, for serving a plan when the
+ * MIP solve hits a limit. Both plans fix a departure period for every flight
+ * in every scenario, non-anticipatively, and the AIR, LAND and DIVERT values
+ * follow by landing flights as early as possible. In the MHD model flights
+ * above the airborne limit are diverted. The MH model cannot divert, so a
+ * plan which exceeds the airborne limit is infeasible and not served.
+ * <p>
+ * The heuristic plan runs {@link GroundHoldingHeuristic} on the flights
+ * aggregated by duration, and departs the flights of each duration in the
+ * order of their scheduled departures. The rounded plan departs each flight
+ * in the first period in which the relaxation has departed at least half of
+ * it.
+ */
+public class MHFallbackPlans implements SolvePolicy.FallbackPlans {
+    private final MHDynModel.Input input;
+    private final boolean withDiversions;
+    private final MHDynModel.Layout layout;
+
+    public MHFallbackPlans(MHDynModel.Input input, boolean withDiversions) {
+        this.input = input;
+        this.withDiversions = withDiversions;
+        this.layout = new MHDynModel.Layout(input, withDiversions);
+    }
+
+    @Override
+    public double[] heuristic() {
+        final HashMap<Integer, double[]> departing = new HashMap<Integer, double[]>();
+        final TreeSet<Integer> durations = new TreeSet<Integer>();
+        HashMap<Integer, List<Integer>> flightsByDuration = new HashMap<Integer, List<Integer>>();
+        for (int fPos = 0; fPos < layout.getNumFlights(); fPos++) {
+            DiscreteFlight f = layout.getFlight(fPos);
+            int d = f.getFlightDuration();
+            if (durations.add(d)) {
+                departing.put(d, new double[layout.getNumTimePeriods()]);
+                flightsByDuration.put(d, new ArrayList<Integer>());
+            }
+            departing.get(d)[f.getDepartTimePeriod()]++;
+            flightsByDuration.get(d).add(fPos);
+        }
+        DHoffkinPlan plan = GroundHoldingHeuristic.solve(new AggregatedInput(input, durations, departing));
+        ExtendedHofkinModel.Layout aggregatedLayout = plan.getLayout();
+        double[] aggregatedValues = plan.getValues();
+
+        // The flights of each duration in the order in which they depart.
+        // Flights depart first come first served, so the departed flights of
+        // a duration are always a prefix of this order.
+        int numDurations = aggregatedLayout.getNumDurations();
+        int[][] order = new int[numDurations][];
+        for (int dPos = 0; dPos < numDurations; dPos++) {
+            List<Integer> flights = flightsByDuration.get(aggregatedLayout.getDuration(dPos));
+            Integer[] sorted = flights.toArray(new Integer[flights.size()]);
+            Arrays.sort(sorted, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer f1, Integer f2) {
+                    DiscreteFlight flight1 = layout.getFlight(f1);
+                    DiscreteFlight flight2 = layout.getFlight(f2);
+                    int c = Integer.compare(flight1.getDepartTimePeriod(), flight2.getDepartTimePeriod());
+                    return c != 0 ? c : Integer.compare(flight1.getFlightId(), flight2.getFlightId());
+                }
+            });
+            order[dPos] = new int[sorted.length];
+            for (int k = 0; k < sorted.length; k++) {
+                order[dPos][k] = sorted[k];
+            }
+        }
+
+        int numScenarios = layout.getNumScenarios();
+        int[][] departPeriods = new int[numScenarios][layout.getNumFlights()];
+        for (int[] periods : departPeriods) {
+            Arrays.fill(periods, -1);
+        }
+        for (int sPos = 0; sPos < numScenarios; sPos++) {
+            for (int dPos = 0; dPos < numDurations; dPos++) {
+                int next = 0;
+                int numDepartPeriods = aggregatedLayout.getNumDepartPeriods(aggregatedLayout.getDuration(dPos));
+                for (int i = 0; i < numDepartPeriods; i++) {
+                    int count = (int) Math.round(aggregatedValues[aggregatedLayout.departVar(sPos, dPos, i)]);
+                    for (int k = 0; k < count; k++) {
+                        departPeriods[sPos][order[dPos][next++]] = i;
+                    }
+                }
+            }
+        }
+        return fromDepartures(departPeriods);
+    }
+
+    @Override
+    public double[] roundRelaxation(double[] relaxedValues) {
+        if (relaxedValues.length != layout.getNumVars()) {
+            throw new IllegalArgumentException("Expected " + layout.getNumVars() + " values, but got "
+                    + relaxedValues.length + ".");
+        }
+        int numScenarios = layout.getNumScenarios();
+        int numFlights = layout.getNumFlights();
+        int[][] departPeriods = new int[numScenarios][numFlights];
+        for (int[] periods : departPeriods) {
+            Arrays.fill(periods, -1);
+        }
+        double[][] relaxedDeparted = new double[numScenarios][numFlights];
+        for (int i = 0; i < layout.getNumTimePeriods(); i++) {
+            for (Iterable<Integer> node : input.getNodes(i)) {
+                List<Integer> positions = new ArrayList<Integer>();
+                for (int s : node) {
+                    positions.add(layout.getScenarioPosition(s));
+                }
+                // The scenarios of a node share their history, so the values
+                // of the first one are used for all of them.
+                int first = positions.get(0);
+                for (int fPos = 0; fPos < numFlights; fPos++) {
+                    DiscreteFlight f = layout.getFlight(fPos);
+                    int lastPeriod = f.getDepartTimePeriod() + layout.getNumDepartPeriods(f) - 1;
+                    if (departPeriods[first][fPos] >= 0 || i < f.getDepartTimePeriod() || i > lastPeriod) {
+                        continue;
+                    }
+                    double cumulative = relaxedDeparted[first][fPos] + relaxedValues[layout.departVar(fPos, i, first)];
+                    boolean departs = cumulative >= 0.5 || i == lastPeriod;
+                    for (int sPos : positions) {
+                        relaxedDeparted[sPos][fPos] = cumulative;
+                        if (departs) {
+                            departPeriods[sPos][fPos] = i;
+                        }
+                    }
+                }
+            }
+        }
+        return fromDepartures(departPeriods);
+    }
+
+    /**
+     * The values of the plan with the given departure period of each flight
+     * in each scenario, or null if the plan is infeasible.
+     */
+    private double[] fromDepartures(int[][] departPeriods) {
+        int numTimePeriods = layout.getNumTimePeriods();
+        int maxAirborne = input.getMaxAirborne();
+        double[] values = new double[layout.getNumVars()];
+        for (int sPos = 0; sPos < layout.getNumScenarios(); sPos++) {
+            int s = layout.getScenario(sPos);
+            int[] arriving = new int[numTimePeriods];
+            for (int t = 0; t < numTimePeriods; t++) {
+                arriving[t] = (int) Math.round(input.getEnroute(t));
+            }
+            for (int fPos = 0; fPos < layout.getNumFlights(); fPos++) {
+                int departPeriod = departPeriods[sPos][fPos];
+                if (departPeriod < 0) {
+                    return null;
+                }
+                values[layout.departVar(fPos, departPeriod, sPos)] = 1.0;
+                int arrival = layout.getArrivalPeriod(fPos, departPeriod);
+                if (arrival < numTimePeriods) {
+                    arriving[arrival]++;
+                }
+            }
+            int airborne = 0;
+            for (int t = 0; t < numTimePeriods; t++) {
+                int total = airborne + arriving[t];
+                int capacity = (int) Math.floor(input.getCapacity(s, t) + 1e-9);
+                int landing = Math.min(total, capacity);
+                int remaining = total - landing;
+                if (withDiversions) {
+                    int diverting = maxAirborne == MHDynModel.UNLIMITED ? 0 : Math.max(0, remaining - maxAirborne);
+                    airborne = remaining - diverting;
+                    values[layout.landVar(sPos, t)] = landing;
+                    values[layout.divertVar(sPos, t)] = diverting;
+                } else if (maxAirborne != MHDynModel.UNLIMITED && remaining > maxAirborne) {
+                    return null;
+                } else {
+                    airborne = remaining;
+                }
+                values[layout.airVar(sPos, t)] = airborne;
+            }
+        }
+        return values;
+    }
+
+    /**
+     * The input of {@link ExtendedHofkinModel} with the flights of an MH
+     * input aggregated by duration.
+     */
+    private static final class AggregatedInput implements ExtendedHofkinModel.Input {
+        private final MHDynModel.Input input;
+        private final TreeSet<Integer> durations;
+        private final HashMap<Integer, double[]> departing;
+
+        private AggregatedInput(MHDynModel.Input input, TreeSet<Integer> durations,
+                                HashMap<Integer, double[]> departing) {
+            this.input = input;
+            this.durations = durations;
+            this.departing = departing;
+        }
+
+        @Override
+        public int getNumTimePeriods() {
+            return input.getNumTimePeriods();
+        }
+
+        @Override
+        public double getGroundCost() {
+            return input.getGroundCost();
+        }
+
+        @Override
+        public double getAirCost() {
+            return input.getAirCost();
+        }
+
+        @Override
+        public double getDivertCost() {
+            return input.getDivertCost();
+        }
+
+        @Override
+        public int getMaxAirborne() {
+            return input.getMaxAirborne();
+        }
+
+        @Override
+        public double getScenProbability(int s) {
+            return input.getScenProbability(s);
+        }
+
+        @Override
+        public Iterable<Integer> getScenarios() {
+            return input.getScenarios();
+        }
+
+        @Override
+        public Iterable<? extends Iterable<Integer>> getNodes(int i) {
+            return input.getNodes(i);
+        }
+
+        @Override
+        public double getCapacity(int scenario, int timePeriod) {
+            return input.getCapacity(scenario, timePeriod);
+        }
+
+        @Override
+        public Iterable<Integer> getFlightDurations() {
+            return durations;
+        }
+
+        @Override
+        public double getNumDeparting(int duration, int timePeriod) {
+            return departing.get(duration)[timePeriod];
+        }
+
+        @Override
+        public double getEnroute(int i) {
+            return input.getEnroute(i);
+        }
+
+        @Override
+        public int getArrivalPeriod(int duration, int timePeriod) {
+            return input.getArrivalPeriod(duration, timePeriod);
+        }
+
+        @Override
+        public double getPeriodLength(int timePeriod) {
+            return input.getPeriodLength(timePeriod);
+        }
+    }
+}
@@ -11,6 +11,7 @@ import java.util.Set;
 import util.BTSParser;
 import util.BTSParser.FlightStruct;
 import util.DiscretizerUtil;
+import util.TimeGrid;
 
 public final class MHFlightParser {
     private MHFlightParser() {
@@ -27,12 +28,30 @@ public final class MHFlightParser {
 
         private final int numTimePeriods;
 
+        // The periods of the flights, or null if they all have the same
+        // length, in which durations are measured.
+        private final TimeGrid grid;
+
         public DemandStruct(Collection<DiscreteFlight> flights,
                             List<Integer> enroute) {
+            this(flights, enroute, null);
+        }
+
+        /**
+         * Flights over the periods of the grid, with durations in the units
+         * of the grid.
+         */
+        public DemandStruct(Collection<DiscreteFlight> flights,
+                            List<Integer> enroute, TimeGrid grid) {
             super();
+            if (grid != null && grid.getNumTimePeriods() != enroute.size()) {
+                throw new IllegalArgumentException("The grid must have one period per demand, but had "
+                        + grid.getNumTimePeriods() + " for " + enroute.size() + ".");
+            }
             this.flights = new HashSet<DiscreteFlight>(flights);
             this.enroute = new ArrayList<Integer>(enroute);
             this.numTimePeriods = enroute.size();
+            this.grid = grid;
         }
 
         public Set<DiscreteFlight> getFlights() {
@@ -47,6 +66,14 @@ public final class MHFlightParser {
             return numTimePeriods;
         }
 
+        /**
+         * The grid of the flights, or null if the periods all have the same
+         * length.
+         */
+        public TimeGrid getGrid() {
+            return grid;
+        }
+
         @Override
         public String toString() {
             StringBuilder mybuilder = new StringBuilder();
@@ -82,6 +109,21 @@ public final class MHFlightParser {
         return new DemandStruct(demandMap, enroute);
     }
 
+    /**
+     * Discretizes the flights over the periods of the grid, which need not
+     * have the same length. Durations are measured in the units of the grid.
+     */
+    public static DemandStruct wrapBTSOutput(BTSParser.ResultStruct btsResults,
+                                             TimeGrid grid) {
+        HashSet<DiscreteFlight> flights = new HashSet<DiscreteFlight>();
+        for (BTSParser.FlightStruct f : btsResults.getSittingFlights()) {
+            flights.add(new DiscreteFlight(f.getFlightId(), grid.timeToIndex(f.getDepartureTime()),
+                    grid.durationToUnits(f.getFlightDuration())));
+        }
+        ArrayList<Integer> enroute = DHoffkinFlightParser.wrapEnrouteFlights(btsResults.getAirborneFlights(), grid);
+        return new DemandStruct(flights, enroute, grid);
+    }
+
     public static ArrayList<Integer> wrapEnrouteFlights(
             Set<FlightStruct> airborneFlights, int numTimePeriods,
             OffsetDateTime startTime, Duration discretization) {
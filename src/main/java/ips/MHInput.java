@@ -1,6 +1,7 @@
 package ips;
 
 import scenarios.DiscreteScenarioTree;
+import util.TimeGrid;
 
 public class MHInput implements MHDynModel.Input {
     private final int numTimePeriods;
@@ -81,4 +82,16 @@ public class MHInput implements MHDynModel.Input {
         return demands.getFlights();
     }
 
+    @Override
+    public int getArrivalPeriod(int duration, int timePeriod) {
+        TimeGrid grid = demands.getGrid();
+        return grid == null ? timePeriod + duration : grid.getArrivalPeriod(duration, timePeriod);
+    }
+
+    @Override
+    public double getPeriodLength(int timePeriod) {
+        TimeGrid grid = demands.getGrid();
+        return grid == null ? 1.0 : grid.getPeriodLengthInUnits(timePeriod);
+    }
+
 }
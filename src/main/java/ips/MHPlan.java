@@ -0,0 +1,210 @@
+package ips;
+
+import gurobi.GRB;
+import gurobi.GRBException;
+import gurobi.GRBModel;
+
+import java.util.Arrays;
+
+/**
+ * A solution of the MH or MHD model of {@link MHDynModel}, decoded into the
+ * departure period of every flight in every scenario and the
+ * {@link ScenarioFlows} of each scenario. In the MH model no flights are
+ * diverted, and the landings are the flights which leave the airborne
+ * queue.
+ */
+public class MHPlan {
+    private final MHDynModel.Layout layout;
+    private final int[] departPeriods;
+    private final double objective;
+    private final ScenarioFlows flows;
+
+    /**
+     * Decodes the values of the variables, in the order of the layout.
+     */
+    public MHPlan(MHDynModel.Input input, MHDynModel.Layout layout, double[] values) {
+        if (values.length != layout.getNumVars()) {
+            throw new IllegalArgumentException("Expected " + layout.getNumVars() + " values, but got "
+                    + values.length + ".");
+        }
+        this.layout = layout;
+        this.departPeriods = decodeDepartures(layout, values);
+        this.flows = computeFlows(input, layout, departPeriods, values);
+        this.objective = computeObjective(input, layout, departPeriods, flows);
+    }
+
+    /**
+     * Reads the plan from a solved model built by
+     * {@link MHDynModel#setupMhModel} or {@link MHDynModel#setupMhdModel},
+     * with a single read of all values.
+     */
+    public static MHPlan fromModel(MHDynModel.Input input, GRBModel model, boolean withDiversions)
+            throws GRBException {
+        return new MHPlan(input, new MHDynModel.Layout(input, withDiversions),
+                model.get(GRB.DoubleAttr.X, model.getVars()));
+    }
+
+    private static int[] decodeDepartures(MHDynModel.Layout layout, double[] values) {
+        int numScenarios = layout.getNumScenarios();
+        int numFlights = layout.getNumFlights();
+        int[] departPeriods = new int[numScenarios * numFlights];
+        for (int fPos = 0; fPos < numFlights; fPos++) {
+            DiscreteFlight f = layout.getFlight(fPos);
+            int first = f.getDepartTimePeriod();
+            int numDepartPeriods = layout.getNumDepartPeriods(f);
+            for (int sPos = 0; sPos < numScenarios; sPos++) {
+                departPeriods[sPos * numFlights + fPos] = -1;
+            }
+            // The departure variables of a flight are contiguous, by time
+            // period and then scenario.
+            int var = numDepartPeriods > 0 ? layout.departVar(fPos, first, 0) : 0;
+            for (int k = 0; k < numDepartPeriods; k++) {
+                for (int sPos = 0; sPos < numScenarios; sPos++, var++) {
+                    if (values[var] > 0.5) {
+                        departPeriods[sPos * numFlights + fPos] = first + k;
+                    }
+                }
+            }
+            for (int sPos = 0; sPos < numScenarios; sPos++) {
+                if (departPeriods[sPos * numFlights + fPos] < 0) {
+                    throw new IllegalArgumentException("Flight " + f.getFlightId() + " does not depart in scenario "
+                            + layout.getScenario(sPos) + ".");
+                }
+            }
+        }
+        return departPeriods;
+    }
+
+    private static ScenarioFlows computeFlows(MHDynModel.Input input, MHDynModel.Layout layout, int[] departPeriods,
+                                              double[] values) {
+        int numTimePeriods = layout.getNumTimePeriods();
+        int numScenarios = layout.getNumScenarios();
+        int numFlights = layout.getNumFlights();
+        int[] scenarios = new int[numScenarios];
+        double[] probabilities = new double[numScenarios];
+        int[] ground = new int[numScenarios * numTimePeriods];
+        int[] air = new int[numScenarios * numTimePeriods];
+        int[] land = new int[numScenarios * numTimePeriods];
+        int[] divert = new int[numScenarios * numTimePeriods];
+        int[] enroute = new int[numTimePeriods];
+        for (int t = 0; t < numTimePeriods; t++) {
+            enroute[t] = (int) Math.round(input.getEnroute(t));
+        }
+        int[] groundChanges = new int[numTimePeriods + 1];
+        int[] arriving = new int[numTimePeriods];
+        for (int sPos = 0; sPos < numScenarios; sPos++) {
+            scenarios[sPos] = layout.getScenario(sPos);
+            probabilities[sPos] = input.getScenProbability(scenarios[sPos]);
+            int offset = sPos * numTimePeriods;
+            Arrays.fill(groundChanges, 0);
+            System.arraycopy(enroute, 0, arriving, 0, numTimePeriods);
+            for (int fPos = 0; fPos < numFlights; fPos++) {
+                DiscreteFlight f = layout.getFlight(fPos);
+                int departPeriod = departPeriods[sPos * numFlights + fPos];
+                // A flight is on the ground at the end of every period from
+                // its scheduled departure until the period before it departs.
+                groundChanges[f.getDepartTimePeriod()]++;
+                groundChanges[departPeriod]--;
+                int arrival = layout.getArrivalPeriod(fPos, departPeriod);
+                if (arrival < numTimePeriods) {
+                    arriving[arrival]++;
+                }
+            }
+            int held = 0;
+            int airborne = 0;
+            for (int t = 0; t < numTimePeriods; t++) {
+                held += groundChanges[t];
+                ground[offset + t] = held;
+                air[offset + t] = (int) Math.round(values[layout.airVar(sPos, t)]);
+                if (layout.hasDiversions()) {
+                    land[offset + t] = (int) Math.round(values[layout.landVar(sPos, t)]);
+                    divert[offset + t] = (int) Math.round(values[layout.divertVar(sPos, t)]);
+                } else {
+                    land[offset + t] = airborne + arriving[t] - air[offset + t];
+                }
+                airborne = air[offset + t];
+            }
+        }
+        return new ScenarioFlows(numTimePeriods, scenarios, probabilities, ground, air, land, divert);
+    }
+
+    private static double computeObjective(MHDynModel.Input input, MHDynModel.Layout layout, int[] departPeriods,
+                                           ScenarioFlows flows) {
+        int numFlights = layout.getNumFlights();
+        int numTimePeriods = layout.getNumTimePeriods();
+        // The start of each period, in units of the period lengths, so that
+        // a delay is the difference of two starts.
+        double[] periodStarts = new double[numTimePeriods + 1];
+        for (int t = 0; t < numTimePeriods; t++) {
+            periodStarts[t + 1] = periodStarts[t] + input.getPeriodLength(t);
+        }
+        double sum = 0.0;
+        for (int sPos = 0; sPos < layout.getNumScenarios(); sPos++) {
+            double delay = 0.0;
+            for (int fPos = 0; fPos < numFlights; fPos++) {
+                delay += periodStarts[departPeriods[sPos * numFlights + fPos]]
+                        - periodStarts[layout.getFlight(fPos).getDepartTimePeriod()];
+            }
+            double airborne = 0.0;
+            long diverted = 0;
+            for (int t = 0; t < numTimePeriods; t++) {
+                airborne += input.getPeriodLength(t) * flows.getAir(sPos, t);
+                diverted += flows.getDivert(sPos, t);
+            }
+            sum += flows.getProbability(sPos) * (input.getGroundCost() * delay + input.getAirCost() * airborne
+                    + input.getDivertCost() * diverted);
+        }
+        return sum;
+    }
+
+    public MHDynModel.Layout getLayout() {
+        return layout;
+    }
+
+    /**
+     * The expected cost of the plan.
+     */
+    public double getObjective() {
+        return objective;
+    }
+
+    /**
+     * The ground holds, airborne queues, landings and diversions of each
+     * scenario.
+     */
+    public ScenarioFlows getFlows() {
+        return flows;
+    }
+
+    public int getNumFlights() {
+        return layout.getNumFlights();
+    }
+
+    public int getDepartPeriod(int scenarioPos, int flightPos) {
+        return departPeriods[scenarioPos * layout.getNumFlights() + flightPos];
+    }
+
+    /**
+     * The number of periods the flight is held on the ground.
+     */
+    public int getDelay(int scenarioPos, int flightPos) {
+        return getDepartPeriod(scenarioPos, flightPos) - layout.getFlight(flightPos).getDepartTimePeriod();
+    }
+
+    /**
+     * The departure period of every flight in the scenario, in the order of
+     * the layout.
+     */
+    public int[] getDepartPeriods(int scenarioPos) {
+        int numFlights = layout.getNumFlights();
+        int[] periods = new int[numFlights];
+        System.arraycopy(departPeriods, scenarioPos * numFlights, periods, 0, numFlights);
+        return periods;
+    }
+
+    @Override
+    public String toString() {
+        return "Obj: " + objective + ", Scenarios: " + layout.getNumScenarios() + ", Flights: "
+                + layout.getNumFlights() + ", Time periods: " + layout.getNumTimePeriods();
+    }
+}
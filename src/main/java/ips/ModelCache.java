@@ -0,0 +1,297 @@
+package ips;
+
+import gurobi.GRB;
+import gurobi.GRBEnv;
+import gurobi.GRBException;
+import gurobi.GRBModel;
+
+import java.io.File;
+import java.io.IOException;
+
+import lp.GurobiAdapter;
+import lp.ModelData;
+import lp.MpsWriter;
+import lp.SparseModel;
+
+/**
+ * Keeps the models of a sweep on disk as MPS files, keyed by a fingerprint of
+ * their structure, so that each structure is assembled in Gurobi once and
+ * later read from its file.
+ * <p>
+ * The fingerprint covers everything which decides the variables and the
+ * constraint matrix: the horizon, the durations of the demand (or the
+ * flights, for the MH models) with their arrival periods, and the partition of
+ * the scenarios into the nodes of the tree, in the order in which the models
+ * iterate them. Demand counts, enroute flights, capacities, probabilities,
+ * costs and the airborne limit only set bounds, objective coefficients and
+ * right-hand sides. Models which differ in these share a file, and a loaded
+ * model is patched with data computed straight from its input, so a hit
+ * never builds the sparse model. The files keep the models' own names, so a
+ * loaded model is searched by name like an assembled one.
+ * <p>
+ * The fingerprint says nothing about how the models are built from their
+ * input, so {@link #VERSION} must change whenever a model builder does.
+ */
+public class ModelCache {
+    public static final int VERSION = 2;
+    private static final String SUFFIX = ".mps";
+
+    private final File directory;
+    private int numHits;
+    private int numMisses;
+
+    public ModelCache(File directory) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create model cache directory " + directory + ".");
+        }
+        this.directory = directory;
+    }
+
+    public static String fingerprint(final ExtendedHofkinModel.Input input) {
+        SolutionStore.Hasher hasher = new SolutionStore.Hasher();
+        hasher.add(VERSION);
+        int numTimePeriods = input.getNumTimePeriods();
+        hasher.add(numTimePeriods);
+        addScenarios(hasher, input.getScenarios());
+        ArrivalGrid grid = new ArrivalGrid() {
+            @Override
+            public int getArrivalPeriod(int duration, int timePeriod) {
+                return input.getArrivalPeriod(duration, timePeriod);
+            }
+        };
+        for (int d : input.getFlightDurations()) {
+            hasher.add(d);
+            addArrivals(hasher, numTimePeriods, 0, d, grid);
+        }
+        for (int t = 0; t < numTimePeriods; t++) {
+            addNodes(hasher, input.getNodes(t));
+        }
+        return hasher.hex();
+    }
+
+    public static String fingerprint(final MHDynModel.Input input) {
+        SolutionStore.Hasher hasher = new SolutionStore.Hasher();
+        hasher.add(VERSION);
+        int numTimePeriods = input.getNumTimePeriods();
+        hasher.add(numTimePeriods);
+        addScenarios(hasher, input.getScenarios());
+        ArrivalGrid grid = new ArrivalGrid() {
+            @Override
+            public int getArrivalPeriod(int duration, int timePeriod) {
+                return input.getArrivalPeriod(duration, timePeriod);
+            }
+        };
+        for (DiscreteFlight f : input.getFlights()) {
+            hasher.add(f.getFlightId());
+            hasher.add(f.getDepartTimePeriod());
+            hasher.add(f.getFlightDuration());
+            addArrivals(hasher, numTimePeriods, f.getDepartTimePeriod(), f.getFlightDuration(), grid);
+        }
+        for (int t = 0; t < numTimePeriods; t++) {
+            addNodes(hasher, input.getNodes(t));
+        }
+        return hasher.hex();
+    }
+
+    private static void addScenarios(SolutionStore.Hasher hasher, Iterable<Integer> scenarios) {
+        int count = 0;
+        for (int s : scenarios) {
+            hasher.add(s);
+            count++;
+        }
+        hasher.add(count);
+    }
+
+    /**
+     * Adds the arrival periods of the departure periods from the given one
+     * until flights no longer arrive within the horizon, the same periods for
+     * which the layouts create departure variables.
+     */
+    private static void addArrivals(SolutionStore.Hasher hasher, int numTimePeriods, int start, int duration,
+                                    ArrivalGrid grid) {
+        for (int t = start; t <= numTimePeriods; t++) {
+            int arrival = grid.getArrivalPeriod(duration, t);
+            if (arrival > numTimePeriods) {
+                break;
+            }
+            hasher.add(arrival);
+        }
+        hasher.add(-1);
+    }
+
+    private static void addNodes(SolutionStore.Hasher hasher, Iterable<? extends Iterable<Integer>> nodes) {
+        for (Iterable<Integer> node : nodes) {
+            for (int s : node) {
+                hasher.add(s);
+            }
+            hasher.add(-1);
+        }
+        hasher.add(-2);
+    }
+
+    /**
+     * The arrival periods, which both inputs share.
+     */
+    private interface ArrivalGrid {
+        int getArrivalPeriod(int duration, int timePeriod);
+    }
+
+    /**
+     * Builds a model, or only its data when the model is read from a file.
+     */
+    private interface ModelSource {
+        SparseModel build();
+
+        ModelData buildData();
+    }
+
+    /**
+     * Sets up the DHD model of the input, from the cache if its structure is
+     * there.
+     */
+    public GRBModel setupDHoffkin(final ExtendedHofkinModel.Input input, GRBEnv env, boolean verbose)
+            throws GRBException, IOException {
+        return setup("DHD", fingerprint(input), new ModelSource() {
+            @Override
+            public SparseModel build() {
+                return ExtendedHofkinModel.buildModel(input);
+            }
+
+            @Override
+            public ModelData buildData() {
+                return ExtendedHofkinModel.buildData(input);
+            }
+        }, env, verbose);
+    }
+
+    public GRBModel setupMh(final MHDynModel.Input input, GRBEnv env, boolean verbose)
+            throws GRBException, IOException {
+        return setup("MH", fingerprint(input), new ModelSource() {
+            @Override
+            public SparseModel build() {
+                return MHDynModel.buildMhModel(input);
+            }
+
+            @Override
+            public ModelData buildData() {
+                return MHDynModel.buildMhData(input);
+            }
+        }, env, verbose);
+    }
+
+    public GRBModel setupMhd(final MHDynModel.Input input, GRBEnv env, boolean verbose)
+            throws GRBException, IOException {
+        return setup("MHD", fingerprint(input), new ModelSource() {
+            @Override
+            public SparseModel build() {
+                return MHDynModel.buildMhdModel(input);
+            }
+
+            @Override
+            public ModelData buildData() {
+                return MHDynModel.buildMhdData(input);
+            }
+        }, env, verbose);
+    }
+
+    /**
+     * Reads the model from the cache if it is stored there, and otherwise
+     * assembles it as usual and stores it.
+     */
+    private GRBModel setup(String modelName, String fingerprint, ModelSource source, GRBEnv env, boolean verbose)
+            throws GRBException, IOException {
+        GRBModel model;
+        if (contains(modelName, fingerprint)) {
+            countHit();
+            model = load(modelName, fingerprint, source.buildData(), env);
+        } else {
+            countMiss();
+            SparseModel sparseModel = source.build();
+            model = GurobiAdapter.toGurobi(sparseModel, env);
+            put(modelName, fingerprint, sparseModel);
+        }
+        if (!verbose) {
+            model.set(GRB.IntParam.OutputFlag, 0);
+        }
+        return model;
+    }
+
+    /**
+     * Reads the model stored under the fingerprint and replaces its bounds,
+     * objective coefficients and right-hand sides by the data, which must
+     * belong to a model with the structure the fingerprint stands for.
+     */
+    public GRBModel load(String modelName, String fingerprint, ModelData data, GRBEnv env) throws GRBException {
+        File file = getFile(modelName, fingerprint);
+        if (!file.exists()) {
+            throw new IllegalArgumentException("No model is stored under " + file.getName() + ".");
+        }
+        GRBModel model = new GRBModel(env, file.getPath());
+        try {
+            GurobiAdapter.updateData(model, data);
+        } catch (GRBException e) {
+            model.dispose();
+            throw e;
+        } catch (RuntimeException e) {
+            model.dispose();
+            throw e;
+        }
+        return model;
+    }
+
+    public boolean contains(String modelName, String fingerprint) {
+        return getFile(modelName, fingerprint).exists();
+    }
+
+    /**
+     * Stores the sparse model under the fingerprint unless a model is stored
+     * under it already. The file is written under a temporary name and then
+     * moved, so that sweeps running side by side never read a partial file.
+     *
+     * @return whether the model was stored
+     */
+    public boolean put(String modelName, String fingerprint, SparseModel sparseModel) throws IOException {
+        File file = getFile(modelName, fingerprint);
+        if (file.exists()) {
+            return false;
+        }
+        File temp = File.createTempFile(file.getName(), ".tmp", directory);
+        try {
+            MpsWriter.write(sparseModel, temp);
+            return temp.renameTo(file);
+        } finally {
+            if (temp.exists() && !temp.delete()) {
+                temp.deleteOnExit();
+            }
+        }
+    }
+
+    public File getFile(String modelName, String fingerprint) {
+        if (modelName.contains("-") || modelName.contains(File.separator)) {
+            throw new IllegalArgumentException("Invalid model name " + modelName + ".");
+        }
+        return new File(directory, modelName + "-" + fingerprint + SUFFIX);
+    }
+
+    private synchronized void countHit() {
+        numHits++;
+    }
+
+    private synchronized void countMiss() {
+        numMisses++;
+    }
+
+    /**
+     * The number of models which were read from the cache.
+     */
+    public synchronized int getNumHits() {
+        return numHits;
+    }
+
+    /**
+     * The number of models which had to be assembled.
+     */
+    public synchronized int getNumMisses() {
+        return numMisses;
+    }
+}
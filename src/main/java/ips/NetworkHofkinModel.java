@@ -0,0 +1,724 @@
+package ips;
+
+import gurobi.GRB;
+import gurobi.GRBException;
+import gurobi.GRBModel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import lp.BranchAndBound;
+import lp.GurobiAdapter;
+import lp.LinearExpr;
+import lp.Solution;
+import lp.SparseModel;
+import solve.EnvPool;
+import solve.PolicyResult;
+import solve.SolvePolicy;
+
+/**
+ * A network extension of {@link ExtendedHofkinModel} for several airports
+ * with uncertain arrival capacities. Flights are grouped into buckets by
+ * origin, destination and duration. Each airport of the network runs a
+ * ground delay program for the flights landing there, which is the DHD
+ * model over its own scenario tree with one duration per bucket, so that
+ * the flights of a bucket are held according to what is known about their
+ * destination.
+ * <p>
+ * Flights between two airports of the network also depart from a
+ * capacitated airport, which couples the programs. The departure capacity
+ * is deterministic, while the departures of a bucket differ by the
+ * scenarios of its destination. Each program therefore reserves slots: the
+ * SLOT variable of a bucket and period is at least its departures in every
+ * scenario, and the slots of all buckets leaving an airport in a period are
+ * bounded by its departure capacity. Flights in the last departure period of
+ * their bucket do not take a slot, since they stand for the flights still
+ * held at the end of the horizon. This keeps every program feasible under
+ * any allocation of the departure capacity.
+ * <p>
+ * The joint model is the union of the programs and the departure capacity
+ * constraints. Its variables are grouped into one block per airport, in the
+ * order of {@link Layout}, and each block is the model built by
+ * {@link #buildProgram}. Without departure capacities the joint model
+ * separates into the programs, which are then solved independently as
+ * before. {@link NetworkLagrangian} relaxes the departure capacity
+ * constraints to solve the programs in parallel.
+ */
+public final class NetworkHofkinModel {
+    public final static int UNLIMITED = ExtendedHofkinModel.UNLIMITED;
+
+    private NetworkHofkinModel() {
+
+    }
+
+    /**
+     * The flights from an origin to a destination of the network which have
+     * the same duration. The origin may be outside the network.
+     */
+    public static final class Bucket implements Comparable<Bucket> {
+        private final String origin;
+        private final String destination;
+        private final int duration;
+
+        public Bucket(String origin, String destination, int duration) {
+            if (duration < 0) {
+                throw new IllegalArgumentException("Duration must be non-negative, but was " + duration + ".");
+            }
+            this.origin = origin;
+            this.destination = destination;
+            this.duration = duration;
+        }
+
+        public String getOrigin() {
+            return origin;
+        }
+
+        public String getDestination() {
+            return destination;
+        }
+
+        public int getDuration() {
+            return duration;
+        }
+
+        @Override
+        public int compareTo(Bucket other) {
+            int c = destination.compareTo(other.destination);
+            if (c == 0) {
+                c = origin.compareTo(other.origin);
+            }
+            return c != 0 ? c : Integer.compare(duration, other.duration);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Bucket)) {
+                return false;
+            }
+            Bucket other = (Bucket) o;
+            return origin.equals(other.origin) && destination.equals(other.destination)
+                    && duration == other.duration;
+        }
+
+        @Override
+        public int hashCode() {
+            return (31 * origin.hashCode() + destination.hashCode()) * 31 + duration;
+        }
+
+        @Override
+        public String toString() {
+            return origin + "-" + destination + ":" + duration;
+        }
+    }
+
+    public interface Input {
+        int getNumTimePeriods();
+
+        double getGroundCost();
+
+        double getAirCost();
+
+        double getDivertCost();
+
+        /**
+         * The airports of the network, which have uncertain arrival
+         * capacities.
+         */
+        Iterable<String> getAirports();
+
+        int getMaxAirborne(String airport);
+
+        double getScenProbability(String airport, int s);
+
+        Iterable<Integer> getScenarios(String airport);
+
+        Iterable<? extends Iterable<Integer>> getNodes(String airport, int i);
+
+        double getCapacity(String airport, int scenario, int timePeriod);
+
+        /**
+         * The number of flights to airports of the network which may depart
+         * from the airport in the period, or UNLIMITED.
+         */
+        int getDepartureCapacity(String airport, int timePeriod);
+
+        double getEnroute(String airport, int i);
+
+        /**
+         * The buckets of flights which land at an airport of the network.
+         */
+        Iterable<Bucket> getBuckets();
+
+        double getNumDeparting(Bucket bucket, int timePeriod);
+
+        /**
+         * As {@link ExtendedHofkinModel.Input#getArrivalPeriod}.
+         */
+        default int getArrivalPeriod(int duration, int timePeriod) {
+            return timePeriod + duration;
+        }
+
+        /**
+         * As {@link ExtendedHofkinModel.Input#getPeriodLength}.
+         */
+        default double getPeriodLength(int timePeriod) {
+            return 1.0;
+        }
+    }
+
+    /**
+     * Solves a program or the joint model, returning the values of its
+     * variables or null if no solution was found. Solvers may be called from
+     * several threads at once.
+     */
+    public interface Solver {
+        double[] solve(SparseModel model) throws GRBException;
+    }
+
+    /**
+     * Solves each model with Gurobi under the given policy, on an environment
+     * leased from the pool for the solve. A model which hits a limit serves
+     * its incumbent.
+     */
+    public static Solver withGurobi(final EnvPool pool, final SolvePolicy policy, final boolean verbose) {
+        return new Solver() {
+            @Override
+            public double[] solve(SparseModel sparseModel) throws GRBException {
+                EnvPool.Lease lease = pool.leaseUninterruptibly();
+                try {
+                    GRBModel model = GurobiAdapter.toGurobi(sparseModel, lease.getEnv());
+                    try {
+                        if (!verbose) {
+                            model.set(GRB.IntParam.OutputFlag, 0);
+                        }
+                        PolicyResult result = policy.solve(model, SolvePolicy.NO_PLANS);
+                        return result.hasValues() ? result.getValues() : null;
+                    } finally {
+                        model.dispose();
+                    }
+                } finally {
+                    lease.close();
+                }
+            }
+        };
+    }
+
+    /**
+     * Solves each model with the pure-Java branch and bound.
+     */
+    public static Solver withBranchAndBound(final BranchAndBound solver) {
+        return new Solver() {
+            @Override
+            public double[] solve(SparseModel model) {
+                Solution solution = solver.solve(model);
+                return solution.hasValues() ? solution.getValues() : null;
+            }
+        };
+    }
+
+    /**
+     * The position of each variable in the joint model. Airports are sorted
+     * by code, and the buckets of an airport by origin and then duration.
+     * The block of an airport starts with the variables of its DHD model, in
+     * the order of {@link ExtendedHofkinModel.Layout} with the position of a
+     * bucket as its duration, followed by its slot variables, grouped by
+     * bucket and then time period.
+     */
+    public static final class Layout {
+        private final int numTimePeriods;
+        private final String[] airports;
+        private final HashMap<String, Integer> airportPositions;
+        private final ExtendedHofkinModel.Input[] programInputs;
+        private final ExtendedHofkinModel.Layout[] programLayouts;
+        private final Bucket[][] buckets;
+        // The position of the origin of each bucket, or -1 if it is outside
+        // the network.
+        private final int[][] originPositions;
+        // The offset of the first slot variable of each bucket within its
+        // block, or -1 if it has none.
+        private final int[][] slotOffsets;
+        private final int[] blockStarts;
+
+        public Layout(Input input) {
+            numTimePeriods = input.getNumTimePeriods();
+            List<String> airportList = new ArrayList<String>();
+            for (String airport : input.getAirports()) {
+                airportList.add(airport);
+            }
+            Collections.sort(airportList);
+            airports = airportList.toArray(new String[airportList.size()]);
+            airportPositions = new HashMap<String, Integer>();
+            for (int a = 0; a < airports.length; a++) {
+                airportPositions.put(airports[a], a);
+            }
+
+            List<List<Bucket>> bucketLists = new ArrayList<List<Bucket>>();
+            for (int a = 0; a < airports.length; a++) {
+                bucketLists.add(new ArrayList<Bucket>());
+            }
+            for (Bucket bucket : input.getBuckets()) {
+                Integer a = airportPositions.get(bucket.getDestination());
+                if (a == null) {
+                    throw new IllegalArgumentException("Bucket " + bucket + " lands outside the network.");
+                }
+                bucketLists.get(a).add(bucket);
+            }
+
+            programInputs = new ExtendedHofkinModel.Input[airports.length];
+            programLayouts = new ExtendedHofkinModel.Layout[airports.length];
+            buckets = new Bucket[airports.length][];
+            originPositions = new int[airports.length][];
+            slotOffsets = new int[airports.length][];
+            blockStarts = new int[airports.length + 1];
+            for (int a = 0; a < airports.length; a++) {
+                List<Bucket> bucketList = bucketLists.get(a);
+                Collections.sort(bucketList);
+                buckets[a] = bucketList.toArray(new Bucket[bucketList.size()]);
+                programInputs[a] = new ProgramInput(input, airports[a], buckets[a]);
+                programLayouts[a] = new ExtendedHofkinModel.Layout(programInputs[a]);
+                originPositions[a] = new int[buckets[a].length];
+                slotOffsets[a] = new int[buckets[a].length];
+                int numSlots = 0;
+                for (int k = 0; k < buckets[a].length; k++) {
+                    Integer origin = airportPositions.get(buckets[a][k].getOrigin());
+                    originPositions[a][k] = origin == null ? -1 : origin;
+                    slotOffsets[a][k] = origin == null ? -1 : programLayouts[a].getNumVars() + numSlots;
+                    numSlots += getNumSlotPeriods(a, k);
+                }
+                blockStarts[a + 1] = blockStarts[a] + programLayouts[a].getNumVars() + numSlots;
+            }
+        }
+
+        public int getNumTimePeriods() {
+            return numTimePeriods;
+        }
+
+        public int getNumVars() {
+            return blockStarts[airports.length];
+        }
+
+        public int getNumAirports() {
+            return airports.length;
+        }
+
+        public String getAirport(int position) {
+            return airports[position];
+        }
+
+        /**
+         * The position of the airport, or -1 if it is not in the network.
+         */
+        public int getAirportPosition(String airport) {
+            Integer position = airportPositions.get(airport);
+            return position == null ? -1 : position;
+        }
+
+        /**
+         * The input of the DHD model of the program of the airport, whose
+         * durations are the positions of its buckets.
+         */
+        public ExtendedHofkinModel.Input getProgramInput(int airportPos) {
+            return programInputs[airportPos];
+        }
+
+        public ExtendedHofkinModel.Layout getProgramLayout(int airportPos) {
+            return programLayouts[airportPos];
+        }
+
+        public int getNumBuckets(int airportPos) {
+            return buckets[airportPos].length;
+        }
+
+        public Bucket getBucket(int airportPos, int bucketPos) {
+            return buckets[airportPos][bucketPos];
+        }
+
+        /**
+         * The position of the origin of the bucket, or -1 if it is outside
+         * the network.
+         */
+        public int getOriginPosition(int airportPos, int bucketPos) {
+            return originPositions[airportPos][bucketPos];
+        }
+
+        /**
+         * Slots exist for every departure period of a bucket but the last, if
+         * its origin is in the network.
+         */
+        public int getNumSlotPeriods(int airportPos, int bucketPos) {
+            if (originPositions[airportPos][bucketPos] < 0) {
+                return 0;
+            }
+            return programLayouts[airportPos].getNumGroundPeriods(bucketPos);
+        }
+
+        public int getBlockStart(int airportPos) {
+            return blockStarts[airportPos];
+        }
+
+        public int getBlockSize(int airportPos) {
+            return blockStarts[airportPos + 1] - blockStarts[airportPos];
+        }
+
+        /**
+         * The position of a slot variable within the block of the airport.
+         */
+        public int slotVar(int airportPos, int bucketPos, int timePeriod) {
+            return slotOffsets[airportPos][bucketPos] + timePeriod;
+        }
+
+        /**
+         * The most flights of the bucket departing in the period in any
+         * scenario, which is the number of slots the bucket needs. The values
+         * are those of the block of the airport.
+         */
+        public int getSlotsUsed(int airportPos, int bucketPos, int timePeriod, double[] blockValues,
+                                int blockOffset) {
+            ExtendedHofkinModel.Layout programLayout = programLayouts[airportPos];
+            int dPos = programLayout.getDurationPosition(bucketPos);
+            int used = 0;
+            for (int sPos = 0; sPos < programLayout.getNumScenarios(); sPos++) {
+                used = Math.max(used, (int) Math.round(
+                        blockValues[blockOffset + programLayout.departVar(sPos, dPos, timePeriod)]));
+            }
+            return used;
+        }
+
+        /**
+         * The slots used at each origin airport in each period, by the flights
+         * to airports of the network.
+         */
+        public int[][] getSlotsUsed(double[] values) {
+            int[][] used = new int[airports.length][numTimePeriods];
+            for (int a = 0; a < airports.length; a++) {
+                for (int k = 0; k < buckets[a].length; k++) {
+                    for (int i = 0; i < getNumSlotPeriods(a, k); i++) {
+                        used[originPositions[a][k]][i] += getSlotsUsed(a, k, i, values, blockStarts[a]);
+                    }
+                }
+            }
+            return used;
+        }
+    }
+
+    /**
+     * A solution of the joint model: the plan of the program of each airport,
+     * and the slots it uses.
+     */
+    public static final class NetworkPlan {
+        private final Layout layout;
+        private final double[] values;
+        private final DHoffkinPlan[] plans;
+        private final int[][] slotsUsed;
+        private final int excess;
+
+        /**
+         * Decodes the values of the joint model, in the order of the layout.
+         */
+        public NetworkPlan(Input input, Layout layout, double[] values) {
+            if (values.length != layout.getNumVars()) {
+                throw new IllegalArgumentException("Expected " + layout.getNumVars() + " values, but got "
+                        + values.length + ".");
+            }
+            this.layout = layout;
+            this.values = values;
+            this.plans = new DHoffkinPlan[layout.getNumAirports()];
+            for (int a = 0; a < plans.length; a++) {
+                double[] programValues = new double[layout.getProgramLayout(a).getNumVars()];
+                System.arraycopy(values, layout.getBlockStart(a), programValues, 0, programValues.length);
+                plans[a] = new DHoffkinPlan(layout.getProgramInput(a), layout.getProgramLayout(a), programValues);
+            }
+            this.slotsUsed = layout.getSlotsUsed(values);
+            int total = 0;
+            for (int a = 0; a < plans.length; a++) {
+                for (int i = 0; i < layout.getNumTimePeriods(); i++) {
+                    int capacity = input.getDepartureCapacity(layout.getAirport(a), i);
+                    if (capacity != UNLIMITED) {
+                        total += Math.max(0, slotsUsed[a][i] - capacity);
+                    }
+                }
+            }
+            this.excess = total;
+        }
+
+        public Layout getLayout() {
+            return layout;
+        }
+
+        public double[] getValues() {
+            return values.clone();
+        }
+
+        /**
+         * The expected cost of the plan, summed over the airports.
+         */
+        public double getObjective() {
+            double objective = 0.0;
+            for (DHoffkinPlan plan : plans) {
+                objective += plan.getObjective();
+            }
+            return objective;
+        }
+
+        /**
+         * The plan of the program of the airport. Its durations are the
+         * positions of the buckets in the layout.
+         */
+        public DHoffkinPlan getPlan(String airport) {
+            int position = layout.getAirportPosition(airport);
+            if (position < 0) {
+                throw new IllegalArgumentException("Airport " + airport + " is not in the network.");
+            }
+            return plans[position];
+        }
+
+        /**
+         * The number of departure slots used at the airport in the period.
+         */
+        public int getSlotsUsed(String airport, int timePeriod) {
+            return slotsUsed[layout.getAirportPosition(airport)][timePeriod];
+        }
+
+        /**
+         * The slots used beyond the departure capacities, summed over the
+         * airports and periods. Plans of the joint model have none.
+         */
+        public int getExcessSlots() {
+            return excess;
+        }
+
+        public boolean isFeasible() {
+            return excess == 0;
+        }
+
+        @Override
+        public String toString() {
+            return "Obj: " + getObjective() + ", Airports: " + plans.length + ", Excess slots: " + excess;
+        }
+    }
+
+    /**
+     * Builds the joint model without any solver. Variables are stored in the
+     * order given by {@link Layout}; the names of the variables and
+     * constraints of a program are prefixed with its airport.
+     */
+    public static SparseModel buildModel(Input input) {
+        Layout layout = new Layout(input);
+        SparseModel model = new SparseModel(layout.getNumVars(), layout.getNumVars(), 3 * layout.getNumVars());
+        for (int a = 0; a < layout.getNumAirports(); a++) {
+            append(model, buildProgram(input, layout, a, null), layout.getAirport(a) + "/");
+        }
+        addDepartureCapacityConstraints(model, input, layout);
+        return model;
+    }
+
+    /**
+     * Builds the program of the airport at the given position: its DHD model
+     * and the slots of the buckets from airports of the network. A slot of
+     * the airport at position o in period i costs multipliers[o][i], or
+     * nothing if multipliers is null. The variables are in the order of the
+     * block of the airport in the joint model.
+     */
+    public static SparseModel buildProgram(Input input, Layout layout, int airportPos, double[][] multipliers) {
+        ExtendedHofkinModel.Layout programLayout = layout.getProgramLayout(airportPos);
+        SparseModel model = ExtendedHofkinModel.buildModel(layout.getProgramInput(airportPos));
+        for (int k = 0; k < layout.getNumBuckets(airportPos); k++) {
+            int originPos = layout.getOriginPosition(airportPos, k);
+            for (int i = 0; i < layout.getNumSlotPeriods(airportPos, k); i++) {
+                double cost = multipliers == null ? 0.0 : multipliers[originPos][i];
+                model.addVar(0.0, SparseModel.INFINITY, cost, SparseModel.CONTINUOUS, getSlotVarName(i, k));
+            }
+        }
+        for (int k = 0; k < layout.getNumBuckets(airportPos); k++) {
+            int dPos = programLayout.getDurationPosition(k);
+            for (int i = 0; i < layout.getNumSlotPeriods(airportPos, k); i++) {
+                int slot = layout.slotVar(airportPos, k, i);
+                for (int sPos = 0; sPos < programLayout.getNumScenarios(); sPos++) {
+                    model.addConstr(programLayout.departVar(sPos, dPos, i), SparseModel.LESS_EQUAL, slot,
+                            getSlotLinkConstrName(programLayout.getScenario(sPos), i, k));
+                }
+            }
+        }
+        return model;
+    }
+
+    private static void addDepartureCapacityConstraints(SparseModel model, Input input, Layout layout) {
+        int numTimePeriods = layout.getNumTimePeriods();
+        LinearExpr[][] slots = new LinearExpr[layout.getNumAirports()][numTimePeriods];
+        for (int a = 0; a < layout.getNumAirports(); a++) {
+            for (int k = 0; k < layout.getNumBuckets(a); k++) {
+                int originPos = layout.getOriginPosition(a, k);
+                for (int i = 0; i < layout.getNumSlotPeriods(a, k); i++) {
+                    if (slots[originPos][i] == null) {
+                        slots[originPos][i] = new LinearExpr();
+                    }
+                    slots[originPos][i].addTerm(1.0, layout.getBlockStart(a) + layout.slotVar(a, k, i));
+                }
+            }
+        }
+        for (int o = 0; o < layout.getNumAirports(); o++) {
+            String origin = layout.getAirport(o);
+            for (int i = 0; i < numTimePeriods; i++) {
+                int capacity = input.getDepartureCapacity(origin, i);
+                if (slots[o][i] != null && capacity != UNLIMITED) {
+                    model.addConstr(slots[o][i], SparseModel.LESS_EQUAL, capacity,
+                            getDepartureCapacityConstrName(origin, i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies the variables and constraints of the source to the end of the
+     * target, prefixing their names.
+     */
+    private static void append(SparseModel target, SparseModel source, String prefix) {
+        int offset = target.getNumVars();
+        for (int j = 0; j < source.getNumVars(); j++) {
+            target.addVar(source.getLowerBound(j), source.getUpperBound(j), source.getObjective(j),
+                    source.getVarType(j), prefix + source.getVarName(j));
+        }
+        for (int r = 0; r < source.getNumConstrs(); r++) {
+            LinearExpr row = new LinearExpr(source.getRowEnd(r) - source.getRowStart(r));
+            for (int k = source.getRowStart(r); k < source.getRowEnd(r); k++) {
+                row.addTerm(source.getValue(k), offset + source.getColIndex(k));
+            }
+            target.addConstr(row, source.getSense(r), source.getRhs(r), prefix + source.getConstrName(r));
+        }
+    }
+
+    /**
+     * Solves the joint model.
+     */
+    public static NetworkPlan solve(Input input, Solver solver) throws GRBException {
+        Layout layout = new Layout(input);
+        double[] values = solver.solve(buildModel(input));
+        if (values == null) {
+            throw new IllegalStateException("The joint model has no solution.");
+        }
+        return new NetworkPlan(input, layout, values);
+    }
+
+    /**
+     * Solves the program of each airport on its own, ignoring the departure
+     * capacities, as when each airport plans its own ground delay program.
+     * The plan may use more slots than there are.
+     */
+    public static NetworkPlan solveIndependently(Input input, Solver solver) throws GRBException {
+        Layout layout = new Layout(input);
+        double[] values = new double[layout.getNumVars()];
+        for (int a = 0; a < layout.getNumAirports(); a++) {
+            double[] programValues = solver.solve(buildProgram(input, layout, a, null));
+            if (programValues == null) {
+                throw new IllegalStateException("The program of " + layout.getAirport(a) + " has no solution.");
+            }
+            System.arraycopy(programValues, 0, values, layout.getBlockStart(a), programValues.length);
+        }
+        return new NetworkPlan(input, layout, values);
+    }
+
+    public static String getSlotVarName(int timePeriod, int bucket) {
+        return "SLOT:" + timePeriod + "," + bucket;
+    }
+
+    public static String getSlotLinkConstrName(int scenario, int timePeriod, int bucket) {
+        return "SLOT_LINK:" + scenario + "," + timePeriod + "," + bucket;
+    }
+
+    public static String getDepartureCapacityConstrName(String airport, int timePeriod) {
+        return "DEP_CAP:" + airport + "," + timePeriod;
+    }
+
+    /**
+     * The input of the DHD model of the program of one airport, with the
+     * position of each bucket as its duration.
+     */
+    private static final class ProgramInput implements ExtendedHofkinModel.Input {
+        private final Input input;
+        private final String airport;
+        private final Bucket[] buckets;
+        private final List<Integer> positions;
+
+        private ProgramInput(Input input, String airport, Bucket[] buckets) {
+            this.input = input;
+            this.airport = airport;
+            this.buckets = buckets;
+            this.positions = new ArrayList<Integer>(buckets.length);
+            for (int k = 0; k < buckets.length; k++) {
+                positions.add(k);
+            }
+        }
+
+        @Override
+        public int getNumTimePeriods() {
+            return input.getNumTimePeriods();
+        }
+
+        @Override
+        public double getGroundCost() {
+            return input.getGroundCost();
+        }
+
+        @Override
+        public double getAirCost() {
+            return input.getAirCost();
+        }
+
+        @Override
+        public double getDivertCost() {
+            return input.getDivertCost();
+        }
+
+        @Override
+        public int getMaxAirborne() {
+            return input.getMaxAirborne(airport);
+        }
+
+        @Override
+        public double getScenProbability(int s) {
+            return input.getScenProbability(airport, s);
+        }
+
+        @Override
+        public Iterable<Integer> getScenarios() {
+            return input.getScenarios(airport);
+        }
+
+        @Override
+        public Iterable<? extends Iterable<Integer>> getNodes(int i) {
+            return input.getNodes(airport, i);
+        }
+
+        @Override
+        public double getCapacity(int scenario, int timePeriod) {
+            return input.getCapacity(airport, scenario, timePeriod);
+        }
+
+        @Override
+        public Iterable<Integer> getFlightDurations() {
+            return positions;
+        }
+
+        @Override
+        public double getNumDeparting(int duration, int timePeriod) {
+            return input.getNumDeparting(buckets[duration], timePeriod);
+        }
+
+        @Override
+        public double getEnroute(int i) {
+            return input.getEnroute(airport, i);
+        }
+
+        @Override
+        public int getArrivalPeriod(int duration, int timePeriod) {
+            return input.getArrivalPeriod(buckets[duration].getDuration(), timePeriod);
+        }
+
+        @Override
+        public double getPeriodLength(int timePeriod) {
+            return input.getPeriodLength(timePeriod);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package ips;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import scenarios.DiscreteScenarioTree;
+
+/**
+ * The input of {@link NetworkHofkinModel} from a scenario tree per airport.
+ */
+public class NetworkInput implements NetworkHofkinModel.Input {
+    private final int numTimePeriods;
+    private final double groundCost;
+    private final double airCost;
+    private final double divertCost;
+    private final HashMap<String, DiscreteScenarioTree> trees;
+    private final HashMap<String, Integer> maxAirborne;
+    private final HashMap<NetworkHofkinModel.Bucket, List<Integer>> demands;
+    private final HashMap<String, List<Integer>> enroute;
+    private final HashMap<String, List<Integer>> departureCapacities;
+
+    /**
+     * @param trees               - the scenario tree of each airport of the
+     *                            network
+     * @param maxAirborne         - the airborne limit of each airport, or
+     *                            UNLIMITED if it is missing
+     * @param demands             - the scheduled departures of each bucket in
+     *                            each time period
+     * @param enroute             - the flights en route to each airport by
+     *                            arrival period, or none if it is missing
+     * @param departureCapacities - the departure capacity of each airport in
+     *                            each time period, or UNLIMITED if it is
+     *                            missing
+     */
+    public NetworkInput(int numTimePeriods, double groundCost, double airCost, double divertCost,
+                        Map<String, DiscreteScenarioTree> trees, Map<String, Integer> maxAirborne,
+                        Map<NetworkHofkinModel.Bucket, ? extends List<Integer>> demands,
+                        Map<String, ? extends List<Integer>> enroute,
+                        Map<String, ? extends List<Integer>> departureCapacities) {
+        if (trees.isEmpty()) {
+            throw new IllegalArgumentException("A network must have at least one airport.");
+        }
+        this.numTimePeriods = numTimePeriods;
+        this.groundCost = groundCost;
+        this.airCost = airCost;
+        this.divertCost = divertCost;
+        this.trees = new HashMap<String, DiscreteScenarioTree>(trees);
+        this.maxAirborne = new HashMap<String, Integer>(maxAirborne);
+        this.demands = new HashMap<NetworkHofkinModel.Bucket, List<Integer>>();
+        for (Entry<NetworkHofkinModel.Bucket, ? extends List<Integer>> entry : demands.entrySet()) {
+            this.demands.put(entry.getKey(), checkLength(entry.getValue(), "Demand of " + entry.getKey()));
+        }
+        this.enroute = new HashMap<String, List<Integer>>();
+        for (Entry<String, ? extends List<Integer>> entry : enroute.entrySet()) {
+            this.enroute.put(entry.getKey(), checkLength(entry.getValue(), "En-route flights of " + entry.getKey()));
+        }
+        this.departureCapacities = new HashMap<String, List<Integer>>();
+        for (Entry<String, ? extends List<Integer>> entry : departureCapacities.entrySet()) {
+            this.departureCapacities.put(entry.getKey(),
+                    checkLength(entry.getValue(), "Departure capacity of " + entry.getKey()));
+        }
+    }
+
+    private List<Integer> checkLength(List<Integer> values, String what) {
+        if (values.size() != numTimePeriods) {
+            throw new IllegalArgumentException(what + " must have " + numTimePeriods + " periods, but had "
+                    + values.size() + ".");
+        }
+        return new ArrayList<Integer>(values);
+    }
+
+    @Override
+    public int getNumTimePeriods() {
+        return numTimePeriods;
+    }
+
+    @Override
+    public double getGroundCost() {
+        return groundCost;
+    }
+
+    @Override
+    public double getAirCost() {
+        return airCost;
+    }
+
+    @Override
+    public double getDivertCost() {
+        return divertCost;
+    }
+
+    @Override
+    public Iterable<String> getAirports() {
+        List<String> airports = new ArrayList<String>(trees.keySet());
+        Collections.sort(airports);
+        return airports;
+    }
+
+    @Override
+    public int getMaxAirborne(String airport) {
+        Integer limit = maxAirborne.get(airport);
+        return limit == null ? NetworkHofkinModel.UNLIMITED : limit;
+    }
+
+    @Override
+    public double getScenProbability(String airport, int s) {
+        return trees.get(airport).getScenario(s).getProbability();
+    }
+
+    @Override
+    public Iterable<Integer> getScenarios(String airport) {
+        return trees.get(airport).getScenarioIds();
+    }
+
+    @Override
+    public Iterable<? extends Iterable<Integer>> getNodes(String airport, int i) {
+        return trees.get(airport).getScenarioNodes(i);
+    }
+
+    @Override
+    public double getCapacity(String airport, int scenario, int timePeriod) {
+        return trees.get(airport).getScenario(scenario).getCapacity(timePeriod);
+    }
+
+    @Override
+    public int getDepartureCapacity(String airport, int timePeriod) {
+        List<Integer> capacities = departureCapacities.get(airport);
+        return capacities == null ? NetworkHofkinModel.UNLIMITED : capacities.get(timePeriod);
+    }
+
+    @Override
+    public double getEnroute(String airport, int i) {
+        List<Integer> flights = enroute.get(airport);
+        return flights == null ? 0 : flights.get(i);
+    }
+
+    @Override
+    public Iterable<NetworkHofkinModel.Bucket> getBuckets() {
+        return demands.keySet();
+    }
+
+    @Override
+    public double getNumDeparting(NetworkHofkinModel.Bucket bucket, int timePeriod) {
+        return demands.get(bucket).get(timePeriod);
+    }
+}
@@ -0,0 +1,373 @@
+package ips;
+
+import gurobi.GRBException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import lp.SparseModel;
+
+/**
+ * Solves {@link NetworkHofkinModel} by Lagrangian relaxation of the
+ * departure capacity constraints. With a multiplier on the departure
+ * capacity of each airport and period, the joint model separates into the
+ * programs of the airports, in which a slot costs the multiplier of its
+ * origin and period. The programs are solved in parallel, and the
+ * multipliers are updated by subgradient steps towards the used slots
+ * beyond the capacity.
+ * <p>
+ * Each round gives a lower bound on the joint optimum, provided the
+ * programs are solved to optimality, and a feasible plan. If the programs
+ * use more slots than there are, the capacity of each airport and period is
+ * shared among its buckets in proportion to the slots they asked for, and
+ * the programs of the buckets which get fewer are solved again with the
+ * shares as bounds on their slots. Since flights can always be held to the
+ * end of the horizon, this never fails. The best plan is returned together
+ * with the best bound.
+ * <p>
+ * The step size follows Polyak's rule, step = theta * (upper - lower) /
+ * |g|^2, where theta starts at 2 and is halved whenever the bound has not
+ * improved for a few rounds.
+ */
+public class NetworkLagrangian {
+    private static final double INITIAL_THETA = 2.0;
+    private static final int PATIENCE = 3;
+
+    /**
+     * The outcome of a solve.
+     */
+    public static final class Result {
+        private final NetworkHofkinModel.NetworkPlan plan;
+        private final double lowerBound;
+        private final int numIterations;
+        private final double runtime;
+
+        private Result(NetworkHofkinModel.NetworkPlan plan, double lowerBound, int numIterations, double runtime) {
+            this.plan = plan;
+            this.lowerBound = lowerBound;
+            this.numIterations = numIterations;
+            this.runtime = runtime;
+        }
+
+        /**
+         * The best feasible plan found.
+         */
+        public NetworkHofkinModel.NetworkPlan getPlan() {
+            return plan;
+        }
+
+        /**
+         * The best lower bound on the joint optimum.
+         */
+        public double getLowerBound() {
+            return lowerBound;
+        }
+
+        /**
+         * The gap between the plan and the bound, relative to the plan.
+         */
+        public double getGap() {
+            double objective = plan.getObjective();
+            return objective == 0.0 ? 0.0 : (objective - lowerBound) / Math.abs(objective);
+        }
+
+        public int getNumIterations() {
+            return numIterations;
+        }
+
+        /**
+         * The wall time of the solve, in seconds.
+         */
+        public double getRuntime() {
+            return runtime;
+        }
+
+        @Override
+        public String toString() {
+            return "Obj: " + plan.getObjective() + ", Bound: " + lowerBound + ", Iterations: " + numIterations
+                    + ", Runtime: " + runtime;
+        }
+    }
+
+    private final int maxIterations;
+    private final double gapTolerance;
+    private final ExecutorService executor;
+
+    /**
+     * @param maxIterations - the most rounds of program solves
+     * @param gapTolerance  - the relative gap at which to stop
+     * @param numThreads    - the number of programs solved at once
+     */
+    public NetworkLagrangian(int maxIterations, double gapTolerance, int numThreads) {
+        if (maxIterations <= 0) {
+            throw new IllegalArgumentException("Number of iterations must be positive, but was " + maxIterations
+                    + ".");
+        }
+        if (gapTolerance < 0) {
+            throw new IllegalArgumentException("Gap tolerance must be non-negative, but was " + gapTolerance + ".");
+        }
+        if (numThreads <= 0) {
+            throw new IllegalArgumentException("Number of threads must be positive, but was " + numThreads + ".");
+        }
+        this.maxIterations = maxIterations;
+        this.gapTolerance = gapTolerance;
+        this.executor = Executors.newFixedThreadPool(numThreads, new ThreadFactory() {
+            private int count = 0;
+
+            @Override
+            public synchronized Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "network-" + count++);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    public Result solve(NetworkHofkinModel.Input input, NetworkHofkinModel.Solver solver)
+            throws GRBException, InterruptedException {
+        long start = System.nanoTime();
+        NetworkHofkinModel.Layout layout = new NetworkHofkinModel.Layout(input);
+        int numAirports = layout.getNumAirports();
+        int numTimePeriods = layout.getNumTimePeriods();
+        int[][] capacity = new int[numAirports][numTimePeriods];
+        for (int a = 0; a < numAirports; a++) {
+            for (int i = 0; i < numTimePeriods; i++) {
+                capacity[a][i] = input.getDepartureCapacity(layout.getAirport(a), i);
+            }
+        }
+
+        double[][] multipliers = new double[numAirports][numTimePeriods];
+        NetworkHofkinModel.NetworkPlan best = null;
+        double lowerBound = Double.NEGATIVE_INFINITY;
+        double theta = INITIAL_THETA;
+        int sinceImprovement = 0;
+        int iteration = 0;
+        while (iteration < maxIterations) {
+            iteration++;
+            SparseModel[] programs = new SparseModel[numAirports];
+            for (int a = 0; a < numAirports; a++) {
+                programs[a] = NetworkHofkinModel.buildProgram(input, layout, a, multipliers);
+            }
+            double[] values = new double[layout.getNumVars()];
+            solveAll(programs, allAirports(numAirports), solver, layout, values);
+
+            // The relaxed objective, less the multipliers of the capacities.
+            double bound = 0.0;
+            for (int a = 0; a < numAirports; a++) {
+                bound += programs[a].getObjectiveValue(Arrays.copyOfRange(values, layout.getBlockStart(a),
+                        layout.getBlockStart(a) + layout.getBlockSize(a)));
+                for (int i = 0; i < numTimePeriods; i++) {
+                    if (capacity[a][i] != NetworkHofkinModel.UNLIMITED) {
+                        bound -= multipliers[a][i] * capacity[a][i];
+                    }
+                }
+            }
+            if (bound > lowerBound + 1e-9) {
+                lowerBound = bound;
+                sinceImprovement = 0;
+            } else if (++sinceImprovement >= PATIENCE) {
+                theta /= 2;
+                sinceImprovement = 0;
+            }
+
+            NetworkHofkinModel.NetworkPlan plan = new NetworkHofkinModel.NetworkPlan(input, layout, values);
+            if (!plan.isFeasible()) {
+                plan = repair(input, layout, multipliers, capacity, programs, values, solver);
+            }
+            if (best == null || plan.getObjective() < best.getObjective()) {
+                best = plan;
+            }
+            double upperBound = best.getObjective();
+            if (upperBound - lowerBound <= gapTolerance * Math.abs(upperBound)) {
+                break;
+            }
+
+            int[][] used = layout.getSlotsUsed(values);
+            double norm = 0.0;
+            double[][] subgradient = new double[numAirports][numTimePeriods];
+            for (int a = 0; a < numAirports; a++) {
+                for (int i = 0; i < numTimePeriods; i++) {
+                    if (capacity[a][i] == NetworkHofkinModel.UNLIMITED) {
+                        continue;
+                    }
+                    subgradient[a][i] = used[a][i] - capacity[a][i];
+                    // A multiplier at zero cannot decrease, so its direction
+                    // does not count.
+                    if (subgradient[a][i] > 0 || multipliers[a][i] > 0) {
+                        norm += subgradient[a][i] * subgradient[a][i];
+                    }
+                }
+            }
+            if (norm == 0.0) {
+                break;
+            }
+            double step = theta * (upperBound - lowerBound) / norm;
+            for (int a = 0; a < numAirports; a++) {
+                for (int i = 0; i < numTimePeriods; i++) {
+                    multipliers[a][i] = Math.max(0.0, multipliers[a][i] + step * subgradient[a][i]);
+                }
+            }
+        }
+        return new Result(best, lowerBound, iteration, (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Shares the capacity of each airport and period among the buckets
+     * leaving it, and solves the programs which get fewer slots than they
+     * used again with their shares as bounds.
+     */
+    private NetworkHofkinModel.NetworkPlan repair(NetworkHofkinModel.Input input, NetworkHofkinModel.Layout layout,
+                                                  double[][] multipliers, int[][] capacity,
+                                                  SparseModel[] programs, double[] values,
+                                                  NetworkHofkinModel.Solver solver)
+            throws GRBException, InterruptedException {
+        int numAirports = layout.getNumAirports();
+        int numTimePeriods = layout.getNumTimePeriods();
+        int[][] used = layout.getSlotsUsed(values);
+        // The slots of each bucket, by airport, bucket and period.
+        int[][][] slots = new int[numAirports][][];
+        for (int a = 0; a < numAirports; a++) {
+            slots[a] = new int[layout.getNumBuckets(a)][];
+            for (int k = 0; k < layout.getNumBuckets(a); k++) {
+                slots[a][k] = new int[layout.getNumSlotPeriods(a, k)];
+                for (int i = 0; i < slots[a][k].length; i++) {
+                    slots[a][k][i] = layout.getSlotsUsed(a, k, i, values, layout.getBlockStart(a));
+                }
+            }
+        }
+
+        boolean[] resolve = new boolean[numAirports];
+        for (int o = 0; o < numAirports; o++) {
+            for (int i = 0; i < numTimePeriods; i++) {
+                if (capacity[o][i] == NetworkHofkinModel.UNLIMITED || used[o][i] <= capacity[o][i]) {
+                    continue;
+                }
+                // Largest remainder shares of the capacity.
+                List<int[]> claims = new ArrayList<int[]>();
+                for (int a = 0; a < numAirports; a++) {
+                    for (int k = 0; k < layout.getNumBuckets(a); k++) {
+                        if (layout.getOriginPosition(a, k) == o && i < slots[a][k].length && slots[a][k][i] > 0) {
+                            claims.add(new int[]{a, k});
+                        }
+                    }
+                }
+                int remaining = capacity[o][i];
+                double[] remainders = new double[claims.size()];
+                int[] shares = new int[claims.size()];
+                for (int c = 0; c < claims.size(); c++) {
+                    int[] claim = claims.get(c);
+                    double exact = (double) capacity[o][i] * slots[claim[0]][claim[1]][i] / used[o][i];
+                    shares[c] = (int) Math.floor(exact);
+                    remainders[c] = exact - shares[c];
+                    remaining -= shares[c];
+                }
+                for (; remaining > 0; remaining--) {
+                    int largest = 0;
+                    for (int c = 1; c < claims.size(); c++) {
+                        if (remainders[c] > remainders[largest]) {
+                            largest = c;
+                        }
+                    }
+                    shares[largest]++;
+                    remainders[largest] = -1.0;
+                }
+                for (int c = 0; c < claims.size(); c++) {
+                    int[] claim = claims.get(c);
+                    slots[claim[0]][claim[1]][i] = shares[c];
+                    resolve[claim[0]] = true;
+                }
+            }
+        }
+
+        // Every program keeps within its slots, so that the programs solved
+        // again cannot take the slots of those which are not.
+        double[] repaired = values.clone();
+        List<Integer> airports = new ArrayList<Integer>();
+        for (int a = 0; a < numAirports; a++) {
+            if (!resolve[a]) {
+                continue;
+            }
+            airports.add(a);
+            programs[a] = NetworkHofkinModel.buildProgram(input, layout, a, multipliers);
+            for (int k = 0; k < layout.getNumBuckets(a); k++) {
+                int o = layout.getOriginPosition(a, k);
+                for (int i = 0; i < slots[a][k].length; i++) {
+                    if (capacity[o][i] != NetworkHofkinModel.UNLIMITED) {
+                        programs[a].setBounds(layout.slotVar(a, k, i), 0.0, slots[a][k][i]);
+                    }
+                }
+            }
+        }
+        solveAll(programs, airports, solver, layout, repaired);
+        return new NetworkHofkinModel.NetworkPlan(input, layout, repaired);
+    }
+
+    private static List<Integer> allAirports(int numAirports) {
+        List<Integer> airports = new ArrayList<Integer>(numAirports);
+        for (int a = 0; a < numAirports; a++) {
+            airports.add(a);
+        }
+        return airports;
+    }
+
+    /**
+     * Solves the programs of the given airports in parallel and copies their
+     * values into their blocks.
+     */
+    private void solveAll(final SparseModel[] programs, List<Integer> airports,
+                          final NetworkHofkinModel.Solver solver, NetworkHofkinModel.Layout layout, double[] values)
+            throws GRBException, InterruptedException {
+        List<Future<double[]>> futures = new ArrayList<Future<double[]>>();
+        for (final int a : airports) {
+            futures.add(executor.submit(new Callable<double[]>() {
+                @Override
+                public double[] call() throws GRBException {
+                    return solver.solve(programs[a]);
+                }
+            }));
+        }
+
+        // Wait for all programs before reporting a failure, so that no solve
+        // is left running.
+        Throwable failure = null;
+        for (int k = 0; k < futures.size(); k++) {
+            int a = airports.get(k);
+            try {
+                double[] programValues = futures.get(k).get();
+                if (programValues == null) {
+                    if (failure == null) {
+                        failure = new IllegalStateException("The program of " + layout.getAirport(a)
+                                + " has no solution.");
+                    }
+                } else {
+                    System.arraycopy(programValues, 0, values, layout.getBlockStart(a), programValues.length);
+                }
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+            }
+        }
+        if (failure instanceof GRBException) {
+            throw (GRBException) failure;
+        } else if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure != null) {
+            throw new IllegalStateException(failure);
+        }
+    }
+
+    /**
+     * Stops the worker threads. Solves which are running are finished.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,285 @@
+package ips;
+
+import gurobi.GRB;
+import gurobi.GRBEnv;
+import gurobi.GRBException;
+import gurobi.GRBModel;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Builds and solves the MH, MHD and DHD models of one instance concurrently.
+ * The models are independent, so the time of a comparison is roughly that of
+ * the slowest model. Each model gets its own Gurobi environment, since an
+ * environment must not be used by several threads at once, and its own
+ * thread budget, so that the three solves do not oversubscribe the machine.
+ */
+public class ParallelComparison {
+    /**
+     * The tolerance of the cross-check. Objectives above 0.5 are compared
+     * relative to the DHD objective, smaller ones absolutely.
+     */
+    public static final double TOLERANCE = 0.001;
+
+    /**
+     * The outcome of solving one of the models.
+     */
+    public static final class ModelResult {
+        private final String name;
+        private final int status;
+        private final double objective;
+        private final double runtime;
+        private final double nodes;
+        private final double averageDiversions;
+
+        public ModelResult(String name, int status, double objective, double runtime, double nodes,
+                           double averageDiversions) {
+            this.name = name;
+            this.status = status;
+            this.objective = objective;
+            this.runtime = runtime;
+            this.nodes = nodes;
+            this.averageDiversions = averageDiversions;
+        }
+
+        /**
+         * Reads the result of a solved model. The objective is NaN unless the
+         * model was solved to optimality.
+         */
+        public static ModelResult fromModel(String name, GRBModel model, double averageDiversions)
+                throws GRBException {
+            int status = model.get(GRB.IntAttr.Status);
+            double objective = status == GRB.Status.OPTIMAL ? model.get(GRB.DoubleAttr.ObjVal) : Double.NaN;
+            return new ModelResult(name, status, objective, model.get(GRB.DoubleAttr.Runtime),
+                    model.get(GRB.DoubleAttr.NodeCount), averageDiversions);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public boolean isOptimal() {
+            return status == GRB.Status.OPTIMAL;
+        }
+
+        public double getObjective() {
+            return objective;
+        }
+
+        public double getRuntime() {
+            return runtime;
+        }
+
+        public double getNodes() {
+            return nodes;
+        }
+
+        /**
+         * The expected number of diversions, or NaN for the MH model.
+         */
+        public double getAverageDiversions() {
+            return averageDiversions;
+        }
+
+        @Override
+        public String toString() {
+            return name + ": Status: " + status + ", Obj: " + objective + ", Runtime: " + runtime + ", Nodes: "
+                    + nodes;
+        }
+    }
+
+    /**
+     * The results of the three models of one instance.
+     */
+    public static final class Result {
+        private final ModelResult mh;
+        private final ModelResult mhd;
+        private final ModelResult dhd;
+        private final double wallTime;
+
+        public Result(ModelResult mh, ModelResult mhd, ModelResult dhd, double wallTime) {
+            this.mh = mh;
+            this.mhd = mhd;
+            this.dhd = dhd;
+            this.wallTime = wallTime;
+        }
+
+        public ModelResult getMh() {
+            return mh;
+        }
+
+        public ModelResult getMhd() {
+            return mhd;
+        }
+
+        public ModelResult getDhd() {
+            return dhd;
+        }
+
+        /**
+         * The elapsed time of the whole comparison in seconds.
+         */
+        public double getWallTime() {
+            return wallTime;
+        }
+
+        /**
+         * The difference between the MHD and DHD objectives, relative if the
+         * DHD objective is above 0.5 and absolute otherwise. NaN unless both
+         * were solved to optimality.
+         */
+        public double getObjectiveDifference() {
+            if (!mhd.isOptimal() || !dhd.isOptimal()) {
+                return Double.NaN;
+            }
+            double difference = Math.abs(dhd.getObjective() - mhd.getObjective());
+            return dhd.getObjective() > 0.5 ? difference / dhd.getObjective() : difference;
+        }
+
+        /**
+         * Whether MHD and DHD were both solved to optimality with the same
+         * objective.
+         */
+        public boolean isConsistent() {
+            return getObjectiveDifference() <= TOLERANCE;
+        }
+    }
+
+    private final int threadsPerModel;
+    private final boolean aggregateFlights;
+    private final boolean verbose;
+    private final ExecutorService executor;
+
+    /**
+     * @param threadsPerModel
+     *            - the Threads parameter of each model; 0 lets Gurobi decide
+     * @param aggregateFlights
+     *            - whether to solve MH and MHD with {@link AggregatedMHModel}
+     */
+    public ParallelComparison(int threadsPerModel, boolean aggregateFlights, boolean verbose) {
+        if (threadsPerModel < 0) {
+            throw new IllegalArgumentException("Threads per model must be non-negative, but was "
+                    + threadsPerModel + ".");
+        }
+        this.threadsPerModel = threadsPerModel;
+        this.aggregateFlights = aggregateFlights;
+        this.verbose = verbose;
+        this.executor = Executors.newFixedThreadPool(3, new ThreadFactory() {
+            private int count = 0;
+
+            @Override
+            public synchronized Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "comparison-" + count++);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    public Result compare(final MHDynModel.Input mhInput, final ExtendedHofkinModel.Input dhInput)
+            throws GRBException, InterruptedException {
+        long start = System.nanoTime();
+        Future<ModelResult> mh = executor.submit(new Callable<ModelResult>() {
+            @Override
+            public ModelResult call() throws GRBException {
+                GRBEnv env = createEnv();
+                try {
+                    GRBModel model = aggregateFlights
+                            ? AggregatedMHModel.solveModel(mhInput, env, false, verbose)
+                            : MHDynModel.solveMhModel(mhInput, env, verbose);
+                    try {
+                        return ModelResult.fromModel("MH", model, Double.NaN);
+                    } finally {
+                        model.dispose();
+                    }
+                } finally {
+                    env.dispose();
+                }
+            }
+        });
+        Future<ModelResult> mhd = executor.submit(new Callable<ModelResult>() {
+            @Override
+            public ModelResult call() throws GRBException {
+                GRBEnv env = createEnv();
+                try {
+                    GRBModel model = aggregateFlights
+                            ? AggregatedMHModel.solveModel(mhInput, env, true, verbose)
+                            : MHDynModel.solveMhdModel(mhInput, env, verbose);
+                    try {
+                        return ModelResult.fromModel("MHD", model, MHDynModel.getAverageDiversions(mhInput, model));
+                    } finally {
+                        model.dispose();
+                    }
+                } finally {
+                    env.dispose();
+                }
+            }
+        });
+        Future<ModelResult> dhd = executor.submit(new Callable<ModelResult>() {
+            @Override
+            public ModelResult call() throws GRBException {
+                GRBEnv env = createEnv();
+                try {
+                    GRBModel model = ExtendedHofkinModel.solveModel(dhInput, env, verbose);
+                    try {
+                        return ModelResult.fromModel("DHD", model,
+                                ExtendedHofkinModel.getAverageDiversions(dhInput, model));
+                    } finally {
+                        model.dispose();
+                    }
+                } finally {
+                    env.dispose();
+                }
+            }
+        });
+
+        // Wait for all three before reporting a failure, so that no solve is
+        // left running.
+        ModelResult[] results = new ModelResult[3];
+        Throwable failure = null;
+        Future<?>[] futures = {mh, mhd, dhd};
+        for (int k = 0; k < futures.length; k++) {
+            try {
+                results[k] = (ModelResult) futures[k].get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+            }
+        }
+        if (failure instanceof GRBException) {
+            throw (GRBException) failure;
+        } else if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure != null) {
+            throw new IllegalStateException(failure);
+        }
+        return new Result(results[0], results[1], results[2], (System.nanoTime() - start) / 1e9);
+    }
+
+    private GRBEnv createEnv() throws GRBException {
+        GRBEnv env = new GRBEnv(true);
+        if (!verbose) {
+            env.set(GRB.IntParam.OutputFlag, 0);
+        }
+        env.set(GRB.IntParam.Threads, threadsPerModel);
+        env.start();
+        return env;
+    }
+
+    /**
+     * Stops the worker threads. Comparisons which are running are finished.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
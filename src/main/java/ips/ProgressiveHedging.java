@@ -0,0 +1,840 @@
+package ips;
+
+import gurobi.GRB;
+import gurobi.GRBEnv;
+import gurobi.GRBException;
+import gurobi.GRBLinExpr;
+import gurobi.GRBModel;
+import gurobi.GRBQuadExpr;
+import gurobi.GRBVar;
+import lp.BranchAndBound;
+import lp.GurobiAdapter;
+import lp.LinearExpr;
+import lp.Solution;
+import lp.SparseModel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Progressive hedging decomposition of the scenario-tree models. Each scenario
+ * is solved as its own deterministic model on a separate environment, and
+ * nonanticipativity over the nodes of the scenario tree is enforced through
+ * multiplier and proximal penalty terms which are updated every iteration.
+ */
+public final class ProgressiveHedging {
+
+    /**
+     * Describes how to build the single-scenario subproblems of a formulation
+     * and which of their variables must be nonanticipative.
+     */
+    public interface Formulation {
+        int getNumTimePeriods();
+
+        Iterable<Integer> getScenarios();
+
+        double getScenProbability(int s);
+
+        Iterable<? extends Iterable<Integer>> getNodes(int i);
+
+        SparseModel buildScenarioModel(int scenario);
+
+        /**
+         * The names of the variables decided in the given time period. The
+         * list must be ordered identically for every scenario.
+         */
+        List<String> getDecisionVarNames(int scenario, int timePeriod);
+    }
+
+    public interface Listener {
+        void iterationFinished(IterationStats stats);
+    }
+
+    /**
+     * Loads the models of the scenarios for repeated solves.
+     */
+    public interface SubproblemSolver {
+        /**
+         * Loads the model of a scenario, whose decision variables are at the
+         * given indices of the model.
+         */
+        ScenarioModel load(int scenario, SparseModel model, int[] decisionVars) throws GRBException;
+    }
+
+    /**
+     * The loaded model of one scenario.
+     */
+    public interface ScenarioModel {
+        /**
+         * Minimizes the cost of the scenario plus the penalty
+         * multipliers[j] x_j + rho / 2 (x_j - averages[j])^2 on each decision
+         * x_j, or the cost alone if the multipliers are null. Returns the
+         * values of the variables of the scenario model.
+         */
+        double[] solve(double[] multipliers, double[] averages, double rho) throws GRBException;
+
+        void dispose();
+    }
+
+    public static class IterationStats {
+        private final int iteration;
+        private final double expectedCost;
+        private final double lowerBound;
+        private final double primalResidual;
+        private final double maxDeviation;
+        private final double elapsedSeconds;
+
+        public IterationStats(int iteration, double expectedCost, double lowerBound, double primalResidual,
+                              double maxDeviation, double elapsedSeconds) {
+            this.iteration = iteration;
+            this.expectedCost = expectedCost;
+            this.lowerBound = lowerBound;
+            this.primalResidual = primalResidual;
+            this.maxDeviation = maxDeviation;
+            this.elapsedSeconds = elapsedSeconds;
+        }
+
+        public int getIteration() {
+            return iteration;
+        }
+
+        /**
+         * Probability-weighted cost of the scenario solutions, excluding the
+         * penalty terms.
+         */
+        public double getExpectedCost() {
+            return expectedCost;
+        }
+
+        /**
+         * The wait-and-see bound obtained in the first iteration.
+         */
+        public double getLowerBound() {
+            return lowerBound;
+        }
+
+        /**
+         * Probability-weighted sum of the absolute deviations of the scenario
+         * decisions from their node averages.
+         */
+        public double getPrimalResidual() {
+            return primalResidual;
+        }
+
+        public double getMaxDeviation() {
+            return maxDeviation;
+        }
+
+        public double getElapsedSeconds() {
+            return elapsedSeconds;
+        }
+
+        @Override
+        public String toString() {
+            return "Iteration: " + iteration + ", Cost: " + expectedCost + ", Bound: " + lowerBound
+                    + ", Residual: " + primalResidual + ", Max Dev.: " + maxDeviation + ", Time: " + elapsedSeconds;
+        }
+    }
+
+    public static class Result {
+        private final boolean converged;
+        private final List<IterationStats> iterations;
+        private final Map<String, Double> consensus;
+        private final Map<String, Double> scenarioValues;
+
+        public Result(boolean converged, List<IterationStats> iterations, Map<String, Double> consensus,
+                      Map<String, Double> scenarioValues) {
+            this.converged = converged;
+            this.iterations = new ArrayList<IterationStats>(iterations);
+            this.consensus = new HashMap<String, Double>(consensus);
+            this.scenarioValues = new HashMap<String, Double>(scenarioValues);
+        }
+
+        public boolean isConverged() {
+            return converged;
+        }
+
+        public List<IterationStats> getIterations() {
+            return new ArrayList<IterationStats>(iterations);
+        }
+
+        public IterationStats getLastIteration() {
+            return iterations.get(iterations.size() - 1);
+        }
+
+        /**
+         * The node average of a decision variable, looked up by its name in
+         * any scenario.
+         */
+        public double getConsensusValue(String varName) {
+            return consensus.get(varName);
+        }
+
+        /**
+         * The value of a decision variable in the last solution of its own
+         * scenario. These agree with the node averages once converged.
+         */
+        public double getScenarioValue(String varName) {
+            return scenarioValues.get(varName);
+        }
+    }
+
+    /**
+     * The number of integer breakpoints on each side of the average at which
+     * {@link #withBranchAndBound} represents the proximal term exactly.
+     */
+    public static final int PROXIMAL_BREAKPOINTS = 3;
+
+    private final Formulation formulation;
+    private final double rho;
+    private final double tolerance;
+    private final int maxIterations;
+    private final int numThreads;
+    private final SubproblemSolver solver;
+    private final Listener listener;
+
+    public ProgressiveHedging(Formulation formulation, double rho, double tolerance, int maxIterations,
+                              int numThreads, SubproblemSolver solver, Listener listener) {
+        this.formulation = formulation;
+        this.rho = rho;
+        this.tolerance = tolerance;
+        this.maxIterations = maxIterations;
+        this.numThreads = numThreads;
+        this.solver = solver;
+        this.listener = listener;
+    }
+
+    public ProgressiveHedging(Formulation formulation, double rho, double tolerance, int maxIterations,
+                              int numThreads, int threadsPerSubproblem, Listener listener) {
+        this(formulation, rho, tolerance, maxIterations, numThreads, withGurobi(threadsPerSubproblem), listener);
+    }
+
+    public ProgressiveHedging(Formulation formulation, double rho, double tolerance, int maxIterations) {
+        this(formulation, rho, tolerance, maxIterations, Runtime.getRuntime().availableProcessors(), 1, null);
+    }
+
+    public Result solve() throws GRBException, InterruptedException {
+        long startTime = System.nanoTime();
+        int numTimePeriods = formulation.getNumTimePeriods();
+        List<Integer> scenarioList = new ArrayList<Integer>();
+        for (int s : formulation.getScenarios()) {
+            scenarioList.add(s);
+        }
+        Collections.sort(scenarioList);
+        int numScenarios = scenarioList.size();
+
+        // Decision variables are stored per scenario in one flat array, with
+        // periodStart[i] giving the offset of the block decided in period i.
+        int[] periodStart = new int[numTimePeriods + 1];
+        Map<Integer, Integer> scenarioIndex = new HashMap<Integer, Integer>();
+        Subproblem[] subproblems = new Subproblem[numScenarios];
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(numThreads, numScenarios)));
+        try {
+            for (int k = 0; k < numScenarios; k++) {
+                int s = scenarioList.get(k);
+                scenarioIndex.put(s, k);
+                subproblems[k] = new Subproblem(s, formulation.getScenProbability(s));
+                List<String> names = new ArrayList<String>();
+                for (int i = 0; i < numTimePeriods; i++) {
+                    List<String> periodNames = formulation.getDecisionVarNames(s, i);
+                    if (k == 0) {
+                        periodStart[i + 1] = periodStart[i] + periodNames.size();
+                    } else if (periodStart[i + 1] - periodStart[i] != periodNames.size()) {
+                        throw new IllegalArgumentException("Scenario " + s + " has " + periodNames.size()
+                                + " decisions in period " + i + ", expected " + (periodStart[i + 1] - periodStart[i]));
+                    }
+                    names.addAll(periodNames);
+                }
+                subproblems[k].names = names.toArray(new String[names.size()]);
+            }
+            setupSubproblems(executor, subproblems);
+
+            int numDecisions = periodStart[numTimePeriods];
+            List<IterationStats> history = new ArrayList<IterationStats>();
+            double lowerBound = Double.NaN;
+            boolean converged = false;
+            double[][] average = new double[numScenarios][numDecisions];
+            for (int iteration = 0; iteration < maxIterations; iteration++) {
+                solveSubproblems(executor, subproblems, iteration > 0);
+
+                double expectedCost = 0.0;
+                for (Subproblem sub : subproblems) {
+                    expectedCost += sub.probability * sub.cost;
+                }
+                if (iteration == 0) {
+                    lowerBound = expectedCost;
+                }
+
+                computeNodeAverages(subproblems, scenarioIndex, periodStart, average);
+
+                double residual = 0.0;
+                double maxDeviation = 0.0;
+                for (int k = 0; k < numScenarios; k++) {
+                    Subproblem sub = subproblems[k];
+                    for (int j = 0; j < numDecisions; j++) {
+                        double deviation = sub.values[j] - average[k][j];
+                        residual += sub.probability * Math.abs(deviation);
+                        maxDeviation = Math.max(maxDeviation, Math.abs(deviation));
+                        sub.multipliers[j] += rho * deviation;
+                        sub.averages[j] = average[k][j];
+                    }
+                }
+
+                IterationStats stats = new IterationStats(iteration, expectedCost, lowerBound, residual, maxDeviation,
+                        (System.nanoTime() - startTime) / 1e9);
+                history.add(stats);
+                if (listener != null) {
+                    listener.iterationFinished(stats);
+                }
+                if (residual <= tolerance) {
+                    converged = true;
+                    break;
+                }
+            }
+
+            Map<String, Double> consensus = new HashMap<String, Double>();
+            Map<String, Double> scenarioValues = new HashMap<String, Double>();
+            for (int k = 0; k < numScenarios; k++) {
+                for (int j = 0; j < numDecisions; j++) {
+                    consensus.put(subproblems[k].names[j], average[k][j]);
+                    scenarioValues.put(subproblems[k].names[j], subproblems[k].values[j]);
+                }
+            }
+            return new Result(converged, history, consensus, scenarioValues);
+        } finally {
+            executor.shutdownNow();
+            for (Subproblem sub : subproblems) {
+                if (sub != null) {
+                    sub.dispose();
+                }
+            }
+        }
+    }
+
+    private void computeNodeAverages(Subproblem[] subproblems, Map<Integer, Integer> scenarioIndex,
+                                     int[] periodStart, double[][] average) {
+        for (int i = 0; i < periodStart.length - 1; i++) {
+            for (Iterable<Integer> node : formulation.getNodes(i)) {
+                double totalProbability = 0.0;
+                for (int s : node) {
+                    totalProbability += subproblems[scenarioIndex.get(s)].probability;
+                }
+                for (int j = periodStart[i]; j < periodStart[i + 1]; j++) {
+                    double sum = 0.0;
+                    for (int s : node) {
+                        Subproblem sub = subproblems[scenarioIndex.get(s)];
+                        sum += sub.probability * sub.values[j];
+                    }
+                    for (int s : node) {
+                        average[scenarioIndex.get(s)][j] = sum / totalProbability;
+                    }
+                }
+            }
+        }
+    }
+
+    private void setupSubproblems(ExecutorService executor, final Subproblem[] subproblems)
+            throws GRBException, InterruptedException {
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (final Subproblem sub : subproblems) {
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() throws GRBException {
+                    sub.setup();
+                    return null;
+                }
+            });
+        }
+        runAll(executor, tasks);
+    }
+
+    private void solveSubproblems(ExecutorService executor, final Subproblem[] subproblems,
+                                  final boolean penalize) throws GRBException, InterruptedException {
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (final Subproblem sub : subproblems) {
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() throws GRBException {
+                    sub.solve(penalize);
+                    return null;
+                }
+            });
+        }
+        runAll(executor, tasks);
+    }
+
+    private static void runAll(ExecutorService executor, List<Callable<Void>> tasks)
+            throws GRBException, InterruptedException {
+        for (Future<Void> future : executor.invokeAll(tasks)) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof GRBException) {
+                    throw (GRBException) e.getCause();
+                }
+                throw new RuntimeException(e.getCause());
+            }
+        }
+    }
+
+    private class Subproblem {
+        private final int scenario;
+        private final double probability;
+        private String[] names;
+        private SparseModel sparseModel;
+        private int[] decisionVars;
+        private ScenarioModel model;
+        private double[] values;
+        private double[] multipliers;
+        private double[] averages;
+        private double cost;
+
+        private Subproblem(int scenario, double probability) {
+            this.scenario = scenario;
+            this.probability = probability;
+        }
+
+        private void setup() throws GRBException {
+            sparseModel = formulation.buildScenarioModel(scenario);
+            decisionVars = new int[names.length];
+            for (int j = 0; j < names.length; j++) {
+                decisionVars[j] = sparseModel.getVarIndex(names[j]);
+                if (decisionVars[j] < 0) {
+                    throw new IllegalArgumentException("The model of scenario " + scenario
+                            + " has no decision variable " + names[j] + ".");
+                }
+            }
+            model = solver.load(scenario, sparseModel, decisionVars);
+            values = new double[names.length];
+            multipliers = new double[names.length];
+            averages = new double[names.length];
+        }
+
+        private void solve(boolean penalize) throws GRBException {
+            double[] x = model.solve(penalize ? multipliers : null, averages, rho);
+            for (int j = 0; j < decisionVars.length; j++) {
+                values[j] = x[decisionVars[j]];
+            }
+            cost = sparseModel.getObjectiveValue(x);
+        }
+
+        private void dispose() {
+            if (model != null) {
+                model.dispose();
+            }
+        }
+    }
+
+    /**
+     * Solves each scenario with Gurobi on its own environment, with the
+     * proximal term as a quadratic objective.
+     */
+    public static SubproblemSolver withGurobi(final int threadsPerSubproblem) {
+        return new SubproblemSolver() {
+            @Override
+            public ScenarioModel load(final int scenario, SparseModel sparseModel, int[] decisionVars)
+                    throws GRBException {
+                final GRBEnv env = new GRBEnv();
+                final GRBModel model;
+                final GRBVar[] vars;
+                try {
+                    env.set(GRB.IntParam.OutputFlag, 0);
+                    env.set(GRB.IntParam.Threads, threadsPerSubproblem);
+                    model = GurobiAdapter.toGurobi(sparseModel, env);
+                } catch (GRBException e) {
+                    env.dispose();
+                    throw e;
+                }
+                final GRBVar[] allVars = model.getVars();
+                vars = new GRBVar[decisionVars.length];
+                for (int j = 0; j < decisionVars.length; j++) {
+                    vars[j] = allVars[decisionVars[j]];
+                }
+                final GRBLinExpr baseObjective = (GRBLinExpr) model.getObjective();
+                return new ScenarioModel() {
+                    @Override
+                    public double[] solve(double[] multipliers, double[] averages, double rho) throws GRBException {
+                        if (multipliers != null) {
+                            GRBQuadExpr objective = new GRBQuadExpr();
+                            objective.add(baseObjective);
+                            for (int j = 0; j < vars.length; j++) {
+                                objective.addTerm(multipliers[j] - rho * averages[j], vars[j]);
+                                objective.addTerm(rho / 2.0, vars[j], vars[j]);
+                                objective.addConstant(rho / 2.0 * averages[j] * averages[j]);
+                            }
+                            model.setObjective(objective, GRB.MINIMIZE);
+                        }
+                        model.optimize();
+                        int status = model.get(GRB.IntAttr.Status);
+                        if (status != GRB.Status.OPTIMAL) {
+                            throw new GRBException("Subproblem for scenario " + scenario + " ended with status "
+                                    + status + ".");
+                        }
+                        return model.get(GRB.DoubleAttr.X, allVars);
+                    }
+
+                    @Override
+                    public void dispose() {
+                        model.dispose();
+                        try {
+                            env.dispose();
+                        } catch (GRBException e) {
+                            // Nothing more can be done with an environment that fails to close.
+                        }
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Solves each scenario with the pure-Java branch and bound. The simplex
+     * has no quadratic objective, so the proximal term of each decision is
+     * replaced by an auxiliary variable above the secants of the parabola
+     * between consecutive integers. This is exact at the integers within
+     * {@link #PROXIMAL_BREAKPOINTS} of the average, and grows linearly
+     * beyond them.
+     */
+    public static SubproblemSolver withBranchAndBound(final BranchAndBound solver) {
+        return new SubproblemSolver() {
+            @Override
+            public ScenarioModel load(final int scenario, final SparseModel sparseModel, final int[] decisionVars) {
+                return new ScenarioModel() {
+                    @Override
+                    public double[] solve(double[] multipliers, double[] averages, double rho) throws GRBException {
+                        SparseModel model = multipliers == null ? sparseModel
+                                : addProximalTerms(sparseModel, decisionVars, multipliers, averages, rho);
+                        Solution solution = solver.solve(model);
+                        if (solution.getStatus() != Solution.Status.OPTIMAL) {
+                            throw new GRBException("Subproblem for scenario " + scenario + " ended with status "
+                                    + solution.getStatus() + ".");
+                        }
+                        return Arrays.copyOf(solution.getValues(), sparseModel.getNumVars());
+                    }
+
+                    @Override
+                    public void dispose() {
+
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Copies the model with the multipliers added to the objective of the
+     * decisions, and a piecewise-linear proximal term on each of them.
+     */
+    private static SparseModel addProximalTerms(SparseModel base, int[] decisionVars, double[] multipliers,
+                                                double[] averages, double rho) {
+        int numBreakpoints = 2 * PROXIMAL_BREAKPOINTS + 1;
+        SparseModel model = new SparseModel(base.getNumVars() + decisionVars.length,
+                base.getNumConstrs() + numBreakpoints * decisionVars.length,
+                base.getNumNonZeros() + 2 * numBreakpoints * decisionVars.length);
+        for (int j = 0; j < base.getNumVars(); j++) {
+            model.addVar(base.getLowerBound(j), base.getUpperBound(j), base.getObjective(j), base.getVarType(j),
+                    base.getVarName(j));
+        }
+        for (int c = 0; c < base.getNumConstrs(); c++) {
+            LinearExpr row = new LinearExpr();
+            for (int k = base.getRowStart(c); k < base.getRowEnd(c); k++) {
+                row.addTerm(base.getValue(k), base.getColIndex(k));
+            }
+            model.addConstr(row, base.getSense(c), base.getRhs(c), base.getConstrName(c));
+        }
+        for (int j = 0; j < decisionVars.length; j++) {
+            int x = decisionVars[j];
+            model.setObjective(x, base.getObjective(x) + multipliers[j]);
+            int t = model.addVar(0.0, SparseModel.INFINITY, 1.0, SparseModel.CONTINUOUS, getProximalVarName(j));
+            double lo = Math.max(base.getLowerBound(x), Math.floor(averages[j]) - PROXIMAL_BREAKPOINTS);
+            double hi = Math.min(base.getUpperBound(x), Math.floor(averages[j]) + PROXIMAL_BREAKPOINTS + 1);
+            for (double k = lo; k < hi; k++) {
+                double value = rho / 2.0 * (k - averages[j]) * (k - averages[j]);
+                double slope = rho / 2.0 * (2.0 * (k - averages[j]) + 1.0);
+                LinearExpr secant = new LinearExpr();
+                secant.addTerm(1.0, t);
+                secant.addTerm(-slope, x);
+                model.addConstr(secant, SparseModel.GREATER_EQUAL, value - slope * k, getProximalConstrName(j, k));
+            }
+        }
+        return model;
+    }
+
+    private static String getProximalVarName(int decision) {
+        return "PROX:" + decision;
+    }
+
+    private static String getProximalConstrName(int decision, double breakpoint) {
+        return "PROX_SECANT:" + decision + "," + (long) breakpoint;
+    }
+
+    public static Formulation dhoffkinFormulation(final ExtendedHofkinModel.Input input) {
+        final List<Integer> durations = new ArrayList<Integer>();
+        for (int d : input.getFlightDurations()) {
+            durations.add(d);
+        }
+        Collections.sort(durations);
+        final ExtendedHofkinModel.Layout layout = new ExtendedHofkinModel.Layout(input);
+        return new Formulation() {
+            @Override
+            public int getNumTimePeriods() {
+                return input.getNumTimePeriods();
+            }
+
+            @Override
+            public Iterable<Integer> getScenarios() {
+                return input.getScenarios();
+            }
+
+            @Override
+            public double getScenProbability(int s) {
+                return input.getScenProbability(s);
+            }
+
+            @Override
+            public Iterable<? extends Iterable<Integer>> getNodes(int i) {
+                return input.getNodes(i);
+            }
+
+            @Override
+            public SparseModel buildScenarioModel(int scenario) {
+                return ExtendedHofkinModel.buildModel(new DHoffkinScenarioInput(input, scenario));
+            }
+
+            @Override
+            public List<String> getDecisionVarNames(int scenario, int timePeriod) {
+                List<String> names = new ArrayList<String>();
+                for (int d : durations) {
+                    if (timePeriod < layout.getNumDepartPeriods(d)) {
+                        names.add(ExtendedHofkinModel.getDepartVarName(scenario, timePeriod, d));
+                    }
+                    if (timePeriod < layout.getNumGroundPeriods(d)) {
+                        names.add(ExtendedHofkinModel.getGroundVarName(scenario, timePeriod, d));
+                    }
+                }
+                return names;
+            }
+        };
+    }
+
+    public static Formulation mhdFormulation(final MHDynModel.Input input) {
+        final List<DiscreteFlight> flights = new ArrayList<DiscreteFlight>();
+        for (DiscreteFlight f : input.getFlights()) {
+            flights.add(f);
+        }
+        Collections.sort(flights, new Comparator<DiscreteFlight>() {
+            @Override
+            public int compare(DiscreteFlight f1, DiscreteFlight f2) {
+                return Integer.compare(f1.getFlightId(), f2.getFlightId());
+            }
+        });
+        final MHDynModel.Layout layout = new MHDynModel.Layout(input, true);
+        return new Formulation() {
+            @Override
+            public int getNumTimePeriods() {
+                return input.getNumTimePeriods();
+            }
+
+            @Override
+            public Iterable<Integer> getScenarios() {
+                return input.getScenarios();
+            }
+
+            @Override
+            public double getScenProbability(int s) {
+                return input.getScenProbability(s);
+            }
+
+            @Override
+            public Iterable<? extends Iterable<Integer>> getNodes(int i) {
+                return input.getNodes(i);
+            }
+
+            @Override
+            public SparseModel buildScenarioModel(int scenario) {
+                return MHDynModel.buildMhdModel(new MHScenarioInput(input, scenario));
+            }
+
+            @Override
+            public List<String> getDecisionVarNames(int scenario, int timePeriod) {
+                List<String> names = new ArrayList<String>();
+                for (DiscreteFlight f : flights) {
+                    if (timePeriod >= f.getDepartTimePeriod()
+                            && timePeriod < f.getDepartTimePeriod() + layout.getNumDepartPeriods(f)) {
+                        names.add(MHDynModel.getDepartVarName(f.getFlightId(), timePeriod, scenario));
+                    }
+                }
+                return names;
+            }
+        };
+    }
+
+    /**
+     * Restricts a DHoffkin input to a single scenario which occurs with
+     * certainty.
+     */
+    private static class DHoffkinScenarioInput implements ExtendedHofkinModel.Input {
+        private final ExtendedHofkinModel.Input input;
+        private final int scenario;
+
+        private DHoffkinScenarioInput(ExtendedHofkinModel.Input input, int scenario) {
+            this.input = input;
+            this.scenario = scenario;
+        }
+
+        @Override
+        public int getNumTimePeriods() {
+            return input.getNumTimePeriods();
+        }
+
+        @Override
+        public double getGroundCost() {
+            return input.getGroundCost();
+        }
+
+        @Override
+        public double getAirCost() {
+            return input.getAirCost();
+        }
+
+        @Override
+        public double getDivertCost() {
+            return input.getDivertCost();
+        }
+
+        @Override
+        public int getMaxAirborne() {
+            return input.getMaxAirborne();
+        }
+
+        @Override
+        public double getScenProbability(int s) {
+            return 1.0;
+        }
+
+        @Override
+        public Iterable<Integer> getScenarios() {
+            return Collections.singleton(scenario);
+        }
+
+        @Override
+        public Iterable<? extends Iterable<Integer>> getNodes(int i) {
+            return Collections.singleton(Collections.singleton(scenario));
+        }
+
+        @Override
+        public double getCapacity(int s, int timePeriod) {
+            return input.getCapacity(s, timePeriod);
+        }
+
+        @Override
+        public Iterable<Integer> getFlightDurations() {
+            return input.getFlightDurations();
+        }
+
+        @Override
+        public double getNumDeparting(int duration, int timePeriod) {
+            return input.getNumDeparting(duration, timePeriod);
+        }
+
+        @Override
+        public double getEnroute(int i) {
+            return input.getEnroute(i);
+        }
+
+        @Override
+        public int getArrivalPeriod(int duration, int timePeriod) {
+            return input.getArrivalPeriod(duration, timePeriod);
+        }
+
+        @Override
+        public double getPeriodLength(int timePeriod) {
+            return input.getPeriodLength(timePeriod);
+        }
+    }
+
+    private static class MHScenarioInput implements MHDynModel.Input {
+        private final MHDynModel.Input input;
+        private final int scenario;
+
+        private MHScenarioInput(MHDynModel.Input input, int scenario) {
+            this.input = input;
+            this.scenario = scenario;
+        }
+
+        @Override
+        public int getNumTimePeriods() {
+            return input.getNumTimePeriods();
+        }
+
+        @Override
+        public double getGroundCost() {
+            return input.getGroundCost();
+        }
+
+        @Override
+        public double getAirCost() {
+            return input.getAirCost();
+        }
+
+        @Override
+        public double getDivertCost() {
+            return input.getDivertCost();
+        }
+
+        @Override
+        public int getMaxAirborne() {
+            return input.getMaxAirborne();
+        }
+
+        @Override
+        public double getScenProbability(int s) {
+            return 1.0;
+        }
+
+        @Override
+        public Iterable<Integer> getScenarios() {
+            return Collections.singleton(scenario);
+        }
+
+        @Override
+        public Iterable<? extends Iterable<Integer>> getNodes(int i) {
+            return Collections.singleton(Collections.singleton(scenario));
+        }
+
+        @Override
+        public double getCapacity(int s, int timePeriod) {
+            return input.getCapacity(s, timePeriod);
+        }
+
+        @Override
+        public Iterable<DiscreteFlight> getFlights() {
+            return input.getFlights();
+        }
+
+        @Override
+        public double getEnroute(int i) {
+            return input.getEnroute(i);
+        }
+
+        @Override
+        public int getArrivalPeriod(int duration, int timePeriod) {
+            return input.getArrivalPeriod(duration, timePeriod);
+        }
+
+        @Override
+        public double getPeriodLength(int timePeriod) {
+            return input.getPeriodLength(timePeriod);
+        }
+    }
+}
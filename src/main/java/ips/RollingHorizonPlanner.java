@@ -0,0 +1,446 @@
+package ips;
+
+import gurobi.GRB;
+import gurobi.GRBEnv;
+import gurobi.GRBException;
+import gurobi.GRBModel;
+import gurobi.GRBVar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import lp.GurobiAdapter;
+import lp.SparseModel;
+import scenarios.DiscreteScenarioTree;
+
+/**
+ * Re-plans ground holds with {@link ExtendedHofkinModel} over a planning
+ * window which moves forward through a schedule. After a window is solved,
+ * {@link #advance} commits the decisions of its first periods under the
+ * scenario that was realized. Those decisions leave the model: flights held
+ * on the ground are added to the demand of the next window, and flights
+ * which are airborne, either queued or still en route, are added to its
+ * en-route counts.
+ * <p>
+ * Each window has the same length, so when the scenario tree keeps the same
+ * scenarios and nodes, consecutive windows only differ in bounds, costs and
+ * right-hand sides. The Gurobi model is then updated in place instead of
+ * rebuilt. Every re-plan is also given the previous plan, shifted by the
+ * number of periods advanced, as a MIP start.
+ * <p>
+ * A flight of duration d can only depart in the first windowLength - d + 1
+ * periods of a window, so every window must let flights of the longest
+ * duration depart in each period that is committed. The planner therefore
+ * rejects durations longer than the window, and advancing by more than
+ * windowLength - d + 1 periods, since the flights which could not depart in
+ * the committed periods would be lost.
+ */
+public class RollingHorizonPlanner {
+
+    /**
+     * The result of solving one planning window.
+     */
+    public static final class Step {
+        private final int windowStart;
+        private final int status;
+        private final double objective;
+        private final double runtime;
+        private final double nodes;
+        private final boolean reusedModel;
+        private final boolean warmStarted;
+        private final double committedCost;
+
+        private Step(int windowStart, int status, double objective, double runtime, double nodes,
+                     boolean reusedModel, boolean warmStarted, double committedCost) {
+            this.windowStart = windowStart;
+            this.status = status;
+            this.objective = objective;
+            this.runtime = runtime;
+            this.nodes = nodes;
+            this.reusedModel = reusedModel;
+            this.warmStarted = warmStarted;
+            this.committedCost = committedCost;
+        }
+
+        /**
+         * The period of the schedule at which the window starts.
+         */
+        public int getWindowStart() {
+            return windowStart;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        /**
+         * The expected cost of the window, not including committed costs.
+         */
+        public double getObjective() {
+            return objective;
+        }
+
+        public double getRuntime() {
+            return runtime;
+        }
+
+        public double getNodes() {
+            return nodes;
+        }
+
+        /**
+         * Whether the model of the previous window was updated in place.
+         */
+        public boolean isReusedModel() {
+            return reusedModel;
+        }
+
+        public boolean isWarmStarted() {
+            return warmStarted;
+        }
+
+        /**
+         * The cost of all decisions committed before this window started.
+         */
+        public double getCommittedCost() {
+            return committedCost;
+        }
+
+        @Override
+        public String toString() {
+            return "Start: " + windowStart + ", Status: " + status + ", Obj: " + objective + ", Committed: "
+                    + committedCost + ", Runtime: " + runtime + ", Nodes: " + nodes + ", Reused: " + reusedModel
+                    + ", Warm: " + warmStarted;
+        }
+    }
+
+    private final GRBEnv env;
+    private final DHoffkinFlightParser.DemandStruct schedule;
+    private final int windowLength;
+    private final int maxAirborne;
+    private final double groundCost;
+    private final double airCost;
+    private final double divertCost;
+    private final boolean verbose;
+
+    private int windowStart;
+    private final HashMap<Integer, Integer> heldOnGround;
+    private final int[] carriedEnroute;
+    private double committedCost;
+
+    private DHoffkinInput input;
+    private ExtendedHofkinModel.Layout layout;
+    private SparseModel sparseModel;
+    private GRBModel model;
+    private double[] values;
+    private double[] start;
+
+    /**
+     * @param schedule     - the scheduled departures and en-route arrivals of
+     *                     the whole day, starting at period 0
+     * @param windowLength - the number of periods in each planning window
+     */
+    public RollingHorizonPlanner(GRBEnv env, DHoffkinFlightParser.DemandStruct schedule, int windowLength,
+                                 int maxAirborne, double groundCost, double airCost, double divertCost,
+                                 boolean verbose) {
+        if (windowLength <= 0) {
+            throw new IllegalArgumentException("Window length must be positive: " + windowLength);
+        }
+        int maxDuration = getMaxDuration(schedule);
+        if (maxDuration > windowLength) {
+            throw new IllegalArgumentException("The window must be at least as long as the longest flight, "
+                    + maxDuration + " periods, but was " + windowLength + ".");
+        }
+        this.env = env;
+        this.schedule = schedule;
+        this.windowLength = windowLength;
+        this.maxAirborne = maxAirborne;
+        this.groundCost = groundCost;
+        this.airCost = airCost;
+        this.divertCost = divertCost;
+        this.verbose = verbose;
+        this.windowStart = 0;
+        this.heldOnGround = new HashMap<Integer, Integer>();
+        for (int d : schedule.getDurations()) {
+            heldOnGround.put(d, 0);
+        }
+        this.carriedEnroute = new int[windowLength];
+    }
+
+    private static int getMaxDuration(DHoffkinFlightParser.DemandStruct schedule) {
+        int maxDuration = 0;
+        for (int d : schedule.getDurations()) {
+            maxDuration = Math.max(maxDuration, d);
+        }
+        return maxDuration;
+    }
+
+    public int getWindowStart() {
+        return windowStart;
+    }
+
+    /**
+     * The largest number of periods by which {@link #advance} may move the
+     * window, so that flights of every duration can depart in each committed
+     * period.
+     */
+    public int getMaxStep() {
+        return Math.min(windowLength, windowLength - getMaxDuration(schedule) + 1);
+    }
+
+    public int getWindowLength() {
+        return windowLength;
+    }
+
+    /**
+     * The cost of the decisions committed so far.
+     */
+    public double getCommittedCost() {
+        return committedCost;
+    }
+
+    /**
+     * The input of the current window, or null before the first plan.
+     */
+    public DHoffkinInput getInput() {
+        return input;
+    }
+
+    /**
+     * The model of the current window, or null before the first plan. The
+     * model is owned by the planner and is disposed of by {@link #dispose}.
+     */
+    public GRBModel getModel() {
+        return model;
+    }
+
+    /**
+     * Whether the window has passed the end of the schedule and no flight is
+     * left to land.
+     */
+    public boolean isFinished() {
+        if (windowStart < schedule.getNumTimePeriods()) {
+            return false;
+        }
+        for (int held : heldOnGround.values()) {
+            if (held > 0) {
+                return false;
+            }
+        }
+        for (int enroute : carriedEnroute) {
+            if (enroute > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Solves the current window with the given capacity forecast, which must
+     * cover windowLength periods starting at the window start.
+     */
+    public Step plan(DiscreteScenarioTree tree) throws GRBException {
+        for (int s : tree.getScenarioIds()) {
+            if (tree.getScenario(s).getNumTimePeriods() < windowLength) {
+                throw new IllegalArgumentException("Scenario " + s + " has " + tree.getScenario(s).getNumTimePeriods()
+                        + " time periods, but the window has " + windowLength + ".");
+            }
+        }
+        DHoffkinInput nextInput = new DHoffkinInput(maxAirborne, groundCost, airCost, divertCost, makeWindowDemand(),
+                tree);
+        SparseModel nextSparseModel = ExtendedHofkinModel.buildModel(nextInput);
+        boolean reused = model != null && sparseModel.hasSameStructure(nextSparseModel);
+        if (reused) {
+            GurobiAdapter.updateData(model, nextSparseModel);
+        } else {
+            if (model != null) {
+                model.dispose();
+            }
+            model = GurobiAdapter.toGurobi(nextSparseModel, env);
+            if (!verbose) {
+                model.set(GRB.IntParam.OutputFlag, 0);
+            }
+        }
+        ExtendedHofkinModel.Layout nextLayout = new ExtendedHofkinModel.Layout(nextInput);
+        GRBVar[] vars = model.getVars();
+        boolean warmStarted = start != null && layout != null;
+        if (warmStarted) {
+            model.set(GRB.DoubleAttr.Start, vars, mapStart(layout, start, nextLayout));
+        }
+        input = nextInput;
+        layout = nextLayout;
+        sparseModel = nextSparseModel;
+        start = null;
+
+        model.optimize();
+        int status = model.get(GRB.IntAttr.Status);
+        double objective = Double.NaN;
+        if (model.get(GRB.IntAttr.SolCount) > 0) {
+            objective = model.get(GRB.DoubleAttr.ObjVal);
+            values = model.get(GRB.DoubleAttr.X, vars);
+        } else {
+            values = null;
+        }
+        return new Step(windowStart, status, objective, model.get(GRB.DoubleAttr.Runtime),
+                model.get(GRB.DoubleAttr.NodeCount), reused, warmStarted, committedCost);
+    }
+
+    /**
+     * Commits the decisions of the first numPeriods periods of the current
+     * plan under the realized scenario, and moves the window forward. The
+     * next window should then be solved with {@link #plan}.
+     */
+    public void advance(int numPeriods, int realizedScenario) {
+        if (values == null) {
+            throw new IllegalStateException("There is no plan to advance. The window starting at " + windowStart
+                    + " has not been solved to a feasible solution.");
+        }
+        if (numPeriods <= 0 || numPeriods > getMaxStep()) {
+            throw new IllegalArgumentException("Cannot advance by " + numPeriods + " periods in a window of "
+                    + windowLength + ". Flights of duration " + getMaxDuration(schedule)
+                    + " can only depart in the first " + getMaxStep() + " periods of a window.");
+        }
+        int sPos = layout.getScenarioPosition(realizedScenario);
+        int last = numPeriods - 1;
+
+        for (int i = 0; i < numPeriods; i++) {
+            committedCost += airCost * Math.round(values[layout.airVar(sPos, i)])
+                    + divertCost * Math.round(values[layout.divertVar(sPos, i)]);
+        }
+
+        int[] nextEnroute = new int[windowLength];
+        for (int i = numPeriods; i < windowLength; i++) {
+            nextEnroute[i - numPeriods] = carriedEnroute[i];
+        }
+        nextEnroute[0] += (int) Math.round(values[layout.airVar(sPos, last)]);
+        for (int dPos = 0; dPos < layout.getNumDurations(); dPos++) {
+            int d = layout.getDuration(dPos);
+            for (int i = 0; i < Math.min(numPeriods, layout.getNumGroundPeriods(d)); i++) {
+                committedCost += groundCost * Math.round(values[layout.groundVar(sPos, dPos, i)]);
+            }
+            int held = last < layout.getNumGroundPeriods(d)
+                    ? (int) Math.round(values[layout.groundVar(sPos, dPos, last)]) : 0;
+            heldOnGround.put(d, held);
+            for (int i = 0; i < Math.min(numPeriods, layout.getNumDepartPeriods(d)); i++) {
+                int arrival = i + d - numPeriods;
+                if (arrival >= 0 && arrival < windowLength) {
+                    nextEnroute[arrival] += (int) Math.round(values[layout.departVar(sPos, dPos, i)]);
+                }
+            }
+        }
+        System.arraycopy(nextEnroute, 0, carriedEnroute, 0, windowLength);
+        start = shift(values, numPeriods);
+        windowStart += numPeriods;
+    }
+
+    public void dispose() {
+        if (model != null) {
+            model.dispose();
+            model = null;
+        }
+    }
+
+    /**
+     * The demand of the current window: the scheduled demand, plus the
+     * flights still held on the ground, plus the carried en-route flights.
+     */
+    private DHoffkinFlightParser.DemandStruct makeWindowDemand() {
+        HashMap<Integer, List<Integer>> demandMap = new HashMap<Integer, List<Integer>>();
+        for (int d : schedule.getDurations()) {
+            List<Integer> demand = new ArrayList<Integer>(windowLength);
+            for (int i = 0; i < windowLength; i++) {
+                int period = windowStart + i;
+                demand.add(period < schedule.getNumTimePeriods() ? schedule.getDemand(d, period) : 0);
+            }
+            demand.set(0, demand.get(0) + heldOnGround.get(d));
+            demandMap.put(d, demand);
+        }
+        List<Integer> enroute = new ArrayList<Integer>(windowLength);
+        for (int i = 0; i < windowLength; i++) {
+            int period = windowStart + i;
+            enroute.add(carriedEnroute[i] + (period < schedule.getNumTimePeriods() ? schedule.getEnroute(period) : 0));
+        }
+        return new DHoffkinFlightParser.DemandStruct(demandMap, enroute);
+    }
+
+    /**
+     * Stores the plan shifted by the given number of periods, so that it can
+     * be mapped onto the next window by {@link #mapStart}. Entry j of the
+     * result is the value of variable j at period i + numPeriods, or
+     * GRB.UNDEFINED if that period is outside the window.
+     */
+    private double[] shift(double[] plan, int numPeriods) {
+        double[] shifted = new double[plan.length];
+        for (int sPos = 0; sPos < layout.getNumScenarios(); sPos++) {
+            for (int dPos = 0; dPos < layout.getNumDurations(); dPos++) {
+                int d = layout.getDuration(dPos);
+                for (int i = 0; i < layout.getNumGroundPeriods(d); i++) {
+                    int from = i + numPeriods;
+                    shifted[layout.groundVar(sPos, dPos, i)] = from < layout.getNumGroundPeriods(d)
+                            ? plan[layout.groundVar(sPos, dPos, from)] : GRB.UNDEFINED;
+                }
+                for (int i = 0; i < layout.getNumDepartPeriods(d); i++) {
+                    int from = i + numPeriods;
+                    shifted[layout.departVar(sPos, dPos, i)] = from < layout.getNumDepartPeriods(d)
+                            ? plan[layout.departVar(sPos, dPos, from)] : GRB.UNDEFINED;
+                }
+            }
+            for (int i = 0; i < windowLength; i++) {
+                int from = i + numPeriods;
+                boolean inWindow = from < windowLength;
+                shifted[layout.airVar(sPos, i)] = inWindow ? plan[layout.airVar(sPos, from)] : GRB.UNDEFINED;
+                shifted[layout.landVar(sPos, i)] = inWindow ? plan[layout.landVar(sPos, from)] : GRB.UNDEFINED;
+                shifted[layout.divertVar(sPos, i)] = inWindow ? plan[layout.divertVar(sPos, from)] : GRB.UNDEFINED;
+            }
+        }
+        return shifted;
+    }
+
+    /**
+     * Maps a start stored in the old layout onto the new layout. Scenarios
+     * and durations which are not in the old layout are left undefined, and
+     * Gurobi completes the partial start.
+     */
+    private static double[] mapStart(ExtendedHofkinModel.Layout oldLayout, double[] oldStart,
+                                     ExtendedHofkinModel.Layout newLayout) {
+        HashMap<Integer, Integer> oldScenarios = new HashMap<Integer, Integer>();
+        for (int sPos = 0; sPos < oldLayout.getNumScenarios(); sPos++) {
+            oldScenarios.put(oldLayout.getScenario(sPos), sPos);
+        }
+        HashMap<Integer, Integer> oldDurations = new HashMap<Integer, Integer>();
+        for (int dPos = 0; dPos < oldLayout.getNumDurations(); dPos++) {
+            oldDurations.put(oldLayout.getDuration(dPos), dPos);
+        }
+        double[] mapped = new double[newLayout.getNumVars()];
+        Arrays.fill(mapped, GRB.UNDEFINED);
+        for (int sPos = 0; sPos < newLayout.getNumScenarios(); sPos++) {
+            Integer oldSPos = oldScenarios.get(newLayout.getScenario(sPos));
+            if (oldSPos == null) {
+                continue;
+            }
+            for (int dPos = 0; dPos < newLayout.getNumDurations(); dPos++) {
+                int d = newLayout.getDuration(dPos);
+                Integer oldDPos = oldDurations.get(d);
+                if (oldDPos == null) {
+                    continue;
+                }
+                for (int i = 0; i < Math.min(newLayout.getNumGroundPeriods(d), oldLayout.getNumGroundPeriods(d));
+                     i++) {
+                    mapped[newLayout.groundVar(sPos, dPos, i)] = oldStart[oldLayout.groundVar(oldSPos, oldDPos, i)];
+                }
+                for (int i = 0; i < Math.min(newLayout.getNumDepartPeriods(d), oldLayout.getNumDepartPeriods(d));
+                     i++) {
+                    mapped[newLayout.departVar(sPos, dPos, i)] = oldStart[oldLayout.departVar(oldSPos, oldDPos, i)];
+                }
+            }
+            for (int i = 0; i < newLayout.getNumTimePeriods(); i++) {
+                mapped[newLayout.airVar(sPos, i)] = oldStart[oldLayout.airVar(oldSPos, i)];
+                mapped[newLayout.landVar(sPos, i)] = oldStart[oldLayout.landVar(oldSPos, i)];
+                mapped[newLayout.divertVar(sPos, i)] = oldStart[oldLayout.divertVar(oldSPos, i)];
+            }
+        }
+        return mapped;
+    }
+}
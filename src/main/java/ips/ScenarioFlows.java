@@ -0,0 +1,126 @@
+package ips;
+
+/**
+ * The flights held on the ground, in the air, landing and diverted in every
+ * period of every scenario of a solution. The ground holds of a period are
+ * the flights which are still waiting to depart at its end. Scenarios are
+ * stored by position, in the order of the layout of the model, and each
+ * quantity is stored in one array, by scenario and then time period.
+ */
+public final class ScenarioFlows {
+    private final int numTimePeriods;
+    private final int[] scenarios;
+    private final double[] probabilities;
+    private final int[] ground;
+    private final int[] air;
+    private final int[] land;
+    private final int[] divert;
+
+    /**
+     * The arrays are taken over without copying, so they must not be changed
+     * afterwards.
+     */
+    ScenarioFlows(int numTimePeriods, int[] scenarios, double[] probabilities, int[] ground, int[] air, int[] land,
+                  int[] divert) {
+        this.numTimePeriods = numTimePeriods;
+        this.scenarios = scenarios;
+        this.probabilities = probabilities;
+        this.ground = ground;
+        this.air = air;
+        this.land = land;
+        this.divert = divert;
+    }
+
+    public int getNumTimePeriods() {
+        return numTimePeriods;
+    }
+
+    public int getNumScenarios() {
+        return scenarios.length;
+    }
+
+    public int getScenario(int position) {
+        return scenarios[position];
+    }
+
+    public double getProbability(int position) {
+        return probabilities[position];
+    }
+
+    public int getGround(int scenarioPos, int timePeriod) {
+        return ground[scenarioPos * numTimePeriods + timePeriod];
+    }
+
+    public int getAir(int scenarioPos, int timePeriod) {
+        return air[scenarioPos * numTimePeriods + timePeriod];
+    }
+
+    public int getLand(int scenarioPos, int timePeriod) {
+        return land[scenarioPos * numTimePeriods + timePeriod];
+    }
+
+    public int getDivert(int scenarioPos, int timePeriod) {
+        return divert[scenarioPos * numTimePeriods + timePeriod];
+    }
+
+    public int[] getGround(int scenarioPos) {
+        return row(ground, scenarioPos);
+    }
+
+    public int[] getAir(int scenarioPos) {
+        return row(air, scenarioPos);
+    }
+
+    public int[] getLand(int scenarioPos) {
+        return row(land, scenarioPos);
+    }
+
+    public int[] getDivert(int scenarioPos) {
+        return row(divert, scenarioPos);
+    }
+
+    private int[] row(int[] values, int scenarioPos) {
+        int[] row = new int[numTimePeriods];
+        System.arraycopy(values, scenarioPos * numTimePeriods, row, 0, numTimePeriods);
+        return row;
+    }
+
+    /**
+     * The expected number of periods of ground holding.
+     */
+    public double getExpectedGround() {
+        return expectation(ground);
+    }
+
+    /**
+     * The expected number of periods of airborne holding.
+     */
+    public double getExpectedAir() {
+        return expectation(air);
+    }
+
+    /**
+     * The expected number of diversions.
+     */
+    public double getExpectedDiversions() {
+        return expectation(divert);
+    }
+
+    private double expectation(int[] values) {
+        double sum = 0.0;
+        for (int sPos = 0; sPos < scenarios.length; sPos++) {
+            long total = 0;
+            for (int k = sPos * numTimePeriods; k < (sPos + 1) * numTimePeriods; k++) {
+                total += values[k];
+            }
+            sum += probabilities[sPos] * total;
+        }
+        return sum;
+    }
+
+    @Override
+    public String toString() {
+        return "Scenarios: " + scenarios.length + ", Time periods: " + numTimePeriods + ", Ground: "
+                + getExpectedGround() + ", Air: " + getExpectedAir() + ", Diversions: " + getExpectedDiversions();
+    }
+}
@@ -0,0 +1,539 @@
+package ips;
+
+import gurobi.GRB;
+import gurobi.GRBException;
+import gurobi.GRBModel;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Keeps solutions of the models on disk, keyed by a hash of the input, so
+ * that later runs can skip a solve or warm start it.
+ * <p>
+ * Each input has two hashes. The structure hash covers the time periods,
+ * demand and scenario tree, which determine the variables of a model. The
+ * input hash also covers the costs and the airborne limit. A solution stored
+ * under the same input hash is the solution of the same problem; one stored
+ * under the same structure hash solves a nearby problem with the same
+ * variables, and is a good MIP start.
+ * <p>
+ * Solutions are stored as their nonzero values: the gaps between the
+ * indices of nonzero variables as variable-length integers, followed by the
+ * values, which are also written as variable-length integers when they are
+ * all integral.
+ */
+public class SolutionStore {
+    private static final int MAGIC = 0x44485353;
+    private static final int VERSION = 1;
+    private static final double ZERO_TOLERANCE = 1e-9;
+    private static final double INTEGRAL_TOLERANCE = 1e-6;
+    private static final String SUFFIX = ".sol";
+
+    /**
+     * The hashes identifying an input.
+     */
+    public static final class Key {
+        private final String structureHash;
+        private final String inputHash;
+
+        public Key(String structureHash, String inputHash) {
+            this.structureHash = structureHash;
+            this.inputHash = inputHash;
+        }
+
+        public static Key of(final ExtendedHofkinModel.Input input) {
+            Hasher structure = new Hasher();
+            structure.add(input.getNumTimePeriods());
+            addTree(structure, input.getNumTimePeriods(), input.getScenarios(), new TreeInput() {
+                @Override
+                public double getScenProbability(int s) {
+                    return input.getScenProbability(s);
+                }
+
+                @Override
+                public double getCapacity(int scenario, int timePeriod) {
+                    return input.getCapacity(scenario, timePeriod);
+                }
+
+                @Override
+                public Iterable<? extends Iterable<Integer>> getNodes(int i) {
+                    return input.getNodes(i);
+                }
+            });
+            List<Integer> durations = sorted(input.getFlightDurations());
+            structure.add(durations.size());
+            for (int d : durations) {
+                structure.add(d);
+                for (int t = 0; t < input.getNumTimePeriods(); t++) {
+                    structure.add(input.getNumDeparting(d, t));
+                }
+            }
+            for (int t = 0; t < input.getNumTimePeriods(); t++) {
+                structure.add(input.getEnroute(t));
+            }
+            addGrid(structure, input.getNumTimePeriods(), durations, new GridInput() {
+                @Override
+                public int getArrivalPeriod(int duration, int timePeriod) {
+                    return input.getArrivalPeriod(duration, timePeriod);
+                }
+
+                @Override
+                public double getPeriodLength(int timePeriod) {
+                    return input.getPeriodLength(timePeriod);
+                }
+            });
+            return makeKey(structure, input.getGroundCost(), input.getAirCost(), input.getDivertCost(),
+                    input.getMaxAirborne());
+        }
+
+        public static Key of(final MHDynModel.Input input) {
+            Hasher structure = new Hasher();
+            structure.add(input.getNumTimePeriods());
+            addTree(structure, input.getNumTimePeriods(), input.getScenarios(), new TreeInput() {
+                @Override
+                public double getScenProbability(int s) {
+                    return input.getScenProbability(s);
+                }
+
+                @Override
+                public double getCapacity(int scenario, int timePeriod) {
+                    return input.getCapacity(scenario, timePeriod);
+                }
+
+                @Override
+                public Iterable<? extends Iterable<Integer>> getNodes(int i) {
+                    return input.getNodes(i);
+                }
+            });
+            List<DiscreteFlight> flights = new ArrayList<DiscreteFlight>();
+            for (DiscreteFlight f : input.getFlights()) {
+                flights.add(f);
+            }
+            Collections.sort(flights, new Comparator<DiscreteFlight>() {
+                @Override
+                public int compare(DiscreteFlight f1, DiscreteFlight f2) {
+                    return Integer.compare(f1.getFlightId(), f2.getFlightId());
+                }
+            });
+            structure.add(flights.size());
+            TreeSet<Integer> durations = new TreeSet<Integer>();
+            for (DiscreteFlight f : flights) {
+                structure.add(f.getFlightId());
+                structure.add(f.getDepartTimePeriod());
+                structure.add(f.getFlightDuration());
+                durations.add(f.getFlightDuration());
+            }
+            for (int t = 0; t < input.getNumTimePeriods(); t++) {
+                structure.add(input.getEnroute(t));
+            }
+            addGrid(structure, input.getNumTimePeriods(), new ArrayList<Integer>(durations), new GridInput() {
+                @Override
+                public int getArrivalPeriod(int duration, int timePeriod) {
+                    return input.getArrivalPeriod(duration, timePeriod);
+                }
+
+                @Override
+                public double getPeriodLength(int timePeriod) {
+                    return input.getPeriodLength(timePeriod);
+                }
+            });
+            return makeKey(structure, input.getGroundCost(), input.getAirCost(), input.getDivertCost(),
+                    input.getMaxAirborne());
+        }
+
+        private static Key makeKey(Hasher structure, double groundCost, double airCost, double divertCost,
+                                   int maxAirborne) {
+            String structureHash = structure.hex();
+            Hasher full = new Hasher();
+            full.add(structureHash);
+            full.add(groundCost);
+            full.add(airCost);
+            full.add(divertCost);
+            full.add(maxAirborne);
+            return new Key(structureHash, full.hex());
+        }
+
+        /**
+         * Adds the scenarios in id order and the nodes of every period. The
+         * nodes of a period are disjoint, so ordering them by their smallest
+         * scenario id makes the order canonical.
+         */
+        private static void addTree(Hasher hasher, int numTimePeriods, Iterable<Integer> scenarioIds,
+                                    TreeInput tree) {
+            List<Integer> scenarios = sorted(scenarioIds);
+            hasher.add(scenarios.size());
+            for (int s : scenarios) {
+                hasher.add(s);
+                hasher.add(tree.getScenProbability(s));
+                for (int t = 0; t < numTimePeriods; t++) {
+                    hasher.add(tree.getCapacity(s, t));
+                }
+            }
+            for (int t = 0; t < numTimePeriods; t++) {
+                List<List<Integer>> nodes = new ArrayList<List<Integer>>();
+                for (Iterable<Integer> node : tree.getNodes(t)) {
+                    nodes.add(sorted(node));
+                }
+                Collections.sort(nodes, new Comparator<List<Integer>>() {
+                    @Override
+                    public int compare(List<Integer> n1, List<Integer> n2) {
+                        return Integer.compare(n1.get(0), n2.get(0));
+                    }
+                });
+                hasher.add(nodes.size());
+                for (List<Integer> node : nodes) {
+                    hasher.add(node.size());
+                    for (int s : node) {
+                        hasher.add(s);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Adds the period lengths and arrival periods if the periods differ
+         * in length. Inputs with periods of equal length keep the hashes
+         * they had before periods could differ.
+         */
+        private static void addGrid(Hasher hasher, int numTimePeriods, List<Integer> durations, GridInput grid) {
+            boolean uniform = true;
+            for (int t = 0; t < numTimePeriods && uniform; t++) {
+                uniform = grid.getPeriodLength(t) == 1.0;
+                for (int d : durations) {
+                    uniform &= grid.getArrivalPeriod(d, t) == t + d;
+                }
+            }
+            if (uniform) {
+                return;
+            }
+            for (int t = 0; t < numTimePeriods; t++) {
+                hasher.add(grid.getPeriodLength(t));
+                for (int d : durations) {
+                    hasher.add(grid.getArrivalPeriod(d, t));
+                }
+            }
+        }
+
+        public String getStructureHash() {
+            return structureHash;
+        }
+
+        public String getInputHash() {
+            return inputHash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).inputHash.equals(inputHash)
+                    && ((Key) o).structureHash.equals(structureHash);
+        }
+
+        @Override
+        public int hashCode() {
+            return inputHash.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return structureHash + "-" + inputHash;
+        }
+    }
+
+    /**
+     * The scenario tree methods which both inputs share.
+     */
+    private interface TreeInput {
+        double getScenProbability(int s);
+
+        double getCapacity(int scenario, int timePeriod);
+
+        Iterable<? extends Iterable<Integer>> getNodes(int i);
+    }
+
+    /**
+     * The time period methods which both inputs share.
+     */
+    private interface GridInput {
+        int getArrivalPeriod(int duration, int timePeriod);
+
+        double getPeriodLength(int timePeriod);
+    }
+
+    /**
+     * A solution read from the store.
+     */
+    public static final class StoredSolution {
+        private final double[] values;
+        private final double objective;
+        private final boolean exact;
+
+        private StoredSolution(double[] values, double objective, boolean exact) {
+            this.values = values;
+            this.objective = objective;
+            this.exact = exact;
+        }
+
+        public double[] getValues() {
+            return values.clone();
+        }
+
+        public int getNumVars() {
+            return values.length;
+        }
+
+        public double getObjective() {
+            return objective;
+        }
+
+        /**
+         * Whether the solution was stored for the same input, rather than
+         * for an input with the same structure.
+         */
+        public boolean isExact() {
+            return exact;
+        }
+
+        /**
+         * Sets the solution as the MIP start of a model with the same
+         * variables.
+         */
+        public void applyAsMipStart(GRBModel model) throws GRBException {
+            if (model.get(GRB.IntAttr.NumVars) != values.length) {
+                throw new IllegalArgumentException("Stored solution has " + values.length
+                        + " variables, but the model has " + model.get(GRB.IntAttr.NumVars) + ".");
+            }
+            model.set(GRB.DoubleAttr.Start, model.getVars(), values);
+        }
+    }
+
+    private final File directory;
+
+    public SolutionStore(File directory) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create solution store directory " + directory + ".");
+        }
+        this.directory = directory;
+    }
+
+    /**
+     * Stores the solution of a solved model under the given model name, for
+     * example "DHD" or "MH".
+     */
+    public void put(String modelName, Key key, GRBModel solvedModel) throws GRBException, IOException {
+        put(modelName, key, solvedModel.get(GRB.DoubleAttr.X, solvedModel.getVars()),
+                solvedModel.get(GRB.DoubleAttr.ObjVal));
+    }
+
+    public void put(String modelName, Key key, double[] values, double objective) throws IOException {
+        File file = getFile(modelName, key);
+        File temp = new File(directory, file.getName() + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+        try {
+            write(out, values, objective);
+        } finally {
+            out.close();
+        }
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Cannot replace " + file + ".");
+        }
+        if (!temp.renameTo(file)) {
+            throw new IOException("Cannot move " + temp + " to " + file + ".");
+        }
+    }
+
+    /**
+     * The solution stored for exactly this input, or null if there is none.
+     */
+    public StoredSolution get(String modelName, Key key) throws IOException {
+        File file = getFile(modelName, key);
+        return file.exists() ? read(file, true) : null;
+    }
+
+    /**
+     * The solution stored for this input if there is one, and otherwise the
+     * most recently stored solution of an input with the same structure.
+     * Returns null if there is neither.
+     */
+    public StoredSolution find(String modelName, Key key) throws IOException {
+        StoredSolution exact = get(modelName, key);
+        if (exact != null) {
+            return exact;
+        }
+        final String prefix = modelName + "-" + key.getStructureHash() + "-";
+        File newest = null;
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return null;
+        }
+        for (File file : files) {
+            if (file.getName().startsWith(prefix) && file.getName().endsWith(SUFFIX)
+                    && (newest == null || file.lastModified() > newest.lastModified())) {
+                newest = file;
+            }
+        }
+        return newest == null ? null : read(newest, false);
+    }
+
+    private File getFile(String modelName, Key key) {
+        if (modelName.contains("-") || modelName.contains(File.separator)) {
+            throw new IllegalArgumentException("Invalid model name " + modelName + ".");
+        }
+        return new File(directory, modelName + "-" + key.getStructureHash() + "-" + key.getInputHash() + SUFFIX);
+    }
+
+    private static void write(DataOutputStream out, double[] values, double objective) throws IOException {
+        int numNonzeros = 0;
+        boolean integral = true;
+        for (double value : values) {
+            if (Math.abs(value) > ZERO_TOLERANCE) {
+                numNonzeros++;
+                integral &= Math.abs(value - Math.rint(value)) <= INTEGRAL_TOLERANCE
+                        && Math.abs(value) < Long.MAX_VALUE / 2;
+            }
+        }
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(values.length);
+        out.writeDouble(objective);
+        out.writeBoolean(integral);
+        out.writeInt(numNonzeros);
+        int previous = -1;
+        for (int k = 0; k < values.length; k++) {
+            if (Math.abs(values[k]) > ZERO_TOLERANCE) {
+                writeVarLong(out, k - previous - 1);
+                previous = k;
+            }
+        }
+        for (double value : values) {
+            if (Math.abs(value) > ZERO_TOLERANCE) {
+                if (integral) {
+                    long rounded = Math.round(value);
+                    writeVarLong(out, (rounded << 1) ^ (rounded >> 63));
+                } else {
+                    out.writeDouble(value);
+                }
+            }
+        }
+    }
+
+    private static StoredSolution read(File file, boolean exact) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException(file + " is not a stored solution.");
+            }
+            double[] values = new double[in.readInt()];
+            double objective = in.readDouble();
+            boolean integral = in.readBoolean();
+            int[] indices = new int[in.readInt()];
+            int previous = -1;
+            for (int k = 0; k < indices.length; k++) {
+                indices[k] = previous + 1 + (int) readVarLong(in);
+                previous = indices[k];
+            }
+            for (int index : indices) {
+                if (integral) {
+                    long zigzag = readVarLong(in);
+                    values[index] = (zigzag >>> 1) ^ -(zigzag & 1);
+                } else {
+                    values[index] = in.readDouble();
+                }
+            }
+            return new StoredSolution(values, objective, exact);
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length integer.");
+    }
+
+    private static List<Integer> sorted(Iterable<Integer> values) {
+        List<Integer> list = new ArrayList<Integer>();
+        for (int value : values) {
+            list.add(value);
+        }
+        Collections.sort(list);
+        return list;
+    }
+
+    /**
+     * Feeds values into a SHA-256 digest.
+     */
+    static final class Hasher {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+
+        void add(int value) {
+            try {
+                out.writeInt(value);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void add(double value) {
+            try {
+                out.writeLong(Double.doubleToLongBits(value == 0.0 ? 0.0 : value));
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void add(String value) {
+            try {
+                out.writeUTF(value);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        String hex() {
+            MessageDigest digest;
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+            byte[] hash = digest.digest(bytes.toByteArray());
+            StringBuilder hex = new StringBuilder();
+            // The first 16 bytes are plenty to tell inputs apart.
+            for (int k = 0; k < 16; k++) {
+                hex.append(String.format("%02x", hash[k]));
+            }
+            return hex.toString();
+        }
+    }
+}
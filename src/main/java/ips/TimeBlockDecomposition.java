@@ -0,0 +1,452 @@
+package ips;
+
+import gurobi.GRB;
+import gurobi.GRBEnv;
+import gurobi.GRBException;
+import gurobi.GRBModel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import lp.BranchAndBound;
+import lp.GurobiAdapter;
+import lp.Solution;
+import lp.SparseModel;
+import solve.PolicyResult;
+import solve.SolvePolicy;
+
+/**
+ * Solves {@link ExtendedHofkinModel} over a long horizon as a sequence of
+ * overlapping time blocks. Each block is a model over blockLength periods,
+ * of which the first blockLength - overlap are committed before the next
+ * block starts where the committed periods end. The last block runs to the
+ * end of the horizon and is committed in full. Every block has at most
+ * blockLength periods, so the time of a solve grows linearly with the
+ * horizon instead of with the difficulty of the full model.
+ * <p>
+ * The state of each scenario is carried across a block boundary like in
+ * {@link RollingHorizonPlanner#advance}: the flights held on the ground are
+ * added to the demand of the first period of the next block, and the
+ * flights which are airborne, either queued or en route from a committed
+ * departure, are added to its en-route counts. Unlike the rolling planner,
+ * every scenario of the tree is kept, so the carried counts differ by
+ * scenario. They are set on the right-hand sides of the departure and
+ * arrival node constraints of the block model.
+ * <p>
+ * A block only has departure periods up to its last period minus the
+ * duration, so with an overlap shorter than the longest duration, flights
+ * may be forced to depart in the committed periods, or not seen by the
+ * block at all and carried as held on the ground. The stitched plan is
+ * feasible for the full model either way, but an overlap of at least the
+ * longest duration avoids these horizon effects. The stitched plan can be
+ * improved by {@link #polish}, which solves the full model from it.
+ */
+public class TimeBlockDecomposition {
+
+    /**
+     * Solves the model of one block. Returns the values of a feasible
+     * solution in the variable order of the model, or null if none was
+     * found.
+     */
+    public interface BlockSolver {
+        double[] solve(SparseModel blockModel) throws GRBException;
+    }
+
+    /**
+     * The solve of one block.
+     */
+    public static final class Block {
+        private final int start;
+        private final int length;
+        private final int numCommitted;
+        private final int numVars;
+        private final double runtime;
+
+        private Block(int start, int length, int numCommitted, int numVars, double runtime) {
+            this.start = start;
+            this.length = length;
+            this.numCommitted = numCommitted;
+            this.numVars = numVars;
+            this.runtime = runtime;
+        }
+
+        /**
+         * The period of the horizon at which the block starts.
+         */
+        public int getStart() {
+            return start;
+        }
+
+        public int getLength() {
+            return length;
+        }
+
+        /**
+         * The number of leading periods of the block which were committed.
+         */
+        public int getNumCommitted() {
+            return numCommitted;
+        }
+
+        public int getNumVars() {
+            return numVars;
+        }
+
+        /**
+         * The time to build and solve the block, in seconds.
+         */
+        public double getRuntime() {
+            return runtime;
+        }
+
+        @Override
+        public String toString() {
+            return "Start: " + start + ", Length: " + length + ", Committed: " + numCommitted + ", Vars: " + numVars
+                    + ", Runtime: " + runtime;
+        }
+    }
+
+    /**
+     * The plan stitched from the committed periods of all blocks.
+     */
+    public static final class Result {
+        private final DHoffkinPlan plan;
+        private final List<Block> blocks;
+
+        private Result(DHoffkinPlan plan, List<Block> blocks) {
+            this.plan = plan;
+            this.blocks = Collections.unmodifiableList(blocks);
+        }
+
+        /**
+         * The plan over the full horizon, in the order of the layout of the
+         * full model.
+         */
+        public DHoffkinPlan getPlan() {
+            return plan;
+        }
+
+        public List<Block> getBlocks() {
+            return blocks;
+        }
+
+        /**
+         * The total time of the block solves, in seconds.
+         */
+        public double getRuntime() {
+            double runtime = 0.0;
+            for (Block block : blocks) {
+                runtime += block.getRuntime();
+            }
+            return runtime;
+        }
+
+        @Override
+        public String toString() {
+            return "Obj: " + plan.getObjective() + ", Blocks: " + blocks.size() + ", Runtime: " + getRuntime();
+        }
+    }
+
+    private final int blockLength;
+    private final int overlap;
+
+    /**
+     * @param blockLength - the number of periods in each block
+     * @param overlap     - the number of trailing periods of a block which
+     *                    are solved again by the next block
+     */
+    public TimeBlockDecomposition(int blockLength, int overlap) {
+        if (blockLength <= 0) {
+            throw new IllegalArgumentException("Block length must be positive, but was " + blockLength + ".");
+        }
+        if (overlap < 0 || overlap >= blockLength) {
+            throw new IllegalArgumentException("Overlap must be between 0 and the block length, " + blockLength
+                    + ", but was " + overlap + ".");
+        }
+        this.blockLength = blockLength;
+        this.overlap = overlap;
+    }
+
+    public int getBlockLength() {
+        return blockLength;
+    }
+
+    public int getOverlap() {
+        return overlap;
+    }
+
+    /**
+     * Solves each block with Gurobi under the given policy. The fallbacks of
+     * the policy do not apply to blocks, since the heuristic plans do not
+     * see the carried state; a block which hits a limit serves its
+     * incumbent.
+     */
+    public static BlockSolver withGurobi(final GRBEnv env, final SolvePolicy policy, final boolean verbose) {
+        return new BlockSolver() {
+            @Override
+            public double[] solve(SparseModel blockModel) throws GRBException {
+                GRBModel model = GurobiAdapter.toGurobi(blockModel, env);
+                try {
+                    if (!verbose) {
+                        model.set(GRB.IntParam.OutputFlag, 0);
+                    }
+                    PolicyResult result = policy.solve(model, SolvePolicy.NO_PLANS);
+                    return result.hasValues() ? result.getValues() : null;
+                } finally {
+                    model.dispose();
+                }
+            }
+        };
+    }
+
+    /**
+     * Solves each block with the pure-Java branch and bound.
+     */
+    public static BlockSolver withBranchAndBound(final BranchAndBound solver) {
+        return new BlockSolver() {
+            @Override
+            public double[] solve(SparseModel blockModel) {
+                Solution solution = solver.solve(blockModel);
+                return solution.hasValues() ? solution.getValues() : null;
+            }
+        };
+    }
+
+    /**
+     * Solves the blocks in sequence and stitches their committed periods
+     * into a plan over the full horizon.
+     */
+    public Result solve(ExtendedHofkinModel.Input input, BlockSolver solver) throws GRBException {
+        ExtendedHofkinModel.Layout layout = new ExtendedHofkinModel.Layout(input);
+        int numTimePeriods = layout.getNumTimePeriods();
+        int numScenarios = layout.getNumScenarios();
+        int numDurations = layout.getNumDurations();
+        double[] values = new double[layout.getNumVars()];
+
+        // The state of each scenario at the start of the next block: the
+        // flights held on the ground by duration, the airborne queue, and the
+        // arrivals of the committed departures by period.
+        int[][] held = new int[numScenarios][numDurations];
+        int[] airborne = new int[numScenarios];
+        int[][] arriving = new int[numScenarios][numTimePeriods];
+
+        List<Block> blocks = new ArrayList<Block>();
+        int start = 0;
+        while (start < numTimePeriods) {
+            long blockStart = System.nanoTime();
+            int end = Math.min(start + blockLength, numTimePeriods);
+            int commitEnd = end == numTimePeriods ? end : end - overlap;
+            BlockInput blockInput = new BlockInput(input, start, end - start);
+            ExtendedHofkinModel.Layout blockLayout = new ExtendedHofkinModel.Layout(blockInput);
+            SparseModel blockModel = ExtendedHofkinModel.buildModel(blockInput);
+            carryState(blockModel, blockLayout, start, held, airborne, arriving);
+            double[] blockValues = solver.solve(blockModel);
+            if (blockValues == null) {
+                throw new IllegalStateException("The block starting at period " + start + " has no solution.");
+            }
+
+            for (int sPos = 0; sPos < numScenarios; sPos++) {
+                for (int dPos = 0; dPos < numDurations; dPos++) {
+                    int d = layout.getDuration(dPos);
+                    int waiting = held[sPos][dPos];
+                    for (int t = start; t < Math.min(commitEnd, layout.getNumDepartPeriods(d)); t++) {
+                        waiting += (int) Math.round(input.getNumDeparting(d, t));
+                        int i = t - start;
+                        int departing = i < blockLayout.getNumDepartPeriods(d)
+                                ? (int) Math.round(blockValues[blockLayout.departVar(sPos, dPos, i)]) : 0;
+                        if (t == layout.getNumDepartPeriods(d) - 1) {
+                            // The last departure period of the full model.
+                            // No flight can be held past it, so those the
+                            // block did not see depart as well.
+                            departing = waiting;
+                        }
+                        waiting -= departing;
+                        values[layout.departVar(sPos, dPos, t)] = departing;
+                        if (t < layout.getNumGroundPeriods(d)) {
+                            values[layout.groundVar(sPos, dPos, t)] = waiting;
+                        }
+                        int arrival = layout.getArrivalPeriod(dPos, t);
+                        if (arrival < numTimePeriods) {
+                            arriving[sPos][arrival] += departing;
+                        }
+                    }
+                    held[sPos][dPos] = waiting;
+                }
+                for (int t = start; t < commitEnd; t++) {
+                    int i = t - start;
+                    values[layout.airVar(sPos, t)] = Math.round(blockValues[blockLayout.airVar(sPos, i)]);
+                    values[layout.landVar(sPos, t)] = Math.round(blockValues[blockLayout.landVar(sPos, i)]);
+                    values[layout.divertVar(sPos, t)] = Math.round(blockValues[blockLayout.divertVar(sPos, i)]);
+                }
+                airborne[sPos] = (int) values[layout.airVar(sPos, commitEnd - 1)];
+            }
+            blocks.add(new Block(start, end - start, commitEnd - start, blockModel.getNumVars(),
+                    (System.nanoTime() - blockStart) / 1e9));
+            start = commitEnd;
+        }
+        return new Result(new DHoffkinPlan(input, layout, values), blocks);
+    }
+
+    /**
+     * Adds the state carried into a block starting at the given period to
+     * the right-hand sides of the block model. The constants of the node
+     * constraints are on the right-hand side with the sign flipped, since
+     * they are inflows.
+     */
+    private static void carryState(SparseModel blockModel, ExtendedHofkinModel.Layout blockLayout, int start,
+                                   int[][] held, int[] airborne, int[][] arriving) {
+        if (start == 0) {
+            return;
+        }
+        int length = blockLayout.getNumTimePeriods();
+        HashMap<String, Integer> constrs = new HashMap<String, Integer>();
+        for (int c = 0; c < blockModel.getNumConstrs(); c++) {
+            constrs.put(blockModel.getConstrName(c), c);
+        }
+        for (int sPos = 0; sPos < blockLayout.getNumScenarios(); sPos++) {
+            int s = blockLayout.getScenario(sPos);
+            for (int dPos = 0; dPos < blockLayout.getNumDurations(); dPos++) {
+                int d = blockLayout.getDuration(dPos);
+                if (held[sPos][dPos] > 0 && blockLayout.getNumDepartPeriods(d) > 0) {
+                    addInflow(blockModel, constrs.get(ExtendedHofkinModel.getDepartureNodeConstrName(s, 0, d)),
+                            held[sPos][dPos]);
+                }
+            }
+            for (int i = 0; i < length; i++) {
+                int inflow = arriving[sPos][start + i] + (i == 0 ? airborne[sPos] : 0);
+                if (inflow > 0) {
+                    addInflow(blockModel, constrs.get(ExtendedHofkinModel.getArrivalNodeConstrName(s, i)), inflow);
+                }
+            }
+        }
+    }
+
+    private static void addInflow(SparseModel model, int constr, int inflow) {
+        model.setRhs(constr, model.getRhs(constr) - inflow);
+    }
+
+    /**
+     * Solves the full model under the given policy, starting from the
+     * stitched plan, and returns the better of the two. The stitched plan is
+     * also the heuristic fallback of the policy, so a policy with a time
+     * limit bounds the time of the polishing pass.
+     */
+    public static DHoffkinPlan polish(ExtendedHofkinModel.Input input, final DHoffkinPlan plan, GRBEnv env,
+                                      boolean verbose, SolvePolicy policy) throws GRBException {
+        GRBModel model = ExtendedHofkinModel.setupModel(input, env, verbose);
+        PolicyResult result;
+        try {
+            if (!verbose) {
+                model.set(GRB.IntParam.OutputFlag, 0);
+            }
+            model.set(GRB.DoubleAttr.Start, model.getVars(), plan.getValues());
+            result = policy.solve(model, new SolvePolicy.FallbackPlans() {
+                @Override
+                public double[] heuristic() {
+                    return plan.getValues();
+                }
+
+                @Override
+                public double[] roundRelaxation(double[] relaxedValues) {
+                    return plan.getValues();
+                }
+            });
+        } finally {
+            model.dispose();
+        }
+        if (result.hasValues() && result.getObjective() < plan.getObjective()) {
+            return new DHoffkinPlan(input, plan.getLayout(), result.getValues());
+        }
+        return plan;
+    }
+
+    /**
+     * The input of one block: the periods of the full input from the start
+     * of the block, with the scenario tree and capacities of those periods.
+     * The carried state is not part of the input, since it differs by
+     * scenario.
+     */
+    private static final class BlockInput implements ExtendedHofkinModel.Input {
+        private final ExtendedHofkinModel.Input input;
+        private final int start;
+        private final int length;
+
+        private BlockInput(ExtendedHofkinModel.Input input, int start, int length) {
+            this.input = input;
+            this.start = start;
+            this.length = length;
+        }
+
+        @Override
+        public int getNumTimePeriods() {
+            return length;
+        }
+
+        @Override
+        public double getGroundCost() {
+            return input.getGroundCost();
+        }
+
+        @Override
+        public double getAirCost() {
+            return input.getAirCost();
+        }
+
+        @Override
+        public double getDivertCost() {
+            return input.getDivertCost();
+        }
+
+        @Override
+        public int getMaxAirborne() {
+            return input.getMaxAirborne();
+        }
+
+        @Override
+        public double getScenProbability(int s) {
+            return input.getScenProbability(s);
+        }
+
+        @Override
+        public Iterable<Integer> getScenarios() {
+            return input.getScenarios();
+        }
+
+        @Override
+        public Iterable<? extends Iterable<Integer>> getNodes(int i) {
+            return input.getNodes(start + i);
+        }
+
+        @Override
+        public double getCapacity(int scenario, int timePeriod) {
+            return input.getCapacity(scenario, start + timePeriod);
+        }
+
+        @Override
+        public Iterable<Integer> getFlightDurations() {
+            return input.getFlightDurations();
+        }
+
+        @Override
+        public double getNumDeparting(int duration, int timePeriod) {
+            return input.getNumDeparting(duration, start + timePeriod);
+        }
+
+        @Override
+        public double getEnroute(int i) {
+            return input.getEnroute(start + i);
+        }
+
+        @Override
+        public int getArrivalPeriod(int duration, int timePeriod) {
+            return input.getArrivalPeriod(duration, start + timePeriod) - start;
+        }
+
+        @Override
+        public double getPeriodLength(int timePeriod) {
+            return input.getPeriodLength(start + timePeriod);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package lp;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * A best-bound branch and bound over the LP relaxations computed by
+ * {@link SimplexSolver}. Each node only records the bound change which created
+ * it, and the bounds of a node are rebuilt by walking up to the root. This is
+ * adequate for the small MIP instances which are solved on machines without
+ * a Gurobi license.
+ * <p>
+ * Nodes whose LP is infeasible are pruned. A node whose LP stops on the
+ * iteration limit cannot be pruned; its subtree is given up, and the search
+ * reports ITERATION_LIMIT with the node's bound unless a solution at least
+ * as good as that bound is found.
+ */
+public class BranchAndBound {
+    public static final int DEFAULT_NODE_LIMIT = 100000;
+
+    private static final double INTEGRALITY_TOL = 1e-6;
+    private static final double GAP_TOL = 1e-9;
+
+    private final SimplexSolver lpSolver;
+    private final int nodeLimit;
+
+    public BranchAndBound() {
+        this(new SimplexSolver(), DEFAULT_NODE_LIMIT);
+    }
+
+    public BranchAndBound(SimplexSolver lpSolver, int nodeLimit) {
+        this.lpSolver = lpSolver;
+        this.nodeLimit = nodeLimit;
+    }
+
+    private static class Node {
+        private final Node parent;
+        private final int var;
+        private final double lb;
+        private final double ub;
+        private final double bound;
+
+        private Node(Node parent, int var, double lb, double ub, double bound) {
+            this.parent = parent;
+            this.var = var;
+            this.lb = lb;
+            this.ub = ub;
+            this.bound = bound;
+        }
+    }
+
+    public Solution solve(SparseModel model) {
+        int numVars = model.getNumVars();
+        double[] rootLb = model.getLowerBounds();
+        double[] rootUb = model.getUpperBounds();
+        PriorityQueue<Node> queue = new PriorityQueue<Node>(16, new Comparator<Node>() {
+            @Override
+            public int compare(Node n1, Node n2) {
+                return Double.compare(n1.bound, n2.bound);
+            }
+        });
+        queue.add(new Node(null, -1, 0.0, 0.0, Double.NEGATIVE_INFINITY));
+
+        double[] incumbent = null;
+        double incumbentValue = Double.POSITIVE_INFINITY;
+        // The smallest bound of a node whose LP stopped on a limit. Its
+        // subtree is not explored, so it bounds what the search may miss.
+        double lostBound = Double.POSITIVE_INFINITY;
+        int iterations = 0;
+        int nodes = 0;
+        double[] lb = new double[numVars];
+        double[] ub = new double[numVars];
+        while (!queue.isEmpty()) {
+            Node node = queue.peek();
+            if (node.bound >= incumbentValue - GAP_TOL * Math.max(1.0, Math.abs(incumbentValue))) {
+                break;
+            }
+            if (nodes >= nodeLimit) {
+                return new Solution(Solution.Status.NODE_LIMIT, incumbent == null ? Double.NaN : incumbentValue,
+                        Math.min(node.bound, lostBound), incumbent, iterations, nodes);
+            }
+            queue.poll();
+            nodes++;
+
+            System.arraycopy(rootLb, 0, lb, 0, numVars);
+            System.arraycopy(rootUb, 0, ub, 0, numVars);
+            applyBounds(node, lb, ub);
+            Solution relaxation = lpSolver.solve(model, lb, ub);
+            iterations += relaxation.getIterations();
+            if (relaxation.getStatus() == Solution.Status.UNBOUNDED && node.parent == null) {
+                return new Solution(Solution.Status.UNBOUNDED, Double.NaN, Double.NEGATIVE_INFINITY, null,
+                        iterations, nodes);
+            }
+            if (relaxation.getStatus() == Solution.Status.INFEASIBLE) {
+                continue;
+            }
+            if (relaxation.getStatus() != Solution.Status.OPTIMAL) {
+                // Keep the bound inherited from the parent.
+                lostBound = Math.min(lostBound, node.bound);
+                continue;
+            }
+            if (relaxation.getObjective() >= incumbentValue) {
+                continue;
+            }
+
+            int branchVar = -1;
+            double mostFractional = INTEGRALITY_TOL;
+            for (int j = 0; j < numVars; j++) {
+                if (model.getVarType(j) != SparseModel.CONTINUOUS) {
+                    double value = relaxation.getValue(j);
+                    double fractionality = Math.abs(value - Math.rint(value));
+                    if (fractionality > mostFractional) {
+                        mostFractional = fractionality;
+                        branchVar = j;
+                    }
+                }
+            }
+            if (branchVar < 0) {
+                incumbent = relaxation.getValues();
+                for (int j = 0; j < numVars; j++) {
+                    if (model.getVarType(j) != SparseModel.CONTINUOUS) {
+                        incumbent[j] = Math.rint(incumbent[j]);
+                    }
+                }
+                incumbentValue = model.getObjectiveValue(incumbent);
+                continue;
+            }
+            double value = relaxation.getValue(branchVar);
+            double bound = relaxation.getObjective();
+            queue.add(new Node(node, branchVar, lb[branchVar], Math.floor(value), bound));
+            queue.add(new Node(node, branchVar, Math.ceil(value), ub[branchVar], bound));
+        }
+        if (lostBound < Double.POSITIVE_INFINITY && (incumbent == null
+                || lostBound < incumbentValue - GAP_TOL * Math.max(1.0, Math.abs(incumbentValue)))) {
+            return new Solution(Solution.Status.ITERATION_LIMIT, incumbent == null ? Double.NaN : incumbentValue,
+                    lostBound, incumbent, iterations, nodes);
+        }
+        if (incumbent == null) {
+            return new Solution(Solution.Status.INFEASIBLE, Double.NaN, Double.POSITIVE_INFINITY, null, iterations,
+                    nodes);
+        }
+        return new Solution(Solution.Status.OPTIMAL, incumbentValue, incumbentValue, incumbent, iterations, nodes);
+    }
+
+    /**
+     * Applies the bound changes on the path from the given node to the root.
+     * Branching only ever tightens bounds, so the changes are intersected.
+     */
+    private static void applyBounds(Node node, double[] lb, double[] ub) {
+        for (Node current = node; current != null && current.var >= 0; current = current.parent) {
+            lb[current.var] = Math.max(lb[current.var], current.lb);
+            ub[current.var] = Math.min(ub[current.var], current.ub);
+        }
+    }
+}
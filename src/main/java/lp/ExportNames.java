@@ -0,0 +1,75 @@
+package lp;
+
+/**
+ * Turns model names into names which are legal in the MPS and LP file
+ * formats. Free MPS names may contain anything but whitespace, which our
+ * model names leave out, so they are written as they are and can be searched
+ * for in a model read back from the file. LP names are stricter: colons,
+ * commas and semicolons are replaced by underscores. Missing names are
+ * replaced by a prefix and the index in both formats.
+ */
+final class ExportNames {
+    private ExportNames() {
+
+    }
+
+    static String varName(SparseModel model, int var) {
+        return sanitize(model.getVarName(var), "x", var);
+    }
+
+    static String constrName(SparseModel model, int constr) {
+        return sanitize(model.getConstrName(constr), "c", constr);
+    }
+
+    static String mpsVarName(SparseModel model, int var) {
+        return mpsName(model.getVarName(var), "x", var);
+    }
+
+    static String mpsConstrName(SparseModel model, int constr) {
+        return mpsName(model.getConstrName(constr), "c", constr);
+    }
+
+    static String mpsName(String name, String prefix, int index) {
+        if (name == null || name.isEmpty()) {
+            return prefix + index;
+        }
+        StringBuilder builder = null;
+        for (int k = 0; k < name.length(); k++) {
+            if (Character.isWhitespace(name.charAt(k))) {
+                if (builder == null) {
+                    builder = new StringBuilder(name);
+                }
+                builder.setCharAt(k, '_');
+            }
+        }
+        return builder == null ? name : builder.toString();
+    }
+
+    static String sanitize(String name, String prefix, int index) {
+        if (name == null || name.isEmpty()) {
+            return prefix + index;
+        }
+        StringBuilder builder = new StringBuilder(name.length());
+        for (int k = 0; k < name.length(); k++) {
+            char c = name.charAt(k);
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_' || c == '.') {
+                builder.append(c);
+            } else {
+                builder.append('_');
+            }
+        }
+        // LP names may not start with a digit or a period.
+        char first = builder.charAt(0);
+        if ((first >= '0' && first <= '9') || first == '.') {
+            builder.insert(0, prefix);
+        }
+        return builder.toString();
+    }
+
+    static String number(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+}
@@ -0,0 +1,100 @@
+package lp;
+
+import gurobi.GRB;
+import gurobi.GRBConstr;
+import gurobi.GRBEnv;
+import gurobi.GRBException;
+import gurobi.GRBLinExpr;
+import gurobi.GRBModel;
+import gurobi.GRBVar;
+
+/**
+ * Loads a {@link SparseModel} into Gurobi. Variables are added in index
+ * order, so position j of {@code getVars()} is variable j of the sparse model.
+ */
+public final class GurobiAdapter {
+    private GurobiAdapter() {
+
+    }
+
+    public static GRBModel toGurobi(SparseModel sparseModel, GRBEnv env) throws GRBException {
+        GRBModel model = new GRBModel(env);
+        try {
+            load(model, sparseModel);
+        } catch (GRBException e) {
+            model.dispose();
+            throw e;
+        }
+        return model;
+    }
+
+    /**
+     * Adds the variables and constraints of the sparse model to an empty
+     * Gurobi model.
+     */
+    public static void load(GRBModel model, SparseModel sparseModel) throws GRBException {
+        addVars(model, sparseModel);
+        model.update();
+        addConstrs(model, sparseModel);
+        model.update();
+    }
+
+    /**
+     * Copies the bounds, objective coefficients and right-hand sides of the
+     * sparse model into a Gurobi model which was built from a sparse model
+     * with the same structure. This lets a model be re-solved with new data
+     * without rebuilding it.
+     *
+     * @see SparseModel#hasSameStructure(SparseModel)
+     */
+    public static void updateData(GRBModel model, SparseModel sparseModel) throws GRBException {
+        updateData(model, sparseModel.getData());
+    }
+
+    /**
+     * Copies the bounds, objective coefficients and right-hand sides into a
+     * Gurobi model with one variable and constraint for each of them.
+     */
+    public static void updateData(GRBModel model, ModelData data) throws GRBException {
+        GRBVar[] vars = model.getVars();
+        GRBConstr[] constrs = model.getConstrs();
+        if (vars.length != data.getNumVars() || constrs.length != data.getNumConstrs()) {
+            throw new IllegalArgumentException("Model has " + vars.length + " variables and " + constrs.length
+                    + " constraints, but the data has " + data.getNumVars() + " and " + data.getNumConstrs() + ".");
+        }
+        model.set(GRB.DoubleAttr.LB, vars, data.getLowerBounds());
+        model.set(GRB.DoubleAttr.UB, vars, data.getUpperBounds());
+        model.set(GRB.DoubleAttr.Obj, vars, data.getObjectives());
+        model.set(GRB.DoubleAttr.RHS, constrs, data.getRhsValues());
+        model.update();
+    }
+
+    public static GRBVar[] addVars(GRBModel model, SparseModel sparseModel) throws GRBException {
+        return model.addVars(sparseModel.getLowerBounds(), sparseModel.getUpperBounds(),
+                sparseModel.getObjectives(), sparseModel.getVarTypes(), sparseModel.getVarNames());
+    }
+
+    public static void addConstrs(GRBModel model, SparseModel sparseModel) throws GRBException {
+        GRBVar[] vars = model.getVars();
+        int numConstrs = sparseModel.getNumConstrs();
+        GRBLinExpr[] rows = new GRBLinExpr[numConstrs];
+        for (int i = 0; i < numConstrs; i++) {
+            rows[i] = getRow(sparseModel, i, vars);
+        }
+        model.addConstrs(rows, sparseModel.getSenses(), sparseModel.getRhsValues(), sparseModel.getConstrNames());
+    }
+
+    public static GRBLinExpr getRow(SparseModel sparseModel, int constr, GRBVar[] vars) throws GRBException {
+        int start = sparseModel.getRowStart(constr);
+        int length = sparseModel.getRowEnd(constr) - start;
+        double[] coeffs = new double[length];
+        GRBVar[] rowVars = new GRBVar[length];
+        for (int k = 0; k < length; k++) {
+            coeffs[k] = sparseModel.getValue(start + k);
+            rowVars[k] = vars[sparseModel.getColIndex(start + k)];
+        }
+        GRBLinExpr row = new GRBLinExpr();
+        row.addTerms(coeffs, rowVars);
+        return row;
+    }
+}
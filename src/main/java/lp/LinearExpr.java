@@ -0,0 +1,60 @@
+package lp;
+
+import java.util.Arrays;
+
+/**
+ * A linear expression over the variables of a {@link SparseModel}, referenced
+ * by their index.
+ */
+public class LinearExpr {
+    private int[] vars;
+    private double[] coeffs;
+    private int size;
+    private double constant;
+
+    public LinearExpr() {
+        this(4);
+    }
+
+    public LinearExpr(int expectedSize) {
+        this.vars = new int[Math.max(1, expectedSize)];
+        this.coeffs = new double[Math.max(1, expectedSize)];
+        this.size = 0;
+        this.constant = 0.0;
+    }
+
+    public void addTerm(double coeff, int var) {
+        if (size == vars.length) {
+            vars = Arrays.copyOf(vars, 2 * size);
+            coeffs = Arrays.copyOf(coeffs, 2 * size);
+        }
+        vars[size] = var;
+        coeffs[size] = coeff;
+        size++;
+    }
+
+    public void addConstant(double value) {
+        constant += value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getVar(int k) {
+        return vars[k];
+    }
+
+    public double getCoeff(int k) {
+        return coeffs[k];
+    }
+
+    public double getConstant() {
+        return constant;
+    }
+
+    public void clear() {
+        size = 0;
+        constant = 0.0;
+    }
+}
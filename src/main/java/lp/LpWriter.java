@@ -0,0 +1,148 @@
+package lp;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes a {@link SparseModel} in CPLEX LP format, streaming one row at a
+ * time.
+ */
+public final class LpWriter {
+    // LP readers limit line lengths, so long expressions are wrapped.
+    private static final int TERMS_PER_LINE = 8;
+
+    private LpWriter() {
+
+    }
+
+    public static void write(SparseModel model, File file) throws IOException {
+        Writer writer = new BufferedWriter(new FileWriter(file));
+        try {
+            write(model, file.getName(), writer);
+        } finally {
+            writer.close();
+        }
+    }
+
+    public static void write(SparseModel model, String name, Writer writer) throws IOException {
+        int numVars = model.getNumVars();
+        int numConstrs = model.getNumConstrs();
+        String[] varNames = new String[numVars];
+        for (int j = 0; j < numVars; j++) {
+            varNames[j] = ExportNames.varName(model, j);
+        }
+
+        writer.write("\\ " + name + "\n");
+        writer.write("Minimize\n");
+        writer.write(" obj:");
+        int written = 0;
+        for (int j = 0; j < numVars; j++) {
+            if (model.getObjective(j) != 0.0) {
+                writeTerm(model.getObjective(j), varNames[j], written++, writer);
+            }
+        }
+        if (written == 0 && numVars > 0) {
+            writer.write(" 0 " + varNames[0]);
+        }
+        writer.write("\n");
+
+        writer.write("Subject To\n");
+        for (int i = 0; i < numConstrs; i++) {
+            writer.write(" " + ExportNames.constrName(model, i) + ":");
+            written = 0;
+            for (int k = model.getRowStart(i); k < model.getRowEnd(i); k++) {
+                writeTerm(model.getValue(k), varNames[model.getColIndex(k)], written++, writer);
+            }
+            if (written == 0) {
+                writer.write(" 0 " + varNames[0]);
+            }
+            writer.write(" " + sense(model.getSense(i)) + " " + ExportNames.number(model.getRhs(i)) + "\n");
+        }
+
+        writer.write("Bounds\n");
+        for (int j = 0; j < numVars; j++) {
+            writeBounds(model, j, varNames[j], writer);
+        }
+
+        writeTypeSection(model, SparseModel.INTEGER, "General", varNames, writer);
+        writeTypeSection(model, SparseModel.BINARY, "Binary", varNames, writer);
+        writer.write("End\n");
+    }
+
+    private static void writeTerm(double coeff, String varName, int position, Writer writer) throws IOException {
+        if (position > 0 && position % TERMS_PER_LINE == 0) {
+            writer.write("\n  ");
+        }
+        if (coeff < 0) {
+            writer.write(" - ");
+        } else if (position > 0) {
+            writer.write(" + ");
+        } else {
+            writer.write(" ");
+        }
+        double magnitude = Math.abs(coeff);
+        if (magnitude != 1.0) {
+            writer.write(ExportNames.number(magnitude) + " ");
+        }
+        writer.write(varName);
+    }
+
+    private static void writeBounds(SparseModel model, int var, String varName, Writer writer) throws IOException {
+        double lb = model.getLowerBound(var);
+        double ub = model.getUpperBound(var);
+        boolean noLower = lb <= -SparseModel.INFINITY;
+        boolean noUpper = ub >= SparseModel.INFINITY;
+        if (model.getVarType(var) == SparseModel.BINARY && lb == 0.0 && ub == 1.0) {
+            return;
+        }
+        if (noLower && noUpper) {
+            writer.write(" " + varName + " free\n");
+        } else if (lb == ub) {
+            writer.write(" " + varName + " = " + ExportNames.number(lb) + "\n");
+        } else if (noUpper) {
+            if (lb != 0.0) {
+                writer.write(" " + varName + " >= " + ExportNames.number(lb) + "\n");
+            }
+        } else {
+            writer.write(" " + (noLower ? "-inf" : ExportNames.number(lb)) + " <= " + varName + " <= "
+                    + ExportNames.number(ub) + "\n");
+        }
+    }
+
+    private static void writeTypeSection(SparseModel model, char type, String header, String[] varNames,
+                                         Writer writer) throws IOException {
+        boolean started = false;
+        int written = 0;
+        for (int j = 0; j < model.getNumVars(); j++) {
+            if (model.getVarType(j) == type) {
+                if (!started) {
+                    writer.write(header + "\n");
+                    started = true;
+                }
+                writer.write(" " + varNames[j]);
+                if (++written % TERMS_PER_LINE == 0) {
+                    writer.write("\n");
+                }
+            }
+        }
+        if (started && written % TERMS_PER_LINE != 0) {
+            writer.write("\n");
+        }
+    }
+
+    private static String sense(char sense) {
+        switch (sense) {
+            case SparseModel.LESS_EQUAL:
+                return "<=";
+            case SparseModel.GREATER_EQUAL:
+                return ">=";
+            case SparseModel.EQUAL:
+                return "=";
+            default:
+                throw new IllegalArgumentException("Unknown constraint sense: " + sense);
+        }
+    }
+}
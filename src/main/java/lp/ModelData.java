@@ -0,0 +1,70 @@
+package lp;
+
+import java.util.Arrays;
+
+/**
+ * The bounds, objective coefficients and right-hand sides of a model without
+ * its constraint matrix. Models with the same structure differ only in these,
+ * so a model read from a file can be patched with the data of another input.
+ */
+public final class ModelData {
+    private final double[] lb;
+    private final double[] ub;
+    private final double[] obj;
+    private final double[] rhs;
+
+    /**
+     * Data with all bounds, objective coefficients and right-hand sides zero.
+     */
+    public ModelData(int numVars, int numConstrs) {
+        lb = new double[numVars];
+        ub = new double[numVars];
+        obj = new double[numVars];
+        rhs = new double[numConstrs];
+    }
+
+    public ModelData(double[] lb, double[] ub, double[] obj, double[] rhs) {
+        if (lb.length != ub.length || lb.length != obj.length) {
+            throw new IllegalArgumentException("Bounds and objective must have one entry per variable, but had "
+                    + lb.length + ", " + ub.length + " and " + obj.length + ".");
+        }
+        this.lb = Arrays.copyOf(lb, lb.length);
+        this.ub = Arrays.copyOf(ub, ub.length);
+        this.obj = Arrays.copyOf(obj, obj.length);
+        this.rhs = Arrays.copyOf(rhs, rhs.length);
+    }
+
+    public void setVar(int var, double lowerBound, double upperBound, double objective) {
+        lb[var] = lowerBound;
+        ub[var] = upperBound;
+        obj[var] = objective;
+    }
+
+    public void setRhs(int constr, double value) {
+        rhs[constr] = value;
+    }
+
+    public int getNumVars() {
+        return lb.length;
+    }
+
+    public int getNumConstrs() {
+        return rhs.length;
+    }
+
+    public double[] getLowerBounds() {
+        return Arrays.copyOf(lb, lb.length);
+    }
+
+    public double[] getUpperBounds() {
+        return Arrays.copyOf(ub, ub.length);
+    }
+
+    public double[] getObjectives() {
+        return Arrays.copyOf(obj, obj.length);
+    }
+
+    public double[] getRhsValues() {
+        return Arrays.copyOf(rhs, rhs.length);
+    }
+}
@@ -0,0 +1,161 @@
+package lp;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes a {@link SparseModel} in free MPS format. The rows are streamed
+ * straight from the CSR arrays; only the column-wise index needed for the
+ * COLUMNS section is built in memory.
+ */
+public final class MpsWriter {
+    private static final String OBJECTIVE_ROW = "OBJ";
+
+    private MpsWriter() {
+
+    }
+
+    public static void write(SparseModel model, File file) throws IOException {
+        Writer writer = new BufferedWriter(new FileWriter(file));
+        try {
+            write(model, file.getName(), writer);
+        } finally {
+            writer.close();
+        }
+    }
+
+    public static void write(SparseModel model, String name, Writer writer) throws IOException {
+        int numVars = model.getNumVars();
+        int numConstrs = model.getNumConstrs();
+        String[] varNames = new String[numVars];
+        for (int j = 0; j < numVars; j++) {
+            varNames[j] = ExportNames.mpsVarName(model, j);
+        }
+        String[] constrNames = new String[numConstrs];
+        for (int i = 0; i < numConstrs; i++) {
+            constrNames[i] = ExportNames.mpsConstrName(model, i);
+        }
+
+        writer.write("NAME " + ExportNames.sanitize(name, "model", 0) + "\n");
+        writer.write("ROWS\n");
+        writer.write(" N " + OBJECTIVE_ROW + "\n");
+        for (int i = 0; i < numConstrs; i++) {
+            writer.write(" " + rowType(model.getSense(i)) + " " + constrNames[i] + "\n");
+        }
+
+        writeColumns(model, varNames, constrNames, writer);
+
+        writer.write("RHS\n");
+        for (int i = 0; i < numConstrs; i++) {
+            if (model.getRhs(i) != 0.0) {
+                writer.write("    RHS " + constrNames[i] + " " + ExportNames.number(model.getRhs(i)) + "\n");
+            }
+        }
+
+        writer.write("BOUNDS\n");
+        for (int j = 0; j < numVars; j++) {
+            writeBounds(model, j, varNames[j], writer);
+        }
+        writer.write("ENDATA\n");
+    }
+
+    private static void writeColumns(SparseModel model, String[] varNames, String[] constrNames, Writer writer)
+            throws IOException {
+        int numVars = model.getNumVars();
+        int numConstrs = model.getNumConstrs();
+        int numNonZeros = model.getNumNonZeros();
+
+        // Transpose the CSR matrix to get the entries of each column.
+        int[] colStart = new int[numVars + 1];
+        for (int k = 0; k < numNonZeros; k++) {
+            colStart[model.getColIndex(k) + 1]++;
+        }
+        for (int j = 0; j < numVars; j++) {
+            colStart[j + 1] += colStart[j];
+        }
+        int[] next = new int[numVars];
+        System.arraycopy(colStart, 0, next, 0, numVars);
+        int[] rowIndex = new int[numNonZeros];
+        double[] colValues = new double[numNonZeros];
+        for (int i = 0; i < numConstrs; i++) {
+            for (int k = model.getRowStart(i); k < model.getRowEnd(i); k++) {
+                int j = model.getColIndex(k);
+                rowIndex[next[j]] = i;
+                colValues[next[j]] = model.getValue(k);
+                next[j]++;
+            }
+        }
+
+        writer.write("COLUMNS\n");
+        boolean inIntegerBlock = false;
+        int markerCount = 0;
+        for (int j = 0; j < numVars; j++) {
+            boolean isInteger = model.getVarType(j) != SparseModel.CONTINUOUS;
+            if (isInteger != inIntegerBlock) {
+                writer.write("    MARKER" + markerCount++ + " 'MARKER' " + (isInteger ? "'INTORG'" : "'INTEND'")
+                        + "\n");
+                inIntegerBlock = isInteger;
+            }
+            if (model.getObjective(j) != 0.0) {
+                writer.write("    " + varNames[j] + " " + OBJECTIVE_ROW + " "
+                        + ExportNames.number(model.getObjective(j)) + "\n");
+            }
+            for (int k = colStart[j]; k < colStart[j + 1]; k++) {
+                writer.write("    " + varNames[j] + " " + constrNames[rowIndex[k]] + " "
+                        + ExportNames.number(colValues[k]) + "\n");
+            }
+            if (model.getObjective(j) == 0.0 && colStart[j] == colStart[j + 1]) {
+                // Columns must appear at least once to be declared.
+                writer.write("    " + varNames[j] + " " + OBJECTIVE_ROW + " 0\n");
+            }
+        }
+        if (inIntegerBlock) {
+            writer.write("    MARKER" + markerCount + " 'MARKER' 'INTEND'\n");
+        }
+    }
+
+    private static void writeBounds(SparseModel model, int var, String varName, Writer writer) throws IOException {
+        double lb = model.getLowerBound(var);
+        double ub = model.getUpperBound(var);
+        char type = model.getVarType(var);
+        if (type == SparseModel.BINARY && lb == 0.0 && ub == 1.0) {
+            writer.write(" BV BND " + varName + "\n");
+            return;
+        }
+        if (lb <= -SparseModel.INFINITY && ub >= SparseModel.INFINITY) {
+            writer.write(" FR BND " + varName + "\n");
+            return;
+        }
+        if (lb == ub) {
+            writer.write(" FX BND " + varName + " " + ExportNames.number(lb) + "\n");
+            return;
+        }
+        if (lb <= -SparseModel.INFINITY) {
+            writer.write(" MI BND " + varName + "\n");
+        } else if (lb != 0.0) {
+            writer.write(" LO BND " + varName + " " + ExportNames.number(lb) + "\n");
+        }
+        if (ub < SparseModel.INFINITY) {
+            writer.write(" UP BND " + varName + " " + ExportNames.number(ub) + "\n");
+        } else if (type != SparseModel.CONTINUOUS) {
+            // Some readers default integer columns to an upper bound of one.
+            writer.write(" PL BND " + varName + "\n");
+        }
+    }
+
+    private static String rowType(char sense) {
+        switch (sense) {
+            case SparseModel.LESS_EQUAL:
+                return "L";
+            case SparseModel.GREATER_EQUAL:
+                return "G";
+            case SparseModel.EQUAL:
+                return "E";
+            default:
+                throw new IllegalArgumentException("Unknown constraint sense: " + sense);
+        }
+    }
+}
@@ -0,0 +1,389 @@
+package lp;
+
+import java.util.Arrays;
+
+/**
+ * A bounded-variable primal revised simplex method for the LP relaxation of a
+ * {@link SparseModel}. Integrality is ignored. The basis inverse is kept as a
+ * dense matrix and updated by a pivot in every iteration, so memory grows
+ * with the square of the number of rows; this solver is meant for the small
+ * instances used in regression checks on machines without a Gurobi license.
+ * <p>
+ * Every row gets a slack column, bounded according to the sense of the row,
+ * and an artificial column. Phase one drives the artificial columns to zero,
+ * after which they are fixed at zero and phase two optimizes the objective.
+ */
+public class SimplexSolver {
+    public static final int DEFAULT_MAX_ROWS = 4000;
+    public static final int DEFAULT_MAX_ITERATIONS = 1000000;
+
+    private static final double FEASIBILITY_TOL = 1e-9;
+    private static final double OPTIMALITY_TOL = 1e-9;
+    private static final double PIVOT_TOL = 1e-9;
+    private static final double PHASE_ONE_TOL = 1e-7;
+    // Basic values are recomputed from scratch this often to limit drift.
+    private static final int REFRESH_INTERVAL = 100;
+    // After this many degenerate pivots in a row Bland's rule is used.
+    private static final int DEGENERATE_LIMIT = 50;
+
+    private final int maxIterations;
+    private final int maxRows;
+
+    public SimplexSolver() {
+        this(DEFAULT_MAX_ITERATIONS, DEFAULT_MAX_ROWS);
+    }
+
+    public SimplexSolver(int maxIterations, int maxRows) {
+        this.maxIterations = maxIterations;
+        this.maxRows = maxRows;
+    }
+
+    public Solution solve(SparseModel model) {
+        return solve(model, model.getLowerBounds(), model.getUpperBounds());
+    }
+
+    /**
+     * Solves the LP relaxation with the given variable bounds in place of the
+     * bounds stored in the model.
+     */
+    public Solution solve(SparseModel model, double[] lb, double[] ub) {
+        if (model.getNumConstrs() > maxRows) {
+            throw new IllegalArgumentException("Model has " + model.getNumConstrs()
+                    + " rows, but the dense simplex solver is limited to " + maxRows + ".");
+        }
+        for (int j = 0; j < model.getNumVars(); j++) {
+            if (lb[j] > ub[j] + FEASIBILITY_TOL) {
+                return new Solution(Solution.Status.INFEASIBLE, Double.NaN, Double.POSITIVE_INFINITY, null, 0, 0);
+            }
+        }
+        return new Run(model, lb, ub).solve();
+    }
+
+    private class Run {
+        private final SparseModel model;
+        private final int numRows;
+        private final int numOriginal;
+        private final int numTotal;
+
+        // Column-wise copy of the constraint matrix for the original columns.
+        private final int[] colStart;
+        private final int[] rowIndex;
+        private final double[] colValues;
+        private final double[] artificialSigns;
+
+        private final double[] lower;
+        private final double[] upper;
+        private final double[] x;
+        private final double[] rhs;
+        private final int[] basis;
+        private final int[] position;
+        private final double[][] binv;
+
+        private final double[] y;
+        private final double[] alpha;
+        private int iterations;
+
+        private Run(SparseModel model, double[] lb, double[] ub) {
+            this.model = model;
+            numRows = model.getNumConstrs();
+            numOriginal = model.getNumVars();
+            numTotal = numOriginal + 2 * numRows;
+
+            int numNonZeros = model.getNumNonZeros();
+            colStart = new int[numOriginal + 1];
+            for (int k = 0; k < numNonZeros; k++) {
+                colStart[model.getColIndex(k) + 1]++;
+            }
+            for (int j = 0; j < numOriginal; j++) {
+                colStart[j + 1] += colStart[j];
+            }
+            int[] next = new int[numOriginal];
+            System.arraycopy(colStart, 0, next, 0, numOriginal);
+            rowIndex = new int[numNonZeros];
+            colValues = new double[numNonZeros];
+            for (int i = 0; i < numRows; i++) {
+                for (int k = model.getRowStart(i); k < model.getRowEnd(i); k++) {
+                    int j = model.getColIndex(k);
+                    rowIndex[next[j]] = i;
+                    colValues[next[j]] = model.getValue(k);
+                    next[j]++;
+                }
+            }
+
+            lower = new double[numTotal];
+            upper = new double[numTotal];
+            x = new double[numTotal];
+            for (int j = 0; j < numOriginal; j++) {
+                lower[j] = lb[j] <= -SparseModel.INFINITY ? Double.NEGATIVE_INFINITY : lb[j];
+                upper[j] = ub[j] >= SparseModel.INFINITY ? Double.POSITIVE_INFINITY : ub[j];
+                if (!Double.isInfinite(lower[j])) {
+                    x[j] = lower[j];
+                } else if (!Double.isInfinite(upper[j])) {
+                    x[j] = upper[j];
+                }
+            }
+            rhs = new double[numRows];
+            for (int i = 0; i < numRows; i++) {
+                int slack = numOriginal + i;
+                char sense = model.getSense(i);
+                lower[slack] = sense == SparseModel.GREATER_EQUAL ? Double.NEGATIVE_INFINITY : 0.0;
+                upper[slack] = sense == SparseModel.LESS_EQUAL ? Double.POSITIVE_INFINITY : 0.0;
+                rhs[i] = model.getRhs(i);
+            }
+
+            // Start from the basis of artificial columns, which absorb the
+            // residual of the initial nonbasic values.
+            artificialSigns = new double[numRows];
+            basis = new int[numRows];
+            position = new int[numTotal];
+            Arrays.fill(position, -1);
+            binv = new double[numRows][numRows];
+            for (int i = 0; i < numRows; i++) {
+                double residual = rhs[i];
+                for (int k = model.getRowStart(i); k < model.getRowEnd(i); k++) {
+                    residual -= model.getValue(k) * x[model.getColIndex(k)];
+                }
+                int artificial = numOriginal + numRows + i;
+                artificialSigns[i] = residual >= 0 ? 1.0 : -1.0;
+                lower[artificial] = 0.0;
+                upper[artificial] = Double.POSITIVE_INFINITY;
+                x[artificial] = Math.abs(residual);
+                basis[i] = artificial;
+                position[artificial] = i;
+                binv[i][i] = artificialSigns[i];
+            }
+            y = new double[numRows];
+            alpha = new double[numRows];
+        }
+
+        private Solution solve() {
+            double[] cost = new double[numTotal];
+            for (int i = 0; i < numRows; i++) {
+                cost[numOriginal + numRows + i] = 1.0;
+            }
+            Solution.Status status = iterate(cost);
+            if (status != Solution.Status.OPTIMAL) {
+                return new Solution(status, Double.NaN, Double.NEGATIVE_INFINITY, null, iterations, 0);
+            }
+            double infeasibility = 0.0;
+            for (int i = 0; i < numRows; i++) {
+                infeasibility += x[numOriginal + numRows + i];
+            }
+            if (infeasibility > PHASE_ONE_TOL * Math.max(1.0, numRows)) {
+                return new Solution(Solution.Status.INFEASIBLE, Double.NaN, Double.POSITIVE_INFINITY, null,
+                        iterations, 0);
+            }
+
+            for (int i = 0; i < numRows; i++) {
+                int artificial = numOriginal + numRows + i;
+                upper[artificial] = 0.0;
+                if (position[artificial] < 0) {
+                    x[artificial] = 0.0;
+                }
+            }
+            cost = new double[numTotal];
+            for (int j = 0; j < numOriginal; j++) {
+                cost[j] = model.getObjective(j);
+            }
+            status = iterate(cost);
+            if (status != Solution.Status.OPTIMAL) {
+                double bound = status == Solution.Status.UNBOUNDED ? Double.NEGATIVE_INFINITY : Double.NaN;
+                return new Solution(status, Double.NaN, bound, null, iterations, 0);
+            }
+            double[] values = new double[numOriginal];
+            System.arraycopy(x, 0, values, 0, numOriginal);
+            double objective = model.getObjectiveValue(values);
+            return new Solution(Solution.Status.OPTIMAL, objective, objective, values, iterations, 0);
+        }
+
+        private Solution.Status iterate(double[] cost) {
+            int degenerateCount = 0;
+            int sinceRefresh = 0;
+            while (iterations < maxIterations) {
+                boolean bland = degenerateCount >= DEGENERATE_LIMIT;
+                computeDuals(cost);
+                int entering = -1;
+                double bestScore = 0.0;
+                double direction = 0.0;
+                for (int j = 0; j < numTotal; j++) {
+                    if (position[j] >= 0 || lower[j] == upper[j]) {
+                        continue;
+                    }
+                    double reducedCost = cost[j] - dotColumn(j, y);
+                    double score = 0.0;
+                    double dir = 0.0;
+                    if (reducedCost < -OPTIMALITY_TOL && x[j] < upper[j] - FEASIBILITY_TOL) {
+                        score = -reducedCost;
+                        dir = 1.0;
+                    } else if (reducedCost > OPTIMALITY_TOL && x[j] > lower[j] + FEASIBILITY_TOL) {
+                        score = reducedCost;
+                        dir = -1.0;
+                    }
+                    if (score > bestScore) {
+                        entering = j;
+                        bestScore = score;
+                        direction = dir;
+                        if (bland) {
+                            break;
+                        }
+                    }
+                }
+                if (entering < 0) {
+                    return Solution.Status.OPTIMAL;
+                }
+
+                computeColumn(entering);
+                double step = upper[entering] - lower[entering];
+                int leavingRow = -1;
+                for (int i = 0; i < numRows; i++) {
+                    double delta = direction * alpha[i];
+                    if (Math.abs(delta) <= PIVOT_TOL) {
+                        continue;
+                    }
+                    int basic = basis[i];
+                    double limit;
+                    if (delta > 0) {
+                        if (Double.isInfinite(lower[basic])) {
+                            continue;
+                        }
+                        limit = Math.max(0.0, (x[basic] - lower[basic]) / delta);
+                    } else {
+                        if (Double.isInfinite(upper[basic])) {
+                            continue;
+                        }
+                        limit = Math.max(0.0, (upper[basic] - x[basic]) / -delta);
+                    }
+                    if (limit < step - FEASIBILITY_TOL || (leavingRow >= 0 && limit <= step + FEASIBILITY_TOL
+                            && prefer(i, leavingRow, bland))) {
+                        step = Math.min(step, limit);
+                        leavingRow = i;
+                    }
+                }
+                if (Double.isInfinite(step)) {
+                    return Solution.Status.UNBOUNDED;
+                }
+
+                x[entering] += direction * step;
+                for (int i = 0; i < numRows; i++) {
+                    x[basis[i]] -= step * direction * alpha[i];
+                }
+                if (leavingRow >= 0) {
+                    int leaving = basis[leavingRow];
+                    x[leaving] = direction * alpha[leavingRow] > 0 ? lower[leaving] : upper[leaving];
+                    pivot(leavingRow, entering);
+                }
+                iterations++;
+                degenerateCount = step <= FEASIBILITY_TOL ? degenerateCount + 1 : 0;
+                if (++sinceRefresh >= REFRESH_INTERVAL) {
+                    refreshBasicValues();
+                    sinceRefresh = 0;
+                }
+            }
+            return Solution.Status.ITERATION_LIMIT;
+        }
+
+        /**
+         * Breaks ties in the ratio test: by lowest variable index under
+         * Bland's rule, and otherwise by the larger pivot element.
+         */
+        private boolean prefer(int row, int currentRow, boolean bland) {
+            if (bland) {
+                return basis[row] < basis[currentRow];
+            }
+            return Math.abs(alpha[row]) > Math.abs(alpha[currentRow]);
+        }
+
+        private void computeDuals(double[] cost) {
+            Arrays.fill(y, 0.0);
+            for (int i = 0; i < numRows; i++) {
+                double basicCost = cost[basis[i]];
+                if (basicCost != 0.0) {
+                    double[] row = binv[i];
+                    for (int k = 0; k < numRows; k++) {
+                        y[k] += basicCost * row[k];
+                    }
+                }
+            }
+        }
+
+        private double dotColumn(int j, double[] vector) {
+            if (j < numOriginal) {
+                double sum = 0.0;
+                for (int k = colStart[j]; k < colStart[j + 1]; k++) {
+                    sum += colValues[k] * vector[rowIndex[k]];
+                }
+                return sum;
+            } else if (j < numOriginal + numRows) {
+                return vector[j - numOriginal];
+            }
+            int row = j - numOriginal - numRows;
+            return artificialSigns[row] * vector[row];
+        }
+
+        private void computeColumn(int j) {
+            Arrays.fill(alpha, 0.0);
+            if (j < numOriginal) {
+                for (int k = colStart[j]; k < colStart[j + 1]; k++) {
+                    addScaledColumnOfInverse(rowIndex[k], colValues[k]);
+                }
+            } else if (j < numOriginal + numRows) {
+                addScaledColumnOfInverse(j - numOriginal, 1.0);
+            } else {
+                int row = j - numOriginal - numRows;
+                addScaledColumnOfInverse(row, artificialSigns[row]);
+            }
+        }
+
+        private void addScaledColumnOfInverse(int column, double scale) {
+            for (int i = 0; i < numRows; i++) {
+                alpha[i] += binv[i][column] * scale;
+            }
+        }
+
+        private void pivot(int leavingRow, int entering) {
+            double[] pivotRow = binv[leavingRow];
+            double pivotValue = alpha[leavingRow];
+            for (int k = 0; k < numRows; k++) {
+                pivotRow[k] /= pivotValue;
+            }
+            for (int i = 0; i < numRows; i++) {
+                if (i != leavingRow && alpha[i] != 0.0) {
+                    double factor = alpha[i];
+                    double[] row = binv[i];
+                    for (int k = 0; k < numRows; k++) {
+                        row[k] -= factor * pivotRow[k];
+                    }
+                }
+            }
+            position[basis[leavingRow]] = -1;
+            basis[leavingRow] = entering;
+            position[entering] = leavingRow;
+        }
+
+        private void refreshBasicValues() {
+            double[] residual = rhs.clone();
+            for (int j = 0; j < numTotal; j++) {
+                if (position[j] < 0 && x[j] != 0.0) {
+                    if (j < numOriginal) {
+                        for (int k = colStart[j]; k < colStart[j + 1]; k++) {
+                            residual[rowIndex[k]] -= colValues[k] * x[j];
+                        }
+                    } else if (j < numOriginal + numRows) {
+                        residual[j - numOriginal] -= x[j];
+                    } else {
+                        int row = j - numOriginal - numRows;
+                        residual[row] -= artificialSigns[row] * x[j];
+                    }
+                }
+            }
+            for (int i = 0; i < numRows; i++) {
+                double value = 0.0;
+                double[] row = binv[i];
+                for (int k = 0; k < numRows; k++) {
+                    value += row[k] * residual[k];
+                }
+                x[basis[i]] = value;
+            }
+        }
+    }
+}
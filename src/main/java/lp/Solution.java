@@ -0,0 +1,73 @@
+package lp;
+
+/**
+ * The result of solving a {@link SparseModel} with one of the pure-Java
+ * solvers.
+ */
+public class Solution {
+    public enum Status {
+        OPTIMAL, INFEASIBLE, UNBOUNDED, ITERATION_LIMIT, NODE_LIMIT
+    }
+
+    private final Status status;
+    private final double objective;
+    private final double bound;
+    private final double[] values;
+    private final int iterations;
+    private final int nodes;
+
+    public Solution(Status status, double objective, double bound, double[] values, int iterations, int nodes) {
+        this.status = status;
+        this.objective = objective;
+        this.bound = bound;
+        this.values = values == null ? null : values.clone();
+        this.iterations = iterations;
+        this.nodes = nodes;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * The objective value of the best solution found, or NaN if there is
+     * none.
+     */
+    public double getObjective() {
+        return objective;
+    }
+
+    /**
+     * The best proven lower bound. For an LP solved to optimality this equals
+     * the objective.
+     */
+    public double getBound() {
+        return bound;
+    }
+
+    public boolean hasValues() {
+        return values != null;
+    }
+
+    public double getValue(int var) {
+        return values[var];
+    }
+
+    public double[] getValues() {
+        return values.clone();
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public int getNodes() {
+        return nodes;
+    }
+
+    @Override
+    public String toString() {
+        return "Status: " + status + ", Obj: " + objective + ", Bound: " + bound + ", Iterations: " + iterations
+                + ", Nodes: " + nodes;
+    }
+}
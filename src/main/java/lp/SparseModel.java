@@ -0,0 +1,346 @@
+package lp;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * A solver-independent representation of a minimization MIP. Columns are
+ * stored as bound, objective and type arrays, and the constraint matrix is
+ * stored row-wise in compressed sparse row (CSR) form. The constants mirror
+ * the corresponding Gurobi values, so models can be handed to Gurobi without
+ * translation.
+ */
+public class SparseModel {
+    public static final double INFINITY = 1e100;
+
+    public static final char CONTINUOUS = 'C';
+    public static final char BINARY = 'B';
+    public static final char INTEGER = 'I';
+
+    public static final char LESS_EQUAL = '<';
+    public static final char GREATER_EQUAL = '>';
+    public static final char EQUAL = '=';
+
+    private int numVars;
+    private double[] lb;
+    private double[] ub;
+    private double[] obj;
+    private char[] types;
+    private String[] varNames;
+
+    private int numConstrs;
+    private int[] rowStart;
+    private char[] senses;
+    private double[] rhs;
+    private String[] constrNames;
+
+    private int numNonZeros;
+    private int[] colIndex;
+    private double[] values;
+
+    private HashMap<String, Integer> varIndexByName;
+
+    public SparseModel() {
+        this(16, 16, 64);
+    }
+
+    public SparseModel(int expectedVars, int expectedConstrs, int expectedNonZeros) {
+        int varCapacity = Math.max(1, expectedVars);
+        int constrCapacity = Math.max(1, expectedConstrs);
+        int nonZeroCapacity = Math.max(1, expectedNonZeros);
+        lb = new double[varCapacity];
+        ub = new double[varCapacity];
+        obj = new double[varCapacity];
+        types = new char[varCapacity];
+        varNames = new String[varCapacity];
+        rowStart = new int[constrCapacity + 1];
+        senses = new char[constrCapacity];
+        rhs = new double[constrCapacity];
+        constrNames = new String[constrCapacity];
+        colIndex = new int[nonZeroCapacity];
+        values = new double[nonZeroCapacity];
+    }
+
+    public int addVar(double lowerBound, double upperBound, double objective, char type, String name) {
+        if (numVars == lb.length) {
+            int capacity = 2 * numVars;
+            lb = Arrays.copyOf(lb, capacity);
+            ub = Arrays.copyOf(ub, capacity);
+            obj = Arrays.copyOf(obj, capacity);
+            types = Arrays.copyOf(types, capacity);
+            varNames = Arrays.copyOf(varNames, capacity);
+        }
+        lb[numVars] = lowerBound;
+        ub[numVars] = upperBound;
+        obj[numVars] = objective;
+        types[numVars] = type;
+        varNames[numVars] = name;
+        if (varIndexByName != null) {
+            varIndexByName.put(name, numVars);
+        }
+        return numVars++;
+    }
+
+    /**
+     * Adds the constraint lhs (sense) rhs. All variable terms are moved to
+     * the left-hand side and all constants to the right-hand side, and terms
+     * on the same variable are merged.
+     */
+    public int addConstr(LinearExpr lhs, char sense, LinearExpr rhsExpr, String name) {
+        int numTerms = lhs.size() + rhsExpr.size();
+        int[] rowVars = new int[numTerms];
+        double[] rowCoeffs = new double[numTerms];
+        for (int k = 0; k < lhs.size(); k++) {
+            rowVars[k] = lhs.getVar(k);
+            rowCoeffs[k] = lhs.getCoeff(k);
+        }
+        for (int k = 0; k < rhsExpr.size(); k++) {
+            rowVars[lhs.size() + k] = rhsExpr.getVar(k);
+            rowCoeffs[lhs.size() + k] = -rhsExpr.getCoeff(k);
+        }
+        return appendRow(rowVars, rowCoeffs, numTerms, sense, rhsExpr.getConstant() - lhs.getConstant(), name);
+    }
+
+    public int addConstr(LinearExpr lhs, char sense, double rhsValue, String name) {
+        int[] rowVars = new int[lhs.size()];
+        double[] rowCoeffs = new double[lhs.size()];
+        for (int k = 0; k < lhs.size(); k++) {
+            rowVars[k] = lhs.getVar(k);
+            rowCoeffs[k] = lhs.getCoeff(k);
+        }
+        return appendRow(rowVars, rowCoeffs, lhs.size(), sense, rhsValue - lhs.getConstant(), name);
+    }
+
+    public int addConstr(int var1, char sense, int var2, String name) {
+        return appendRow(new int[]{var1, var2}, new double[]{1.0, -1.0}, 2, sense, 0.0, name);
+    }
+
+    private int appendRow(int[] rowVars, double[] rowCoeffs, int numTerms, char sense, double rhsValue,
+                          String name) {
+        sortAndMerge(rowVars, rowCoeffs, numTerms);
+        if (numConstrs == senses.length) {
+            int capacity = 2 * numConstrs;
+            rowStart = Arrays.copyOf(rowStart, capacity + 1);
+            senses = Arrays.copyOf(senses, capacity);
+            rhs = Arrays.copyOf(rhs, capacity);
+            constrNames = Arrays.copyOf(constrNames, capacity);
+        }
+        int start = numNonZeros;
+        for (int k = 0; k < numTerms; k++) {
+            if (rowCoeffs[k] != 0.0) {
+                if (numNonZeros == colIndex.length) {
+                    colIndex = Arrays.copyOf(colIndex, 2 * numNonZeros);
+                    values = Arrays.copyOf(values, 2 * numNonZeros);
+                }
+                colIndex[numNonZeros] = rowVars[k];
+                values[numNonZeros] = rowCoeffs[k];
+                numNonZeros++;
+            }
+        }
+        rowStart[numConstrs] = start;
+        rowStart[numConstrs + 1] = numNonZeros;
+        senses[numConstrs] = sense;
+        rhs[numConstrs] = rhsValue;
+        constrNames[numConstrs] = name;
+        return numConstrs++;
+    }
+
+    /**
+     * Sorts the terms by variable index with an insertion sort, which is
+     * fast for the short rows of our models, and folds repeated variables
+     * into one term whose coefficient is set to zero for the duplicates.
+     */
+    private static void sortAndMerge(int[] rowVars, double[] rowCoeffs, int numTerms) {
+        for (int k = 1; k < numTerms; k++) {
+            int var = rowVars[k];
+            double coeff = rowCoeffs[k];
+            int m = k - 1;
+            while (m >= 0 && rowVars[m] > var) {
+                rowVars[m + 1] = rowVars[m];
+                rowCoeffs[m + 1] = rowCoeffs[m];
+                m--;
+            }
+            rowVars[m + 1] = var;
+            rowCoeffs[m + 1] = coeff;
+        }
+        int last = 0;
+        for (int k = 1; k < numTerms; k++) {
+            if (rowVars[k] == rowVars[last]) {
+                rowCoeffs[last] += rowCoeffs[k];
+                rowCoeffs[k] = 0.0;
+            } else {
+                last = k;
+            }
+        }
+    }
+
+    public int getNumVars() {
+        return numVars;
+    }
+
+    public int getNumConstrs() {
+        return numConstrs;
+    }
+
+    public int getNumNonZeros() {
+        return numNonZeros;
+    }
+
+    public double getLowerBound(int var) {
+        return lb[var];
+    }
+
+    public double getUpperBound(int var) {
+        return ub[var];
+    }
+
+    public double getObjective(int var) {
+        return obj[var];
+    }
+
+    public char getVarType(int var) {
+        return types[var];
+    }
+
+    public String getVarName(int var) {
+        return varNames[var];
+    }
+
+    public void setBounds(int var, double lowerBound, double upperBound) {
+        lb[var] = lowerBound;
+        ub[var] = upperBound;
+    }
+
+    public void setObjective(int var, double objective) {
+        obj[var] = objective;
+    }
+
+    /**
+     * Returns the index of the variable with the given name, or -1 if there
+     * is none. The name index is built on first use.
+     */
+    public int getVarIndex(String name) {
+        if (varIndexByName == null) {
+            varIndexByName = new HashMap<String, Integer>(2 * numVars);
+            for (int j = 0; j < numVars; j++) {
+                varIndexByName.put(varNames[j], j);
+            }
+        }
+        Integer index = varIndexByName.get(name);
+        return index == null ? -1 : index;
+    }
+
+    public int getRowStart(int constr) {
+        return rowStart[constr];
+    }
+
+    public int getRowEnd(int constr) {
+        return rowStart[constr + 1];
+    }
+
+    public int getColIndex(int nonZero) {
+        return colIndex[nonZero];
+    }
+
+    public double getValue(int nonZero) {
+        return values[nonZero];
+    }
+
+    public char getSense(int constr) {
+        return senses[constr];
+    }
+
+    public double getRhs(int constr) {
+        return rhs[constr];
+    }
+
+    public void setRhs(int constr, double value) {
+        rhs[constr] = value;
+    }
+
+    public String getConstrName(int constr) {
+        return constrNames[constr];
+    }
+
+    public double[] getLowerBounds() {
+        return Arrays.copyOf(lb, numVars);
+    }
+
+    public double[] getUpperBounds() {
+        return Arrays.copyOf(ub, numVars);
+    }
+
+    public double[] getObjectives() {
+        return Arrays.copyOf(obj, numVars);
+    }
+
+    public char[] getVarTypes() {
+        return Arrays.copyOf(types, numVars);
+    }
+
+    public String[] getVarNames() {
+        return Arrays.copyOf(varNames, numVars);
+    }
+
+    public char[] getSenses() {
+        return Arrays.copyOf(senses, numConstrs);
+    }
+
+    public double[] getRhsValues() {
+        return Arrays.copyOf(rhs, numConstrs);
+    }
+
+    public String[] getConstrNames() {
+        return Arrays.copyOf(constrNames, numConstrs);
+    }
+
+    /**
+     * The bounds, objective coefficients and right-hand sides of the model.
+     */
+    public ModelData getData() {
+        return new ModelData(getLowerBounds(), getUpperBounds(), getObjectives(), getRhsValues());
+    }
+
+    /**
+     * Whether the other model has the same variable types, constraint senses
+     * and constraint matrix as this one, so that the two only differ in
+     * bounds, objective coefficients and right-hand sides.
+     */
+    public boolean hasSameStructure(SparseModel other) {
+        if (numVars != other.numVars || numConstrs != other.numConstrs || numNonZeros != other.numNonZeros) {
+            return false;
+        }
+        for (int j = 0; j < numVars; j++) {
+            if (types[j] != other.types[j]) {
+                return false;
+            }
+        }
+        for (int i = 0; i < numConstrs; i++) {
+            if (senses[i] != other.senses[i] || rowStart[i + 1] != other.rowStart[i + 1]) {
+                return false;
+            }
+        }
+        for (int k = 0; k < numNonZeros; k++) {
+            if (colIndex[k] != other.colIndex[k] || values[k] != other.values[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Evaluates the objective at the given point.
+     */
+    public double getObjectiveValue(double[] x) {
+        double sum = 0.0;
+        for (int j = 0; j < numVars; j++) {
+            sum += obj[j] * x[j];
+        }
+        return sum;
+    }
+
+    @Override
+    public String toString() {
+        return "Vars: " + numVars + ", Constrs: " + numConstrs + ", Non-zeros: " + numNonZeros;
+    }
+}
@@ -0,0 +1,186 @@
+package results;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Hands rows to a background thread, which writes them in batches to one or
+ * more sinks and flushes them after every batch. Writing only blocks when
+ * the queue is full, so solve threads are not held up by I/O, and several
+ * threads can share one sink.
+ * <p>
+ * A failure of the background thread is rethrown by the next call to
+ * {@link #write} or by {@link #close}. Once it has failed, the thread only
+ * discards rows, and a writer waiting for room in the queue gives up if the
+ * thread has stopped. Writes hold a shared lock and closing an exclusive
+ * one, so every row queued by a successful write is written before the sinks
+ * are closed.
+ */
+public class AsyncResultSink implements ResultSink {
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    // Marks the end of the queue.
+    private static final ResultRow END = new ResultRow();
+    // How often a writer waiting for room checks the background thread.
+    private static final long WAIT_MILLIS = 100;
+
+    private final List<ResultSink> sinks;
+    private final BlockingQueue<ResultRow> queue;
+    private final Thread writerThread;
+    private volatile IOException failure;
+    // Guards closed, so that no row is queued after END.
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private boolean closed = false;
+
+    public AsyncResultSink(ResultSink... sinks) {
+        this(DEFAULT_CAPACITY, sinks);
+    }
+
+    public AsyncResultSink(int capacity, ResultSink... sinks) {
+        if (sinks.length == 0) {
+            throw new IllegalArgumentException("At least one sink is required.");
+        }
+        this.sinks = new ArrayList<ResultSink>(Arrays.asList(sinks));
+        this.queue = new ArrayBlockingQueue<ResultRow>(capacity);
+        this.writerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                drain();
+            }
+        }, "result-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    private void drain() {
+        List<ResultRow> batch = new ArrayList<ResultRow>();
+        boolean done = false;
+        while (!done) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                failure = new IOException("Interrupted while writing results.", e);
+                return;
+            }
+            queue.drainTo(batch);
+            for (ResultRow row : batch) {
+                if (row == END) {
+                    done = true;
+                    break;
+                }
+                if (failure == null) {
+                    try {
+                        for (ResultSink sink : sinks) {
+                            sink.write(row);
+                        }
+                    } catch (IOException e) {
+                        failure = e;
+                    } catch (RuntimeException e) {
+                        failure = new IOException("Writing a result failed.", e);
+                    }
+                }
+            }
+            batch.clear();
+            if (failure == null) {
+                try {
+                    for (ResultSink sink : sinks) {
+                        sink.flush();
+                    }
+                } catch (IOException e) {
+                    failure = e;
+                } catch (RuntimeException e) {
+                    failure = new IOException("Flushing the results failed.", e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void write(ResultRow row) throws IOException {
+        checkFailure();
+        if (!row.isComplete()) {
+            throw new IllegalArgumentException("Row is missing values: " + row);
+        }
+        closeLock.readLock().lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Sink is closed.");
+            }
+            enqueue(row);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while queueing a result.", e);
+        } finally {
+            closeLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Waits for room in the queue as long as the background thread runs.
+     */
+    private void enqueue(ResultRow row) throws IOException, InterruptedException {
+        while (!queue.offer(row, WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+            if (!writerThread.isAlive()) {
+                checkFailure();
+                throw new IOException("The result writer has stopped.");
+            }
+        }
+    }
+
+    /**
+     * Rows are flushed by the background thread after every batch, so this
+     * only reports failures.
+     */
+    @Override
+    public void flush() throws IOException {
+        checkFailure();
+    }
+
+    /**
+     * Waits for the queued rows to be written and closes the sinks.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        closeLock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        try {
+            enqueue(END);
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while closing the result sink.", e);
+        } finally {
+            for (ResultSink sink : sinks) {
+                try {
+                    sink.close();
+                } catch (IOException e) {
+                    if (failure == null) {
+                        failure = e;
+                    }
+                }
+            }
+        }
+        checkFailure();
+    }
+
+    private void checkFailure() throws IOException {
+        IOException e = failure;
+        if (e != null) {
+            throw e;
+        }
+    }
+}
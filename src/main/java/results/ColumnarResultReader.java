@@ -0,0 +1,264 @@
+package results;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads files written by {@link ColumnarResultSink}, either as rows or one
+ * column at a time. Reading a single column skips the chunks of all other
+ * columns.
+ */
+public final class ColumnarResultReader {
+    private ColumnarResultReader() {
+
+    }
+
+    public static List<ResultRow> readRows(File file) throws IOException {
+        DataInputStream in = open(file);
+        List<ResultRow> rows = new ArrayList<ResultRow>();
+        try {
+            int numRows;
+            while ((numRows = readRowCount(in)) >= 0) {
+                List<ResultRow> group = new ArrayList<ResultRow>(numRows);
+                for (int r = 0; r < numRows; r++) {
+                    group.add(new ResultRow());
+                }
+                for (ResultColumn column : ResultColumn.values()) {
+                    in.readInt();
+                    readChunk(in, column, group);
+                }
+                rows.addAll(group);
+            }
+        } finally {
+            in.close();
+        }
+        return rows;
+    }
+
+    public static long[] readLongs(File file, ResultColumn column) throws IOException {
+        checkType(column, ResultColumn.Type.LONG);
+        DataInputStream in = open(file);
+        try {
+            long[] values = new long[0];
+            int size = 0;
+            int numRows;
+            while ((numRows = seekChunk(in, column)) >= 0) {
+                if (size + numRows > values.length) {
+                    values = Arrays.copyOf(values, Math.max(2 * values.length, size + numRows));
+                }
+                for (int r = 0; r < numRows; r++) {
+                    values[size++] = in.readLong();
+                }
+                skipRemainingChunks(in, column);
+            }
+            return Arrays.copyOf(values, size);
+        } finally {
+            in.close();
+        }
+    }
+
+    public static double[] readDoubles(File file, ResultColumn column) throws IOException {
+        checkType(column, ResultColumn.Type.DOUBLE);
+        DataInputStream in = open(file);
+        try {
+            double[] values = new double[0];
+            int size = 0;
+            int numRows;
+            while ((numRows = seekChunk(in, column)) >= 0) {
+                if (size + numRows > values.length) {
+                    values = Arrays.copyOf(values, Math.max(2 * values.length, size + numRows));
+                }
+                for (int r = 0; r < numRows; r++) {
+                    values[size++] = in.readDouble();
+                }
+                skipRemainingChunks(in, column);
+            }
+            return Arrays.copyOf(values, size);
+        } finally {
+            in.close();
+        }
+    }
+
+    public static boolean[] readBooleans(File file, ResultColumn column) throws IOException {
+        checkType(column, ResultColumn.Type.BOOLEAN);
+        DataInputStream in = open(file);
+        try {
+            boolean[] values = new boolean[0];
+            int size = 0;
+            int numRows;
+            while ((numRows = seekChunk(in, column)) >= 0) {
+                if (size + numRows > values.length) {
+                    values = Arrays.copyOf(values, Math.max(2 * values.length, size + numRows));
+                }
+                for (int r = 0; r < numRows; r++) {
+                    values[size++] = in.readBoolean();
+                }
+                skipRemainingChunks(in, column);
+            }
+            return Arrays.copyOf(values, size);
+        } finally {
+            in.close();
+        }
+    }
+
+    public static String[] readStrings(File file, ResultColumn column) throws IOException {
+        checkType(column, ResultColumn.Type.STRING);
+        DataInputStream in = open(file);
+        try {
+            String[] values = new String[0];
+            int size = 0;
+            int numRows;
+            while ((numRows = seekChunk(in, column)) >= 0) {
+                if (size + numRows > values.length) {
+                    values = Arrays.copyOf(values, Math.max(2 * values.length, size + numRows));
+                }
+                String[] dictionary = new String[in.readInt()];
+                for (int k = 0; k < dictionary.length; k++) {
+                    dictionary[k] = in.readUTF();
+                }
+                for (int r = 0; r < numRows; r++) {
+                    values[size++] = dictionary[in.readInt()];
+                }
+                skipRemainingChunks(in, column);
+            }
+            return Arrays.copyOf(values, size);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Reads the row count of the next row group and skips the chunks before
+     * that of the given column. Returns the row count, or -1 at the end of
+     * the file.
+     */
+    private static int seekChunk(DataInputStream in, ResultColumn column) throws IOException {
+        int numRows = readRowCount(in);
+        if (numRows < 0) {
+            return numRows;
+        }
+        for (int k = 0; k < column.ordinal(); k++) {
+            skipFully(in, in.readInt());
+        }
+        in.readInt();
+        return numRows;
+    }
+
+    /**
+     * Skips the chunks after that of the given column, to the start of the
+     * next row group.
+     */
+    private static void skipRemainingChunks(DataInputStream in, ResultColumn column) throws IOException {
+        for (int k = column.ordinal() + 1; k < ResultColumn.values().length; k++) {
+            skipFully(in, in.readInt());
+        }
+    }
+
+    private static void skipFully(DataInputStream in, int length) throws IOException {
+        int skipped = 0;
+        while (skipped < length) {
+            int n = in.skipBytes(length - skipped);
+            if (n <= 0) {
+                throw new EOFException("The file ends within a column chunk.");
+            }
+            skipped += n;
+        }
+    }
+
+    private static void readChunk(DataInputStream in, ResultColumn column, List<ResultRow> group)
+            throws IOException {
+        switch (column.getType()) {
+            case LONG:
+                for (ResultRow row : group) {
+                    row.set(column, in.readLong());
+                }
+                break;
+            case DOUBLE:
+                for (ResultRow row : group) {
+                    row.set(column, in.readDouble());
+                }
+                break;
+            case BOOLEAN:
+                for (ResultRow row : group) {
+                    row.set(column, in.readBoolean());
+                }
+                break;
+            case STRING:
+                String[] dictionary = new String[in.readInt()];
+                for (int k = 0; k < dictionary.length; k++) {
+                    dictionary[k] = in.readUTF();
+                }
+                for (ResultRow row : group) {
+                    row.set(column, dictionary[in.readInt()]);
+                }
+                break;
+            default:
+                throw new IllegalStateException("Unknown column type " + column.getType() + ".");
+        }
+    }
+
+    /**
+     * The number of rows in the next row group, or -1 at the end of the
+     * file.
+     */
+    private static int readRowCount(DataInputStream in) throws IOException {
+        try {
+            return in.readInt();
+        } catch (EOFException e) {
+            return -1;
+        }
+    }
+
+    private static void checkType(ResultColumn column, ResultColumn.Type type) {
+        if (column.getType() != type) {
+            throw new IllegalArgumentException("Column " + column + " has type " + column.getType() + ", not "
+                    + type + ".");
+        }
+    }
+
+    static void checkHeader(File file) throws IOException {
+        open(file).close();
+    }
+
+    /**
+     * Opens the file and reads past its header, which must match
+     * {@link ResultColumn}.
+     */
+    private static DataInputStream open(File file) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (in.readInt() != ColumnarResultSink.MAGIC) {
+                throw new IOException(file + " is not a columnar results file.");
+            }
+            int version = in.readInt();
+            if (version != ColumnarResultSink.VERSION) {
+                throw new IOException("Unsupported version " + version + " of " + file + ".");
+            }
+            ResultColumn[] columns = ResultColumn.values();
+            int numColumns = in.readInt();
+            if (numColumns != columns.length) {
+                throw new IOException("Schema of " + file + " has " + numColumns + " columns, expected "
+                        + columns.length + ".");
+            }
+            for (ResultColumn column : columns) {
+                String name = in.readUTF();
+                int type = in.readByte();
+                if (!name.equals(column.name()) || type != column.getType().ordinal()) {
+                    throw new IOException("Schema of " + file + " does not match: found column " + name
+                            + " where " + column + " was expected.");
+                }
+            }
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return in;
+    }
+}
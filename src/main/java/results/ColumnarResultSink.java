@@ -0,0 +1,157 @@
+package results;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Writes rows in a columnar binary format, which can be reloaded one column
+ * at a time by {@link ColumnarResultReader}. The file starts with the magic
+ * number, a version and the schema, and is followed by row groups. Each row
+ * group holds its row count and then one chunk per column, prefixed by the
+ * chunk's length in bytes so readers can skip it. Numbers are stored as
+ * big-endian longs and doubles, booleans as bytes, and strings through a
+ * dictionary of the distinct values in the row group.
+ * <p>
+ * Rows are buffered until a row group is full or the sink is closed, so
+ * that row groups stay large however often the sink is flushed. Rows which
+ * are buffered when the program dies are lost.
+ */
+public class ColumnarResultSink implements ResultSink {
+    static final int MAGIC = 0x44485243;
+    static final int VERSION = 1;
+    public static final int DEFAULT_ROW_GROUP_SIZE = 4096;
+
+    private final DataOutputStream out;
+    private final int rowGroupSize;
+    private final List<ResultRow> buffer = new ArrayList<ResultRow>();
+
+    public ColumnarResultSink(File file, boolean append) throws IOException {
+        this(file, append, DEFAULT_ROW_GROUP_SIZE);
+    }
+
+    /**
+     * When appending to a non-empty file, its schema must match
+     * {@link ResultColumn}.
+     */
+    public ColumnarResultSink(File file, boolean append, int rowGroupSize) throws IOException {
+        if (rowGroupSize < 1) {
+            throw new IllegalArgumentException("Row group size must be positive, but was " + rowGroupSize + ".");
+        }
+        boolean writeHeader = !append || !file.exists() || file.length() == 0;
+        if (!writeHeader) {
+            ColumnarResultReader.checkHeader(file);
+        }
+        this.rowGroupSize = rowGroupSize;
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, !writeHeader)));
+        if (writeHeader) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            ResultColumn[] columns = ResultColumn.values();
+            out.writeInt(columns.length);
+            for (ResultColumn column : columns) {
+                out.writeUTF(column.name());
+                out.writeByte(column.getType().ordinal());
+            }
+        }
+    }
+
+    @Override
+    public void write(ResultRow row) throws IOException {
+        if (!row.isComplete()) {
+            throw new IllegalArgumentException("Row is missing values: " + row);
+        }
+        buffer.add(row);
+        if (buffer.size() >= rowGroupSize) {
+            writeRowGroup();
+        }
+    }
+
+    private void writeRowGroup() throws IOException {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        out.writeInt(buffer.size());
+        ByteArrayOutputStream chunk = new ByteArrayOutputStream();
+        for (ResultColumn column : ResultColumn.values()) {
+            chunk.reset();
+            writeChunk(new DataOutputStream(chunk), column);
+            out.writeInt(chunk.size());
+            chunk.writeTo(out);
+        }
+        buffer.clear();
+    }
+
+    private void writeChunk(DataOutputStream chunk, ResultColumn column) throws IOException {
+        switch (column.getType()) {
+            case LONG:
+                for (ResultRow row : buffer) {
+                    chunk.writeLong(row.getLong(column));
+                }
+                break;
+            case DOUBLE:
+                for (ResultRow row : buffer) {
+                    chunk.writeDouble(row.getDouble(column));
+                }
+                break;
+            case BOOLEAN:
+                for (ResultRow row : buffer) {
+                    chunk.writeBoolean(row.getBoolean(column));
+                }
+                break;
+            case STRING:
+                HashMap<String, Integer> codes = new HashMap<String, Integer>();
+                List<String> dictionary = new ArrayList<String>();
+                int[] rowCodes = new int[buffer.size()];
+                for (int r = 0; r < buffer.size(); r++) {
+                    String value = buffer.get(r).getString(column);
+                    Integer code = codes.get(value);
+                    if (code == null) {
+                        code = dictionary.size();
+                        codes.put(value, code);
+                        dictionary.add(value);
+                    }
+                    rowCodes[r] = code;
+                }
+                chunk.writeInt(dictionary.size());
+                for (String value : dictionary) {
+                    chunk.writeUTF(value);
+                }
+                for (int code : rowCodes) {
+                    chunk.writeInt(code);
+                }
+                break;
+            default:
+                throw new IllegalStateException("Unknown column type " + column.getType() + ".");
+        }
+        chunk.flush();
+    }
+
+    /**
+     * Flushes the row groups written so far. Rows of a row group which is not
+     * full stay buffered until it is, or until the sink is closed.
+     */
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Writes the buffered rows as a last row group, even if it is not full,
+     * and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            writeRowGroup();
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package results;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes rows in the format of new_results.csv, where every line, including
+ * the header, ends with a comma.
+ */
+public class CsvResultSink implements ResultSink {
+    private final Writer writer;
+
+    /**
+     * Writes the header unless appending to the file.
+     */
+    public CsvResultSink(File file, boolean append) throws IOException {
+        this(new BufferedWriter(new FileWriter(file, append)), !append);
+    }
+
+    public CsvResultSink(Writer writer, boolean writeHeader) throws IOException {
+        this.writer = writer;
+        if (writeHeader) {
+            writer.write(getHeader());
+        }
+    }
+
+    public static String getHeader() {
+        StringBuilder header = new StringBuilder();
+        for (ResultColumn column : ResultColumn.values()) {
+            header.append(column.name()).append(',');
+        }
+        return header.append('\n').toString();
+    }
+
+    @Override
+    public void write(ResultRow row) throws IOException {
+        StringBuilder line = new StringBuilder();
+        for (ResultColumn column : ResultColumn.values()) {
+            line.append(row.format(column)).append(',');
+        }
+        writer.write(line.append('\n').toString());
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
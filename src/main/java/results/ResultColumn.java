@@ -0,0 +1,51 @@
+package results;
+
+/**
+ * The columns of the model comparison results, in the order of
+ * new_results.csv.
+ */
+public enum ResultColumn {
+    APT(Type.STRING),
+    VFR(Type.LONG),
+    IFR(Type.LONG),
+    WMAX(Type.LONG),
+    START(Type.STRING),
+    END(Type.STRING),
+    MAXLENGTH(Type.LONG),
+    NUM_SITTING(Type.LONG),
+    NUM_AIR(Type.LONG),
+    DISC(Type.LONG),
+    CASE(Type.LONG),
+    AIRCOST(Type.DOUBLE),
+    LOOKAHEAD(Type.LONG),
+    NUM_TIME_PERIODS(Type.LONG),
+    EARLY_CHANGE(Type.LONG),
+    LATE_CHANGE(Type.LONG),
+    PROB_ALT(Type.BOOLEAN),
+    DIVERT_FACTOR(Type.DOUBLE),
+    MH_SOLVETIME(Type.DOUBLE),
+    MHD_SOLVETIME(Type.DOUBLE),
+    DHD_SOLVETIME(Type.DOUBLE),
+    MH_FEASIBLE(Type.BOOLEAN),
+    OBJ_MH(Type.DOUBLE),
+    OBJ_DIVERT(Type.DOUBLE),
+    MH_NODES(Type.DOUBLE),
+    MHD_NODES(Type.DOUBLE),
+    DHD_NODES(Type.DOUBLE),
+    MHD_DIVERT(Type.DOUBLE),
+    DHD_DIVERT(Type.DOUBLE);
+
+    public enum Type {
+        STRING, LONG, DOUBLE, BOOLEAN
+    }
+
+    private final Type type;
+
+    ResultColumn(Type type) {
+        this.type = type;
+    }
+
+    public Type getType() {
+        return type;
+    }
+}
@@ -0,0 +1,115 @@
+package results;
+
+import java.util.Arrays;
+
+/**
+ * One row of the model comparison results. Values are checked against the
+ * type of their column when they are set.
+ */
+public class ResultRow {
+    private static final ResultColumn[] COLUMNS = ResultColumn.values();
+
+    private final Object[] values = new Object[COLUMNS.length];
+
+    public ResultRow set(ResultColumn column, String value) {
+        return put(column, ResultColumn.Type.STRING, value);
+    }
+
+    public ResultRow set(ResultColumn column, long value) {
+        return put(column, ResultColumn.Type.LONG, value);
+    }
+
+    public ResultRow set(ResultColumn column, double value) {
+        return put(column, ResultColumn.Type.DOUBLE, value);
+    }
+
+    public ResultRow set(ResultColumn column, boolean value) {
+        return put(column, ResultColumn.Type.BOOLEAN, value);
+    }
+
+    private ResultRow put(ResultColumn column, ResultColumn.Type type, Object value) {
+        if (column.getType() != type) {
+            throw new IllegalArgumentException("Column " + column + " has type " + column.getType()
+                    + ", but was given a " + type + ".");
+        }
+        if (value == null) {
+            throw new IllegalArgumentException("Column " + column + " cannot be null.");
+        }
+        values[column.ordinal()] = value;
+        return this;
+    }
+
+    public boolean isSet(ResultColumn column) {
+        return values[column.ordinal()] != null;
+    }
+
+    /**
+     * Whether every column has a value.
+     */
+    public boolean isComplete() {
+        for (Object value : values) {
+            if (value == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String getString(ResultColumn column) {
+        return (String) get(column, ResultColumn.Type.STRING);
+    }
+
+    public long getLong(ResultColumn column) {
+        return (Long) get(column, ResultColumn.Type.LONG);
+    }
+
+    public double getDouble(ResultColumn column) {
+        return (Double) get(column, ResultColumn.Type.DOUBLE);
+    }
+
+    public boolean getBoolean(ResultColumn column) {
+        return (Boolean) get(column, ResultColumn.Type.BOOLEAN);
+    }
+
+    private Object get(ResultColumn column, ResultColumn.Type type) {
+        if (column.getType() != type) {
+            throw new IllegalArgumentException("Column " + column + " has type " + column.getType() + ", not "
+                    + type + ".");
+        }
+        Object value = values[column.ordinal()];
+        if (value == null) {
+            throw new IllegalStateException("Column " + column + " has no value.");
+        }
+        return value;
+    }
+
+    /**
+     * The value of the column as written to the CSV file.
+     */
+    public String format(ResultColumn column) {
+        Object value = values[column.ordinal()];
+        if (value == null) {
+            throw new IllegalStateException("Column " + column + " has no value.");
+        }
+        return String.valueOf(value);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ResultRow && Arrays.equals(values, ((ResultRow) o).values);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(values);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (ResultColumn column : COLUMNS) {
+            builder.append(column).append('=').append(values[column.ordinal()]).append(", ");
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,13 @@
+package results;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A destination for rows of the model comparison results.
+ */
+public interface ResultSink extends Closeable {
+    void write(ResultRow row) throws IOException;
+
+    void flush() throws IOException;
+}
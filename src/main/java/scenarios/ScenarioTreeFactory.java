@@ -1,9 +1,13 @@
 package scenarios;
 
+import java.time.Duration;
+import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Set;
 
+import util.TimeGrid;
+
 public final class ScenarioTreeFactory {
 	private ScenarioTreeFactory() {
 
@@ -68,4 +72,124 @@ public final class ScenarioTreeFactory {
 
 	}
 
+	/**
+	 * A low-to-high tree over the periods of a grid, which need not have the
+	 * same length. The capacity of a period is the number of landings at the
+	 * hourly rate which fall into it, counted from the start of the grid for
+	 * the low rate and from the start of the change period for the high
+	 * rate. On a grid of periods of equal length which divide an hour, this
+	 * is the tree of the other overload.
+	 * 
+	 * @param grid
+	 *            - the time periods of the planning horizon
+	 * @param earliestChange
+	 *            - the earliest time period in which the capacity might change
+	 *            (inclusive)
+	 * @param latestChange
+	 *            - the latest time period in which the capacity might change
+	 *            (exclusive)
+	 * @param low
+	 *            - the low capacity of the airport, per hour
+	 * @param high
+	 *            - the high capacity, per hour
+	 * @param altProbs
+	 *            - whether a change in the first hour after the earliest
+	 *            change has probability 0.4 in total, rather than all
+	 *            changes being equally likely
+	 * @return
+	 */
+	public static DiscreteScenarioTree makeLoToHigh(TimeGrid grid,
+			int earliestChange, int latestChange, int low, int high,
+			boolean altProbs, int lookahead) {
+		int numTimePeriods = grid.getNumTimePeriods();
+		if (earliestChange < 0 || latestChange > numTimePeriods || earliestChange >= latestChange) {
+			throw new IllegalArgumentException("The change periods must be a non-empty range within the "
+					+ numTimePeriods + " periods of the grid, but were " + earliestChange + " to "
+					+ latestChange + ".");
+		}
+		OffsetDateTime firstHourEnd = grid.getPeriodStart(earliestChange).plusHours(1);
+		int numFirstHour = 0;
+		for (int i = earliestChange; i < latestChange; i++) {
+			if (grid.getPeriodStart(i).isBefore(firstHourEnd)) {
+				numFirstHour++;
+			}
+		}
+		int numScenarios = latestChange - earliestChange;
+
+		Set<DiscreteScenario> scenarios = new HashSet<DiscreteScenario>();
+		for (int i = earliestChange; i < latestChange; i++) {
+			ArrayList<Integer> capacities = new ArrayList<Integer>(numTimePeriods);
+			for (int j = 0; j < numTimePeriods; j++) {
+				int rate = j >= i ? high : low;
+				OffsetDateTime anchor = j >= i ? grid.getPeriodStart(i) : grid.getStart();
+				capacities.add(getLandings(rate, anchor, grid.getPeriodStart(j + 1))
+						- getLandings(rate, anchor, grid.getPeriodStart(j)));
+			}
+
+			double probability = 1.0 / numScenarios;
+			if (altProbs) {
+				if (grid.getPeriodStart(i).isBefore(firstHourEnd)) {
+					probability = 0.4 / numFirstHour;
+				} else {
+					probability = 0.6 / (numScenarios - numFirstHour);
+				}
+			}
+			scenarios.add(new DiscreteScenario(i, probability, capacities));
+		}
+		return new DiscreteScenarioTree(numTimePeriods, scenarios, lookahead);
+	}
+
+	/**
+	 * The number of landings at the hourly rate from anchor until time.
+	 */
+	private static int getLandings(int rate, OffsetDateTime anchor, OffsetDateTime time) {
+		long nanos = Duration.between(anchor, time).toNanos();
+		return (int) Math.floorDiv(rate * nanos, Duration.ofHours(1).toNanos());
+	}
+
+	/**
+	 * Moves a scenario tree forward by the given number of time periods, after
+	 * the capacities of those periods have been observed. Only the scenarios
+	 * which agree with the realized scenario on the observed periods are kept,
+	 * and their probabilities are renormalized. The horizon keeps its length;
+	 * the last capacity of each scenario is repeated to fill it.
+	 * 
+	 * @param tree
+	 *            - the current tree
+	 * @param shift
+	 *            - the number of time periods that have passed
+	 * @param realizedScenario
+	 *            - the id of a scenario which matches the observed capacities
+	 * @param lookahead
+	 *            - the lookahead used to build the new tree
+	 * @return
+	 */
+	public static DiscreteScenarioTree shiftTree(DiscreteScenarioTree tree,
+			int shift, int realizedScenario, int lookahead) {
+		DiscreteScenario realized = tree.getScenario(realizedScenario);
+		if (realized == null) {
+			throw new IllegalArgumentException("Unknown scenario: " + realizedScenario);
+		}
+		int numTimePeriods = realized.getNumTimePeriods();
+		ArrayList<DiscreteScenario> consistent = new ArrayList<DiscreteScenario>();
+		double totalProbability = 0.0;
+		for (int s : tree.getScenarioIds()) {
+			DiscreteScenario scenario = tree.getScenario(s);
+			if (shift <= 0 || scenario.equals(realized, shift - 1, 0)) {
+				consistent.add(scenario);
+				totalProbability += scenario.getProbability();
+			}
+		}
+		Set<DiscreteScenario> scenarios = new HashSet<DiscreteScenario>();
+		for (DiscreteScenario scenario : consistent) {
+			ArrayList<Integer> capacities = new ArrayList<Integer>(numTimePeriods);
+			for (int j = 0; j < numTimePeriods; j++) {
+				capacities.add(scenario.getCapacity(Math.min(j + shift, numTimePeriods - 1)));
+			}
+			scenarios.add(new DiscreteScenario(scenario.getId(),
+					scenario.getProbability() / totalProbability, capacities));
+		}
+		return new DiscreteScenarioTree(numTimePeriods, scenarios, lookahead);
+	}
+
 }
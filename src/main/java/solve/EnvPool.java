@@ -0,0 +1,332 @@
+package solve;
+
+import gurobi.GRBEnv;
+import gurobi.GRBException;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A fixed number of Gurobi environments which are started once and reused,
+ * so that short solves do not pay for starting an environment, and
+ * environments are disposed instead of leaked. Each environment has a preset
+ * of parameters, which may differ between environments. The environments
+ * are started when they are first leased.
+ * <p>
+ * An environment is leased by one caller at a time, since an environment
+ * must not be used by several threads at once. When a lease is closed, the
+ * parameters of the environment are reset to its preset. Models keep their
+ * own copy of the parameters, so a model set up from a leased environment
+ * can still be read after the lease is closed, but it should only be
+ * optimized while the lease is held. A {@link LeasedModel} holds its lease
+ * until it is disposed.
+ */
+public class EnvPool implements Closeable {
+    /**
+     * The size of the default pool, unless set by the envpool.size system
+     * property.
+     */
+    public static final int DEFAULT_SIZE = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * How long {@link LeasedModel#load} waits for a free environment, in
+     * seconds, unless set by the envpool.timeout system property.
+     */
+    public static final long DEFAULT_LEASE_TIMEOUT = 60;
+
+    private static EnvPool defaultPool;
+
+    /**
+     * The parameters with which an environment is started, by Gurobi
+     * parameter name.
+     */
+    public static final class Preset {
+        private final LinkedHashMap<String, String> params = new LinkedHashMap<String, String>();
+
+        public Preset set(String name, Object value) {
+            params.put(name, String.valueOf(value));
+            return this;
+        }
+
+        public Map<String, String> getParams() {
+            return new LinkedHashMap<String, String>(params);
+        }
+
+        private void apply(GRBEnv env) throws GRBException {
+            for (Map.Entry<String, String> param : params.entrySet()) {
+                env.set(param.getKey(), param.getValue());
+            }
+        }
+    }
+
+    /**
+     * The exclusive use of one environment of the pool, which ends when the
+     * lease is closed.
+     */
+    public final class Lease implements Closeable {
+        private final int slot;
+        private boolean closed = false;
+
+        private Lease(int slot) {
+            this.slot = slot;
+        }
+
+        public GRBEnv getEnv() {
+            if (closed) {
+                throw new IllegalStateException("The lease is closed.");
+            }
+            return envs[slot];
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                release(slot);
+            }
+        }
+    }
+
+    private final Preset[] presets;
+    private final GRBEnv[] envs;
+    private final ArrayDeque<Integer> idle;
+    private boolean closed = false;
+    private int numStarts = 0;
+
+    /**
+     * A pool of the given size, in which every environment has the given
+     * preset.
+     */
+    public EnvPool(int size, Preset preset) {
+        this(repeat(size, preset));
+    }
+
+    /**
+     * A pool with one environment for each preset.
+     */
+    public EnvPool(Preset... presets) {
+        if (presets.length == 0) {
+            throw new IllegalArgumentException("Pool size must be positive, but was 0.");
+        }
+        this.presets = presets.clone();
+        this.envs = new GRBEnv[presets.length];
+        this.idle = new ArrayDeque<Integer>(presets.length);
+        for (int slot = 0; slot < presets.length; slot++) {
+            idle.add(slot);
+        }
+    }
+
+    private static Preset[] repeat(int size, Preset preset) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Pool size must be positive, but was " + size + ".");
+        }
+        Preset[] presets = new Preset[size];
+        for (int k = 0; k < size; k++) {
+            presets[k] = preset;
+        }
+        return presets;
+    }
+
+    /**
+     * The pool used by the convenience methods of the models which take no
+     * environment. It is created on first use with the default preset.
+     */
+    public static synchronized EnvPool getDefault() {
+        if (defaultPool == null || defaultPool.isClosed()) {
+            defaultPool = new EnvPool(Integer.getInteger("envpool.size", DEFAULT_SIZE), new Preset());
+        }
+        return defaultPool;
+    }
+
+    /**
+     * Replaces the default pool. The previous pool is returned, and is not
+     * closed.
+     */
+    public static synchronized EnvPool setDefault(EnvPool pool) {
+        EnvPool previous = defaultPool;
+        defaultPool = pool;
+        return previous;
+    }
+
+    public int getSize() {
+        return envs.length;
+    }
+
+    /**
+     * The number of environments which have been started.
+     */
+    public synchronized int getNumStarted() {
+        return numStarts;
+    }
+
+    public synchronized int getNumIdle() {
+        return idle.size();
+    }
+
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Leases an environment, waiting until one is free. The environment is
+     * started if this is its first lease.
+     */
+    public Lease lease() throws GRBException, InterruptedException {
+        int slot;
+        synchronized (this) {
+            while (!closed && idle.isEmpty()) {
+                wait();
+            }
+            slot = takeIdle();
+        }
+        return startLease(slot);
+    }
+
+    /**
+     * Leases an environment like {@link #lease()}, but keeps waiting if the
+     * thread is interrupted. The interrupt status is restored before
+     * returning.
+     */
+    public Lease leaseUninterruptibly() throws GRBException {
+        return leaseUninterruptibly(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Leases an environment like {@link #leaseUninterruptibly()}, but waits
+     * at most the given time. A pool which stays exhausted that long usually
+     * has models which were never disposed, so this fails with an
+     * IllegalStateException instead of waiting for good.
+     */
+    public Lease leaseUninterruptibly(long timeout, TimeUnit unit) throws GRBException {
+        int slot;
+        boolean interrupted = false;
+        try {
+            synchronized (this) {
+                long remaining = unit.toNanos(timeout);
+                long deadline = System.nanoTime() + remaining;
+                while (!closed && idle.isEmpty()) {
+                    if (remaining <= 0) {
+                        throw new IllegalStateException("No environment of the pool of size " + envs.length
+                                + " was free after " + timeout + " " + unit.toString().toLowerCase()
+                                + ". Models on leased environments hold them until they are disposed.");
+                    }
+                    try {
+                        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                    remaining = deadline - System.nanoTime();
+                }
+                slot = takeIdle();
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return startLease(slot);
+    }
+
+    private int takeIdle() {
+        if (closed) {
+            throw new IllegalStateException("The pool is closed.");
+        }
+        return idle.poll();
+    }
+
+    private Lease startLease(int slot) throws GRBException {
+        if (envs[slot] == null) {
+            boolean started = false;
+            try {
+                envs[slot] = start(presets[slot]);
+                started = true;
+            } finally {
+                if (!started) {
+                    release(slot);
+                }
+            }
+            synchronized (this) {
+                numStarts++;
+            }
+        }
+        return new Lease(slot);
+    }
+
+    private static GRBEnv start(Preset preset) throws GRBException {
+        GRBEnv env = new GRBEnv(true);
+        try {
+            preset.apply(env);
+            env.start();
+        } catch (GRBException e) {
+            disposeQuietly(env);
+            throw e;
+        }
+        return env;
+    }
+
+    private void release(int slot) {
+        GRBEnv env = envs[slot];
+        if (env != null) {
+            try {
+                env.resetParams();
+                presets[slot].apply(env);
+            } catch (GRBException e) {
+                // The environment can not be restored to its preset, so it is
+                // replaced by a new one on the next lease.
+                disposeQuietly(env);
+                envs[slot] = null;
+            }
+        }
+        synchronized (this) {
+            if (!closed) {
+                idle.add(slot);
+                notifyAll();
+                return;
+            }
+        }
+        if (envs[slot] != null) {
+            disposeQuietly(envs[slot]);
+            envs[slot] = null;
+        }
+    }
+
+    /**
+     * Disposes the idle environments and those leased once their leases are
+     * closed. Waiting and further leases fail.
+     */
+    @Override
+    public void close() {
+        Integer[] idleSlots;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            idleSlots = idle.toArray(new Integer[idle.size()]);
+            notifyAll();
+        }
+        for (int slot : idleSlots) {
+            if (envs[slot] != null) {
+                disposeQuietly(envs[slot]);
+                envs[slot] = null;
+            }
+        }
+    }
+
+    private static void disposeQuietly(GRBEnv env) {
+        try {
+            env.dispose();
+        } catch (GRBException e) {
+            // Nothing more can be done with an environment that fails to close.
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "Size: " + envs.length + ", Started: " + numStarts + ", Idle: " + idle.size() + ", Closed: "
+                + closed;
+    }
+}
@@ -0,0 +1,35 @@
+package solve;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes each published {@link SolveMetrics} as one line of JSON.
+ */
+public class JsonLinesSink implements MetricsSink, Closeable {
+    private final Writer writer;
+
+    public JsonLinesSink(File file, boolean append) throws IOException {
+        this(new BufferedWriter(new FileWriter(file, append)));
+    }
+
+    public JsonLinesSink(Writer writer) {
+        this.writer = writer;
+    }
+
+    @Override
+    public synchronized void publish(SolveMetrics metrics) throws IOException {
+        writer.write(metrics.toJson());
+        writer.write("\n");
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,69 @@
+package solve;
+
+import gurobi.GRB;
+import gurobi.GRBException;
+import gurobi.GRBModel;
+
+import java.util.concurrent.TimeUnit;
+
+import lp.GurobiAdapter;
+import lp.SparseModel;
+
+/**
+ * A Gurobi model on an environment leased from an {@link EnvPool}, which
+ * holds the lease for as long as the model lives. Disposing the model closes
+ * the lease, so the environment is never handed to another caller, or
+ * disposed by {@link EnvPool#close()}, while the model still uses it.
+ */
+public class LeasedModel extends GRBModel {
+    private final EnvPool.Lease lease;
+
+    private LeasedModel(EnvPool.Lease lease) throws GRBException {
+        super(lease.getEnv());
+        this.lease = lease;
+    }
+
+    /**
+     * Leases an environment from the pool and loads the sparse model on it.
+     * Waits for a free environment for at most the envpool.timeout system
+     * property in seconds, {@link EnvPool#DEFAULT_LEASE_TIMEOUT} by default,
+     * and then fails with an IllegalStateException.
+     */
+    public static LeasedModel load(EnvPool pool, SparseModel sparseModel, boolean verbose) throws GRBException {
+        EnvPool.Lease lease = pool.leaseUninterruptibly(
+                Long.getLong("envpool.timeout", EnvPool.DEFAULT_LEASE_TIMEOUT), TimeUnit.SECONDS);
+        LeasedModel model = null;
+        try {
+            model = new LeasedModel(lease);
+        } finally {
+            if (model == null) {
+                lease.close();
+            }
+        }
+        boolean loaded = false;
+        try {
+            GurobiAdapter.load(model, sparseModel);
+            if (!verbose) {
+                model.set(GRB.IntParam.OutputFlag, 0);
+            }
+            loaded = true;
+        } finally {
+            if (!loaded) {
+                model.dispose();
+            }
+        }
+        return model;
+    }
+
+    /**
+     * Disposes the model and then closes its lease.
+     */
+    @Override
+    public void dispose() {
+        try {
+            super.dispose();
+        } finally {
+            lease.close();
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package solve;
+
+import java.io.IOException;
+
+/**
+ * Receives the metrics of instrumented solves.
+ */
+public interface MetricsSink {
+    void publish(SolveMetrics metrics) throws IOException;
+}
@@ -0,0 +1,100 @@
+package solve;
+
+/**
+ * The plan served under a {@link SolvePolicy}, together with the branch of
+ * the policy which produced it. The values are in the variable order of the
+ * model.
+ */
+public class PolicyResult {
+    public enum Branch {
+        /**
+         * The MIP solve finished, within the MIP gap of the policy.
+         */
+        OPTIMAL,
+        /**
+         * The MIP solve hit a limit and its incumbent was served.
+         */
+        INCUMBENT,
+        /**
+         * The MIP solve hit a limit and the heuristic plan was served.
+         */
+        HEURISTIC,
+        /**
+         * The MIP solve hit a limit and the rounded LP relaxation was served.
+         */
+        LP_ROUNDING,
+        /**
+         * No plan could be served.
+         */
+        NONE
+    }
+
+    private final Branch branch;
+    private final int status;
+    private final double objective;
+    private final double bound;
+    private final double runtime;
+    private final double[] values;
+
+    public PolicyResult(Branch branch, int status, double objective, double bound, double runtime, double[] values) {
+        if ((branch == Branch.NONE) != (values == null)) {
+            throw new IllegalArgumentException("Values must be given unless the branch is NONE.");
+        }
+        this.branch = branch;
+        this.status = status;
+        this.objective = objective;
+        this.bound = bound;
+        this.runtime = runtime;
+        this.values = values == null ? null : values.clone();
+    }
+
+    public Branch getBranch() {
+        return branch;
+    }
+
+    /**
+     * The Gurobi status of the MIP solve.
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * The objective of the served plan, or NaN if there is none.
+     */
+    public double getObjective() {
+        return objective;
+    }
+
+    /**
+     * The lower bound proven by the MIP solve, or NaN if it neither
+     * finished nor hit a limit.
+     */
+    public double getBound() {
+        return bound;
+    }
+
+    /**
+     * The time of the MIP solve and of the fallback, in seconds.
+     */
+    public double getRuntime() {
+        return runtime;
+    }
+
+    public boolean hasValues() {
+        return values != null;
+    }
+
+    public double[] getValues() {
+        if (values == null) {
+            throw new IllegalStateException("No plan was served.");
+        }
+        return values.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "Branch: " + branch + ", Status: " + status + ", Obj: " + objective + ", Bound: " + bound
+                + ", Runtime: " + runtime;
+    }
+}
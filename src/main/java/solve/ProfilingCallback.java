@@ -0,0 +1,135 @@
+package solve;
+
+import gurobi.GRB;
+import gurobi.GRBCallback;
+import gurobi.GRBException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Records how the incumbent and the bound of a MIP solve evolve over time. A
+ * sample is taken whenever the incumbent or the bound changes, and otherwise
+ * at most once per sampling interval so long solves do not produce one sample
+ * per callback.
+ */
+public class ProfilingCallback extends GRBCallback {
+    public static final double DEFAULT_SAMPLE_INTERVAL = 1.0;
+
+    public static final class Sample {
+        private final double time;
+        private final double objBest;
+        private final double objBound;
+        private final double nodes;
+        private final double iterations;
+
+        public Sample(double time, double objBest, double objBound, double nodes, double iterations) {
+            this.time = time;
+            this.objBest = objBest;
+            this.objBound = objBound;
+            this.nodes = nodes;
+            this.iterations = iterations;
+        }
+
+        public double getTime() {
+            return time;
+        }
+
+        /**
+         * The objective of the incumbent, or GRB.INFINITY if there is none yet.
+         */
+        public double getObjBest() {
+            return objBest;
+        }
+
+        public double getObjBound() {
+            return objBound;
+        }
+
+        public double getNodes() {
+            return nodes;
+        }
+
+        public double getIterations() {
+            return iterations;
+        }
+
+        public double getGap() {
+            return SolveProfile.relativeGap(objBest, objBound);
+        }
+
+        @Override
+        public String toString() {
+            return "Time: " + time + ", Best: " + objBest + ", Bound: " + objBound + ", Nodes: " + nodes
+                    + ", Iterations: " + iterations;
+        }
+    }
+
+    private final double sampleInterval;
+    private final List<Sample> samples = new ArrayList<Sample>();
+    private double firstIncumbentTime = Double.NaN;
+    private double rootBound = Double.NaN;
+
+    public ProfilingCallback() {
+        this(DEFAULT_SAMPLE_INTERVAL);
+    }
+
+    public ProfilingCallback(double sampleInterval) {
+        this.sampleInterval = sampleInterval;
+    }
+
+    @Override
+    protected void callback() {
+        try {
+            if (where == GRB.Callback.MIP) {
+                double time = getDoubleInfo(GRB.Callback.RUNTIME);
+                double objBest = getDoubleInfo(GRB.Callback.MIP_OBJBST);
+                double objBound = getDoubleInfo(GRB.Callback.MIP_OBJBND);
+                double nodes = getDoubleInfo(GRB.Callback.MIP_NODCNT);
+                if (nodes == 0) {
+                    // The last bound reported before branching starts is the
+                    // root bound, after cuts.
+                    rootBound = objBound;
+                }
+                if (samples.isEmpty()) {
+                    addSample(time, objBest, objBound, nodes);
+                } else {
+                    Sample last = samples.get(samples.size() - 1);
+                    if (last.objBest != objBest || last.objBound != objBound
+                            || time - last.time >= sampleInterval) {
+                        addSample(time, objBest, objBound, nodes);
+                    }
+                }
+            } else if (where == GRB.Callback.MIPSOL && Double.isNaN(firstIncumbentTime)) {
+                firstIncumbentTime = getDoubleInfo(GRB.Callback.RUNTIME);
+            }
+        } catch (GRBException e) {
+            throw new IllegalStateException("Sampling the solve failed.", e);
+        }
+    }
+
+    private void addSample(double time, double objBest, double objBound, double nodes) throws GRBException {
+        samples.add(new Sample(time, objBest, objBound, nodes, getDoubleInfo(GRB.Callback.MIP_ITRCNT)));
+    }
+
+    public List<Sample> getSamples() {
+        return Collections.unmodifiableList(samples);
+    }
+
+    /**
+     * The runtime at which the first incumbent was found, or NaN if the
+     * callback never saw one.
+     */
+    public double getFirstIncumbentTime() {
+        return firstIncumbentTime;
+    }
+
+    /**
+     * The bound at the end of root node processing, or NaN if the solve ended
+     * before branch and bound started.
+     */
+    public double getRootBound() {
+        return rootBound;
+    }
+}
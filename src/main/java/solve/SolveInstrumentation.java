@@ -0,0 +1,73 @@
+package solve;
+
+import gurobi.GRB;
+import gurobi.GRBEnv;
+import gurobi.GRBException;
+import gurobi.GRBModel;
+
+import lp.GurobiAdapter;
+import lp.SparseModel;
+
+/**
+ * Loads and solves models while recording each phase in a
+ * {@link SolveMetrics}. The model classes time their own variable and
+ * constraint creation, and use these methods for the Gurobi phases.
+ */
+public final class SolveInstrumentation {
+
+    private SolveInstrumentation() {
+
+    }
+
+    /**
+     * Loads the sparse model into Gurobi in the same way as
+     * {@link GurobiAdapter#toGurobi}, timing the variable loading, the
+     * constraint loading and the model updates separately. Without metrics
+     * the model is loaded by {@link GurobiAdapter#toGurobi}.
+     */
+    public static GRBModel load(SparseModel sparseModel, GRBEnv env, SolveMetrics metrics) throws GRBException {
+        if (metrics == null) {
+            return GurobiAdapter.toGurobi(sparseModel, env);
+        }
+        GRBModel model = new GRBModel(env);
+        metrics.startPhase(SolveMetrics.LOAD_VARS);
+        GurobiAdapter.addVars(model, sparseModel);
+        metrics.endPhase(SolveMetrics.LOAD_VARS);
+        metrics.startPhase(SolveMetrics.UPDATE);
+        model.update();
+        metrics.endPhase(SolveMetrics.UPDATE);
+        metrics.startPhase(SolveMetrics.LOAD_CONSTRS);
+        GurobiAdapter.addConstrs(model, sparseModel);
+        metrics.endPhase(SolveMetrics.LOAD_CONSTRS);
+        metrics.startPhase(SolveMetrics.UPDATE);
+        model.update();
+        metrics.endPhase(SolveMetrics.UPDATE);
+        return model;
+    }
+
+    public static void optimize(GRBModel model, SolveMetrics metrics) throws GRBException {
+        optimize(model, metrics, ProfilingCallback.DEFAULT_SAMPLE_INTERVAL);
+    }
+
+    /**
+     * Optimizes the model with a {@link ProfilingCallback} installed, and
+     * records the optimize time, the samples and the final attributes.
+     */
+    public static void optimize(GRBModel model, SolveMetrics metrics, double sampleInterval) throws GRBException {
+        ProfilingCallback callback = new ProfilingCallback(sampleInterval);
+        model.setCallback(callback);
+        metrics.startPhase(SolveMetrics.OPTIMIZE);
+        try {
+            model.optimize();
+        } finally {
+            metrics.endPhase(SolveMetrics.OPTIMIZE);
+            model.setCallback(null);
+        }
+        int solCount = model.get(GRB.IntAttr.SolCount);
+        metrics.setResult(model.get(GRB.IntAttr.Status),
+                solCount > 0 ? model.get(GRB.DoubleAttr.ObjVal) : Double.NaN,
+                model.get(GRB.DoubleAttr.ObjBound), model.get(GRB.DoubleAttr.Runtime),
+                model.get(GRB.DoubleAttr.NodeCount), model.get(GRB.DoubleAttr.IterCount));
+        metrics.setSamples(callback.getSamples());
+    }
+}
@@ -0,0 +1,219 @@
+package solve;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Structured metrics of a single instrumented solve: tags describing the
+ * experiment, the wall-clock time of each phase, the final solver attributes
+ * and the samples taken by a {@link ProfilingCallback}. Phase times are
+ * measured with {@link System#nanoTime()}.
+ */
+public class SolveMetrics {
+    public static final String BUILD_VARS = "build_vars";
+    public static final String BUILD_CONSTRS = "build_constrs";
+    public static final String LOAD_VARS = "load_vars";
+    public static final String LOAD_CONSTRS = "load_constrs";
+    public static final String UPDATE = "update";
+    public static final String OPTIMIZE = "optimize";
+
+    private final String name;
+    private final LinkedHashMap<String, String> tags = new LinkedHashMap<String, String>();
+    private final LinkedHashMap<String, Long> phaseNanos = new LinkedHashMap<String, Long>();
+    private final LinkedHashMap<String, Long> phaseStarts = new LinkedHashMap<String, Long>();
+    private List<ProfilingCallback.Sample> samples = new ArrayList<ProfilingCallback.Sample>();
+
+    private int status = -1;
+    private double objective = Double.NaN;
+    private double bound = Double.NaN;
+    private double runtime = Double.NaN;
+    private double nodes = Double.NaN;
+    private double iterations = Double.NaN;
+
+    public SolveMetrics(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public SolveMetrics tag(String key, Object value) {
+        tags.put(key, String.valueOf(value));
+        return this;
+    }
+
+    public Map<String, String> getTags() {
+        return Collections.unmodifiableMap(tags);
+    }
+
+    public void startPhase(String phase) {
+        phaseStarts.put(phase, System.nanoTime());
+    }
+
+    /**
+     * Ends a phase started by {@link #startPhase}. A phase which is timed
+     * more than once accumulates its times.
+     */
+    public void endPhase(String phase) {
+        long end = System.nanoTime();
+        Long start = phaseStarts.remove(phase);
+        if (start == null) {
+            throw new IllegalStateException("Phase " + phase + " was not started.");
+        }
+        Long previous = phaseNanos.get(phase);
+        phaseNanos.put(phase, (previous == null ? 0L : previous) + end - start);
+    }
+
+    public Map<String, Long> getPhaseNanos() {
+        return Collections.unmodifiableMap(phaseNanos);
+    }
+
+    /**
+     * The time spent in the given phase in seconds, or 0 if it was not
+     * timed.
+     */
+    public double getPhaseSeconds(String phase) {
+        Long nanos = phaseNanos.get(phase);
+        return nanos == null ? 0.0 : nanos / 1e9;
+    }
+
+    public void setResult(int status, double objective, double bound, double runtime, double nodes,
+                          double iterations) {
+        this.status = status;
+        this.objective = objective;
+        this.bound = bound;
+        this.runtime = runtime;
+        this.nodes = nodes;
+        this.iterations = iterations;
+    }
+
+    public void setSamples(List<ProfilingCallback.Sample> samples) {
+        this.samples = new ArrayList<ProfilingCallback.Sample>(samples);
+    }
+
+    public List<ProfilingCallback.Sample> getSamples() {
+        return Collections.unmodifiableList(samples);
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public double getObjective() {
+        return objective;
+    }
+
+    public double getBound() {
+        return bound;
+    }
+
+    public double getRuntime() {
+        return runtime;
+    }
+
+    public double getNodes() {
+        return nodes;
+    }
+
+    public double getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Formats the metrics as a single line of JSON. Values which are not
+     * finite are written as null.
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"name\":").append(quote(name));
+        json.append(",\"tags\":{");
+        boolean first = true;
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            if (!first) {
+                json.append(',');
+            }
+            json.append(quote(tag.getKey())).append(':').append(quote(tag.getValue()));
+            first = false;
+        }
+        json.append("},\"phases\":{");
+        first = true;
+        for (Map.Entry<String, Long> phase : phaseNanos.entrySet()) {
+            if (!first) {
+                json.append(',');
+            }
+            json.append(quote(phase.getKey())).append(':').append(number(phase.getValue() / 1e9));
+            first = false;
+        }
+        json.append("},\"status\":").append(status);
+        json.append(",\"objective\":").append(number(objective));
+        json.append(",\"bound\":").append(number(bound));
+        json.append(",\"runtime\":").append(number(runtime));
+        json.append(",\"nodes\":").append(number(nodes));
+        json.append(",\"iterations\":").append(number(iterations));
+        json.append(",\"samples\":[");
+        first = true;
+        for (ProfilingCallback.Sample sample : samples) {
+            if (!first) {
+                json.append(',');
+            }
+            json.append("{\"time\":").append(number(sample.getTime()));
+            json.append(",\"objBest\":").append(number(sample.getObjBest()));
+            json.append(",\"objBound\":").append(number(sample.getObjBound()));
+            json.append(",\"nodes\":").append(number(sample.getNodes()));
+            json.append(",\"iterations\":").append(number(sample.getIterations()));
+            json.append('}');
+            first = false;
+        }
+        json.append("]}");
+        return json.toString();
+    }
+
+    private static String number(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return "null";
+        }
+        return Double.toString(value);
+    }
+
+    private static String quote(String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 2);
+        quoted.append('"');
+        for (int k = 0; k < value.length(); k++) {
+            char c = value.charAt(k);
+            switch (c) {
+                case '"':
+                    quoted.append("\\\"");
+                    break;
+                case '\\':
+                    quoted.append("\\\\");
+                    break;
+                case '\n':
+                    quoted.append("\\n");
+                    break;
+                case '\r':
+                    quoted.append("\\r");
+                    break;
+                case '\t':
+                    quoted.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        quoted.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+            }
+        }
+        quoted.append('"');
+        return quoted.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toJson();
+    }
+}
@@ -0,0 +1,253 @@
+package solve;
+
+import gurobi.GRB;
+import gurobi.GRBException;
+import gurobi.GRBModel;
+import gurobi.GRBVar;
+
+/**
+ * The limits under which a model is solved, and what to serve if the solve
+ * stops at a limit. Limits which are not set keep the Gurobi defaults, so
+ * the default policy solves to proven optimality.
+ * <p>
+ * If the time or work limit is hit, the best of the incumbent and the
+ * fallback plan is served. The fallback is either the ground holding
+ * heuristic or a rounding of the LP relaxation, whose solve has its own time
+ * limit so that the whole cycle stays within a fixed budget.
+ */
+public class SolvePolicy {
+    public enum Fallback {
+        NONE, HEURISTIC, LP_ROUNDING
+    }
+
+    /**
+     * Builds the fallback plans of a model. Both return the values of a
+     * feasible solution in the variable order of the model, or null if no
+     * feasible plan was found.
+     */
+    public interface FallbackPlans {
+        double[] heuristic();
+
+        double[] roundRelaxation(double[] relaxedValues);
+    }
+
+    /**
+     * Fallback plans which never find a plan, for models which are only
+     * part of a larger problem and have no plans of their own.
+     */
+    public static final FallbackPlans NO_PLANS = new FallbackPlans() {
+        @Override
+        public double[] heuristic() {
+            return null;
+        }
+
+        @Override
+        public double[] roundRelaxation(double[] relaxedValues) {
+            return null;
+        }
+    };
+
+    private double timeLimit = Double.POSITIVE_INFINITY;
+    private double workLimit = Double.POSITIVE_INFINITY;
+    private double mipGap = Double.NaN;
+    private int threads = 0;
+    private Fallback fallback = Fallback.NONE;
+    private double fallbackTimeLimit = Double.POSITIVE_INFINITY;
+
+    /**
+     * The time limit of the MIP solve in seconds.
+     */
+    public SolvePolicy setTimeLimit(double timeLimit) {
+        if (!(timeLimit > 0)) {
+            throw new IllegalArgumentException("Time limit must be positive, but was " + timeLimit + ".");
+        }
+        this.timeLimit = timeLimit;
+        return this;
+    }
+
+    /**
+     * The work limit of the MIP solve in Gurobi work units, which unlike the
+     * time limit gives the same result on every run.
+     */
+    public SolvePolicy setWorkLimit(double workLimit) {
+        if (!(workLimit > 0)) {
+            throw new IllegalArgumentException("Work limit must be positive, but was " + workLimit + ".");
+        }
+        this.workLimit = workLimit;
+        return this;
+    }
+
+    /**
+     * The relative gap at which the MIP solve stops and counts as optimal.
+     */
+    public SolvePolicy setMipGap(double mipGap) {
+        if (!(mipGap >= 0)) {
+            throw new IllegalArgumentException("MIP gap must be non-negative, but was " + mipGap + ".");
+        }
+        this.mipGap = mipGap;
+        return this;
+    }
+
+    /**
+     * The number of threads; 0 lets Gurobi decide.
+     */
+    public SolvePolicy setThreads(int threads) {
+        if (threads < 0) {
+            throw new IllegalArgumentException("Threads must be non-negative, but was " + threads + ".");
+        }
+        this.threads = threads;
+        return this;
+    }
+
+    public SolvePolicy setFallback(Fallback fallback) {
+        this.fallback = fallback;
+        return this;
+    }
+
+    /**
+     * The time limit of the LP relaxation solved for
+     * {@link Fallback#LP_ROUNDING}, in seconds.
+     */
+    public SolvePolicy setFallbackTimeLimit(double fallbackTimeLimit) {
+        if (!(fallbackTimeLimit > 0)) {
+            throw new IllegalArgumentException("Fallback time limit must be positive, but was "
+                    + fallbackTimeLimit + ".");
+        }
+        this.fallbackTimeLimit = fallbackTimeLimit;
+        return this;
+    }
+
+    public double getTimeLimit() {
+        return timeLimit;
+    }
+
+    public double getWorkLimit() {
+        return workLimit;
+    }
+
+    /**
+     * The MIP gap, or NaN if the Gurobi default is used.
+     */
+    public double getMipGap() {
+        return mipGap;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public Fallback getFallback() {
+        return fallback;
+    }
+
+    public double getFallbackTimeLimit() {
+        return fallbackTimeLimit;
+    }
+
+    /**
+     * Sets the limits of the policy on the model.
+     */
+    public void apply(GRBModel model) throws GRBException {
+        if (timeLimit != Double.POSITIVE_INFINITY) {
+            model.set(GRB.DoubleParam.TimeLimit, timeLimit);
+        }
+        if (workLimit != Double.POSITIVE_INFINITY) {
+            model.set(GRB.DoubleParam.WorkLimit, workLimit);
+        }
+        if (!Double.isNaN(mipGap)) {
+            model.set(GRB.DoubleParam.MIPGap, mipGap);
+        }
+        model.set(GRB.IntParam.Threads, threads);
+    }
+
+    /**
+     * Sets the limits for the LP relaxation of {@link Fallback#LP_ROUNDING}
+     * on the relaxed model.
+     */
+    public void applyToRelaxation(GRBModel relaxed) throws GRBException {
+        if (fallbackTimeLimit != Double.POSITIVE_INFINITY) {
+            relaxed.set(GRB.DoubleParam.TimeLimit, fallbackTimeLimit);
+        }
+        relaxed.set(GRB.IntParam.Threads, threads);
+    }
+
+    /**
+     * Optimizes the model under the policy. If the solve stops at the time
+     * or work limit, the fallback plan is built and served if it is better
+     * than the incumbent, or if there is no incumbent.
+     */
+    public PolicyResult solve(GRBModel model, FallbackPlans plans) throws GRBException {
+        long start = System.nanoTime();
+        apply(model);
+        model.optimize();
+        int status = model.get(GRB.IntAttr.Status);
+        double bound = status == GRB.Status.OPTIMAL || isLimitReached(status)
+                ? model.get(GRB.DoubleAttr.ObjBound) : Double.NaN;
+        GRBVar[] vars = model.getVars();
+        double[] incumbent = null;
+        double incumbentObjective = Double.NaN;
+        if (model.get(GRB.IntAttr.SolCount) > 0) {
+            incumbent = model.get(GRB.DoubleAttr.X, vars);
+            incumbentObjective = model.get(GRB.DoubleAttr.ObjVal);
+        }
+        if (status == GRB.Status.OPTIMAL) {
+            return new PolicyResult(PolicyResult.Branch.OPTIMAL, status, incumbentObjective, bound,
+                    elapsed(start), incumbent);
+        }
+
+        double[] fallbackValues = null;
+        if (isLimitReached(status) && fallback == Fallback.HEURISTIC) {
+            fallbackValues = plans.heuristic();
+        } else if (isLimitReached(status) && fallback == Fallback.LP_ROUNDING) {
+            GRBModel relaxed = model.relax();
+            try {
+                applyToRelaxation(relaxed);
+                relaxed.optimize();
+                if (relaxed.get(GRB.IntAttr.Status) == GRB.Status.OPTIMAL) {
+                    fallbackValues = plans.roundRelaxation(relaxed.get(GRB.DoubleAttr.X, relaxed.getVars()));
+                }
+            } finally {
+                relaxed.dispose();
+            }
+        }
+        if (fallbackValues != null) {
+            double fallbackObjective = getObjectiveValue(model.get(GRB.DoubleAttr.Obj, vars), fallbackValues);
+            if (incumbent == null || fallbackObjective < incumbentObjective) {
+                PolicyResult.Branch branch = fallback == Fallback.HEURISTIC ? PolicyResult.Branch.HEURISTIC
+                        : PolicyResult.Branch.LP_ROUNDING;
+                return new PolicyResult(branch, status, fallbackObjective, bound, elapsed(start), fallbackValues);
+            }
+        }
+        if (incumbent != null) {
+            return new PolicyResult(PolicyResult.Branch.INCUMBENT, status, incumbentObjective, bound,
+                    elapsed(start), incumbent);
+        }
+        return new PolicyResult(PolicyResult.Branch.NONE, status, Double.NaN, bound, elapsed(start), null);
+    }
+
+    private static double getObjectiveValue(double[] objective, double[] values) {
+        double sum = 0.0;
+        for (int j = 0; j < values.length; j++) {
+            sum += objective[j] * values[j];
+        }
+        return sum;
+    }
+
+    private static double elapsed(long start) {
+        return (System.nanoTime() - start) / 1e9;
+    }
+
+    /**
+     * Whether a solve with the given status stopped at one of the limits of
+     * the policy, so that the fallback applies.
+     */
+    public static boolean isLimitReached(int status) {
+        return status == GRB.Status.TIME_LIMIT || status == GRB.Status.WORK_LIMIT;
+    }
+
+    @Override
+    public String toString() {
+        return "Time limit: " + timeLimit + ", Work limit: " + workLimit + ", MIP gap: " + mipGap + ", Threads: "
+                + threads + ", Fallback: " + fallback;
+    }
+}
@@ -0,0 +1,118 @@
+package solve;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Describes how a MIP was solved, not just its final result: the LP
+ * relaxation bound, the root bound, when the first incumbent appeared and how
+ * the gap closed over time. Objectives are NaN and times are NaN when the
+ * corresponding event did not happen.
+ */
+public class SolveProfile {
+    private final int status;
+    private final double objective;
+    private final double bound;
+    private final double runtime;
+    private final double nodes;
+    private final double lpObjective;
+    private final double lpRuntime;
+    private final double rootBound;
+    private final double firstIncumbentTime;
+    private final List<ProfilingCallback.Sample> trajectory;
+
+    public SolveProfile(int status, double objective, double bound, double runtime, double nodes,
+                        double lpObjective, double lpRuntime, double rootBound, double firstIncumbentTime,
+                        List<ProfilingCallback.Sample> trajectory) {
+        this.status = status;
+        this.objective = objective;
+        this.bound = bound;
+        this.runtime = runtime;
+        this.nodes = nodes;
+        this.lpObjective = lpObjective;
+        this.lpRuntime = lpRuntime;
+        this.rootBound = rootBound;
+        this.firstIncumbentTime = firstIncumbentTime;
+        this.trajectory = Collections.unmodifiableList(trajectory);
+    }
+
+    /**
+     * The relative gap between an objective and a bound, using the same
+     * definition as Gurobi's MIPGap.
+     */
+    public static double relativeGap(double objective, double bound) {
+        if (Double.isNaN(objective) || Double.isNaN(bound)) {
+            return Double.NaN;
+        }
+        if (objective == bound) {
+            return 0.0;
+        }
+        if (objective == 0.0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return Math.abs(objective - bound) / Math.abs(objective);
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public double getObjective() {
+        return objective;
+    }
+
+    public double getBound() {
+        return bound;
+    }
+
+    public double getRuntime() {
+        return runtime;
+    }
+
+    public double getNodes() {
+        return nodes;
+    }
+
+    public double getLpObjective() {
+        return lpObjective;
+    }
+
+    public double getLpRuntime() {
+        return lpRuntime;
+    }
+
+    public double getRootBound() {
+        return rootBound;
+    }
+
+    public double getFirstIncumbentTime() {
+        return firstIncumbentTime;
+    }
+
+    /**
+     * The gap between the optimal objective and the LP relaxation, which
+     * measures the strength of the formulation.
+     */
+    public double getIntegralityGap() {
+        return relativeGap(objective, lpObjective);
+    }
+
+    /**
+     * The gap between the optimal objective and the root bound, which also
+     * accounts for presolve and root cuts.
+     */
+    public double getRootGap() {
+        return relativeGap(objective, rootBound);
+    }
+
+    public List<ProfilingCallback.Sample> getTrajectory() {
+        return trajectory;
+    }
+
+    @Override
+    public String toString() {
+        return "Status: " + status + ", Obj: " + objective + ", LP Obj: " + lpObjective + ", Root bound: "
+                + rootBound + ", Integrality gap: " + getIntegralityGap() + ", First incumbent: "
+                + firstIncumbentTime + ", Runtime: " + runtime + ", Nodes: " + nodes;
+    }
+}
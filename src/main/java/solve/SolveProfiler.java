@@ -0,0 +1,61 @@
+package solve;
+
+import gurobi.GRB;
+import gurobi.GRBException;
+import gurobi.GRBModel;
+
+/**
+ * Solves a model in profiling mode: the LP relaxation is solved first, and
+ * the MIP is then solved with a {@link ProfilingCallback} installed.
+ */
+public final class SolveProfiler {
+
+    private SolveProfiler() {
+
+    }
+
+    public static SolveProfile profile(GRBModel model) throws GRBException {
+        return profile(model, ProfilingCallback.DEFAULT_SAMPLE_INTERVAL);
+    }
+
+    public static SolveProfile profile(GRBModel model, double sampleInterval) throws GRBException {
+        double lpObjective = Double.NaN;
+        double lpRuntime;
+        GRBModel relaxed = model.relax();
+        try {
+            relaxed.optimize();
+            lpRuntime = relaxed.get(GRB.DoubleAttr.Runtime);
+            if (relaxed.get(GRB.IntAttr.Status) == GRB.Status.OPTIMAL) {
+                lpObjective = relaxed.get(GRB.DoubleAttr.ObjVal);
+            }
+        } finally {
+            relaxed.dispose();
+        }
+
+        ProfilingCallback callback = new ProfilingCallback(sampleInterval);
+        model.setCallback(callback);
+        try {
+            model.optimize();
+        } finally {
+            model.setCallback(null);
+        }
+
+        int status = model.get(GRB.IntAttr.Status);
+        int solCount = model.get(GRB.IntAttr.SolCount);
+        double runtime = model.get(GRB.DoubleAttr.Runtime);
+        double objective = solCount > 0 ? model.get(GRB.DoubleAttr.ObjVal) : Double.NaN;
+        double bound = model.get(GRB.DoubleAttr.ObjBound);
+        double rootBound = callback.getRootBound();
+        if (Double.isNaN(rootBound) && status == GRB.Status.OPTIMAL) {
+            // Solved before branch and bound started, so the final bound is
+            // the root bound.
+            rootBound = bound;
+        }
+        double firstIncumbentTime = callback.getFirstIncumbentTime();
+        if (Double.isNaN(firstIncumbentTime) && solCount > 0) {
+            firstIncumbentTime = runtime;
+        }
+        return new SolveProfile(status, objective, bound, runtime, model.get(GRB.DoubleAttr.NodeCount),
+                lpObjective, lpRuntime, rootBound, firstIncumbentTime, callback.getSamples());
+    }
+}
@@ -0,0 +1,453 @@
+package util;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+/**
+ * The VFR and IFR arrival rates of airports, read from a capacity file which
+ * may be reloaded while the registry is in use.
+ * <p>
+ * The file has the columns AIRPORT, VFR and IFR of est_capacities.csv, and an
+ * optional START column with an ISO-8601 date-time such as
+ * 2026-10-19T14:00Z. A row with a start sets the rates of its airport from
+ * that time until the next start of the airport; a row without one sets the
+ * rates before the first start.
+ * <p>
+ * All rates are held in an immutable {@link Snapshot}, in int arrays indexed
+ * by the position of the airport's code in a sorted array. Codes are packed
+ * into ints by {@link #encode}, so a lookup parses no strings and allocates
+ * nothing. A reload parses the file into a new snapshot and then replaces the
+ * old one, so readers never wait and never see half of a reload. Callers
+ * which look up several rates that must agree should take one snapshot with
+ * {@link #getSnapshot()} and read from it. A reload which fails keeps the
+ * previous snapshot and records the failure.
+ */
+public final class CapacityRegistry implements Closeable {
+    public static final String RESOURCE = "est_capacities.csv";
+    // Rates which hold before the first start of an airport.
+    private static final long BASE = Long.MIN_VALUE;
+    private static final int MAX_CODE_LENGTH = 5;
+    private static final int RADIX = 37;
+
+    /**
+     * The rates of all airports as of one load of the file.
+     */
+    public static final class Snapshot {
+        private final int[] codes;
+        // The rates of the airport at position k are at offsets[k] up to
+        // offsets[k + 1], in order of their starts.
+        private final int[] offsets;
+        private final long[] starts;
+        private final int[] vfr;
+        private final int[] ifr;
+        private final long version;
+
+        private Snapshot(int[] codes, int[] offsets, long[] starts, int[] vfr, int[] ifr, long version) {
+            this.codes = codes;
+            this.offsets = offsets;
+            this.starts = starts;
+            this.vfr = vfr;
+            this.ifr = ifr;
+            this.version = version;
+        }
+
+        /**
+         * The number of times the registry had been loaded when this
+         * snapshot was taken, starting at one.
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        public int getNumAirports() {
+            return codes.length;
+        }
+
+        public boolean contains(CharSequence airport) {
+            return find(encode(airport)) >= 0;
+        }
+
+        /**
+         * The VFR rate of the airport before its first start.
+         */
+        public int getVfr(CharSequence airport) {
+            return vfr[getEntry(airport, BASE)];
+        }
+
+        public int getIfr(CharSequence airport) {
+            return ifr[getEntry(airport, BASE)];
+        }
+
+        /**
+         * The VFR rate of the airport at the given time, in seconds since the
+         * epoch.
+         */
+        public int getVfr(CharSequence airport, long epochSecond) {
+            return vfr[getEntry(airport, epochSecond)];
+        }
+
+        public int getIfr(CharSequence airport, long epochSecond) {
+            return ifr[getEntry(airport, epochSecond)];
+        }
+
+        public int getVfr(CharSequence airport, OffsetDateTime time) {
+            return getVfr(airport, time.toEpochSecond());
+        }
+
+        public int getIfr(CharSequence airport, OffsetDateTime time) {
+            return getIfr(airport, time.toEpochSecond());
+        }
+
+        public int getVfrOrIfr(CharSequence airport, boolean isVfr) {
+            return getVfrOrIfr(airport, isVfr, BASE);
+        }
+
+        public int getVfrOrIfr(CharSequence airport, boolean isVfr, long epochSecond) {
+            int entry = getEntry(airport, epochSecond);
+            return isVfr ? vfr[entry] : ifr[entry];
+        }
+
+        private int find(int code) {
+            int low = 0;
+            int high = codes.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (codes[mid] < code) {
+                    low = mid + 1;
+                } else if (codes[mid] > code) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * The last entry of the airport which starts no later than the given
+         * time.
+         */
+        private int getEntry(CharSequence airport, long epochSecond) {
+            int position = find(encode(airport));
+            if (position < 0) {
+                throw new IllegalArgumentException("Airport not found in vfr/ifr database: " + airport);
+            }
+            int low = offsets[position];
+            int high = offsets[position + 1] - 1;
+            if (starts[low] > epochSecond) {
+                throw new IllegalArgumentException("Airport " + airport + " has no rates before "
+                        + OffsetDateTime.ofInstant(Instant.ofEpochSecond(starts[low]), ZoneOffset.UTC)
+                        + ".");
+            }
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if (starts[mid] <= epochSecond) {
+                    low = mid;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * One row of a capacity file.
+     */
+    private static final class Row implements Comparable<Row> {
+        private final int code;
+        private final long start;
+        private final int vfr;
+        private final int ifr;
+
+        private Row(int code, long start, int vfr, int ifr) {
+            this.code = code;
+            this.start = start;
+            this.vfr = vfr;
+            this.ifr = ifr;
+        }
+
+        @Override
+        public int compareTo(Row other) {
+            int byCode = Integer.compare(code, other.code);
+            return byCode != 0 ? byCode : Long.compare(start, other.start);
+        }
+    }
+
+    private final File file;
+    private volatile Snapshot snapshot;
+    private volatile IOException lastFailure;
+    private long loadedModified;
+    private long loadedLength;
+    private ScheduledExecutorService watcher;
+
+    private CapacityRegistry(File file, Snapshot snapshot) {
+        this.file = file;
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * A registry which reads the given file, and reloads it when
+     * {@link #reloadIfChanged()} finds that it changed.
+     */
+    public static CapacityRegistry fromFile(File file) throws IOException {
+        CapacityRegistry registry = new CapacityRegistry(file, null);
+        registry.reload();
+        return registry;
+    }
+
+    /**
+     * A registry of the rates in est_capacities.csv on the class path, which
+     * is never reloaded.
+     */
+    public static CapacityRegistry fromResource() throws IOException {
+        InputStream stream = CapacityRegistry.class.getClassLoader().getResourceAsStream(RESOURCE);
+        if (stream == null) {
+            throw new IOException("Cannot find " + RESOURCE + " on the class path.");
+        }
+        return new CapacityRegistry(null, parse(stream, RESOURCE, 1));
+    }
+
+    /**
+     * The rates as of the last successful load. The snapshot never changes,
+     * so all lookups on it agree, however often the registry reloads.
+     */
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public int getVfr(CharSequence airport) {
+        return snapshot.getVfr(airport);
+    }
+
+    public int getIfr(CharSequence airport) {
+        return snapshot.getIfr(airport);
+    }
+
+    public int getVfr(CharSequence airport, long epochSecond) {
+        return snapshot.getVfr(airport, epochSecond);
+    }
+
+    public int getIfr(CharSequence airport, long epochSecond) {
+        return snapshot.getIfr(airport, epochSecond);
+    }
+
+    /**
+     * The failure of the last reload, or null if it succeeded.
+     */
+    public IOException getLastFailure() {
+        return lastFailure;
+    }
+
+    /**
+     * Reloads the file if its modification time or length changed since it
+     * was last loaded. A reload which fails keeps the current snapshot, is
+     * recorded as the last failure and is rethrown; the file is tried again
+     * on the next call.
+     *
+     * @return whether a new snapshot was loaded
+     */
+    public synchronized boolean reloadIfChanged() throws IOException {
+        if (file == null) {
+            return false;
+        }
+        if (file.lastModified() == loadedModified && file.length() == loadedLength) {
+            return false;
+        }
+        reload();
+        return true;
+    }
+
+    private synchronized void reload() throws IOException {
+        long modified = file.lastModified();
+        long length = file.length();
+        long version = snapshot == null ? 1 : snapshot.getVersion() + 1;
+        Snapshot next;
+        try {
+            next = parse(new FileInputStream(file), file.getPath(), version);
+        } catch (IOException e) {
+            lastFailure = e;
+            throw e;
+        }
+        snapshot = next;
+        lastFailure = null;
+        loadedModified = modified;
+        loadedLength = length;
+    }
+
+    /**
+     * Checks the file for changes at the given interval on a daemon thread,
+     * until the registry is closed. Failures are kept as the last failure.
+     */
+    public synchronized void watch(long interval, TimeUnit unit) {
+        if (file == null) {
+            throw new IllegalStateException("Only a registry read from a file can be watched.");
+        }
+        if (watcher != null) {
+            throw new IllegalStateException("Registry is already watched.");
+        }
+        watcher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "capacity-watcher");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        watcher.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    reloadIfChanged();
+                } catch (IOException e) {
+                    // Kept as the last failure; the old snapshot stays.
+                }
+            }
+        }, interval, interval, unit);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (watcher != null) {
+            watcher.shutdownNow();
+            watcher = null;
+        }
+    }
+
+    private static Snapshot parse(InputStream stream, String source, long version) throws IOException {
+        List<Row> rows = new ArrayList<Row>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(stream));
+        try {
+            CSVParser parser = new CSVParser(reader, CSVFormat.EXCEL.withHeader());
+            try {
+                boolean timed = parser.getHeaderMap().containsKey("START");
+                for (CSVRecord record : parser) {
+                    rows.add(parseRow(record, timed, source));
+                }
+            } finally {
+                parser.close();
+            }
+        } finally {
+            reader.close();
+        }
+
+        Collections.sort(rows);
+        int numAirports = 0;
+        for (int k = 0; k < rows.size(); k++) {
+            Row row = rows.get(k);
+            if (k > 0 && rows.get(k - 1).code == row.code) {
+                if (rows.get(k - 1).start == row.start) {
+                    throw new IOException("Airport " + decode(row.code) + " has two rates with the same start in "
+                            + source + ".");
+                }
+            } else {
+                numAirports++;
+            }
+        }
+        int[] codes = new int[numAirports];
+        int[] offsets = new int[numAirports + 1];
+        long[] starts = new long[rows.size()];
+        int[] vfr = new int[rows.size()];
+        int[] ifr = new int[rows.size()];
+        int position = -1;
+        for (int k = 0; k < rows.size(); k++) {
+            Row row = rows.get(k);
+            if (position < 0 || codes[position] != row.code) {
+                position++;
+                codes[position] = row.code;
+                offsets[position] = k;
+            }
+            starts[k] = row.start;
+            vfr[k] = row.vfr;
+            ifr[k] = row.ifr;
+        }
+        offsets[numAirports] = rows.size();
+        return new Snapshot(codes, offsets, starts, vfr, ifr, version);
+    }
+
+    private static Row parseRow(CSVRecord record, boolean timed, String source) throws IOException {
+        String where = " in line " + record.getRecordNumber() + " of " + source + ".";
+        try {
+            int code = encode(record.get("AIRPORT"));
+            int vfr = Integer.parseInt(record.get("VFR").trim());
+            int ifr = Integer.parseInt(record.get("IFR").trim());
+            if (vfr < 0 || ifr < 0) {
+                throw new IOException("Rates must be nonnegative, but were " + vfr + " and " + ifr + where);
+            }
+            String start = timed ? record.get("START").trim() : "";
+            return new Row(code, start.isEmpty() ? BASE : OffsetDateTime.parse(start).toEpochSecond(), vfr, ifr);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid rate" + where, e);
+        } catch (DateTimeParseException e) {
+            throw new IOException("Invalid start" + where, e);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage() + where, e);
+        }
+    }
+
+    /**
+     * Packs an airport code of up to five letters and digits into an int,
+     * ignoring case and surrounding whitespace.
+     */
+    public static int encode(CharSequence airport) {
+        int start = 0;
+        int end = airport.length();
+        while (start < end && Character.isWhitespace(airport.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(airport.charAt(end - 1))) {
+            end--;
+        }
+        if (end == start || end - start > MAX_CODE_LENGTH) {
+            throw new IllegalArgumentException("Airport code must have 1 to " + MAX_CODE_LENGTH
+                    + " characters, but was \"" + airport + "\".");
+        }
+        int code = 0;
+        for (int k = start; k < end; k++) {
+            char c = airport.charAt(k);
+            int digit;
+            if (c >= 'A' && c <= 'Z') {
+                digit = c - 'A' + 1;
+            } else if (c >= 'a' && c <= 'z') {
+                digit = c - 'a' + 1;
+            } else if (c >= '0' && c <= '9') {
+                digit = c - '0' + 27;
+            } else {
+                throw new IllegalArgumentException("Airport code must consist of letters and digits, but was \""
+                        + airport + "\".");
+            }
+            code = code * RADIX + digit;
+        }
+        return code;
+    }
+
+    public static String decode(int code) {
+        StringBuilder airport = new StringBuilder();
+        while (code > 0) {
+            int digit = code % RADIX;
+            airport.append(digit <= 26 ? (char) ('A' + digit - 1) : (char) ('0' + digit - 27));
+            code /= RADIX;
+        }
+        return airport.reverse().toString();
+    }
+}
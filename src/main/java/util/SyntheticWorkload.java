@@ -0,0 +1,258 @@
+package util;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import scenarios.DiscreteScenarioTree;
+import scenarios.ScenarioTreeFactory;
+
+/**
+ * A seeded generator of synthetic arrival demand at a single airport, for
+ * testing how the models scale beyond real airports. The flights have the
+ * same form as the output of {@link BTSParser}, so they can be passed to
+ * {@link BTSParser#separateForGDPPlanning} and the flight parsers of the
+ * models.
+ * <p>
+ * Every flight arrives within the horizon. A share of the arrivals falls in
+ * banks, evenly spaced over the horizon, and the rest is spread uniformly.
+ * Durations are drawn from a mix of duration classes. A flight is airborne
+ * at the start of the horizon with the given probability. Its arrival time
+ * is redrawn until some duration in the mix fits that status, and only if
+ * none is found after repeated draws, for instance because the horizon is
+ * shorter than every duration, does the flight take the other status.
+ */
+public class SyntheticWorkload {
+    private static final int MAX_ATTEMPTS = 100;
+
+    private final long seed;
+    private final int numFlights;
+    private final OffsetDateTime startTime;
+    private final Duration horizon;
+
+    private final List<Duration> minDurations = new ArrayList<Duration>();
+    private final List<Duration> maxDurations = new ArrayList<Duration>();
+    private final List<Double> durationWeights = new ArrayList<Double>();
+    private double airborneFraction = 0.2;
+    private int numBanks = 0;
+    private Duration bankWidth = Duration.ofMinutes(30);
+    private double bankFraction = 0.0;
+
+    public SyntheticWorkload(long seed, int numFlights, OffsetDateTime startTime, Duration horizon) {
+        if (numFlights < 0) {
+            throw new IllegalArgumentException("Number of flights must be non-negative, but was " + numFlights + ".");
+        }
+        if (horizon.isNegative() || horizon.isZero()) {
+            throw new IllegalArgumentException("Horizon must be positive, but was " + horizon + ".");
+        }
+        this.seed = seed;
+        this.numFlights = numFlights;
+        this.startTime = startTime;
+        this.horizon = horizon;
+    }
+
+    /**
+     * Adds a class of flights with durations drawn uniformly from
+     * [minDuration, maxDuration]. If no class is added, durations are drawn
+     * from a mix of short, medium and long haul flights.
+     */
+    public SyntheticWorkload addDurationClass(Duration minDuration, Duration maxDuration, double weight) {
+        if (minDuration.isNegative() || minDuration.isZero() || maxDuration.compareTo(minDuration) < 0) {
+            throw new IllegalArgumentException("Invalid duration class: [" + minDuration + ", " + maxDuration + "].");
+        }
+        if (weight <= 0) {
+            throw new IllegalArgumentException("Weight must be positive, but was " + weight + ".");
+        }
+        minDurations.add(minDuration);
+        maxDurations.add(maxDuration);
+        durationWeights.add(weight);
+        return this;
+    }
+
+    public SyntheticWorkload setAirborneFraction(double airborneFraction) {
+        if (airborneFraction < 0 || airborneFraction > 1) {
+            throw new IllegalArgumentException("Airborne fraction must be in [0, 1], but was "
+                    + airborneFraction + ".");
+        }
+        this.airborneFraction = airborneFraction;
+        return this;
+    }
+
+    /**
+     * Puts the given fraction of the arrivals into banks. Each bank spreads
+     * its arrivals uniformly over bankWidth, centered on its position.
+     */
+    public SyntheticWorkload setBanks(int numBanks, Duration bankWidth, double bankFraction) {
+        if (numBanks < 0) {
+            throw new IllegalArgumentException("Number of banks must be non-negative, but was " + numBanks + ".");
+        }
+        if (bankFraction < 0 || bankFraction > 1 || (numBanks == 0 && bankFraction > 0)) {
+            throw new IllegalArgumentException("Invalid bank fraction " + bankFraction + " for " + numBanks
+                    + " banks.");
+        }
+        this.numBanks = numBanks;
+        this.bankWidth = bankWidth;
+        this.bankFraction = bankFraction;
+        return this;
+    }
+
+    public OffsetDateTime getStartTime() {
+        return startTime;
+    }
+
+    public OffsetDateTime getEndTime() {
+        return startTime.plus(horizon);
+    }
+
+    /**
+     * The average number of arrivals per hour.
+     */
+    public double getArrivalRate() {
+        return numFlights * 3600.0 / horizon.getSeconds();
+    }
+
+    public HashSet<BTSParser.FlightStruct> generateFlights() {
+        Random random = new Random(seed);
+        long horizonSeconds = horizon.getSeconds();
+        long[] classMin = new long[Math.max(1, minDurations.size())];
+        long[] classMax = new long[classMin.length];
+        double[] classWeight = new double[classMin.length];
+        if (minDurations.isEmpty()) {
+            classMin = new long[]{45 * 60, 90 * 60, 180 * 60};
+            classMax = new long[]{90 * 60, 180 * 60, 330 * 60};
+            classWeight = new double[]{0.4, 0.4, 0.2};
+        } else {
+            for (int c = 0; c < classMin.length; c++) {
+                classMin[c] = minDurations.get(c).getSeconds();
+                classMax[c] = maxDurations.get(c).getSeconds();
+                classWeight[c] = durationWeights.get(c);
+            }
+        }
+
+        HashSet<BTSParser.FlightStruct> flights = new HashSet<BTSParser.FlightStruct>();
+        for (int f = 0; f < numFlights; f++) {
+            boolean airborne = random.nextDouble() < airborneFraction;
+            long arrOffset = drawArrivalOffset(random, horizonSeconds);
+            long duration = drawDuration(random, classMin, classMax, classWeight, arrOffset, airborne);
+            for (int attempt = 1; duration < 0 && attempt < MAX_ATTEMPTS; attempt++) {
+                arrOffset = drawArrivalOffset(random, horizonSeconds);
+                duration = drawDuration(random, classMin, classMax, classWeight, arrOffset, airborne);
+            }
+            if (duration < 0) {
+                duration = drawDuration(random, classMin, classMax, classWeight, arrOffset, !airborne);
+            }
+            OffsetDateTime arrTime = startTime.plusSeconds(arrOffset);
+            flights.add(new BTSParser.FlightStruct(f, arrTime.minusSeconds(duration), arrTime,
+                    Duration.ofSeconds(duration)));
+        }
+        return flights;
+    }
+
+    /**
+     * The generated flights, separated into sitting and airborne flights.
+     */
+    public BTSParser.ResultStruct generate() {
+        HashSet<BTSParser.FlightStruct> sitting = new HashSet<BTSParser.FlightStruct>();
+        HashSet<BTSParser.FlightStruct> airborne = new HashSet<BTSParser.FlightStruct>();
+        for (BTSParser.FlightStruct f : generateFlights()) {
+            if (f.getDepartureTime().isBefore(startTime)) {
+                airborne.add(f);
+            } else {
+                sitting.add(f);
+            }
+        }
+        return new BTSParser.ResultStruct(sitting, airborne, startTime, getEndTime());
+    }
+
+    /**
+     * A low-to-high capacity scenario tree matching the demand. The high
+     * capacity is highFactor times the average arrival rate, the low capacity
+     * lowFactor times it. The capacity changes in one of numScenarios
+     * consecutive periods, starting a quarter into the horizon.
+     */
+    public DiscreteScenarioTree makeScenarioTree(Duration discretization, int numScenarios, double lowFactor,
+                                                 double highFactor, int lookahead) {
+        int numTimePeriods = DiscretizerUtil.getNumTimePeriods(startTime, getEndTime(), discretization);
+        if (numScenarios < 1 || numScenarios > numTimePeriods) {
+            throw new IllegalArgumentException("Number of scenarios must be between 1 and the number of time "
+                    + "periods, " + numTimePeriods + ", but was " + numScenarios + ".");
+        }
+        int timePeriodsPerHour = Math.max(1, DiscretizerUtil.durationToTimePeriods(Duration.ofHours(1),
+                discretization));
+        int earliestChange = Math.min(numTimePeriods / 4, numTimePeriods - numScenarios);
+        int low = (int) Math.round(lowFactor * getArrivalRate());
+        int high = (int) Math.round(highFactor * getArrivalRate());
+        return ScenarioTreeFactory.makeLoToHigh(numTimePeriods, earliestChange, earliestChange + numScenarios,
+                low, high, timePeriodsPerHour, false, lookahead);
+    }
+
+    /**
+     * A low-to-high capacity scenario tree over the periods of the grid, as
+     * {@link #makeScenarioTree(Duration, int, double, double, int)}. The
+     * capacity changes in one of numScenarios consecutive periods, starting
+     * with the period a quarter into the horizon.
+     */
+    public DiscreteScenarioTree makeScenarioTree(TimeGrid grid, int numScenarios, double lowFactor,
+                                                 double highFactor, int lookahead) {
+        int numTimePeriods = grid.getNumTimePeriods();
+        if (numScenarios < 1 || numScenarios > numTimePeriods) {
+            throw new IllegalArgumentException("Number of scenarios must be between 1 and the number of time "
+                    + "periods, " + numTimePeriods + ", but was " + numScenarios + ".");
+        }
+        int quarter = grid.timeToIndex(startTime.plus(Duration.between(startTime, getEndTime()).dividedBy(4)));
+        int earliestChange = Math.min(quarter, numTimePeriods - numScenarios);
+        int low = (int) Math.round(lowFactor * getArrivalRate());
+        int high = (int) Math.round(highFactor * getArrivalRate());
+        return ScenarioTreeFactory.makeLoToHigh(grid, earliestChange, earliestChange + numScenarios, low, high,
+                false, lookahead);
+    }
+
+    private long drawArrivalOffset(Random random, long horizonSeconds) {
+        if (numBanks > 0 && random.nextDouble() < bankFraction) {
+            int bank = random.nextInt(numBanks);
+            long center = (long) ((bank + 0.5) * horizonSeconds / numBanks);
+            long offset = center + (long) ((random.nextDouble() - 0.5) * bankWidth.getSeconds());
+            return Math.max(0, Math.min(horizonSeconds - 1, offset));
+        }
+        return (long) (random.nextDouble() * horizonSeconds);
+    }
+
+    /**
+     * Draws a duration in seconds which makes the flight airborne, or
+     * sitting, at the start of the horizon. Returns -1 if no class allows
+     * it.
+     */
+    private static long drawDuration(Random random, long[] classMin, long[] classMax, double[] classWeight,
+                                     long arrOffset, boolean airborne) {
+        // Airborne flights need duration > arrOffset, sitting flights
+        // duration <= arrOffset.
+        long[] lo = new long[classMin.length];
+        long[] hi = new long[classMin.length];
+        double total = 0.0;
+        for (int c = 0; c < classMin.length; c++) {
+            lo[c] = airborne ? Math.max(classMin[c], arrOffset + 1) : classMin[c];
+            hi[c] = airborne ? classMax[c] : Math.min(classMax[c], arrOffset);
+            if (lo[c] <= hi[c]) {
+                total += classWeight[c];
+            }
+        }
+        if (total == 0.0) {
+            return -1;
+        }
+        double pick = random.nextDouble() * total;
+        int chosen = -1;
+        for (int c = 0; c < classMin.length; c++) {
+            if (lo[c] <= hi[c]) {
+                chosen = c;
+                pick -= classWeight[c];
+                if (pick < 0) {
+                    break;
+                }
+            }
+        }
+        return lo[chosen] + (long) (random.nextDouble() * (hi[chosen] - lo[chosen] + 1));
+    }
+}
@@ -0,0 +1,203 @@
+package util;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A division of a planning horizon into time periods, which need not have
+ * the same length. Flight durations are measured in a fixed unit, which is
+ * usually the length of the shortest period, so that a flight of a given
+ * duration can arrive in a different number of periods depending on when
+ * it departs.
+ * <p>
+ * A grid with periods of one length and a unit of that length discretizes
+ * in the same way as {@link DiscretizerUtil}. Times after the last period
+ * are mapped as if the grid continued with periods of the length of its last
+ * period.
+ */
+public final class TimeGrid {
+    private final OffsetDateTime start;
+    private final Duration unit;
+    // The offset of the start of each period from the start of the grid, in
+    // nanoseconds, followed by the end of the last period.
+    private final long[] boundaries;
+
+    /**
+     * A grid starting at the given time with periods of the given lengths.
+     */
+    public TimeGrid(OffsetDateTime start, List<Duration> lengths, Duration unit) {
+        if (lengths.isEmpty()) {
+            throw new IllegalArgumentException("A grid must have at least one period.");
+        }
+        if (unit.isNegative() || unit.isZero()) {
+            throw new IllegalArgumentException("Duration unit must be positive, but was " + unit + ".");
+        }
+        this.start = start;
+        this.unit = unit;
+        this.boundaries = new long[lengths.size() + 1];
+        for (int i = 0; i < lengths.size(); i++) {
+            Duration length = lengths.get(i);
+            if (length.isNegative() || length.isZero()) {
+                throw new IllegalArgumentException("Period " + i + " must have a positive length, but was "
+                        + length + ".");
+            }
+            boundaries[i + 1] = boundaries[i] + length.toNanos();
+        }
+    }
+
+    /**
+     * A grid of periods of the given length covering start to end, with a
+     * unit of the same length. The last period may end after end.
+     */
+    public static TimeGrid uniform(OffsetDateTime start, OffsetDateTime end, Duration discretization) {
+        int numTimePeriods = DiscretizerUtil.getNumTimePeriods(start, end, discretization);
+        return new TimeGrid(start, Collections.nCopies(Math.max(1, numTimePeriods), discretization),
+                discretization);
+    }
+
+    /**
+     * A grid of fine periods from fineStart to fineEnd, where the capacity
+     * may change, and coarse periods before and after. The coarse periods
+     * before fineStart are shortened where needed so that the fine periods
+     * start exactly at fineStart, and the last fine period ends at fineEnd.
+     * Durations are measured in fine periods.
+     */
+    public static TimeGrid adaptive(OffsetDateTime start, OffsetDateTime end, OffsetDateTime fineStart,
+                                    OffsetDateTime fineEnd, Duration fine, Duration coarse) {
+        if (fine.compareTo(coarse) > 0) {
+            throw new IllegalArgumentException("Fine periods must not be longer than coarse periods, but were "
+                    + fine + " and " + coarse + ".");
+        }
+        if (!fineStart.isBefore(fineEnd)) {
+            throw new IllegalArgumentException("The fine window must end after it starts, but was " + fineStart
+                    + " to " + fineEnd + ".");
+        }
+        OffsetDateTime windowStart = fineStart.isBefore(start) ? start : fineStart;
+        OffsetDateTime windowEnd = fineEnd.isAfter(end) ? end : fineEnd;
+        List<Duration> lengths = new ArrayList<Duration>();
+        OffsetDateTime time = start;
+        time = addPeriods(lengths, time, windowStart, coarse);
+        time = addPeriods(lengths, time, windowEnd, fine);
+        while (time.isBefore(end)) {
+            lengths.add(coarse);
+            time = time.plus(coarse);
+        }
+        return new TimeGrid(start, lengths, fine);
+    }
+
+    /**
+     * Adds periods of the given length from time until limit, shortening the
+     * last one to end at limit.
+     */
+    private static OffsetDateTime addPeriods(List<Duration> lengths, OffsetDateTime time, OffsetDateTime limit,
+                                             Duration length) {
+        while (time.isBefore(limit)) {
+            OffsetDateTime next = time.plus(length);
+            if (next.isAfter(limit)) {
+                next = limit;
+            }
+            lengths.add(Duration.between(time, next));
+            time = next;
+        }
+        return time;
+    }
+
+    public OffsetDateTime getStart() {
+        return start;
+    }
+
+    /**
+     * The end of the last period.
+     */
+    public OffsetDateTime getEnd() {
+        return start.plusNanos(boundaries[boundaries.length - 1]);
+    }
+
+    public int getNumTimePeriods() {
+        return boundaries.length - 1;
+    }
+
+    /**
+     * The unit in which flight durations are measured.
+     */
+    public Duration getUnit() {
+        return unit;
+    }
+
+    public OffsetDateTime getPeriodStart(int timePeriod) {
+        return start.plusNanos(getOffset(timePeriod));
+    }
+
+    public Duration getPeriodLength(int timePeriod) {
+        return Duration.ofNanos(getOffset(timePeriod + 1) - getOffset(timePeriod));
+    }
+
+    /**
+     * The length of the period in units.
+     */
+    public double getPeriodLengthInUnits(int timePeriod) {
+        return (double) (getOffset(timePeriod + 1) - getOffset(timePeriod)) / unit.toNanos();
+    }
+
+    private long getOffset(int timePeriod) {
+        if (timePeriod < 0) {
+            throw new IllegalArgumentException("Time period must be non-negative, but was " + timePeriod + ".");
+        }
+        int numTimePeriods = getNumTimePeriods();
+        if (timePeriod <= numTimePeriods) {
+            return boundaries[timePeriod];
+        }
+        return boundaries[numTimePeriods] + (timePeriod - numTimePeriods) * getLastLength();
+    }
+
+    private long getLastLength() {
+        int numTimePeriods = getNumTimePeriods();
+        return boundaries[numTimePeriods] - boundaries[numTimePeriods - 1];
+    }
+
+    /**
+     * The period containing the given time.
+     */
+    public int timeToIndex(OffsetDateTime time) {
+        long offset = Duration.between(start, time).toNanos();
+        if (offset < 0) {
+            throw new IllegalArgumentException("Time " + time + " is before the start of the grid, " + start + ".");
+        }
+        return offsetToIndex(offset);
+    }
+
+    private int offsetToIndex(long offset) {
+        int numTimePeriods = getNumTimePeriods();
+        if (offset >= boundaries[numTimePeriods]) {
+            return numTimePeriods + (int) ((offset - boundaries[numTimePeriods]) / getLastLength());
+        }
+        int position = Arrays.binarySearch(boundaries, offset);
+        return position >= 0 ? position : -position - 2;
+    }
+
+    /**
+     * The duration in whole units, rounded down.
+     */
+    public int durationToUnits(Duration duration) {
+        return DiscretizerUtil.durationToTimePeriods(duration, unit);
+    }
+
+    /**
+     * The period in which a flight of the given duration in units arrives,
+     * if it departs at the start of the given period. This is at least the
+     * departure period, and may be past the last period.
+     */
+    public int getArrivalPeriod(int duration, int departurePeriod) {
+        return offsetToIndex(getOffset(departurePeriod) + duration * unit.toNanos());
+    }
+
+    @Override
+    public String toString() {
+        return "Start: " + start + ", End: " + getEnd() + ", Time periods: " + getNumTimePeriods() + ", Unit: "
+                + unit;
+    }
+}
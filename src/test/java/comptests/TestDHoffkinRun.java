@@ -4,17 +4,26 @@ import gurobi.GRB;
 import gurobi.GRBEnv;
 import gurobi.GRBException;
 import gurobi.GRBModel;
+import ips.AggregatedMHModel;
 import ips.DHoffkinFlightParser;
 import ips.DHoffkinInput;
 import ips.ExtendedHofkinModel;
+import ips.GroundHoldingHeuristic;
+import ips.MHCuts;
 import ips.MHDynModel;
 import ips.MHFlightParser;
 import ips.MHInput;
+import ips.ModelCache;
+import ips.ParallelComparison;
+import ips.ProgressiveHedging;
+import ips.RollingHorizonPlanner;
+import ips.SolutionStore;
 
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
@@ -22,10 +31,23 @@ import java.time.ZoneId;
 import java.time.ZoneOffset;
 import java.util.HashSet;
 
+import org.junit.Assert;
 import org.junit.Test;
 
+import results.AsyncResultSink;
+import results.ColumnarResultSink;
+import results.CsvResultSink;
+import results.ResultColumn;
+import results.ResultRow;
+import results.ResultSink;
 import scenarios.DiscreteScenarioTree;
 import scenarios.ScenarioTreeFactory;
+import solve.JsonLinesSink;
+import solve.ProfilingCallback;
+import solve.SolveInstrumentation;
+import solve.SolveMetrics;
+import solve.SolveProfile;
+import solve.SolveProfiler;
 import util.BTSParser;
 import util.CapacityGetter;
 import util.TimeZoneGetter;
@@ -66,10 +88,74 @@ public class TestDHoffkinRun {
         MHDynModel.solveMhdModel(myInput2, new GRBEnv(), true);
     }
 
+    @Test
+    public void testProgressiveHedging() throws IOException, GRBException, InterruptedException {
+        Duration disc = Duration.ofMinutes(15);
+        File btsFile = new File(TestDHoffkinRun.class.getClassLoader().getResource("OnTime_2017_07_15.csv")
+                .getFile());
+        OffsetDateTime startTime = LocalDateTime.of(2017, 7, 15, 12, 0).atOffset(ZoneOffset.UTC);
+        OffsetDateTime endTime = LocalDateTime.of(2017, 7, 15, 20, 0).atOffset(ZoneOffset.UTC);
+        BTSParser.ResultStruct btsResults = BTSParser.separateForGDPPlanning(
+                BTSParser.filterByAirportAndTimeRange(btsFile, startTime, endTime, "ORD"), startTime, endTime);
+        DHoffkinFlightParser.DemandStruct demand = DHoffkinFlightParser.wrapBTSOutput(btsResults, disc);
+        DiscreteScenarioTree tree = ScenarioTreeFactory.makeLoToHigh(demand.getNumTimePeriods(), 8, 16, 15, 30, 4,
+                false, 0);
+        DHoffkinInput myInput = new DHoffkinInput(10, 1.0, 2.0, 24, demand, tree);
+
+        ProgressiveHedging ph = new ProgressiveHedging(ProgressiveHedging.dhoffkinFormulation(myInput), 1.0, 1e-4,
+                100, 4, 1, new ProgressiveHedging.Listener() {
+            @Override
+            public void iterationFinished(ProgressiveHedging.IterationStats stats) {
+                System.out.println(stats);
+            }
+        });
+        ProgressiveHedging.Result result = ph.solve();
+
+        GRBModel extensive = ExtendedHofkinModel.solveModel(myInput);
+        System.out.println("PH cost: " + result.getLastIteration().getExpectedCost() + ", extensive form: "
+                + extensive.get(GRB.DoubleAttr.ObjVal));
+        extensive.dispose();
+    }
+
+    @Test
+    public void testRollingHorizon() throws IOException, GRBException {
+        Duration disc = Duration.ofMinutes(15);
+        File btsFile = new File(TestDHoffkinRun.class.getClassLoader().getResource("OnTime_2017_07_15.csv")
+                .getFile());
+        OffsetDateTime startTime = LocalDateTime.of(2017, 7, 15, 12, 0).atOffset(ZoneOffset.UTC);
+        OffsetDateTime endTime = LocalDateTime.of(2017, 7, 16, 0, 0).atOffset(ZoneOffset.UTC);
+        BTSParser.ResultStruct btsResults = BTSParser.separateForGDPPlanning(
+                BTSParser.filterByAirportAndTimeRange(btsFile, startTime, endTime, "ORD"), startTime, endTime);
+        DHoffkinFlightParser.DemandStruct schedule = DHoffkinFlightParser.wrapBTSOutput(btsResults, disc);
+
+        int windowLength = 32;
+        int step = 4;
+        int realizedScenario = 20;
+        DiscreteScenarioTree tree = ScenarioTreeFactory.makeLoToHigh(windowLength, 8, 28, 15, 30, 4, false, 0);
+        GRBEnv myEnv = new GRBEnv();
+        RollingHorizonPlanner planner = new RollingHorizonPlanner(myEnv, schedule, windowLength, 10, 1.0, 2.0, 24,
+                false);
+        while (!planner.isFinished()) {
+            RollingHorizonPlanner.Step result = planner.plan(tree);
+            GRBModel cold = ExtendedHofkinModel.solveModel(planner.getInput(), myEnv, false);
+            System.out.println(result + ", Cold runtime: " + cold.get(GRB.DoubleAttr.Runtime));
+            cold.dispose();
+
+            planner.advance(step, realizedScenario);
+            tree = ScenarioTreeFactory.shiftTree(tree, step, realizedScenario, 0);
+        }
+        planner.dispose();
+    }
+
     @Test
     public void compTestsDHoffkin() throws IOException, GRBException, IllegalArgumentException {
         boolean append = false;
         boolean verbose = false;
+        RunMode mode = new RunMode();
+        mode.validate();
+        SolutionStore store = mode.storeSolutions ? new SolutionStore(new File("solutions")) : null;
+        ModelCache modelCache = mode.cacheModels ? new ModelCache(new File("models")) : null;
+        int threadsPerModel = Math.max(1, Runtime.getRuntime().availableProcessors() / 3);
 
 //        String[] airports = {"ORD"};
 //        Duration[] maxLengths = {Duration.ofHours(6)};
@@ -92,20 +178,33 @@ public class TestDHoffkinRun {
         int lookahead = 0;
         boolean probAlt = false;
 
-        FileWriter fw = new FileWriter("new_results.csv", append);
-        BufferedWriter writer = new BufferedWriter(fw);
-        if (!append) {
-            writer.write(
-                    "APT,VFR,IFR,WMAX,START,END,MAXLENGTH,NUM_SITTING,NUM_AIR,DISC,CASE,AIRCOST," +
-                            "LOOKAHEAD,NUM_TIME_PERIODS,EARLY_CHANGE,LATE_CHANGE,PROB_ALT,DIVERT_FACTOR," +
-                            "MH_SOLVETIME,MHD_SOLVETIME,DHD_SOLVETIME,MH_FEASIBLE,OBJ_MH,"+
-                            "OBJ_DIVERT,MH_NODES,MHD_NODES,DHD_NODES,MHD_DIVERT,DHD_DIVERT,\n");
+        ResultSink csvSink = new CsvResultSink(new File("new_results.csv"), append);
+        ResultSink writer = mode.columnar
+                ? new AsyncResultSink(csvSink, new ColumnarResultSink(new File("new_results.bin"), append))
+                : new AsyncResultSink(csvSink);
+        BufferedWriter profileWriter = null;
+        BufferedWriter trajectoryWriter = null;
+        if (mode.profile) {
+            profileWriter = new BufferedWriter(new FileWriter("new_results_profile.csv", append));
+            trajectoryWriter = new BufferedWriter(new FileWriter("new_results_trajectory.csv", append));
+            if (!append) {
+                profileWriter.write("APT,START,MAXLENGTH,DISC,CASE,DIVERT_FACTOR,MODEL,STATUS,OBJ,LP_OBJ,LP_SOLVETIME," +
+                        "ROOT_BOUND,INTEGRALITY_GAP,ROOT_GAP,FIRST_INCUMBENT_TIME,SOLVETIME,NODES,\n");
+                trajectoryWriter.write("APT,START,MAXLENGTH,DISC,CASE,DIVERT_FACTOR,MODEL,TIME,OBJ_BEST,OBJ_BOUND," +
+                        "GAP,NODES,ITERATIONS,\n");
+            }
+        }
+        JsonLinesSink metricsSink = null;
+        if (mode.instrument) {
+            metricsSink = new JsonLinesSink(new File("new_results_metrics.jsonl"), append);
         }
 
 
         File btsFile = new File(TestDHoffkinRun.class.getClassLoader().getResource("OnTime_2017_07_15.csv")
                 .getFile());
         GRBEnv myEnv = new GRBEnv();
+        ParallelComparison comparison = mode.parallel
+                ? new ParallelComparison(threadsPerModel, mode.aggregateFlights, verbose) : null;
 
         int counter = 0;
         for (String airport : airports) {
@@ -164,74 +263,138 @@ public class TestDHoffkinRun {
 
                                 MHDynModel.Input myMHInput = new MHInput(wmax, groundCost, airCost, divertCost,
                                         myMHDemands, myTree);
-                                GRBModel mhModel = MHDynModel.solveMhModel(myMHInput, myEnv, verbose);
-                                double solveTimeMH = mhModel.get(GRB.DoubleAttr.Runtime);
-                                int statusMH = mhModel.get(GRB.IntAttr.Status);
-                                double objectiveMH = Double.NaN;
-                                boolean feasible = true;
-                                if (statusMH == GRB.Status.OPTIMAL) {
-                                    objectiveMH = mhModel.get(GRB.DoubleAttr.ObjVal);
-                                } else {
-                                    feasible = false;
-                                }
-                                double mhNodes = mhModel.get(GRB.DoubleAttr.NodeCount);
-                                mhModel.dispose();
-
-                                GRBModel mhdModel = MHDynModel.solveMhdModel(myMHInput, myEnv, verbose);
-                                double solveTimeMHD = mhdModel.get(GRB.DoubleAttr.Runtime);
-                                int statusMHD = mhdModel.get(GRB.IntAttr.Status);
-                                double objectiveMHD = Double.NaN;
-                                if (statusMHD == GRB.Status.OPTIMAL) {
-                                    objectiveMHD = mhdModel.get(GRB.DoubleAttr.ObjVal);
-                                }
-                                double mhdNodes = mhdModel.get(GRB.DoubleAttr.NodeCount);
-                                double mhdDivert = MHDynModel.getAverageDiversions(myMHInput, mhdModel);
-                                mhdModel.dispose();
-
                                 DHoffkinInput myDHInput = new DHoffkinInput(wmax, groundCost, airCost, divertCost, myDHDemands, myTree);
-                                GRBModel dhModel = ExtendedHofkinModel.solveModel(myDHInput, myEnv, verbose);
-                                double solveTimeDH = dhModel.get(GRB.DoubleAttr.Runtime);
-                                int statusDH = dhModel.get(GRB.IntAttr.Status);
-                                double objectiveDH = Double.NaN;
-                                if (statusDH == GRB.Status.OPTIMAL) {
-                                    objectiveDH = dhModel.get(GRB.DoubleAttr.ObjVal);
-                                }
-                                double dhNodes = dhModel.get(GRB.DoubleAttr.NodeCount);
-                                double dhDivert = ExtendedHofkinModel.getAverageDiversions(myDHInput, dhModel);
-                                dhModel.dispose();
-
-                                if (statusMHD == GRB.Status.OPTIMAL && statusDH == GRB.Status.OPTIMAL) {
-                                    if (objectiveDH > 0.5) {
-                                        double percent_diff = Math.abs(objectiveDH - objectiveMHD) / objectiveDH;
-                                        if (percent_diff > 0.001) {
-                                            writer.close();
-                                            throw new GRBException("Methods produce different objective values. MHD Obj: "
-                                                    + objectiveMHD + ". DHD Obj: " + objectiveDH + ". Percent difference: "
-                                                    + percent_diff);
-                                        }
-                                    } else {
-                                        double abs_diff = Math.abs(objectiveDH - objectiveMHD);
-                                        if (abs_diff > 0.001) {
-                                            writer.close();
-                                            throw new GRBException("Methods produce different objective values. MH Obj: "
-                                                    + objectiveMH + ". DH Obj: " + objectiveDH + ". Absolute difference: "
-                                                    + abs_diff);
-                                        }
+                                String key = airport + "," + start + "," + maxLength.toHours() + ","
+                                        + disc.toMinutes() + "," + param_case + "," + divertFactor;
+                                SolveMetrics mhMetrics = null;
+                                SolveMetrics mhdMetrics = null;
+                                SolveMetrics dhMetrics = null;
+                                SolveProfile mhProfile = null;
+                                SolveProfile mhdProfile = null;
+                                SolveProfile dhProfile = null;
+                                ParallelComparison.Result result;
+                                if (mode.parallel) {
+                                    try {
+                                        result = comparison.compare(myMHInput, myDHInput);
+                                    } catch (InterruptedException e) {
+                                        writer.close();
+                                        throw new IllegalStateException(e);
                                     }
                                 } else {
+                                    long solveStart = System.nanoTime();
+                                    mhMetrics = mode.instrument ? newMetrics(key, "MH") : null;
+                                    GRBModel mhModel = setupMhModel(mode, modelCache, myMHInput, false, myEnv,
+                                            verbose, mhMetrics);
+                                    String mhName = mode.aggregateFlights ? "AGGMH" : "MH";
+                                    SolutionStore.Key mhKey = SolutionStore.Key.of(myMHInput);
+                                    applyStoredStart(store, mhName, mhKey, mhModel);
+                                    mhProfile = optimize(mhModel, mode.profile, mhMetrics);
+                                    storeSolution(store, mhName, mhKey, mhModel);
+                                    ParallelComparison.ModelResult mhResult = ParallelComparison.ModelResult
+                                            .fromModel("MH", mhModel, Double.NaN);
+                                    mhModel.dispose();
+
+                                    mhdMetrics = mode.instrument ? newMetrics(key, "MHD") : null;
+                                    GRBModel mhdModel = setupMhModel(mode, modelCache, myMHInput, true, myEnv,
+                                            verbose, mhdMetrics);
+                                    String mhdName = mode.aggregateFlights ? "AGGMHD" : "MHD";
+                                    applyStoredStart(store, mhdName, mhKey, mhdModel);
+                                    mhdProfile = optimize(mhdModel, mode.profile, mhdMetrics);
+                                    storeSolution(store, mhdName, mhKey, mhdModel);
+                                    ParallelComparison.ModelResult mhdResult = ParallelComparison.ModelResult
+                                            .fromModel("MHD", mhdModel,
+                                                    MHDynModel.getAverageDiversions(myMHInput, mhdModel));
+                                    mhdModel.dispose();
+
+                                    dhMetrics = mode.instrument ? newMetrics(key, "DHD") : null;
+                                    GRBModel dhModel = modelCache != null
+                                            ? modelCache.setupDHoffkin(myDHInput, myEnv, verbose)
+                                            : ExtendedHofkinModel.setupModel(myDHInput, myEnv, verbose, dhMetrics);
+                                    if (mode.heuristicStart) {
+                                        GroundHoldingHeuristic.solve(myDHInput).applyAsMipStart(dhModel);
+                                    }
+                                    SolutionStore.Key dhKey = SolutionStore.Key.of(myDHInput);
+                                    applyStoredStart(store, "DHD", dhKey, dhModel);
+                                    dhProfile = optimize(dhModel, mode.profile, dhMetrics);
+                                    storeSolution(store, "DHD", dhKey, dhModel);
+                                    ParallelComparison.ModelResult dhResult = ParallelComparison.ModelResult
+                                            .fromModel("DHD", dhModel,
+                                                    ExtendedHofkinModel.getAverageDiversions(myDHInput, dhModel));
+                                    dhModel.dispose();
+                                    result = new ParallelComparison.Result(mhResult, mhdResult, dhResult,
+                                            (System.nanoTime() - solveStart) / 1e9);
+                                }
+                                ParallelComparison.ModelResult mhResult = result.getMh();
+                                ParallelComparison.ModelResult mhdResult = result.getMhd();
+                                ParallelComparison.ModelResult dhResult = result.getDhd();
+                                double solveTimeMH = mhResult.getRuntime();
+                                int statusMH = mhResult.getStatus();
+                                double objectiveMH = mhResult.getObjective();
+                                boolean feasible = mhResult.isOptimal();
+                                double mhNodes = mhResult.getNodes();
+                                double solveTimeMHD = mhdResult.getRuntime();
+                                int statusMHD = mhdResult.getStatus();
+                                double objectiveMHD = mhdResult.getObjective();
+                                double mhdNodes = mhdResult.getNodes();
+                                double mhdDivert = mhdResult.getAverageDiversions();
+                                double solveTimeDH = dhResult.getRuntime();
+                                int statusDH = dhResult.getStatus();
+                                double objectiveDH = dhResult.getObjective();
+                                double dhNodes = dhResult.getNodes();
+                                double dhDivert = dhResult.getAverageDiversions();
+
+                                if (statusMHD != GRB.Status.OPTIMAL || statusDH != GRB.Status.OPTIMAL) {
                                     writer.close();
                                     throw new IllegalArgumentException("Invalid value in model statuses. Status of MHD: "
-                                            + statusMH + ", status of DHD: " + statusDH + ".");
+                                            + statusMHD + ", status of DHD: " + statusDH + ".");
+                                }
+                                if (!result.isConsistent()) {
+                                    writer.close();
+                                    throw new GRBException("Methods produce different objective values. MHD Obj: "
+                                            + objectiveMHD + ". DHD Obj: " + objectiveDH + ". Difference: "
+                                            + result.getObjectiveDifference());
                                 }
 
-                                writer.write(airport + "," + vfr + "," + ifr + "," + wmax + "," + start + "," + end + ","
-                                        + maxLength.toHours() + "," + numSitting + "," + numAir + "," + disc.toMinutes()
-                                        + "," + param_case + "," + airCost + "," + lookahead + "," + numTimePeriods + ","
-                                        + earliestChange + "," + latestChange + "," + probAlt + "," + divertFactor + ","
-                                        + solveTimeMH + ","
-                                        + solveTimeMHD + "," + solveTimeDH + "," + feasible + ","
-                                        + objectiveMH + "," + objectiveDH + "," + mhNodes+","+mhdNodes + "," + dhNodes +
-                                        "," + mhdDivert + "," + dhDivert + "," + "\n");
+                                writer.write(new ResultRow()
+                                        .set(ResultColumn.APT, airport)
+                                        .set(ResultColumn.VFR, vfr)
+                                        .set(ResultColumn.IFR, ifr)
+                                        .set(ResultColumn.WMAX, wmax)
+                                        .set(ResultColumn.START, start.toString())
+                                        .set(ResultColumn.END, end.toString())
+                                        .set(ResultColumn.MAXLENGTH, maxLength.toHours())
+                                        .set(ResultColumn.NUM_SITTING, numSitting)
+                                        .set(ResultColumn.NUM_AIR, numAir)
+                                        .set(ResultColumn.DISC, disc.toMinutes())
+                                        .set(ResultColumn.CASE, param_case)
+                                        .set(ResultColumn.AIRCOST, airCost)
+                                        .set(ResultColumn.LOOKAHEAD, lookahead)
+                                        .set(ResultColumn.NUM_TIME_PERIODS, numTimePeriods)
+                                        .set(ResultColumn.EARLY_CHANGE, earliestChange)
+                                        .set(ResultColumn.LATE_CHANGE, latestChange)
+                                        .set(ResultColumn.PROB_ALT, probAlt)
+                                        .set(ResultColumn.DIVERT_FACTOR, divertFactor)
+                                        .set(ResultColumn.MH_SOLVETIME, solveTimeMH)
+                                        .set(ResultColumn.MHD_SOLVETIME, solveTimeMHD)
+                                        .set(ResultColumn.DHD_SOLVETIME, solveTimeDH)
+                                        .set(ResultColumn.MH_FEASIBLE, feasible)
+                                        .set(ResultColumn.OBJ_MH, objectiveMH)
+                                        .set(ResultColumn.OBJ_DIVERT, objectiveDH)
+                                        .set(ResultColumn.MH_NODES, mhNodes)
+                                        .set(ResultColumn.MHD_NODES, mhdNodes)
+                                        .set(ResultColumn.DHD_NODES, dhNodes)
+                                        .set(ResultColumn.MHD_DIVERT, mhdDivert)
+                                        .set(ResultColumn.DHD_DIVERT, dhDivert));
+                                if (mode.instrument) {
+                                    metricsSink.publish(mhMetrics);
+                                    metricsSink.publish(mhdMetrics);
+                                    metricsSink.publish(dhMetrics);
+                                }
+                                if (mode.profile) {
+                                    writeProfile(profileWriter, trajectoryWriter, key, "MH", mhProfile);
+                                    writeProfile(profileWriter, trajectoryWriter, key, "MHD", mhdProfile);
+                                    writeProfile(profileWriter, trajectoryWriter, key, "DHD", dhProfile);
+                                }
                             }
                             // Reset parameters
                             wmax = vfr - ifr;
@@ -244,6 +407,234 @@ public class TestDHoffkinRun {
             }
         }
         writer.close();
+        if (mode.profile) {
+            profileWriter.close();
+            trajectoryWriter.close();
+        }
+        if (mode.instrument) {
+            metricsSink.close();
+        }
+        if (mode.parallel) {
+            comparison.shutdown();
+        }
+        if (modelCache != null) {
+            System.out.println("Models read from cache: " + modelCache.getNumHits() + ", assembled: "
+                    + modelCache.getNumMisses());
+        }
         return;
     }
+
+    @Test
+    public void testRunModeCombinations() {
+        new RunMode().validate();
+        RunMode cached = new RunMode();
+        cached.cacheModels = true;
+        cached.storeSolutions = true;
+        cached.columnar = true;
+        cached.validate();
+        RunMode aggregated = new RunMode();
+        aggregated.aggregateFlights = true;
+        aggregated.instrument = true;
+        aggregated.validate();
+
+        RunMode[] invalid = new RunMode[5];
+        for (int k = 0; k < invalid.length; k++) {
+            invalid[k] = new RunMode();
+        }
+        invalid[0].profile = true;
+        invalid[0].instrument = true;
+        invalid[1].mhCuts = MHCuts.Mode.LAZY;
+        invalid[1].profile = true;
+        invalid[2].parallel = true;
+        invalid[2].storeSolutions = true;
+        invalid[3].heuristicStart = true;
+        invalid[3].parallel = true;
+        invalid[4].cacheModels = true;
+        invalid[4].aggregateFlights = true;
+        for (RunMode mode : invalid) {
+            try {
+                mode.validate();
+                Assert.fail("Expected " + mode + " to be rejected.");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    /**
+     * The optional modes of {@link #compTestsDHoffkin}, all off by default.
+     * Modes which set up their own models, or which install a callback on
+     * the solve, exclude each other; {@link #validate} rejects such
+     * combinations before the run starts.
+     */
+    static final class RunMode {
+        /**
+         * Also solves the LP relaxations and records how each solve
+         * progressed, in new_results_profile.csv and
+         * new_results_trajectory.csv. Installs a callback.
+         */
+        boolean profile = false;
+        /**
+         * Solves MH and MHD with AggregatedMHModel, which groups identical
+         * flights into integer cohort variables.
+         */
+        boolean aggregateFlights = false;
+        /**
+         * Gives the DHD model the GroundHoldingHeuristic plan as a MIP start.
+         */
+        boolean heuristicStart = false;
+        /**
+         * Records the time of each phase of every solve and how the solve
+         * progressed, as JSON lines in new_results_metrics.jsonl. Installs a
+         * callback.
+         */
+        boolean instrument = false;
+        /**
+         * Adds the cuts of MHCuts to the per-flight MH and MHD models, up
+         * front or lazily. The lazy mode installs a callback.
+         */
+        MHCuts.Mode mhCuts = MHCuts.Mode.NONE;
+        /**
+         * Solves MH, MHD and DHD concurrently, each in its own environment
+         * and with models set up by ParallelComparison.
+         */
+        boolean parallel = false;
+        /**
+         * Also writes the results to new_results.bin, in the columnar format
+         * read by ColumnarResultReader.
+         */
+        boolean columnar = false;
+        /**
+         * Stores optimal solutions in the solutions directory, and starts
+         * each solve from the stored solution of the same or a nearby input.
+         */
+        boolean storeSolutions = false;
+        /**
+         * Reads the per-flight MH and MHD models and the DHD model from MPS
+         * files in the models directory when a model of the same structure
+         * was set up before, and patches their data.
+         */
+        boolean cacheModels = false;
+
+        /**
+         * Rejects the combinations of modes which cannot run together:
+         * profiling, instrumentation and lazy cuts each install a callback;
+         * the cuts, the parallel solves and the model cache set up their own
+         * models; and a stored solution or a parallel solve would drop the
+         * heuristic start.
+         */
+        void validate() {
+            reject(profile && instrument, "Profiling", "instrumentation");
+            reject(mhCuts == MHCuts.Mode.LAZY && profile, "Lazy cuts", "profiling");
+            reject(mhCuts != MHCuts.Mode.NONE && (aggregateFlights || instrument), "Cuts",
+                    "aggregated flights or instrumentation");
+            reject(parallel && (profile || instrument), "Parallel solves", "profiling or instrumentation");
+            reject(parallel && mhCuts != MHCuts.Mode.NONE, "Parallel solves", "cuts");
+            reject(parallel && storeSolutions, "Stored solutions", "parallel solves");
+            reject(heuristicStart && (parallel || storeSolutions), "The heuristic start",
+                    "parallel solves or stored solutions");
+            reject(cacheModels && (aggregateFlights || instrument || mhCuts != MHCuts.Mode.NONE || parallel),
+                    "The model cache", "aggregated flights, instrumentation, cuts or parallel solves");
+        }
+
+        private void reject(boolean combined, String mode, String otherModes) {
+            if (combined) {
+                throw new IllegalArgumentException(mode + " cannot be combined with " + otherModes
+                        + ", but the modes were " + this + ".");
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "profile=" + profile + ", aggregateFlights=" + aggregateFlights + ", heuristicStart="
+                    + heuristicStart + ", instrument=" + instrument + ", mhCuts=" + mhCuts + ", parallel="
+                    + parallel + ", columnar=" + columnar + ", storeSolutions=" + storeSolutions
+                    + ", cacheModels=" + cacheModels;
+        }
+    }
+
+    /**
+     * Sets up the MH or MHD model as the mode selects.
+     */
+    private static GRBModel setupMhModel(RunMode mode, ModelCache modelCache, MHDynModel.Input input,
+                                         boolean withDiversions, GRBEnv env, boolean verbose, SolveMetrics metrics)
+            throws GRBException, IOException {
+        if (mode.mhCuts != MHCuts.Mode.NONE) {
+            return MHCuts.setupModel(input, withDiversions, env, verbose, mode.mhCuts);
+        }
+        if (modelCache != null) {
+            return withDiversions ? modelCache.setupMhd(input, env, verbose) : modelCache.setupMh(input, env, verbose);
+        }
+        if (mode.aggregateFlights) {
+            return AggregatedMHModel.setupModel(input, env, withDiversions, verbose, metrics);
+        }
+        return withDiversions ? MHDynModel.setupMhdModel(input, env, verbose, metrics)
+                : MHDynModel.setupMhModel(input, env, verbose, metrics);
+    }
+
+    /**
+     * Optimizes the model, in profiling mode if requested, and records the
+     * solve in the metrics if given. Returns the profile, or null when not
+     * profiling.
+     */
+    private static SolveProfile optimize(GRBModel model, boolean profile, SolveMetrics metrics)
+            throws GRBException {
+        if (profile) {
+            return SolveProfiler.profile(model);
+        }
+        if (metrics != null) {
+            SolveInstrumentation.optimize(model, metrics);
+        } else {
+            model.optimize();
+        }
+        return null;
+    }
+
+    /**
+     * Starts the model from the stored solution of the same or a nearby
+     * input, if the store has one.
+     */
+    private static void applyStoredStart(SolutionStore store, String modelName, SolutionStore.Key key,
+                                         GRBModel model) throws GRBException, IOException {
+        if (store == null) {
+            return;
+        }
+        SolutionStore.StoredSolution stored = store.find(modelName, key);
+        if (stored != null) {
+            stored.applyAsMipStart(model);
+        }
+    }
+
+    private static void storeSolution(SolutionStore store, String modelName, SolutionStore.Key key,
+                                      GRBModel model) throws GRBException, IOException {
+        if (store != null && model.get(GRB.IntAttr.Status) == GRB.Status.OPTIMAL) {
+            store.put(modelName, key, model);
+        }
+    }
+
+    /**
+     * Metrics tagged with the same key columns as the profile files.
+     */
+    private static SolveMetrics newMetrics(String key, String modelName) {
+        String[] columns = {"apt", "start", "max_length", "disc", "case", "divert_factor"};
+        String[] values = key.split(",");
+        SolveMetrics metrics = new SolveMetrics(modelName);
+        for (int i = 0; i < columns.length; i++) {
+            metrics.tag(columns[i], values[i]);
+        }
+        return metrics;
+    }
+
+    private static void writeProfile(Writer profileWriter, Writer trajectoryWriter, String key, String modelName,
+                                     SolveProfile profile) throws IOException {
+        profileWriter.write(key + "," + modelName + "," + profile.getStatus() + "," + profile.getObjective() + ","
+                + profile.getLpObjective() + "," + profile.getLpRuntime() + "," + profile.getRootBound() + ","
+                + profile.getIntegralityGap() + "," + profile.getRootGap() + "," + profile.getFirstIncumbentTime()
+                + "," + profile.getRuntime() + "," + profile.getNodes() + "," + "\n");
+        for (ProfilingCallback.Sample sample : profile.getTrajectory()) {
+            trajectoryWriter.write(key + "," + modelName + "," + sample.getTime() + "," + sample.getObjBest() + ","
+                    + sample.getObjBound() + "," + sample.getGap() + "," + sample.getNodes() + ","
+                    + sample.getIterations() + "," + "\n");
+        }
+    }
 }
@@ -0,0 +1,69 @@
+package testips;
+
+import ips.AggregatedMHModel;
+import ips.DiscreteFlight;
+import ips.MHDynModel;
+import ips.MHInput;
+
+import java.util.HashMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import lp.BranchAndBound;
+import lp.Solution;
+import lp.SparseModel;
+import testlp.TestSimplexSolver;
+import testlp.TestSparseModel;
+
+public class TestAggregatedMHModel {
+
+    @Test
+    public void testMatchesMhModels() {
+        MHInput input = TestSimplexSolver.makeSmallMhInput(TestSparseModel.makeSmallInput());
+        for (boolean withDiversions : new boolean[]{false, true}) {
+            SparseModel perFlight = withDiversions ? MHDynModel.buildMhdModel(input) : MHDynModel.buildMhModel(input);
+            SparseModel aggregated = AggregatedMHModel.buildModel(input, withDiversions);
+            Assert.assertTrue(aggregated.getNumVars() < perFlight.getNumVars());
+
+            Solution perFlightSolution = new BranchAndBound().solve(perFlight);
+            Solution aggregatedSolution = new BranchAndBound().solve(aggregated);
+            Assert.assertEquals(Solution.Status.OPTIMAL, aggregatedSolution.getStatus());
+            Assert.assertEquals(perFlightSolution.getObjective(), aggregatedSolution.getObjective(), 1e-6);
+        }
+    }
+
+    @Test
+    public void testFlightDepartures() {
+        MHInput input = TestSimplexSolver.makeSmallMhInput(TestSparseModel.makeSmallInput());
+        AggregatedMHModel.Layout layout = new AggregatedMHModel.Layout(input, true);
+        Solution solution = new BranchAndBound().solve(AggregatedMHModel.buildModel(input, true));
+        HashMap<Integer, HashMap<Integer, Integer>> departures = AggregatedMHModel.getFlightDepartures(layout,
+                solution.getValues());
+
+        double groundCost = 0.0;
+        for (int s : input.getScenarios()) {
+            HashMap<Integer, Integer> scenarioDepartures = departures.get(s);
+            for (DiscreteFlight f : input.getFlights()) {
+                int departure = scenarioDepartures.get(f.getFlightId());
+                Assert.assertTrue(departure >= f.getDepartTimePeriod());
+                Assert.assertTrue(departure + f.getFlightDuration() <= input.getNumTimePeriods());
+                groundCost += (departure - f.getDepartTimePeriod()) * input.getGroundCost()
+                        * input.getScenProbability(s);
+            }
+        }
+        double cohortGroundCost = 0.0;
+        for (int c = 0; c < layout.getNumCohorts(); c++) {
+            AggregatedMHModel.Cohort cohort = layout.getCohort(c);
+            for (int sPos = 0; sPos < layout.getNumScenarios(); sPos++) {
+                for (int j = cohort.getDepartTimePeriod();
+                     j < cohort.getDepartTimePeriod() + layout.getNumDepartPeriods(cohort); j++) {
+                    int var = layout.cohortVar(c, j, sPos);
+                    cohortGroundCost += solution.getValue(var) * (j - cohort.getDepartTimePeriod())
+                            * input.getGroundCost() * input.getScenProbability(layout.getScenario(sPos));
+                }
+            }
+        }
+        Assert.assertEquals(cohortGroundCost, groundCost, 1e-6);
+    }
+}
@@ -0,0 +1,84 @@
+package testips;
+
+import ips.DHoffkinFlightParser;
+import ips.DHoffkinInput;
+import ips.DHoffkinPresolve;
+import ips.ExtendedHofkinModel;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import lp.BranchAndBound;
+import lp.Solution;
+import lp.SparseModel;
+import scenarios.DiscreteScenarioTree;
+import scenarios.ScenarioTreeFactory;
+import testlp.TestSparseModel;
+
+public class TestDHoffkinPresolve {
+
+    /**
+     * Demand which starts late, with a duration that never departs and a
+     * tight airborne limit.
+     */
+    private static DHoffkinInput makeSparseInput(int maxAirborne) {
+        HashMap<Integer, List<Integer>> demandMap = new HashMap<Integer, List<Integer>>();
+        demandMap.put(1, Arrays.asList(0, 0, 0, 3, 2, 0, 1, 0, 0, 0));
+        demandMap.put(2, Arrays.asList(0, 0, 0, 0, 0, 0, 0, 0, 0, 0));
+        demandMap.put(3, Arrays.asList(0, 0, 2, 1, 3, 0, 0, 0, 0, 0));
+        List<Integer> enroute = Arrays.asList(0, 0, 0, 0, 0, 0, 0, 0, 0, 0);
+        DHoffkinFlightParser.DemandStruct demand = new DHoffkinFlightParser.DemandStruct(demandMap, enroute);
+        DiscreteScenarioTree tree = ScenarioTreeFactory.makeLoToHigh(demand.getNumTimePeriods(), 3, 7, 4, 8, 4,
+                false, 0);
+        return new DHoffkinInput(maxAirborne, 1.0, 3.0, 12.0, demand, tree);
+    }
+
+    private static void assertSameOptimum(DHoffkinInput input) {
+        SparseModel full = ExtendedHofkinModel.buildModel(input);
+        Solution optimal = new BranchAndBound().solve(full);
+        DHoffkinPresolve presolve = DHoffkinPresolve.presolve(input);
+        Solution reduced = new BranchAndBound().solve(presolve.getModel());
+
+        Assert.assertEquals(optimal.getObjective(), reduced.getObjective(), 1e-6);
+        double[] values = presolve.postsolve(reduced.getValues());
+        TestGroundHoldingHeuristic.assertFeasible(full, values);
+        Assert.assertEquals(reduced.getObjective(), full.getObjectiveValue(values), 1e-6);
+        Assert.assertArrayEquals(reduced.getValues(), presolve.reduce(values), 1e-9);
+    }
+
+    @Test
+    public void testPresolveKeepsOptimum() {
+        assertSameOptimum(TestSparseModel.makeSmallInput());
+        assertSameOptimum(makeSparseInput(ExtendedHofkinModel.UNLIMITED));
+        assertSameOptimum(makeSparseInput(2));
+    }
+
+    @Test
+    public void testReductionIsReported() {
+        DHoffkinPresolve presolve = DHoffkinPresolve.presolve(makeSparseInput(ExtendedHofkinModel.UNLIMITED));
+        DHoffkinPresolve.Reduction reduction = presolve.getReduction();
+        SparseModel model = presolve.getModel();
+
+        Assert.assertEquals(1, reduction.getNumEmptyDurations());
+        Assert.assertTrue(reduction.getNumFixedVars() > 0);
+        Assert.assertTrue(reduction.getNumMergedVars() > 0);
+        Assert.assertTrue(reduction.getNumBoundedAirVars() > 0);
+        Assert.assertEquals(model.getNumVars(), reduction.getNumVarsAfter());
+        Assert.assertEquals(model.getNumConstrs(), reduction.getNumConstrsAfter());
+        Assert.assertTrue(reduction.getNumVarsAfter() < reduction.getNumVarsBefore());
+        Assert.assertTrue(reduction.getNumConstrsAfter() < reduction.getNumConstrsBefore());
+        Assert.assertEquals(reduction.getNumVarsBefore(),
+                reduction.getNumVarsAfter() + reduction.getNumFixedVars() + reduction.getNumMergedVars());
+
+        // Merging the scenarios of each node leaves no anti-anticipatory
+        // constraints, and the empty duration leaves no departure nodes.
+        for (String name : model.getConstrNames()) {
+            Assert.assertFalse(name, name.startsWith("DEPART_AA") || name.startsWith("GROUND_AA"));
+            Assert.assertFalse(name, name.startsWith("DEP_NODE") && name.endsWith(",2"));
+        }
+    }
+}
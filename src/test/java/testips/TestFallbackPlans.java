@@ -0,0 +1,87 @@
+package testips;
+
+import ips.DHoffkinInput;
+import ips.DHoffkinPlan;
+import ips.ExtendedHofkinModel;
+import ips.GroundHoldingHeuristic;
+import ips.MHDynModel;
+import ips.MHFallbackPlans;
+import ips.MHInput;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import lp.BranchAndBound;
+import lp.SimplexSolver;
+import lp.Solution;
+import lp.SparseModel;
+import testlp.TestSimplexSolver;
+import testlp.TestSparseModel;
+
+public class TestFallbackPlans {
+
+    @Test
+    public void testRoundedDHoffkinPlanIsFeasible() {
+        DHoffkinInput input = TestSparseModel.makeSmallInput();
+        SparseModel model = ExtendedHofkinModel.buildModel(input);
+        Solution relaxation = new SimplexSolver().solve(model);
+        Assert.assertEquals(Solution.Status.OPTIMAL, relaxation.getStatus());
+        DHoffkinPlan plan = GroundHoldingHeuristic.roundRelaxation(input, relaxation.getValues());
+        TestGroundHoldingHeuristic.assertFeasible(model, plan.getValues());
+        Assert.assertEquals(model.getObjectiveValue(plan.getValues()), plan.getObjective(), 1e-9);
+        Assert.assertTrue(plan.getObjective() >= relaxation.getObjective() - 1e-9);
+    }
+
+    @Test
+    public void testRoundingAnIntegerSolutionKeepsItsDepartures() {
+        DHoffkinInput input = TestSparseModel.makeSmallInput();
+        SparseModel model = ExtendedHofkinModel.buildModel(input);
+        Solution optimal = new BranchAndBound().solve(model);
+        DHoffkinPlan plan = GroundHoldingHeuristic.roundRelaxation(input, optimal.getValues());
+        ExtendedHofkinModel.Layout layout = plan.getLayout();
+        for (int sPos = 0; sPos < layout.getNumScenarios(); sPos++) {
+            for (int dPos = 0; dPos < layout.getNumDurations(); dPos++) {
+                for (int i = 0; i < layout.getNumDepartPeriods(layout.getDuration(dPos)); i++) {
+                    int var = layout.departVar(sPos, dPos, i);
+                    Assert.assertEquals(optimal.getValue(var), plan.getValues()[var], 1e-6);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMhdPlansAreFeasible() {
+        MHInput input = TestSimplexSolver.makeSmallMhInput(TestSparseModel.makeSmallInput());
+        SparseModel model = MHDynModel.buildMhdModel(input);
+        Solution optimal = new BranchAndBound().solve(model);
+        MHFallbackPlans plans = new MHFallbackPlans(input, true);
+
+        double[] heuristic = plans.heuristic();
+        Assert.assertNotNull(heuristic);
+        TestGroundHoldingHeuristic.assertFeasible(model, heuristic);
+        Assert.assertTrue(model.getObjectiveValue(heuristic) >= optimal.getObjective() - 1e-9);
+
+        double[] rounded = plans.roundRelaxation(new SimplexSolver().solve(model).getValues());
+        Assert.assertNotNull(rounded);
+        TestGroundHoldingHeuristic.assertFeasible(model, rounded);
+        Assert.assertTrue(model.getObjectiveValue(rounded) >= optimal.getObjective() - 1e-9);
+    }
+
+    @Test
+    public void testMhPlansAreFeasibleOrNull() {
+        MHInput input = TestSimplexSolver.makeSmallMhInput(TestSparseModel.makeSmallInput());
+        SparseModel model = MHDynModel.buildMhModel(input);
+        MHFallbackPlans plans = new MHFallbackPlans(input, false);
+        double[] heuristic = plans.heuristic();
+        if (heuristic != null) {
+            TestGroundHoldingHeuristic.assertFeasible(model, heuristic);
+        }
+        Solution optimal = new BranchAndBound().solve(model);
+        if (optimal.getStatus() == Solution.Status.OPTIMAL) {
+            double[] rounded = plans.roundRelaxation(optimal.getValues());
+            Assert.assertNotNull(rounded);
+            TestGroundHoldingHeuristic.assertFeasible(model, rounded);
+            Assert.assertTrue(model.getObjectiveValue(rounded) >= optimal.getObjective() - 1e-9);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package testips;
+
+import ips.DHoffkinFlightParser;
+import ips.DHoffkinInput;
+import ips.DHoffkinPlan;
+import ips.ExtendedHofkinModel;
+import ips.GroundDelayProgram;
+import ips.GroundHoldingHeuristic;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import scenarios.DiscreteScenario;
+import scenarios.DiscreteScenarioTree;
+import util.BTSParser;
+import util.DiscretizerUtil;
+import util.SyntheticWorkload;
+import util.TimeGrid;
+
+public class TestGroundDelayProgram {
+    private static final OffsetDateTime START = OffsetDateTime.of(2017, 7, 15, 10, 0, 0, 0, ZoneOffset.UTC);
+    private static final Duration DISC = Duration.ofMinutes(15);
+
+    private static BTSParser.FlightStruct makeFlight(int flightId, int departMinute, int durationMinutes) {
+        OffsetDateTime departure = START.plusMinutes(departMinute);
+        return new BTSParser.FlightStruct(flightId, departure, departure.plusMinutes(durationMinutes),
+                Duration.ofMinutes(durationMinutes));
+    }
+
+    @Test
+    public void testFirstComeFirstServed() {
+        HashSet<BTSParser.FlightStruct> sitting = new HashSet<BTSParser.FlightStruct>();
+        sitting.add(makeFlight(3, 0, 30));
+        sitting.add(makeFlight(1, 5, 30));
+        sitting.add(makeFlight(2, 10, 30));
+        sitting.add(makeFlight(0, 14, 30));
+        BTSParser.ResultStruct flights = new BTSParser.ResultStruct(sitting, new HashSet<BTSParser.FlightStruct>(),
+                START, START.plusHours(2));
+        List<DiscreteScenario> scenarios = new ArrayList<DiscreteScenario>();
+        scenarios.add(new DiscreteScenario(0, 1.0, Arrays.asList(1, 1, 1, 1, 1, 1, 1, 1)));
+        DHoffkinInput input = new DHoffkinInput(ExtendedHofkinModel.UNLIMITED, 1.0, 3.0, 12.0,
+                DHoffkinFlightParser.wrapBTSOutput(flights, DISC), new DiscreteScenarioTree(8, scenarios, 0));
+
+        DHoffkinPlan plan = GroundHoldingHeuristic.solve(input);
+        GroundDelayProgram program = GroundDelayProgram.fromPlan(input, plan, sitting, START, DISC);
+        Assert.assertEquals(8, program.getFirstStageLength());
+        Assert.assertEquals(4, program.getNumControlled());
+        int[] order = {3, 1, 2, 0};
+        for (int k = 0; k < order.length; k++) {
+            GroundDelayProgram.FlightControl control = program.getControl(order[k]);
+            Assert.assertEquals(k, control.getControlledPeriod());
+            Assert.assertEquals(DISC.multipliedBy(k), control.getDelay());
+            Assert.assertEquals(control.getFlight().getDepartureTime().plus(DISC.multipliedBy(k)),
+                    control.getControlledDeparture());
+            Assert.assertEquals(control.getFlight().getArrivalTime().plus(DISC.multipliedBy(k)),
+                    control.getControlledArrival());
+        }
+        Assert.assertEquals(Duration.ofMinutes(90), program.getTotalDelay());
+    }
+
+    @Test
+    public void testOnlyFirstStageIsControlled() {
+        SyntheticWorkload workload = new SyntheticWorkload(7L, 120, START, Duration.ofHours(4));
+        BTSParser.ResultStruct flights = workload.generate();
+        DiscreteScenarioTree tree = workload.makeScenarioTree(DISC, 3, 0.6, 1.2, 0);
+        DHoffkinInput input = new DHoffkinInput(10, 1.0, 3.0, 12.0,
+                DHoffkinFlightParser.wrapBTSOutput(flights, DISC), tree);
+        DHoffkinPlan plan = GroundHoldingHeuristic.solve(input);
+        GroundDelayProgram program = GroundDelayProgram.fromPlan(input, plan, flights.getSittingFlights(), START,
+                DISC);
+
+        int firstStage = program.getFirstStageLength();
+        Assert.assertTrue(firstStage > 0 && firstStage < input.getNumTimePeriods());
+        Assert.assertEquals(flights.getSittingFlights().size(), program.getControls().size());
+        int scenario = input.getScenarios().iterator().next();
+        int expected = 0;
+        for (int d : input.getFlightDurations()) {
+            for (int i = 0; i < Math.min(firstStage, plan.getLayout().getNumDepartPeriods(d)); i++) {
+                expected += (int) Math.round(plan.getDepart(scenario, d, i));
+            }
+        }
+        Assert.assertEquals(expected, program.getNumControlled());
+        for (GroundDelayProgram.FlightControl control : program.getControls()) {
+            if (control.isControlled()) {
+                Assert.assertTrue(control.getControlledPeriod() < firstStage);
+                Assert.assertTrue(control.getControlledPeriod() >= control.getScheduledPeriod());
+                Assert.assertEquals(DiscretizerUtil.timeToIndex(control.getFlight().getDepartureTime(), START, DISC),
+                        control.getScheduledPeriod());
+            } else {
+                Assert.assertNull(control.getControlledDeparture());
+            }
+        }
+    }
+
+    @Test
+    public void testVariablePeriods() {
+        // Coarse periods of 30 minutes around fine ones of 15 minutes from
+        // 10:30 to 11:00.
+        TimeGrid grid = TimeGrid.adaptive(START, START.plusHours(2), START.plusMinutes(30), START.plusMinutes(60),
+                DISC, Duration.ofMinutes(30));
+        HashSet<BTSParser.FlightStruct> sitting = new HashSet<BTSParser.FlightStruct>();
+        for (int k = 0; k < 4; k++) {
+            sitting.add(makeFlight(k, 5 * k, 30));
+        }
+        BTSParser.ResultStruct flights = new BTSParser.ResultStruct(sitting, new HashSet<BTSParser.FlightStruct>(),
+                START, START.plusHours(2));
+        List<DiscreteScenario> scenarios = new ArrayList<DiscreteScenario>();
+        scenarios.add(new DiscreteScenario(0, 1.0, Arrays.asList(1, 1, 1, 1, 1)));
+        DHoffkinInput input = new DHoffkinInput(ExtendedHofkinModel.UNLIMITED, 1.0, 3.0, 12.0,
+                DHoffkinFlightParser.wrapBTSOutput(flights, grid), new DiscreteScenarioTree(5, scenarios, 0));
+
+        DHoffkinPlan plan = GroundHoldingHeuristic.solve(input);
+        GroundDelayProgram program = GroundDelayProgram.fromPlan(input, plan, sitting, grid);
+        Assert.assertEquals(4, program.getNumControlled());
+        // Flights departing at 10:45 would arrive with those departing at
+        // 10:30, so the third flight waits for the coarse period at 11:00.
+        int[] periods = {0, 1, 3, 4};
+        int[] delayMinutes = {0, 30, 60, 90};
+        for (int k = 0; k < periods.length; k++) {
+            GroundDelayProgram.FlightControl control = program.getControl(k);
+            Assert.assertEquals(0, control.getScheduledPeriod());
+            Assert.assertEquals(periods[k], control.getControlledPeriod());
+            Assert.assertEquals(Duration.ofMinutes(delayMinutes[k]), control.getDelay());
+            Assert.assertEquals(grid.getPeriodStart(periods[k]).plusMinutes(5 * k),
+                    control.getControlledDeparture());
+        }
+        Assert.assertEquals(Duration.ofMinutes(180), program.getTotalDelay());
+
+        try {
+            GroundDelayProgram.fromPlan(input, plan, sitting, START, DISC);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // The periods of the input are not all 15 minutes.
+        }
+    }
+}
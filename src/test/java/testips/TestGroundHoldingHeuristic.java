@@ -0,0 +1,89 @@
+package testips;
+
+import ips.DHoffkinFlightParser;
+import ips.DHoffkinInput;
+import ips.DHoffkinPlan;
+import ips.ExtendedHofkinModel;
+import ips.GroundHoldingHeuristic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import lp.BranchAndBound;
+import lp.Solution;
+import lp.SparseModel;
+import scenarios.DiscreteScenario;
+import scenarios.DiscreteScenarioTree;
+import scenarios.ScenarioTreeFactory;
+import testlp.TestSparseModel;
+
+public class TestGroundHoldingHeuristic {
+
+    /**
+     * Checks that the values satisfy every bound, integrality requirement
+     * and constraint of the model.
+     */
+    public static void assertFeasible(SparseModel model, double[] values) {
+        for (int j = 0; j < model.getNumVars(); j++) {
+            Assert.assertTrue(model.getVarName(j), values[j] >= model.getLowerBound(j) - 1e-9);
+            Assert.assertTrue(model.getVarName(j), values[j] <= model.getUpperBound(j) + 1e-9);
+            if (model.getVarType(j) != SparseModel.CONTINUOUS) {
+                Assert.assertEquals(model.getVarName(j), Math.rint(values[j]), values[j], 1e-9);
+            }
+        }
+        for (int i = 0; i < model.getNumConstrs(); i++) {
+            double activity = 0.0;
+            for (int k = model.getRowStart(i); k < model.getRowEnd(i); k++) {
+                activity += model.getValue(k) * values[model.getColIndex(k)];
+            }
+            if (model.getSense(i) == SparseModel.EQUAL) {
+                Assert.assertEquals(model.getConstrName(i), model.getRhs(i), activity, 1e-9);
+            } else if (model.getSense(i) == SparseModel.LESS_EQUAL) {
+                Assert.assertTrue(model.getConstrName(i), activity <= model.getRhs(i) + 1e-9);
+            } else {
+                Assert.assertTrue(model.getConstrName(i), activity >= model.getRhs(i) - 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void testStochasticPlanIsFeasible() {
+        DHoffkinInput input = TestSparseModel.makeSmallInput();
+        SparseModel model = ExtendedHofkinModel.buildModel(input);
+        Solution optimal = new BranchAndBound().solve(model);
+        for (int buffer = 0; buffer <= input.getMaxAirborne(); buffer++) {
+            DHoffkinPlan plan = GroundHoldingHeuristic.solve(input, buffer);
+            assertFeasible(model, plan.getValues());
+            Assert.assertEquals(model.getObjectiveValue(plan.getValues()), plan.getObjective(), 1e-9);
+            Assert.assertTrue(plan.getObjective() >= optimal.getObjective() - 1e-9);
+        }
+    }
+
+    @Test
+    public void testDeterministicPlan() {
+        HashMap<Integer, List<Integer>> demandMap = new HashMap<Integer, List<Integer>>();
+        demandMap.put(2, Arrays.asList(4, 0, 0, 0, 0, 0, 0, 0));
+        List<Integer> enroute = Arrays.asList(0, 0, 0, 0, 0, 0, 0, 0);
+        DHoffkinFlightParser.DemandStruct demand = new DHoffkinFlightParser.DemandStruct(demandMap, enroute);
+        List<DiscreteScenario> scenarios = new ArrayList<DiscreteScenario>();
+        scenarios.add(new DiscreteScenario(0, 1.0, Arrays.asList(1, 1, 1, 1, 1, 1, 1, 1)));
+        DiscreteScenarioTree tree = new DiscreteScenarioTree(8, scenarios, 0);
+        DHoffkinInput input = new DHoffkinInput(ExtendedHofkinModel.UNLIMITED, 1.0, 3.0, 12.0, demand, tree);
+
+        // One flight can land in each of periods 2 to 5, so the flights are
+        // held for 0, 1, 2 and 3 periods.
+        DHoffkinPlan plan = GroundHoldingHeuristic.solve(input);
+        Assert.assertEquals(6.0, plan.getObjective(), 1e-9);
+        Assert.assertEquals(3.0, plan.getGround(0, 2, 0), 1e-9);
+        Assert.assertEquals(1.0, plan.getDepart(0, 2, 3), 1e-9);
+        Assert.assertEquals(0.0, plan.getAir(0, 4), 1e-9);
+
+        Solution optimal = new BranchAndBound().solve(ExtendedHofkinModel.buildModel(input));
+        Assert.assertEquals(optimal.getObjective(), plan.getObjective(), 1e-9);
+    }
+}
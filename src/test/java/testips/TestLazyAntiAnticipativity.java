@@ -0,0 +1,57 @@
+package testips;
+
+import ips.DHoffkinInput;
+import ips.ExtendedHofkinModel;
+import ips.LazyAntiAnticipativity;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import gurobi.GRBException;
+import lp.BranchAndBound;
+import lp.SimplexSolver;
+import lp.Solution;
+import lp.SparseModel;
+import testlp.TestSparseModel;
+
+public class TestLazyAntiAnticipativity {
+
+    @Test
+    public void testRoundsReachFullOptimum() throws GRBException {
+        DHoffkinInput input = TestSparseModel.makeSmallInput();
+        SparseModel full = ExtendedHofkinModel.buildModel(input);
+        Solution optimal = new BranchAndBound().solve(full);
+        LazyAntiAnticipativity.Solver solver = LazyAntiAnticipativity.withBranchAndBound(new SimplexSolver(),
+                new BranchAndBound());
+
+        for (int coreHorizon : new int[]{0, 2, input.getNumTimePeriods()}) {
+            LazyAntiAnticipativity lazy = new LazyAntiAnticipativity(input, coreHorizon);
+            LazyAntiAnticipativity.Result result = lazy.solveInRounds(solver, 10,
+                    LazyAntiAnticipativity.DEFAULT_TOLERANCE, LazyAntiAnticipativity.DEFAULT_MAX_ROWS_PER_ROUND);
+            Assert.assertEquals(optimal.getObjective(), result.getObjective(), 1e-6);
+            TestGroundHoldingHeuristic.assertFeasible(full, result.getValues());
+            Assert.assertTrue(result.getNumRowsAdded() <= lazy.getNumRows() - lazy.getNumCoreRows());
+        }
+    }
+
+    @Test
+    public void testCoreModelIsSmaller() {
+        DHoffkinInput input = TestSparseModel.makeSmallInput();
+        int rootPeriods = LazyAntiAnticipativity.getRootPeriods(input);
+        Assert.assertTrue(rootPeriods > 0);
+        Assert.assertTrue(rootPeriods < input.getNumTimePeriods());
+
+        LazyAntiAnticipativity lazy = new LazyAntiAnticipativity(input);
+        Assert.assertEquals(rootPeriods, lazy.getCoreHorizon());
+        Assert.assertTrue(lazy.getNumCoreRows() > 0);
+        Assert.assertTrue(lazy.getNumCoreRows() < lazy.getNumRows());
+
+        SparseModel full = ExtendedHofkinModel.buildModel(input);
+        SparseModel core = lazy.buildCoreModel();
+        Assert.assertEquals(full.getNumVars(), core.getNumVars());
+        for (String name : core.getConstrNames()) {
+            Assert.assertFalse(name, name.startsWith("GROUND_AA"));
+        }
+        Assert.assertTrue(core.getNumConstrs() < full.getNumConstrs() - (lazy.getNumRows() - lazy.getNumCoreRows()));
+    }
+}
@@ -0,0 +1,67 @@
+package testips;
+
+import ips.MHCuts;
+import ips.MHDynModel;
+import ips.MHInput;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import lp.BranchAndBound;
+import lp.Solution;
+import lp.SparseModel;
+import testlp.TestSimplexSolver;
+import testlp.TestSparseModel;
+
+public class TestMHCuts {
+
+    @Test
+    public void testUpfrontCutsKeepOptimum() {
+        MHInput input = TestSimplexSolver.makeSmallMhInput(TestSparseModel.makeSmallInput());
+        for (boolean withDiversions : new boolean[]{false, true}) {
+            SparseModel plain = withDiversions ? MHDynModel.buildMhdModel(input) : MHDynModel.buildMhModel(input);
+            SparseModel withCuts = MHCuts.buildModel(input, withDiversions);
+            Assert.assertTrue(withCuts.getNumConstrs() > plain.getNumConstrs());
+            Assert.assertEquals(plain.getNumVars(), withCuts.getNumVars());
+
+            Solution plainSolution = new BranchAndBound().solve(plain);
+            Solution cutSolution = new BranchAndBound().solve(withCuts);
+            Assert.assertEquals(Solution.Status.OPTIMAL, cutSolution.getStatus());
+            Assert.assertEquals(plainSolution.getObjective(), cutSolution.getObjective(), 1e-6);
+            Assert.assertTrue(cutSolution.getBound() >= plainSolution.getBound() - 1e-6);
+        }
+    }
+
+    @Test
+    public void testSeparationFindsSwappedCohort() {
+        MHInput input = TestSimplexSolver.makeSmallMhInput(TestSparseModel.makeSmallInput());
+        MHDynModel.Layout layout = new MHDynModel.Layout(input, true);
+        List<int[]> pairs = MHCuts.getCohortPairs(layout);
+        Assert.assertFalse(pairs.isEmpty());
+
+        // A solution of the model with all cuts violates none of them.
+        SparseModel model = MHCuts.buildModel(input, true);
+        double[] values = new BranchAndBound().solve(model).getValues();
+        Assert.assertTrue(MHCuts.separate(layout, pairs, values, MHCuts.DEFAULT_TOLERANCE,
+                MHCuts.DEFAULT_MAX_CUTS_PER_ROUND).isEmpty());
+
+        // Holding the first flight of a cohort while its twin departs on time
+        // is as good, but out of order.
+        int[] pair = pairs.get(0);
+        int start = layout.getFlight(pair[0]).getDepartTimePeriod();
+        for (int sPos = 0; sPos < layout.getNumScenarios(); sPos++) {
+            for (int j = start; j < start + layout.getNumDepartPeriods(pair[0]); j++) {
+                values[layout.departVar(pair[0], j, sPos)] = 0.0;
+                values[layout.departVar(pair[1], j, sPos)] = 0.0;
+            }
+            values[layout.departVar(pair[0], start + 1, sPos)] = 1.0;
+            values[layout.departVar(pair[1], start, sPos)] = 1.0;
+        }
+        List<MHCuts.Cut> cuts = MHCuts.separate(layout, pairs, values, MHCuts.DEFAULT_TOLERANCE, 1);
+        Assert.assertEquals(1, cuts.size());
+        Assert.assertTrue(cuts.get(0).getName().startsWith("COHORT"));
+        Assert.assertEquals(1.0, cuts.get(0).getViolation(values), 1e-9);
+    }
+}
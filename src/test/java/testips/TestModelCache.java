@@ -0,0 +1,113 @@
+package testips;
+
+import ips.DHoffkinFlightParser;
+import ips.DHoffkinInput;
+import ips.ExtendedHofkinModel;
+import ips.MHDynModel;
+import ips.ModelCache;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import lp.ModelData;
+import lp.SparseModel;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import scenarios.DiscreteScenarioTree;
+import scenarios.ScenarioTreeFactory;
+import testlp.TestSimplexSolver;
+import testlp.TestSparseModel;
+
+public class TestModelCache {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static DHoffkinInput makeInput(int firstDemand, double airCost, int maxAirborne, int changeStart) {
+        HashMap<Integer, List<Integer>> demandMap = new HashMap<Integer, List<Integer>>();
+        demandMap.put(2, Arrays.asList(firstDemand, 1, 0, 2, 0, 0, 0, 0, 0, 0));
+        demandMap.put(3, Arrays.asList(0, 2, 2, 0, 1, 0, 0, 0, 0, 0));
+        List<Integer> enroute = Arrays.asList(1, 2, 0, 0, 0, 0, 0, 0, 0, 0);
+        DHoffkinFlightParser.DemandStruct demand = new DHoffkinFlightParser.DemandStruct(demandMap, enroute);
+        DiscreteScenarioTree tree = ScenarioTreeFactory.makeLoToHigh(demand.getNumTimePeriods(), changeStart,
+                changeStart + 3, 4, 8, 4, false, 0);
+        return new DHoffkinInput(maxAirborne, 1.0, airCost, 12.0, demand, tree);
+    }
+
+    @Test
+    public void testFingerprintFollowsStructure() {
+        DHoffkinInput input = makeInput(3, 3.0, 2, 2);
+        String fingerprint = ModelCache.fingerprint(input);
+        SparseModel model = ExtendedHofkinModel.buildModel(input);
+
+        // Demand counts, costs and the airborne limit only change the data.
+        DHoffkinInput nearby = makeInput(5, 4.0, ExtendedHofkinModel.UNLIMITED, 2);
+        Assert.assertEquals(fingerprint, ModelCache.fingerprint(nearby));
+        SparseModel nearbyModel = ExtendedHofkinModel.buildModel(nearby);
+        Assert.assertTrue(model.hasSameStructure(nearbyModel));
+        Assert.assertFalse(Arrays.equals(model.getRhsValues(), nearbyModel.getRhsValues()));
+
+        // Branching at another time changes the anti-anticipatory constraints.
+        DHoffkinInput otherTree = makeInput(3, 3.0, 2, 3);
+        Assert.assertNotEquals(fingerprint, ModelCache.fingerprint(otherTree));
+        Assert.assertFalse(model.hasSameStructure(ExtendedHofkinModel.buildModel(otherTree)));
+
+        MHDynModel.Input mhInput = TestSimplexSolver.makeSmallMhInput(input);
+        Assert.assertNotEquals(fingerprint, ModelCache.fingerprint(mhInput));
+        Assert.assertEquals(ModelCache.fingerprint(mhInput),
+                ModelCache.fingerprint(TestSimplexSolver.makeSmallMhInput(TestSparseModel.makeSmallInput())));
+        Assert.assertNotEquals(ModelCache.fingerprint(mhInput),
+                ModelCache.fingerprint(TestSimplexSolver.makeSmallMhInput(nearby)));
+    }
+
+    private static void assertSameData(SparseModel model, ModelData data) {
+        Assert.assertArrayEquals(model.getLowerBounds(), data.getLowerBounds(), 0.0);
+        Assert.assertArrayEquals(model.getUpperBounds(), data.getUpperBounds(), 0.0);
+        Assert.assertArrayEquals(model.getObjectives(), data.getObjectives(), 0.0);
+        Assert.assertArrayEquals(model.getRhsValues(), data.getRhsValues(), 0.0);
+    }
+
+    @Test
+    public void testDataMatchesModel() {
+        DHoffkinInput input = makeInput(3, 3.0, 2, 2);
+        assertSameData(ExtendedHofkinModel.buildModel(input), ExtendedHofkinModel.buildData(input));
+        DHoffkinInput unlimited = makeInput(5, 4.0, ExtendedHofkinModel.UNLIMITED, 3);
+        assertSameData(ExtendedHofkinModel.buildModel(unlimited), ExtendedHofkinModel.buildData(unlimited));
+
+        for (DHoffkinInput dhInput : Arrays.asList(input, unlimited)) {
+            MHDynModel.Input mhInput = TestSimplexSolver.makeSmallMhInput(dhInput);
+            assertSameData(MHDynModel.buildMhModel(mhInput), MHDynModel.buildMhData(mhInput));
+            assertSameData(MHDynModel.buildMhdModel(mhInput), MHDynModel.buildMhdData(mhInput));
+        }
+    }
+
+    @Test
+    public void testPutOnce() throws IOException {
+        DHoffkinInput input = makeInput(3, 3.0, 2, 2);
+        String fingerprint = ModelCache.fingerprint(input);
+        ModelCache cache = new ModelCache(new File(folder.getRoot(), "models"));
+        Assert.assertFalse(cache.contains("DHD", fingerprint));
+
+        Assert.assertTrue(cache.put("DHD", fingerprint, ExtendedHofkinModel.buildModel(input)));
+        Assert.assertTrue(cache.contains("DHD", fingerprint));
+        Assert.assertFalse(cache.contains("MHD", fingerprint));
+        File file = cache.getFile("DHD", fingerprint);
+        long length = file.length();
+        Assert.assertTrue(length > 0);
+
+        Assert.assertFalse(cache.put("DHD", fingerprint, ExtendedHofkinModel.buildModel(makeInput(5, 4.0, 2, 2))));
+        Assert.assertEquals(length, file.length());
+        Assert.assertEquals(1, file.getParentFile().listFiles().length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidModelName() throws IOException {
+        new ModelCache(folder.getRoot()).getFile("DHD-2", "abc");
+    }
+}
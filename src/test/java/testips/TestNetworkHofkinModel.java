@@ -0,0 +1,105 @@
+package testips;
+
+import ips.NetworkHofkinModel;
+import ips.NetworkInput;
+import ips.NetworkLagrangian;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import gurobi.GRBException;
+import lp.BranchAndBound;
+import lp.SparseModel;
+import scenarios.DiscreteScenarioTree;
+import scenarios.ScenarioTreeFactory;
+
+public class TestNetworkHofkinModel {
+    private static final int NUM_TIME_PERIODS = 8;
+
+    /**
+     * Two airports with flights between them, and flights to the first from
+     * outside the network. The second airport can depart the given number of
+     * flights per period.
+     */
+    public static NetworkInput makeSmallNetwork(int departureCapacity) {
+        Map<String, DiscreteScenarioTree> trees = new HashMap<String, DiscreteScenarioTree>();
+        trees.put("AAA", ScenarioTreeFactory.makeLoToHigh(NUM_TIME_PERIODS, 2, 4, 4, 8, 4, false, 0));
+        trees.put("BBB", ScenarioTreeFactory.makeLoToHigh(NUM_TIME_PERIODS, 3, 5, 8, 12, 4, false, 0));
+
+        Map<NetworkHofkinModel.Bucket, List<Integer>> demands = new HashMap<NetworkHofkinModel.Bucket, List<Integer>>();
+        demands.put(new NetworkHofkinModel.Bucket("BBB", "AAA", 2), Arrays.asList(3, 1, 0, 2, 0, 0, 0, 0));
+        demands.put(new NetworkHofkinModel.Bucket("XXX", "AAA", 1), Arrays.asList(0, 1, 1, 0, 0, 0, 0, 0));
+        demands.put(new NetworkHofkinModel.Bucket("AAA", "BBB", 2), Arrays.asList(1, 2, 0, 1, 0, 0, 0, 0));
+
+        Map<String, List<Integer>> enroute = new HashMap<String, List<Integer>>();
+        enroute.put("AAA", Arrays.asList(1, 0, 0, 0, 0, 0, 0, 0));
+        Map<String, List<Integer>> capacities = new HashMap<String, List<Integer>>();
+        capacities.put("BBB", Collections.nCopies(NUM_TIME_PERIODS, departureCapacity));
+        return new NetworkInput(NUM_TIME_PERIODS, 1.0, 3.0, 12.0, trees, Collections.<String, Integer>emptyMap(),
+                demands, enroute, capacities);
+    }
+
+    @Test
+    public void testUnlimitedCapacityDecouples() throws GRBException {
+        NetworkInput input = makeSmallNetwork(NetworkHofkinModel.UNLIMITED);
+        NetworkHofkinModel.Solver solver = NetworkHofkinModel.withBranchAndBound(new BranchAndBound());
+        NetworkHofkinModel.NetworkPlan joint = NetworkHofkinModel.solve(input, solver);
+        NetworkHofkinModel.NetworkPlan independent = NetworkHofkinModel.solveIndependently(input, solver);
+        Assert.assertTrue(joint.isFeasible());
+        Assert.assertEquals(independent.getObjective(), joint.getObjective(), 1e-6);
+    }
+
+    @Test
+    public void testJointPlanRespectsDepartureCapacity() throws GRBException {
+        NetworkInput input = makeSmallNetwork(1);
+        NetworkHofkinModel.Solver solver = NetworkHofkinModel.withBranchAndBound(new BranchAndBound());
+        NetworkHofkinModel.NetworkPlan joint = NetworkHofkinModel.solve(input, solver);
+        NetworkHofkinModel.NetworkPlan independent = NetworkHofkinModel.solveIndependently(input, solver);
+
+        Assert.assertTrue(joint.isFeasible());
+        for (int i = 0; i < NUM_TIME_PERIODS - 1; i++) {
+            Assert.assertTrue(joint.getSlotsUsed("BBB", i) <= 1);
+        }
+        Assert.assertTrue(independent.getExcessSlots() > 0);
+        Assert.assertTrue(joint.getObjective() >= independent.getObjective() - 1e-6);
+
+        SparseModel model = NetworkHofkinModel.buildModel(input);
+        Assert.assertEquals(model.getObjectiveValue(joint.getValues()), joint.getObjective(), 1e-6);
+    }
+
+    @Test
+    public void testLagrangianBoundsJointOptimum() throws GRBException, InterruptedException {
+        NetworkInput input = makeSmallNetwork(1);
+        NetworkHofkinModel.Solver solver = NetworkHofkinModel.withBranchAndBound(new BranchAndBound());
+        double optimum = NetworkHofkinModel.solve(input, solver).getObjective();
+
+        NetworkLagrangian lagrangian = new NetworkLagrangian(20, 0.0, 2);
+        try {
+            NetworkLagrangian.Result result = lagrangian.solve(input, solver);
+            Assert.assertTrue(result.getPlan().isFeasible());
+            Assert.assertTrue(result.getLowerBound() <= optimum + 1e-6);
+            Assert.assertTrue(result.getPlan().getObjective() >= optimum - 1e-6);
+            Assert.assertTrue(result.getNumIterations() <= 20);
+        } finally {
+            lagrangian.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBucketMustLandInNetwork() {
+        Map<String, DiscreteScenarioTree> trees = new HashMap<String, DiscreteScenarioTree>();
+        trees.put("AAA", ScenarioTreeFactory.makeLoToHigh(NUM_TIME_PERIODS, 2, 4, 4, 8, 4, false, 0));
+        Map<NetworkHofkinModel.Bucket, List<Integer>> demands = new HashMap<NetworkHofkinModel.Bucket, List<Integer>>();
+        demands.put(new NetworkHofkinModel.Bucket("AAA", "XXX", 1), Collections.nCopies(NUM_TIME_PERIODS, 1));
+        NetworkInput input = new NetworkInput(NUM_TIME_PERIODS, 1.0, 3.0, 12.0, trees,
+                Collections.<String, Integer>emptyMap(), demands, Collections.<String, List<Integer>>emptyMap(),
+                Collections.<String, List<Integer>>emptyMap());
+        new NetworkHofkinModel.Layout(input);
+    }
+}
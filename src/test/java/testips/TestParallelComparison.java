@@ -0,0 +1,42 @@
+package testips;
+
+import gurobi.GRB;
+import ips.ParallelComparison;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestParallelComparison {
+
+    private static ParallelComparison.Result makeResult(int mhdStatus, double mhdObjective, double dhdObjective) {
+        ParallelComparison.ModelResult mh = new ParallelComparison.ModelResult("MH", GRB.Status.OPTIMAL, 10.0,
+                1.0, 0, Double.NaN);
+        ParallelComparison.ModelResult mhd = new ParallelComparison.ModelResult("MHD", mhdStatus, mhdObjective,
+                1.0, 0, 0.0);
+        ParallelComparison.ModelResult dhd = new ParallelComparison.ModelResult("DHD", GRB.Status.OPTIMAL,
+                dhdObjective, 1.0, 0, 0.0);
+        return new ParallelComparison.Result(mh, mhd, dhd, 1.0);
+    }
+
+    @Test
+    public void testRelativeDifference() {
+        ParallelComparison.Result result = makeResult(GRB.Status.OPTIMAL, 100.05, 100.0);
+        Assert.assertEquals(0.0005, result.getObjectiveDifference(), 1e-9);
+        Assert.assertTrue(result.isConsistent());
+        Assert.assertFalse(makeResult(GRB.Status.OPTIMAL, 100.2, 100.0).isConsistent());
+    }
+
+    @Test
+    public void testAbsoluteDifference() {
+        ParallelComparison.Result result = makeResult(GRB.Status.OPTIMAL, 0.3005, 0.3);
+        Assert.assertEquals(0.0005, result.getObjectiveDifference(), 1e-9);
+        Assert.assertTrue(result.isConsistent());
+    }
+
+    @Test
+    public void testNotOptimal() {
+        ParallelComparison.Result result = makeResult(GRB.Status.TIME_LIMIT, 100.0, 100.0);
+        Assert.assertTrue(Double.isNaN(result.getObjectiveDifference()));
+        Assert.assertFalse(result.isConsistent());
+    }
+}
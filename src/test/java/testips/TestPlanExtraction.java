@@ -0,0 +1,100 @@
+package testips;
+
+import ips.DHoffkinInput;
+import ips.DHoffkinPlan;
+import ips.DiscreteFlight;
+import ips.ExtendedHofkinModel;
+import ips.MHDynModel;
+import ips.MHInput;
+import ips.MHPlan;
+import ips.ScenarioFlows;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import lp.BranchAndBound;
+import lp.Solution;
+import lp.SparseModel;
+import testlp.TestSimplexSolver;
+import testlp.TestSparseModel;
+
+public class TestPlanExtraction {
+
+    @Test
+    public void testDHoffkinFlows() {
+        DHoffkinInput input = TestSparseModel.makeSmallInput();
+        Solution solution = new BranchAndBound().solve(ExtendedHofkinModel.buildModel(input));
+        DHoffkinPlan plan = new DHoffkinPlan(input, new ExtendedHofkinModel.Layout(input), solution.getValues());
+        ExtendedHofkinModel.Layout layout = plan.getLayout();
+        ScenarioFlows flows = plan.getFlows();
+        Assert.assertEquals(layout.getNumScenarios(), flows.getNumScenarios());
+        double expectedDiversions = 0.0;
+        for (int sPos = 0; sPos < layout.getNumScenarios(); sPos++) {
+            int s = layout.getScenario(sPos);
+            Assert.assertEquals(s, flows.getScenario(sPos));
+            for (int t = 0; t < layout.getNumTimePeriods(); t++) {
+                double ground = 0.0;
+                for (int d : input.getFlightDurations()) {
+                    if (t < layout.getNumGroundPeriods(d)) {
+                        ground += plan.getGround(s, d, t);
+                    }
+                }
+                Assert.assertEquals(ground, flows.getGround(sPos, t), 1e-9);
+                Assert.assertEquals(plan.getAir(s, t), flows.getAir(sPos, t), 1e-9);
+                Assert.assertEquals(plan.getLand(s, t), flows.getLand(sPos, t), 1e-9);
+                Assert.assertEquals(plan.getDivert(s, t), flows.getDivert(sPos, t), 1e-9);
+                expectedDiversions += input.getScenProbability(s) * plan.getDivert(s, t);
+            }
+        }
+        Assert.assertEquals(expectedDiversions, flows.getExpectedDiversions(), 1e-9);
+    }
+
+    @Test
+    public void testMhdPlan() {
+        MHInput input = TestSimplexSolver.makeSmallMhInput(TestSparseModel.makeSmallInput());
+        SparseModel model = MHDynModel.buildMhdModel(input);
+        Solution solution = new BranchAndBound().solve(model);
+        MHDynModel.Layout layout = new MHDynModel.Layout(input, true);
+        MHPlan plan = new MHPlan(input, layout, solution.getValues());
+        Assert.assertEquals(solution.getObjective(), plan.getObjective(), 1e-6);
+        assertDepartures(layout, plan, solution);
+        for (int sPos = 0; sPos < layout.getNumScenarios(); sPos++) {
+            int[] land = plan.getFlows().getLand(sPos);
+            for (int t = 0; t < layout.getNumTimePeriods(); t++) {
+                Assert.assertEquals(solution.getValue(layout.landVar(sPos, t)), land[t], 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void testMhPlan() {
+        MHInput input = TestSimplexSolver.makeSmallMhInput(TestSparseModel.makeSmallInput());
+        Solution solution = new BranchAndBound().solve(MHDynModel.buildMhModel(input));
+        if (solution.getStatus() != Solution.Status.OPTIMAL) {
+            return;
+        }
+        MHDynModel.Layout layout = new MHDynModel.Layout(input, false);
+        MHPlan plan = new MHPlan(input, layout, solution.getValues());
+        Assert.assertEquals(solution.getObjective(), plan.getObjective(), 1e-6);
+        assertDepartures(layout, plan, solution);
+        Assert.assertEquals(0.0, plan.getFlows().getExpectedDiversions(), 0.0);
+    }
+
+    private static void assertDepartures(MHDynModel.Layout layout, MHPlan plan, Solution solution) {
+        for (int sPos = 0; sPos < layout.getNumScenarios(); sPos++) {
+            int[] periods = plan.getDepartPeriods(sPos);
+            for (int fPos = 0; fPos < layout.getNumFlights(); fPos++) {
+                DiscreteFlight f = layout.getFlight(fPos);
+                Assert.assertEquals(1.0, solution.getValue(layout.departVar(fPos, periods[fPos], sPos)), 1e-9);
+                Assert.assertEquals(periods[fPos] - f.getDepartTimePeriod(), plan.getDelay(sPos, fPos));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFlightWithoutDeparture() {
+        MHInput input = TestSimplexSolver.makeSmallMhInput(TestSparseModel.makeSmallInput());
+        MHDynModel.Layout layout = new MHDynModel.Layout(input, true);
+        new MHPlan(input, layout, new double[layout.getNumVars()]);
+    }
+}
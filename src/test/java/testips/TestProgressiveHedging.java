@@ -0,0 +1,59 @@
+package testips;
+
+import ips.DHoffkinInput;
+import ips.ExtendedHofkinModel;
+import ips.ProgressiveHedging;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+import gurobi.GRBException;
+import lp.BranchAndBound;
+import lp.Solution;
+import testlp.TestSparseModel;
+
+public class TestProgressiveHedging {
+
+    @Test
+    public void testConvergesToExtensiveForm() throws GRBException, InterruptedException {
+        DHoffkinInput input = TestSparseModel.makeSmallInput();
+        Solution optimal = new BranchAndBound().solve(ExtendedHofkinModel.buildModel(input));
+        Assert.assertEquals(Solution.Status.OPTIMAL, optimal.getStatus());
+
+        ProgressiveHedging.Formulation formulation = ProgressiveHedging.dhoffkinFormulation(input);
+        // Larger penalties make the integer scenario solutions agree on a
+        // plan within a few iterations, but settle on a worse one here.
+        ProgressiveHedging.Result result = new ProgressiveHedging(formulation, 0.1, 1e-6, 100, 1,
+                ProgressiveHedging.withBranchAndBound(new BranchAndBound()), null).solve();
+
+        Assert.assertTrue(result.isConverged());
+        ProgressiveHedging.IterationStats last = result.getLastIteration();
+        Assert.assertTrue(last.getPrimalResidual() <= 1e-6);
+        Assert.assertTrue(last.getLowerBound() <= optimal.getObjective() + 1e-9);
+        Assert.assertEquals(optimal.getObjective(), last.getExpectedCost(), 1e-6 * Math.abs(optimal.getObjective()));
+
+        // The scenarios sharing a node of the tree must make the same
+        // decisions in its period.
+        for (int i = 0; i < input.getNumTimePeriods(); i++) {
+            for (Iterable<Integer> node : input.getNodes(i)) {
+                Integer first = null;
+                for (int s : node) {
+                    if (first == null) {
+                        first = s;
+                        continue;
+                    }
+                    List<String> firstNames = formulation.getDecisionVarNames(first, i);
+                    List<String> names = formulation.getDecisionVarNames(s, i);
+                    for (int j = 0; j < names.size(); j++) {
+                        Assert.assertEquals(result.getScenarioValue(firstNames.get(j)),
+                                result.getScenarioValue(names.get(j)), 1e-6);
+                        Assert.assertEquals(result.getScenarioValue(names.get(j)),
+                                result.getConsensusValue(names.get(j)), 1e-6);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package testips;
+
+import ips.DHoffkinFlightParser;
+import ips.RollingHorizonPlanner;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestRollingHorizonPlanner {
+
+    private static DHoffkinFlightParser.DemandStruct makeSchedule() {
+        HashMap<Integer, List<Integer>> demandMap = new HashMap<Integer, List<Integer>>();
+        demandMap.put(2, Arrays.asList(1, 0, 2, 0, 1, 0, 0, 0, 0, 0));
+        demandMap.put(5, Arrays.asList(0, 1, 0, 0, 2, 0, 1, 0, 0, 0));
+        List<Integer> enroute = Arrays.asList(1, 0, 0, 0, 0, 0, 0, 0, 0, 0);
+        return new DHoffkinFlightParser.DemandStruct(demandMap, enroute);
+    }
+
+    @Test
+    public void testMaxStep() {
+        RollingHorizonPlanner planner = new RollingHorizonPlanner(null, makeSchedule(), 8, 2, 1.0, 3.0, 12.0,
+                false);
+        // Flights of duration 5 can depart in periods 0 to 3 of the window.
+        Assert.assertEquals(4, planner.getMaxStep());
+        Assert.assertEquals(1, new RollingHorizonPlanner(null, makeSchedule(), 5, 2, 1.0, 3.0, 12.0, false)
+                .getMaxStep());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWindowShorterThanFlight() {
+        new RollingHorizonPlanner(null, makeSchedule(), 4, 2, 1.0, 3.0, 12.0, false);
+    }
+}
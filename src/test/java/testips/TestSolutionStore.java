@@ -0,0 +1,107 @@
+package testips;
+
+import ips.DHoffkinFlightParser;
+import ips.DHoffkinInput;
+import ips.ExtendedHofkinModel;
+import ips.MHInput;
+import ips.SolutionStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import lp.BranchAndBound;
+import lp.Solution;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import scenarios.DiscreteScenarioTree;
+import scenarios.ScenarioTreeFactory;
+import testlp.TestSimplexSolver;
+import testlp.TestSparseModel;
+
+public class TestSolutionStore {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static DHoffkinInput makeInput(double airCost, int maxAirborne) {
+        DHoffkinInput input = TestSparseModel.makeSmallInput();
+        HashMap<Integer, List<Integer>> demandMap = new HashMap<Integer, List<Integer>>();
+        for (int d : input.getFlightDurations()) {
+            List<Integer> demand = new ArrayList<Integer>();
+            for (int t = 0; t < input.getNumTimePeriods(); t++) {
+                demand.add((int) input.getNumDeparting(d, t));
+            }
+            demandMap.put(d, demand);
+        }
+        List<Integer> enroute = new ArrayList<Integer>();
+        for (int t = 0; t < input.getNumTimePeriods(); t++) {
+            enroute.add((int) input.getEnroute(t));
+        }
+        DiscreteScenarioTree tree = ScenarioTreeFactory.makeLoToHigh(input.getNumTimePeriods(), 2, 5, 4, 8, 4,
+                false, 0);
+        return new DHoffkinInput(maxAirborne, input.getGroundCost(), airCost, input.getDivertCost(),
+                new DHoffkinFlightParser.DemandStruct(demandMap, enroute), tree);
+    }
+
+    @Test
+    public void testKeys() {
+        DHoffkinInput input = TestSparseModel.makeSmallInput();
+        SolutionStore.Key key = SolutionStore.Key.of(input);
+        Assert.assertEquals(key, SolutionStore.Key.of(makeInput(input.getAirCost(), input.getMaxAirborne())));
+
+        SolutionStore.Key costlier = SolutionStore.Key.of(makeInput(input.getAirCost() + 1, input.getMaxAirborne()));
+        Assert.assertEquals(key.getStructureHash(), costlier.getStructureHash());
+        Assert.assertNotEquals(key.getInputHash(), costlier.getInputHash());
+        SolutionStore.Key limited = SolutionStore.Key.of(makeInput(input.getAirCost(), 0));
+        Assert.assertEquals(key.getStructureHash(), limited.getStructureHash());
+        Assert.assertNotEquals(key.getInputHash(), limited.getInputHash());
+
+        MHInput mhInput = TestSimplexSolver.makeSmallMhInput(input);
+        SolutionStore.Key mhKey = SolutionStore.Key.of(mhInput);
+        Assert.assertNotEquals(key.getStructureHash(), mhKey.getStructureHash());
+        Assert.assertEquals(mhKey, SolutionStore.Key.of(TestSimplexSolver.makeSmallMhInput(input)));
+    }
+
+    @Test
+    public void testRoundTripAndNearby() throws IOException {
+        DHoffkinInput input = TestSparseModel.makeSmallInput();
+        Solution solution = new BranchAndBound().solve(ExtendedHofkinModel.buildModel(input));
+        Assert.assertEquals(Solution.Status.OPTIMAL, solution.getStatus());
+
+        File directory = new File(folder.getRoot(), "solutions");
+        SolutionStore store = new SolutionStore(directory);
+        SolutionStore.Key key = SolutionStore.Key.of(input);
+        Assert.assertNull(store.get("DHD", key));
+        store.put("DHD", key, solution.getValues(), solution.getObjective());
+
+        SolutionStore.StoredSolution stored = store.get("DHD", key);
+        Assert.assertTrue(stored.isExact());
+        Assert.assertEquals(solution.getObjective(), stored.getObjective(), 0.0);
+        Assert.assertArrayEquals(solution.getValues(), stored.getValues(), 1e-6);
+        Assert.assertNull(store.get("MHD", key));
+
+        // Same demand and tree, different costs.
+        SolutionStore.Key nearby = new SolutionStore.Key(key.getStructureHash(), "other");
+        Assert.assertNull(store.get("DHD", nearby));
+        SolutionStore.StoredSolution similar = store.find("DHD", nearby);
+        Assert.assertFalse(similar.isExact());
+        Assert.assertArrayEquals(solution.getValues(), similar.getValues(), 1e-6);
+        Assert.assertNull(store.find("DHD", new SolutionStore.Key("other", "other")));
+    }
+
+    @Test
+    public void testFractionalValues() throws IOException {
+        SolutionStore store = new SolutionStore(folder.getRoot());
+        SolutionStore.Key key = new SolutionStore.Key("a", "b");
+        double[] values = {0.0, 1.5, 0.0, 0.0, -2.25, 1e-12, 300.0};
+        store.put("MH", key, values, 4.5);
+        double[] read = store.get("MH", key).getValues();
+        Assert.assertArrayEquals(new double[]{0.0, 1.5, 0.0, 0.0, -2.25, 0.0, 300.0}, read, 0.0);
+    }
+}
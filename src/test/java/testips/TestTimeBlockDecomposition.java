@@ -0,0 +1,61 @@
+package testips;
+
+import ips.DHoffkinInput;
+import ips.DHoffkinPlan;
+import ips.ExtendedHofkinModel;
+import ips.TimeBlockDecomposition;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import gurobi.GRBException;
+import lp.BranchAndBound;
+import lp.Solution;
+import lp.SparseModel;
+import testlp.TestSparseModel;
+
+public class TestTimeBlockDecomposition {
+
+    @Test
+    public void testStitchedPlansAreFeasible() throws GRBException {
+        DHoffkinInput input = TestSparseModel.makeSmallInput();
+        SparseModel model = ExtendedHofkinModel.buildModel(input);
+        Solution optimal = new BranchAndBound().solve(model);
+        TimeBlockDecomposition.BlockSolver solver = TimeBlockDecomposition.withBranchAndBound(new BranchAndBound());
+
+        // Overlaps shorter than the longest duration force or defer some
+        // departures, but the plan stays feasible.
+        int[][] configurations = {{4, 3}, {4, 1}, {3, 0}, {6, 2}};
+        for (int[] configuration : configurations) {
+            TimeBlockDecomposition decomposition = new TimeBlockDecomposition(configuration[0], configuration[1]);
+            TimeBlockDecomposition.Result result = decomposition.solve(input, solver);
+            DHoffkinPlan plan = result.getPlan();
+            TestGroundHoldingHeuristic.assertFeasible(model, plan.getValues());
+            Assert.assertEquals(model.getObjectiveValue(plan.getValues()), plan.getObjective(), 1e-9);
+            Assert.assertTrue(plan.getObjective() >= optimal.getObjective() - 1e-9);
+
+            int committed = 0;
+            for (TimeBlockDecomposition.Block block : result.getBlocks()) {
+                Assert.assertEquals(committed, block.getStart());
+                Assert.assertTrue(block.getLength() <= configuration[0]);
+                committed += block.getNumCommitted();
+            }
+            Assert.assertEquals(input.getNumTimePeriods(), committed);
+        }
+    }
+
+    @Test
+    public void testSingleBlockIsOptimal() throws GRBException {
+        DHoffkinInput input = TestSparseModel.makeSmallInput();
+        Solution optimal = new BranchAndBound().solve(ExtendedHofkinModel.buildModel(input));
+        TimeBlockDecomposition.Result result = new TimeBlockDecomposition(input.getNumTimePeriods(), 0)
+                .solve(input, TimeBlockDecomposition.withBranchAndBound(new BranchAndBound()));
+        Assert.assertEquals(1, result.getBlocks().size());
+        Assert.assertEquals(optimal.getObjective(), result.getPlan().getObjective(), 1e-9);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOverlapMustBeShorterThanBlock() {
+        new TimeBlockDecomposition(4, 4);
+    }
+}
@@ -0,0 +1,134 @@
+package testips;
+
+import ips.AggregatedMHModel;
+import ips.DHoffkinFlightParser;
+import ips.DHoffkinInput;
+import ips.DHoffkinPlan;
+import ips.DiscreteFlight;
+import ips.ExtendedHofkinModel;
+import ips.GroundHoldingHeuristic;
+import ips.MHDynModel;
+import ips.MHFlightParser;
+import ips.MHInput;
+import ips.MHPlan;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import lp.BranchAndBound;
+import lp.Solution;
+import lp.SparseModel;
+import scenarios.DiscreteScenarioTree;
+import scenarios.ScenarioTreeFactory;
+import testlp.TestSparseModel;
+import util.TimeGrid;
+
+public class TestTimeGridModels {
+    private static final OffsetDateTime START = LocalDateTime.of(2017, 7, 15, 12, 0).atOffset(ZoneOffset.UTC);
+
+    /**
+     * Half hours, then quarter hours from 13:00 to 14:00, with durations in
+     * quarter hours.
+     */
+    private static TimeGrid makeGrid() {
+        return TimeGrid.adaptive(START, START.plusHours(4), START.plusHours(1), START.plusHours(2),
+                Duration.ofMinutes(15), Duration.ofMinutes(30));
+    }
+
+    private static DHoffkinInput makeInput(TimeGrid grid) {
+        HashMap<Integer, List<Integer>> demandMap = new HashMap<Integer, List<Integer>>();
+        demandMap.put(2, Arrays.asList(2, 1, 2, 2, 1, 0, 0, 0, 0, 0));
+        demandMap.put(3, Arrays.asList(1, 2, 0, 1, 1, 1, 0, 0, 0, 0));
+        List<Integer> enroute = Arrays.asList(1, 1, 1, 0, 0, 0, 0, 0, 0, 0);
+        DHoffkinFlightParser.DemandStruct demand = new DHoffkinFlightParser.DemandStruct(demandMap, enroute, grid);
+        DiscreteScenarioTree tree = ScenarioTreeFactory.makeLoToHigh(grid, 2, 6, 4, 8, false, 0);
+        return new DHoffkinInput(2, 1.0, 3.0, 12.0, demand, tree);
+    }
+
+    private static MHInput makeMhInput(DHoffkinInput dhInput, TimeGrid grid) {
+        List<DiscreteFlight> flights = new ArrayList<DiscreteFlight>();
+        List<Integer> enroute = new ArrayList<Integer>();
+        for (int i = 0; i < dhInput.getNumTimePeriods(); i++) {
+            enroute.add((int) dhInput.getEnroute(i));
+            for (int d : dhInput.getFlightDurations()) {
+                for (int k = 0; k < dhInput.getNumDeparting(d, i); k++) {
+                    flights.add(new DiscreteFlight(flights.size(), i, d));
+                }
+            }
+        }
+        DiscreteScenarioTree tree = ScenarioTreeFactory.makeLoToHigh(grid, 2, 6, 4, 8, false, 0);
+        return new MHInput(dhInput.getMaxAirborne(), dhInput.getGroundCost(), dhInput.getAirCost(),
+                dhInput.getDivertCost(), new MHFlightParser.DemandStruct(flights, enroute, grid), tree);
+    }
+
+    @Test
+    public void testUniformGridMatchesDefault() {
+        DHoffkinInput input = TestSparseModel.makeSmallInput();
+        HashMap<Integer, List<Integer>> demandMap = new HashMap<Integer, List<Integer>>();
+        List<Integer> enroute = new ArrayList<Integer>();
+        for (int d : input.getFlightDurations()) {
+            List<Integer> demands = new ArrayList<Integer>();
+            for (int i = 0; i < input.getNumTimePeriods(); i++) {
+                demands.add((int) input.getNumDeparting(d, i));
+            }
+            demandMap.put(d, demands);
+        }
+        for (int i = 0; i < input.getNumTimePeriods(); i++) {
+            enroute.add((int) input.getEnroute(i));
+        }
+        TimeGrid grid = TimeGrid.uniform(START, START.plusMinutes(15 * input.getNumTimePeriods()),
+                Duration.ofMinutes(15));
+        DHoffkinInput gridInput = new DHoffkinInput(2, 1.0, 3.0, 12.0,
+                new DHoffkinFlightParser.DemandStruct(demandMap, enroute, grid),
+                ScenarioTreeFactory.makeLoToHigh(input.getNumTimePeriods(), 2, 5, 4, 8, 4, false, 0));
+
+        SparseModel model = ExtendedHofkinModel.buildModel(input);
+        SparseModel gridModel = ExtendedHofkinModel.buildModel(gridInput);
+        Assert.assertEquals(model.getNumVars(), gridModel.getNumVars());
+        Assert.assertEquals(model.getNumConstrs(), gridModel.getNumConstrs());
+        for (int j = 0; j < model.getNumVars(); j++) {
+            Assert.assertEquals(model.getVarName(j), gridModel.getVarName(j));
+            Assert.assertEquals(model.getObjective(j), gridModel.getObjective(j), 0.0);
+        }
+    }
+
+    @Test
+    public void testAdaptiveGridModelsAgree() {
+        TimeGrid grid = makeGrid();
+        DHoffkinInput input = makeInput(grid);
+        SparseModel model = ExtendedHofkinModel.buildModel(input);
+        Solution optimal = new BranchAndBound().solve(model);
+        Assert.assertEquals(Solution.Status.OPTIMAL, optimal.getStatus());
+
+        // Flights which depart in a coarse period arrive sooner, in periods,
+        // than those departing in a fine one, so the models must agree on
+        // when each departure arrives.
+        MHInput mhInput = makeMhInput(input, grid);
+        Solution mhdSolution = new BranchAndBound().solve(MHDynModel.buildMhdModel(mhInput));
+        Assert.assertEquals(optimal.getObjective(), mhdSolution.getObjective(), 1e-6);
+        Solution aggregated = new BranchAndBound().solve(AggregatedMHModel.buildModel(mhInput, true));
+        Assert.assertEquals(optimal.getObjective(), aggregated.getObjective(), 1e-6);
+
+        MHPlan plan = new MHPlan(mhInput, new MHDynModel.Layout(mhInput, true), mhdSolution.getValues());
+        Assert.assertEquals(mhdSolution.getObjective(), plan.getObjective(), 1e-6);
+    }
+
+    @Test
+    public void testHeuristicOnAdaptiveGrid() {
+        DHoffkinInput input = makeInput(makeGrid());
+        SparseModel model = ExtendedHofkinModel.buildModel(input);
+        DHoffkinPlan plan = GroundHoldingHeuristic.solve(input);
+        TestGroundHoldingHeuristic.assertFeasible(model, plan.getValues());
+        Assert.assertEquals(model.getObjectiveValue(plan.getValues()), plan.getObjective(), 1e-9);
+        Assert.assertTrue(plan.getObjective() >= new BranchAndBound().solve(model).getObjective() - 1e-9);
+    }
+}
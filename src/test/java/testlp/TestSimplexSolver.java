@@ -0,0 +1,169 @@
+package testlp;
+
+import ips.DHoffkinInput;
+import ips.DiscreteFlight;
+import ips.ExtendedHofkinModel;
+import ips.MHDynModel;
+import ips.MHFlightParser;
+import ips.MHInput;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import lp.BranchAndBound;
+import lp.LinearExpr;
+import lp.SimplexSolver;
+import lp.Solution;
+import lp.SparseModel;
+import scenarios.DiscreteScenarioTree;
+import scenarios.ScenarioTreeFactory;
+
+public class TestSimplexSolver {
+
+    @Test
+    public void testSmallLp() {
+        // max x + y s.t. x + 2y <= 4, 3x + y <= 6
+        SparseModel model = new SparseModel();
+        int x = model.addVar(0.0, SparseModel.INFINITY, -1.0, SparseModel.CONTINUOUS, "x");
+        int y = model.addVar(0.0, SparseModel.INFINITY, -1.0, SparseModel.CONTINUOUS, "y");
+        LinearExpr row1 = new LinearExpr();
+        row1.addTerm(1.0, x);
+        row1.addTerm(2.0, y);
+        model.addConstr(row1, SparseModel.LESS_EQUAL, 4.0, "c1");
+        LinearExpr row2 = new LinearExpr();
+        row2.addTerm(3.0, x);
+        row2.addTerm(1.0, y);
+        model.addConstr(row2, SparseModel.LESS_EQUAL, 6.0, "c2");
+
+        Solution solution = new SimplexSolver().solve(model);
+        Assert.assertEquals(Solution.Status.OPTIMAL, solution.getStatus());
+        Assert.assertEquals(-2.8, solution.getObjective(), 1e-9);
+        Assert.assertEquals(1.6, solution.getValue(x), 1e-9);
+        Assert.assertEquals(1.2, solution.getValue(y), 1e-9);
+
+        Solution integer = new BranchAndBound().solve(makeInteger(model));
+        Assert.assertEquals(Solution.Status.OPTIMAL, integer.getStatus());
+        Assert.assertEquals(-2.0, integer.getObjective(), 1e-9);
+    }
+
+    @Test
+    public void testEqualityAndFreeVariables() {
+        // min x - z s.t. x + y = 3, y - z >= 1, y <= 2, z free
+        SparseModel model = new SparseModel();
+        int x = model.addVar(0.0, SparseModel.INFINITY, 1.0, SparseModel.CONTINUOUS, "x");
+        int y = model.addVar(0.0, 2.0, 0.0, SparseModel.CONTINUOUS, "y");
+        int z = model.addVar(-SparseModel.INFINITY, SparseModel.INFINITY, -1.0, SparseModel.CONTINUOUS, "z");
+        LinearExpr row1 = new LinearExpr();
+        row1.addTerm(1.0, x);
+        row1.addTerm(1.0, y);
+        model.addConstr(row1, SparseModel.EQUAL, 3.0, "c1");
+        LinearExpr row2 = new LinearExpr();
+        row2.addTerm(1.0, y);
+        row2.addTerm(-1.0, z);
+        model.addConstr(row2, SparseModel.GREATER_EQUAL, 1.0, "c2");
+
+        Solution solution = new SimplexSolver().solve(model);
+        Assert.assertEquals(Solution.Status.OPTIMAL, solution.getStatus());
+        Assert.assertEquals(0.0, solution.getObjective(), 1e-9);
+        Assert.assertEquals(1.0, solution.getValue(x), 1e-9);
+        Assert.assertEquals(1.0, solution.getValue(z), 1e-9);
+    }
+
+    @Test
+    public void testInfeasible() {
+        SparseModel model = new SparseModel();
+        int x = model.addVar(0.0, 1.0, 1.0, SparseModel.CONTINUOUS, "x");
+        LinearExpr row = new LinearExpr();
+        row.addTerm(1.0, x);
+        model.addConstr(row, SparseModel.GREATER_EQUAL, 2.0, "c");
+        Assert.assertEquals(Solution.Status.INFEASIBLE, new SimplexSolver().solve(model).getStatus());
+    }
+
+    @Test
+    public void testLimitedNodeIsNotPruned() {
+        // max sum v x s.t. sum w x <= 20, x binary, whose relaxation is fractional.
+        double[] v = {10, 13, 7, 8, 11, 9, 6, 12};
+        double[] w = {5, 7, 4, 4, 6, 5, 3, 7};
+        SparseModel model = new SparseModel();
+        LinearExpr row = new LinearExpr();
+        for (int j = 0; j < v.length; j++) {
+            row.addTerm(w[j], model.addVar(0.0, 1.0, -v[j], SparseModel.INTEGER, "x" + j));
+        }
+        model.addConstr(row, SparseModel.LESS_EQUAL, 20.0, "cap");
+        double rootBound = new SimplexSolver().solve(model).getObjective();
+        Solution optimal = new BranchAndBound().solve(model);
+        Assert.assertEquals(Solution.Status.OPTIMAL, optimal.getStatus());
+
+        // The LP of the second node stops on its iteration limit, so its
+        // subtree is lost and only the root bound is proven.
+        SimplexSolver limited = new SimplexSolver() {
+            private int calls = 0;
+
+            @Override
+            public Solution solve(SparseModel sparseModel, double[] lb, double[] ub) {
+                if (++calls == 2) {
+                    return new Solution(Solution.Status.ITERATION_LIMIT, Double.NaN, Double.NaN, null, 0, 0);
+                }
+                return super.solve(sparseModel, lb, ub);
+            }
+        };
+        Solution partial = new BranchAndBound(limited, BranchAndBound.DEFAULT_NODE_LIMIT).solve(model);
+        Assert.assertEquals(Solution.Status.ITERATION_LIMIT, partial.getStatus());
+        Assert.assertEquals(rootBound, partial.getBound(), 1e-9);
+        Assert.assertTrue(partial.getBound() <= optimal.getObjective() + 1e-9);
+        Assert.assertTrue(!partial.hasValues() || partial.getObjective() >= optimal.getObjective() - 1e-9);
+    }
+
+    @Test
+    public void testDHoffkinMatchesMhd() {
+        DHoffkinInput dhInput = TestSparseModel.makeSmallInput();
+        SparseModel dhModel = ExtendedHofkinModel.buildModel(dhInput);
+        Solution relaxation = new SimplexSolver().solve(dhModel);
+        Solution dhSolution = new BranchAndBound().solve(dhModel);
+        Assert.assertEquals(Solution.Status.OPTIMAL, relaxation.getStatus());
+        Assert.assertEquals(Solution.Status.OPTIMAL, dhSolution.getStatus());
+        Assert.assertTrue(relaxation.getObjective() <= dhSolution.getObjective() + 1e-9);
+
+        MHInput mhInput = makeSmallMhInput(dhInput);
+        Solution mhdSolution = new BranchAndBound().solve(MHDynModel.buildMhdModel(mhInput));
+        Assert.assertEquals(Solution.Status.OPTIMAL, mhdSolution.getStatus());
+        Assert.assertEquals(dhSolution.getObjective(), mhdSolution.getObjective(), 1e-6);
+        System.out.println("DHD LP: " + relaxation + "\nDHD MIP: " + dhSolution + "\nMHD MIP: " + mhdSolution);
+    }
+
+    public static MHInput makeSmallMhInput(DHoffkinInput dhInput) {
+        List<DiscreteFlight> flights = new ArrayList<DiscreteFlight>();
+        List<Integer> enroute = new ArrayList<Integer>();
+        for (int i = 0; i < dhInput.getNumTimePeriods(); i++) {
+            enroute.add((int) dhInput.getEnroute(i));
+            for (int d : dhInput.getFlightDurations()) {
+                for (int k = 0; k < dhInput.getNumDeparting(d, i); k++) {
+                    flights.add(new DiscreteFlight(flights.size(), i, d));
+                }
+            }
+        }
+        DiscreteScenarioTree tree = ScenarioTreeFactory.makeLoToHigh(dhInput.getNumTimePeriods(), 2, 5, 4, 8, 4,
+                false, 0);
+        return new MHInput(dhInput.getMaxAirborne(), dhInput.getGroundCost(), dhInput.getAirCost(),
+                dhInput.getDivertCost(), new MHFlightParser.DemandStruct(flights, enroute), tree);
+    }
+
+    private static SparseModel makeInteger(SparseModel relaxed) {
+        SparseModel model = new SparseModel();
+        for (int j = 0; j < relaxed.getNumVars(); j++) {
+            model.addVar(relaxed.getLowerBound(j), relaxed.getUpperBound(j), relaxed.getObjective(j),
+                    SparseModel.INTEGER, relaxed.getVarName(j));
+        }
+        for (int i = 0; i < relaxed.getNumConstrs(); i++) {
+            LinearExpr row = new LinearExpr();
+            for (int k = relaxed.getRowStart(i); k < relaxed.getRowEnd(i); k++) {
+                row.addTerm(relaxed.getValue(k), relaxed.getColIndex(k));
+            }
+            model.addConstr(row, relaxed.getSense(i), relaxed.getRhs(i), relaxed.getConstrName(i));
+        }
+        return model;
+    }
+}
@@ -0,0 +1,108 @@
+package testlp;
+
+import ips.DHoffkinFlightParser;
+import ips.DHoffkinInput;
+import ips.ExtendedHofkinModel;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import lp.LinearExpr;
+import lp.LpWriter;
+import lp.MpsWriter;
+import lp.SparseModel;
+import scenarios.DiscreteScenarioTree;
+import scenarios.ScenarioTreeFactory;
+
+public class TestSparseModel {
+
+    public static DHoffkinInput makeSmallInput() {
+        HashMap<Integer, List<Integer>> demandMap = new HashMap<Integer, List<Integer>>();
+        demandMap.put(2, Arrays.asList(3, 1, 0, 2, 0, 0, 0, 0, 0, 0));
+        demandMap.put(3, Arrays.asList(0, 2, 2, 0, 1, 0, 0, 0, 0, 0));
+        List<Integer> enroute = new ArrayList<Integer>(Arrays.asList(1, 2, 0, 0, 0, 0, 0, 0, 0, 0));
+        DHoffkinFlightParser.DemandStruct demand = new DHoffkinFlightParser.DemandStruct(demandMap, enroute);
+        DiscreteScenarioTree tree = ScenarioTreeFactory.makeLoToHigh(demand.getNumTimePeriods(), 2, 5, 4, 8, 4,
+                false, 0);
+        return new DHoffkinInput(2, 1.0, 3.0, 12.0, demand, tree);
+    }
+
+    @Test
+    public void testAddConstrMergesTerms() {
+        SparseModel model = new SparseModel();
+        int x = model.addVar(0.0, 1.0, 1.0, SparseModel.CONTINUOUS, "x");
+        int y = model.addVar(0.0, 1.0, 1.0, SparseModel.CONTINUOUS, "y");
+        LinearExpr lhs = new LinearExpr();
+        lhs.addTerm(2.0, y);
+        lhs.addTerm(1.0, x);
+        lhs.addConstant(1.0);
+        LinearExpr rhs = new LinearExpr();
+        rhs.addTerm(1.0, x);
+        rhs.addTerm(1.0, y);
+        rhs.addConstant(4.0);
+        model.addConstr(lhs, SparseModel.LESS_EQUAL, rhs, "c");
+
+        Assert.assertEquals(1, model.getNumNonZeros());
+        Assert.assertEquals(y, model.getColIndex(model.getRowStart(0)));
+        Assert.assertEquals(1.0, model.getValue(model.getRowStart(0)), 1e-12);
+        Assert.assertEquals(3.0, model.getRhs(0), 1e-12);
+        Assert.assertEquals(x, model.getVarIndex("x"));
+    }
+
+    @Test
+    public void testDHoffkinLayout() {
+        DHoffkinInput input = makeSmallInput();
+        SparseModel model = ExtendedHofkinModel.buildModel(input);
+        ExtendedHofkinModel.Layout layout = new ExtendedHofkinModel.Layout(input);
+        Assert.assertEquals(layout.getNumVars(), model.getNumVars());
+        for (int sPos = 0; sPos < layout.getNumScenarios(); sPos++) {
+            int s = layout.getScenario(sPos);
+            for (int dPos = 0; dPos < layout.getNumDurations(); dPos++) {
+                int d = layout.getDuration(dPos);
+                for (int i = 0; i < layout.getNumDepartPeriods(d); i++) {
+                    Assert.assertEquals(ExtendedHofkinModel.getDepartVarName(s, i, d),
+                            model.getVarName(layout.departVar(sPos, dPos, i)));
+                }
+                for (int i = 0; i < layout.getNumGroundPeriods(d); i++) {
+                    Assert.assertEquals(ExtendedHofkinModel.getGroundVarName(s, i, d),
+                            model.getVarName(layout.groundVar(sPos, dPos, i)));
+                }
+            }
+            for (int i = 0; i < input.getNumTimePeriods(); i++) {
+                Assert.assertEquals(ExtendedHofkinModel.getDivertVarName(s, i),
+                        model.getVarName(layout.divertVar(sPos, i)));
+            }
+        }
+    }
+
+    @Test
+    public void testWriteModel() throws IOException {
+        SparseModel model = ExtendedHofkinModel.buildModel(makeSmallInput());
+        StringWriter mps = new StringWriter();
+        MpsWriter.write(model, "small", mps);
+        Assert.assertTrue(mps.toString().startsWith("NAME small\nROWS\n"));
+        Assert.assertTrue(mps.toString().contains("'INTORG'"));
+        Assert.assertTrue(mps.toString().endsWith("ENDATA\n"));
+        // The names need no renaming when the file is read back.
+        for (int j = 0; j < model.getNumVars(); j++) {
+            Assert.assertTrue(mps.toString().contains(" " + model.getVarName(j) + " "));
+        }
+        for (int i = 0; i < model.getNumConstrs(); i++) {
+            Assert.assertTrue(mps.toString().contains(" " + model.getConstrName(i) + "\n"));
+        }
+
+        StringWriter lp = new StringWriter();
+        LpWriter.write(model, "small", lp);
+        Assert.assertFalse(lp.toString().contains(model.getVarName(0)));
+        Assert.assertTrue(lp.toString().contains("Subject To\n"));
+        Assert.assertTrue(lp.toString().contains("General\n"));
+        Assert.assertTrue(lp.toString().endsWith("End\n"));
+    }
+}
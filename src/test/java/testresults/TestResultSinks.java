@@ -0,0 +1,193 @@
+package testresults;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import results.AsyncResultSink;
+import results.ColumnarResultReader;
+import results.ColumnarResultSink;
+import results.CsvResultSink;
+import results.ResultColumn;
+import results.ResultRow;
+import results.ResultSink;
+
+public class TestResultSinks {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static ResultRow makeRow(int k) {
+        ResultRow row = new ResultRow();
+        for (ResultColumn column : ResultColumn.values()) {
+            switch (column.getType()) {
+                case STRING:
+                    row.set(column, column.name().toLowerCase() + (k % 3));
+                    break;
+                case LONG:
+                    row.set(column, (long) k * column.ordinal());
+                    break;
+                case DOUBLE:
+                    row.set(column, k == 0 ? Double.NaN : k / 7.0 + column.ordinal());
+                    break;
+                case BOOLEAN:
+                    row.set(column, (k + column.ordinal()) % 2 == 0);
+                    break;
+            }
+        }
+        return row;
+    }
+
+    @Test
+    public void testCsvHeader() throws IOException {
+        Assert.assertEquals("APT,VFR,IFR,WMAX,START,END,MAXLENGTH,NUM_SITTING,NUM_AIR,DISC,CASE,AIRCOST,"
+                + "LOOKAHEAD,NUM_TIME_PERIODS,EARLY_CHANGE,LATE_CHANGE,PROB_ALT,DIVERT_FACTOR,"
+                + "MH_SOLVETIME,MHD_SOLVETIME,DHD_SOLVETIME,MH_FEASIBLE,OBJ_MH,"
+                + "OBJ_DIVERT,MH_NODES,MHD_NODES,DHD_NODES,MHD_DIVERT,DHD_DIVERT,\n", CsvResultSink.getHeader());
+
+        StringWriter out = new StringWriter();
+        CsvResultSink sink = new CsvResultSink(out, false);
+        sink.write(new ResultRow().set(ResultColumn.APT, "ORD").set(ResultColumn.VFR, 114)
+                .set(ResultColumn.PROB_ALT, true).set(ResultColumn.AIRCOST, 3.0)
+                .set(ResultColumn.OBJ_MH, Double.NaN)
+                .set(ResultColumn.IFR, 88).set(ResultColumn.WMAX, 26).set(ResultColumn.START, "s")
+                .set(ResultColumn.END, "e").set(ResultColumn.MAXLENGTH, 2).set(ResultColumn.NUM_SITTING, 10)
+                .set(ResultColumn.NUM_AIR, 5).set(ResultColumn.DISC, 15).set(ResultColumn.CASE, 1)
+                .set(ResultColumn.LOOKAHEAD, 0).set(ResultColumn.NUM_TIME_PERIODS, 20)
+                .set(ResultColumn.EARLY_CHANGE, 8).set(ResultColumn.LATE_CHANGE, 8)
+                .set(ResultColumn.DIVERT_FACTOR, 1.0).set(ResultColumn.MH_SOLVETIME, 0.5)
+                .set(ResultColumn.MHD_SOLVETIME, 0.5).set(ResultColumn.DHD_SOLVETIME, 0.25)
+                .set(ResultColumn.MH_FEASIBLE, false).set(ResultColumn.OBJ_DIVERT, 1.5)
+                .set(ResultColumn.MH_NODES, 0.0).set(ResultColumn.MHD_NODES, 1.0).set(ResultColumn.DHD_NODES, 1.0)
+                .set(ResultColumn.MHD_DIVERT, 0.0).set(ResultColumn.DHD_DIVERT, 0.0));
+        sink.close();
+        Assert.assertEquals("ORD,114,88,26,s,e,2,10,5,15,1,3.0,0,20,8,8,true,1.0,0.5,0.5,0.25,false,NaN,1.5,"
+                + "0.0,1.0,1.0,0.0,0.0,\n", out.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongType() {
+        new ResultRow().set(ResultColumn.APT, 1.0);
+    }
+
+    @Test
+    public void testColumnarRoundTrip() throws IOException {
+        File file = folder.newFile("results.bin");
+        List<ResultRow> rows = new ArrayList<ResultRow>();
+        ColumnarResultSink sink = new ColumnarResultSink(file, false, 4);
+        sink.flush();
+        long headerLength = file.length();
+        for (int k = 0; k < 10; k++) {
+            rows.add(makeRow(k));
+            sink.write(rows.get(k));
+            sink.flush();
+            // Flushing does not cut row groups which are not full.
+            Assert.assertEquals(k < 3, file.length() == headerLength);
+        }
+        sink.close();
+        sink = new ColumnarResultSink(file, true, 4);
+        for (int k = 10; k < 13; k++) {
+            rows.add(makeRow(k));
+            sink.write(rows.get(k));
+        }
+        sink.close();
+
+        Assert.assertEquals(rows, ColumnarResultReader.readRows(file));
+        double[] objectives = ColumnarResultReader.readDoubles(file, ResultColumn.OBJ_MH);
+        String[] airports = ColumnarResultReader.readStrings(file, ResultColumn.APT);
+        long[] cases = ColumnarResultReader.readLongs(file, ResultColumn.CASE);
+        boolean[] feasible = ColumnarResultReader.readBooleans(file, ResultColumn.MH_FEASIBLE);
+        Assert.assertEquals(13, objectives.length);
+        for (int k = 0; k < rows.size(); k++) {
+            Assert.assertEquals(rows.get(k).getDouble(ResultColumn.OBJ_MH), objectives[k], 0.0);
+            Assert.assertEquals(rows.get(k).getString(ResultColumn.APT), airports[k]);
+            Assert.assertEquals(rows.get(k).getLong(ResultColumn.CASE), cases[k]);
+            Assert.assertEquals(rows.get(k).getBoolean(ResultColumn.MH_FEASIBLE), feasible[k]);
+        }
+    }
+
+    @Test
+    public void testAsyncSharedByThreads() throws IOException, InterruptedException {
+        File file = folder.newFile("async.bin");
+        final AsyncResultSink sink = new AsyncResultSink(8, new ColumnarResultSink(file, false, 16));
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = 50 * t;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int k = offset; k < offset + 50; k++) {
+                        try {
+                            sink.write(makeRow(k));
+                        } catch (IOException e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        sink.close();
+
+        List<ResultRow> rows = ColumnarResultReader.readRows(file);
+        Assert.assertEquals(200, rows.size());
+        Collections.sort(rows, new Comparator<ResultRow>() {
+            @Override
+            public int compare(ResultRow r1, ResultRow r2) {
+                return Long.compare(r1.getLong(ResultColumn.VFR), r2.getLong(ResultColumn.VFR));
+            }
+        });
+        for (int k = 0; k < 200; k++) {
+            Assert.assertEquals(makeRow(k), rows.get(k));
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testAsyncFailure() throws IOException {
+        AsyncResultSink sink = new AsyncResultSink(1, new ResultSink() {
+            @Override
+            public void write(ResultRow row) {
+                throw new IllegalStateException("Disk full.");
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        try {
+            for (int k = 0; k < 1000; k++) {
+                sink.write(makeRow(k));
+            }
+            Assert.fail();
+        } catch (IOException e) {
+            Assert.assertEquals("Disk full.", e.getCause().getMessage());
+        }
+        try {
+            sink.close();
+            Assert.fail();
+        } catch (IOException e) {
+            // The failure is reported again.
+        }
+        try {
+            sink.write(makeRow(0));
+            Assert.fail();
+        } catch (IOException e) {
+            // Writes after a failure keep failing.
+        }
+    }
+}
@@ -1,9 +1,17 @@
 package testscenario;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+import org.junit.Assert;
 import org.junit.Test;
 
 import scenarios.ScenarioTreeFactory;
+import scenarios.DiscreteScenario;
 import scenarios.DiscreteScenarioTree;
+import util.TimeGrid;
 
 public class TestScenarioTreeFactory {
 
@@ -14,4 +22,49 @@ public class TestScenarioTreeFactory {
 		System.out.println(myTree.allScenariosToString());
 		
 	}
+
+	@Test
+	public void testMakeLoToHighOnUniformGrid(){
+		OffsetDateTime start = LocalDateTime.of(2017, 7, 15, 12, 0).atOffset(ZoneOffset.UTC);
+		TimeGrid grid = TimeGrid.uniform(start, start.plusHours(24), Duration.ofMinutes(15));
+		DiscreteScenarioTree expected = ScenarioTreeFactory.makeLoToHigh(96, 4, 16, 7, 30, 4, true, 0);
+		DiscreteScenarioTree tree = ScenarioTreeFactory.makeLoToHigh(grid, 4, 16, 7, 30, true, 0);
+		Assert.assertEquals(expected.getScenarioIds(), tree.getScenarioIds());
+		for (int s : expected.getScenarioIds()) {
+			Assert.assertEquals(expected.getScenario(s).getProbability(), tree.getScenario(s).getProbability(), 1e-12);
+			Assert.assertTrue(expected.getScenario(s).equals(tree.getScenario(s), 95, 0));
+		}
+	}
+
+	@Test
+	public void testMakeLoToHighOnAdaptiveGrid(){
+		// Half hours, then quarter hours from 13:00 to 14:00.
+		OffsetDateTime start = LocalDateTime.of(2017, 7, 15, 12, 0).atOffset(ZoneOffset.UTC);
+		TimeGrid grid = TimeGrid.adaptive(start, start.plusHours(3), start.plusHours(1), start.plusHours(2),
+				Duration.ofMinutes(15), Duration.ofMinutes(30));
+		DiscreteScenarioTree tree = ScenarioTreeFactory.makeLoToHigh(grid, 2, 6, 4, 8, false, 0);
+		// Low until the change in period 3 at 13:15, then high.
+		int[] expected = {2, 2, 1, 2, 2, 2, 4, 4};
+		DiscreteScenario scenario = tree.getScenario(3);
+		for (int j = 0; j < expected.length; j++) {
+			Assert.assertEquals(expected[j], scenario.getCapacity(j));
+		}
+		Assert.assertEquals(0.25, scenario.getProbability(), 1e-12);
+	}
+
+	@Test
+	public void testShiftTree(){
+		// Capacity changes from 1 to 2 in one of periods 2, 3 or 4.
+		DiscreteScenarioTree myTree = ScenarioTreeFactory.makeLoToHigh(8, 2, 5, 1, 2, 1, false, 0);
+		DiscreteScenarioTree shifted = ScenarioTreeFactory.shiftTree(myTree, 3, 4, 0);
+		// Scenario 2 is ruled out by the capacity observed in period 2.
+		Assert.assertEquals(2, shifted.getScenarioIds().size());
+		Assert.assertNull(shifted.getScenario(2));
+		DiscreteScenario scenario = shifted.getScenario(3);
+		Assert.assertEquals(0.5, scenario.getProbability(), 1e-12);
+		Assert.assertEquals(8, scenario.getNumTimePeriods());
+		Assert.assertEquals(2, scenario.getCapacity(0));
+		Assert.assertEquals(1, shifted.getScenario(4).getCapacity(0));
+		Assert.assertEquals(2, shifted.getScenario(4).getCapacity(7));
+	}
 }
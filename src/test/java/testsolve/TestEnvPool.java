@@ -0,0 +1,127 @@
+package testsolve;
+
+import gurobi.GRBException;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import lp.SparseModel;
+import solve.EnvPool;
+import solve.LeasedModel;
+
+public class TestEnvPool {
+
+    @Test
+    public void testPresets() {
+        EnvPool.Preset preset = new EnvPool.Preset().set("Threads", 2).set("OutputFlag", 0);
+        Assert.assertEquals("2", preset.getParams().get("Threads"));
+        Assert.assertEquals("0", preset.getParams().get("OutputFlag"));
+
+        EnvPool pool = new EnvPool(3, preset);
+        Assert.assertEquals(3, pool.getSize());
+        Assert.assertEquals(3, pool.getNumIdle());
+        Assert.assertEquals(0, pool.getNumStarted());
+        pool.close();
+
+        EnvPool mixed = new EnvPool(preset, new EnvPool.Preset().set("Threads", 1));
+        Assert.assertEquals(2, mixed.getSize());
+        mixed.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyPool() {
+        new EnvPool(0, new EnvPool.Preset());
+    }
+
+    /**
+     * Leases an environment, skipping the test if Gurobi can not start one.
+     * The slot must be back in the pool after a failed start.
+     */
+    private static EnvPool.Lease leaseOrSkip(EnvPool pool) throws InterruptedException {
+        try {
+            return pool.lease();
+        } catch (GRBException e) {
+            Assert.assertEquals(pool.getSize(), pool.getNumIdle());
+            Assume.assumeNoException(e);
+        } catch (UnsatisfiedLinkError e) {
+            Assert.assertEquals(pool.getSize(), pool.getNumIdle());
+            Assume.assumeNoException(e);
+        }
+        return null;
+    }
+
+    @Test
+    public void testLeaseReturnsEnvironment() throws InterruptedException {
+        EnvPool pool = new EnvPool(1, new EnvPool.Preset().set("OutputFlag", 0));
+        EnvPool.Lease lease = leaseOrSkip(pool);
+        Assert.assertEquals(0, pool.getNumIdle());
+        Assert.assertNotNull(lease.getEnv());
+        lease.close();
+        lease.close();
+        Assert.assertEquals(1, pool.getNumIdle());
+        pool.close();
+    }
+
+    @Test
+    public void testLeasedModelHoldsLease() throws GRBException, InterruptedException {
+        EnvPool pool = new EnvPool(1, new EnvPool.Preset().set("OutputFlag", 0));
+        // Starts the environment, so that loading the model can not fail
+        // for want of Gurobi.
+        leaseOrSkip(pool).close();
+        SparseModel sparseModel = new SparseModel();
+        sparseModel.addVar(0.0, 1.0, 1.0, SparseModel.CONTINUOUS, "x");
+        LeasedModel model = LeasedModel.load(pool, sparseModel, false);
+        Assert.assertEquals(0, pool.getNumIdle());
+        model.dispose();
+        Assert.assertEquals(1, pool.getNumIdle());
+        pool.close();
+    }
+
+    @Test
+    public void testLeaseTimesOut() throws GRBException, InterruptedException {
+        EnvPool pool = new EnvPool(1, new EnvPool.Preset().set("OutputFlag", 0));
+        EnvPool.Lease lease = leaseOrSkip(pool);
+        try {
+            pool.leaseUninterruptibly(10, TimeUnit.MILLISECONDS);
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("pool of size 1"));
+        }
+        lease.close();
+        Assert.assertEquals(1, pool.getNumIdle());
+        pool.close();
+    }
+
+    @Test
+    public void testClosedPool() throws Exception {
+        EnvPool pool = new EnvPool(2, new EnvPool.Preset());
+        pool.close();
+        pool.close();
+        Assert.assertTrue(pool.isClosed());
+        try {
+            pool.lease();
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testDefaultPool() {
+        EnvPool pool = new EnvPool(1, new EnvPool.Preset());
+        EnvPool previous = EnvPool.setDefault(pool);
+        try {
+            Assert.assertSame(pool, EnvPool.getDefault());
+            pool.close();
+            EnvPool replacement = EnvPool.getDefault();
+            Assert.assertNotSame(pool, replacement);
+            Assert.assertFalse(replacement.isClosed());
+            replacement.close();
+        } finally {
+            EnvPool.setDefault(previous);
+        }
+    }
+}
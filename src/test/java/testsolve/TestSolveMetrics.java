@@ -0,0 +1,46 @@
+package testsolve;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+import solve.JsonLinesSink;
+import solve.SolveMetrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestSolveMetrics {
+
+    @Test
+    public void testPhasesAccumulate() {
+        SolveMetrics metrics = new SolveMetrics("MH");
+        metrics.startPhase(SolveMetrics.UPDATE);
+        metrics.endPhase(SolveMetrics.UPDATE);
+        long first = metrics.getPhaseNanos().get(SolveMetrics.UPDATE);
+        metrics.startPhase(SolveMetrics.UPDATE);
+        metrics.endPhase(SolveMetrics.UPDATE);
+        assertTrue(metrics.getPhaseNanos().get(SolveMetrics.UPDATE) >= first);
+        assertEquals(1, metrics.getPhaseNanos().size());
+        assertEquals(0.0, metrics.getPhaseSeconds(SolveMetrics.OPTIMIZE), 0.0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testEndWithoutStart() {
+        new SolveMetrics("MH").endPhase(SolveMetrics.OPTIMIZE);
+    }
+
+    @Test
+    public void testJsonLine() throws IOException {
+        SolveMetrics metrics = new SolveMetrics("DHD").tag("apt", "ORD").tag("note", "a \"quoted\" value");
+        metrics.setResult(2, 10.5, Double.NEGATIVE_INFINITY, 1.25, 3, Double.NaN);
+        StringWriter out = new StringWriter();
+        JsonLinesSink sink = new JsonLinesSink(out);
+        sink.publish(metrics);
+        sink.close();
+        assertEquals("{\"name\":\"DHD\",\"tags\":{\"apt\":\"ORD\",\"note\":\"a \\\"quoted\\\" value\"},"
+                + "\"phases\":{},\"status\":2,\"objective\":10.5,\"bound\":null,\"runtime\":1.25,\"nodes\":3.0,"
+                + "\"iterations\":null,\"samples\":[]}\n", out.toString());
+    }
+}
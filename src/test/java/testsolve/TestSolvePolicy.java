@@ -0,0 +1,64 @@
+package testsolve;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import gurobi.GRB;
+import solve.PolicyResult;
+import solve.SolvePolicy;
+
+public class TestSolvePolicy {
+
+    @Test
+    public void testDefaults() {
+        SolvePolicy policy = new SolvePolicy();
+        Assert.assertEquals(Double.POSITIVE_INFINITY, policy.getTimeLimit(), 0.0);
+        Assert.assertEquals(Double.POSITIVE_INFINITY, policy.getWorkLimit(), 0.0);
+        Assert.assertTrue(Double.isNaN(policy.getMipGap()));
+        Assert.assertEquals(0, policy.getThreads());
+        Assert.assertEquals(SolvePolicy.Fallback.NONE, policy.getFallback());
+    }
+
+    @Test
+    public void testSetters() {
+        SolvePolicy policy = new SolvePolicy().setTimeLimit(30).setWorkLimit(5).setMipGap(0.01).setThreads(2)
+                .setFallback(SolvePolicy.Fallback.LP_ROUNDING).setFallbackTimeLimit(5);
+        Assert.assertEquals(30, policy.getTimeLimit(), 0.0);
+        Assert.assertEquals(5, policy.getWorkLimit(), 0.0);
+        Assert.assertEquals(0.01, policy.getMipGap(), 0.0);
+        Assert.assertEquals(2, policy.getThreads());
+        Assert.assertEquals(SolvePolicy.Fallback.LP_ROUNDING, policy.getFallback());
+        Assert.assertEquals(5, policy.getFallbackTimeLimit(), 0.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonPositiveTimeLimit() {
+        new SolvePolicy().setTimeLimit(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeGap() {
+        new SolvePolicy().setMipGap(-0.1);
+    }
+
+    @Test
+    public void testLimitStatuses() {
+        Assert.assertTrue(SolvePolicy.isLimitReached(GRB.Status.TIME_LIMIT));
+        Assert.assertTrue(SolvePolicy.isLimitReached(GRB.Status.WORK_LIMIT));
+        Assert.assertFalse(SolvePolicy.isLimitReached(GRB.Status.OPTIMAL));
+        Assert.assertFalse(SolvePolicy.isLimitReached(GRB.Status.INFEASIBLE));
+    }
+
+    @Test
+    public void testResultWithoutPlan() {
+        PolicyResult result = new PolicyResult(PolicyResult.Branch.NONE, GRB.Status.TIME_LIMIT, Double.NaN, 1.0,
+                2.0, null);
+        Assert.assertFalse(result.hasValues());
+        try {
+            result.getValues();
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+}
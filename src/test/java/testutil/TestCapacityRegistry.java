@@ -0,0 +1,118 @@
+package testutil;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.time.OffsetDateTime;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import util.CapacityGetter;
+import util.CapacityRegistry;
+
+public class TestCapacityRegistry {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static void write(File file, String contents, long modified) throws IOException {
+        Writer writer = new FileWriter(file);
+        try {
+            writer.write(contents);
+        } finally {
+            writer.close();
+        }
+        Assert.assertTrue(file.setLastModified(modified));
+    }
+
+    @Test
+    public void testResource() throws IOException {
+        CapacityRegistry registry = CapacityRegistry.fromResource();
+        Assert.assertEquals(85, registry.getIfr("DFW"));
+        Assert.assertEquals(159, registry.getVfr(" dfw "));
+        Assert.assertEquals(6, registry.getSnapshot().getNumAirports());
+        Assert.assertFalse(registry.reloadIfChanged());
+        Assert.assertEquals(Integer.valueOf(27), CapacityGetter.getIfr("DCA"));
+    }
+
+    @Test
+    public void testTimeVaryingRates() throws IOException {
+        File file = folder.newFile("capacities.csv");
+        write(file, "AIRPORT,VFR,IFR,START\n"
+                + "SFO,55,29,\n"
+                + "SFO,40,20,2026-10-19T14:00Z\n"
+                + "SFO,50,25,2026-10-19T18:00Z\n"
+                + "JFK,44,38,2026-10-19T12:00Z\n", 1000000L);
+        CapacityRegistry.Snapshot snapshot = CapacityRegistry.fromFile(file).getSnapshot();
+        OffsetDateTime noon = OffsetDateTime.parse("2026-10-19T12:00Z");
+
+        Assert.assertEquals(55, snapshot.getVfr("SFO"));
+        Assert.assertEquals(55, snapshot.getVfr("SFO", noon));
+        Assert.assertEquals(20, snapshot.getIfr("SFO", noon.plusHours(2)));
+        Assert.assertEquals(20, snapshot.getIfr("SFO", noon.plusHours(6).minusSeconds(1)));
+        Assert.assertEquals(25, snapshot.getIfr("SFO", noon.plusHours(6)));
+        Assert.assertEquals(38, snapshot.getIfr("JFK", noon.plusDays(1)));
+        Assert.assertTrue(snapshot.contains("jfk"));
+        Assert.assertFalse(snapshot.contains("DFW"));
+        try {
+            snapshot.getIfr("JFK", noon.minusSeconds(1));
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // JFK has no rates before noon.
+        }
+        try {
+            snapshot.getIfr("DFW");
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // DFW is not in the file.
+        }
+    }
+
+    @Test
+    public void testReloadKeepsSnapshots() throws IOException {
+        File file = folder.newFile("capacities.csv");
+        write(file, "AIRPORT,VFR,IFR\nLGA,43,37\n", 1000000L);
+        CapacityRegistry registry = CapacityRegistry.fromFile(file);
+        CapacityRegistry.Snapshot first = registry.getSnapshot();
+        Assert.assertFalse(registry.reloadIfChanged());
+
+        write(file, "AIRPORT,VFR,IFR\nLGA,30,26\nDCA,34,27\n", 2000000L);
+        Assert.assertTrue(registry.reloadIfChanged());
+        Assert.assertEquals(26, registry.getIfr("LGA"));
+        Assert.assertEquals(2, registry.getSnapshot().getVersion());
+        // Lookups on the old snapshot still see the old rates.
+        Assert.assertEquals(37, first.getIfr("LGA"));
+        Assert.assertFalse(first.contains("DCA"));
+
+        // A broken file keeps the last good snapshot until it is fixed.
+        write(file, "AIRPORT,VFR,IFR\nLGA,thirty,26\n", 3000000L);
+        try {
+            registry.reloadIfChanged();
+            Assert.fail();
+        } catch (IOException e) {
+            Assert.assertSame(e, registry.getLastFailure());
+        }
+        Assert.assertEquals(26, registry.getIfr("LGA"));
+        write(file, "AIRPORT,VFR,IFR\nLGA,31,27\n", 4000000L);
+        Assert.assertTrue(registry.reloadIfChanged());
+        Assert.assertNull(registry.getLastFailure());
+        Assert.assertEquals(27, registry.getIfr("LGA"));
+        Assert.assertEquals(3, registry.getSnapshot().getVersion());
+    }
+
+    @Test
+    public void testEncode() {
+        Assert.assertEquals("KJFK", CapacityRegistry.decode(CapacityRegistry.encode(" kjfk")));
+        Assert.assertEquals("A1", CapacityRegistry.decode(CapacityRegistry.encode("A1")));
+        Assert.assertNotEquals(CapacityRegistry.encode("AB"), CapacityRegistry.encode("BA"));
+        try {
+            CapacityRegistry.encode("TOOLONG");
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // At most five characters.
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package testutil;
+
+import ips.DHoffkinFlightParser;
+import ips.MHFlightParser;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.HashSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import scenarios.DiscreteScenario;
+import scenarios.DiscreteScenarioTree;
+import util.BTSParser;
+import util.SyntheticWorkload;
+
+public class TestSyntheticWorkload {
+	private static final OffsetDateTime START = LocalDateTime.of(2017, 7, 15, 12, 0).atOffset(ZoneOffset.UTC);
+
+	@Test
+	public void testSeeded() {
+		HashSet<BTSParser.FlightStruct> first = new SyntheticWorkload(7, 500, START, Duration.ofHours(4))
+				.setBanks(3, Duration.ofMinutes(20), 0.5).generateFlights();
+		HashSet<BTSParser.FlightStruct> second = new SyntheticWorkload(7, 500, START, Duration.ofHours(4))
+				.setBanks(3, Duration.ofMinutes(20), 0.5).generateFlights();
+		Assert.assertEquals(first.toString(), second.toString());
+	}
+
+	@Test
+	public void testFlights() throws IOException {
+		SyntheticWorkload workload = new SyntheticWorkload(11, 2000, START, Duration.ofHours(6))
+				.addDurationClass(Duration.ofMinutes(60), Duration.ofMinutes(90), 1.0)
+				.addDurationClass(Duration.ofMinutes(240), Duration.ofMinutes(300), 1.0)
+				.setAirborneFraction(0.3);
+		BTSParser.ResultStruct result = workload.generate();
+		Assert.assertEquals(2000, result.getSittingFlights().size() + result.getAirborneFlights().size());
+		Assert.assertEquals(600.0, result.getAirborneFlights().size(), 100.0);
+		for (BTSParser.FlightStruct f : result.getAirborneFlights()) {
+			Assert.assertTrue(f.getDepartureTime().isBefore(START));
+		}
+		for (BTSParser.FlightStruct f : result.getSittingFlights()) {
+			Assert.assertFalse(f.getDepartureTime().isBefore(START));
+			Assert.assertTrue(f.getArrivalTime().isBefore(workload.getEndTime()));
+			long minutes = f.getFlightDuration().toMinutes();
+			Assert.assertTrue((minutes >= 60 && minutes <= 90) || (minutes >= 240 && minutes <= 300));
+			Assert.assertEquals(f.getArrivalTime(), f.getDepartureTime().plus(f.getFlightDuration()));
+		}
+		HashSet<BTSParser.FlightStruct> all = new HashSet<BTSParser.FlightStruct>(result.getSittingFlights());
+		all.addAll(result.getAirborneFlights());
+		Assert.assertEquals(2000, BTSParser.separateForGDPPlanning(all, START, workload.getEndTime())
+				.getSittingFlights().size() + result.getAirborneFlights().size());
+	}
+
+	@Test
+	public void testBanks() {
+		BTSParser.ResultStruct result = new SyntheticWorkload(3, 1000, START, Duration.ofHours(4))
+				.setBanks(2, Duration.ofMinutes(20), 1.0).generate();
+		HashSet<BTSParser.FlightStruct> all = new HashSet<BTSParser.FlightStruct>(result.getSittingFlights());
+		all.addAll(result.getAirborneFlights());
+		for (BTSParser.FlightStruct f : all) {
+			long offset = Duration.between(START, f.getArrivalTime()).toMinutes();
+			Assert.assertTrue(Math.abs(offset - 60) <= 10 || Math.abs(offset - 180) <= 10);
+		}
+	}
+
+	@Test
+	public void testDemandAndScenarios() {
+		SyntheticWorkload workload = new SyntheticWorkload(5, 100000, START, Duration.ofHours(24));
+		Duration disc = Duration.ofMinutes(15);
+		BTSParser.ResultStruct result = workload.generate();
+		MHFlightParser.DemandStruct mhDemand = MHFlightParser.wrapBTSOutput(result, disc);
+		DHoffkinFlightParser.DemandStruct dhDemand = DHoffkinFlightParser.wrapBTSOutput(result, disc);
+		Assert.assertEquals(result.getSittingFlights().size(), mhDemand.getFlights().size());
+		Assert.assertEquals(96, dhDemand.getNumTimePeriods());
+
+		DiscreteScenarioTree tree = workload.makeScenarioTree(disc, 8, 0.8, 1.2, 0);
+		Assert.assertEquals(8, tree.getScenarioIds().size());
+		double sum = 0.0;
+		for (int s : tree.getScenarioIds()) {
+			DiscreteScenario scenario = tree.getScenario(s);
+			Assert.assertEquals(96, scenario.getNumTimePeriods());
+			sum += scenario.getProbability();
+		}
+		Assert.assertEquals(1.0, sum, 1e-9);
+	}
+}
@@ -0,0 +1,70 @@
+package testutil;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import util.DiscretizerUtil;
+import util.TimeGrid;
+
+public class TestTimeGrid {
+    private static final OffsetDateTime START = LocalDateTime.of(2017, 7, 15, 12, 0).atOffset(ZoneOffset.UTC);
+
+    @Test
+    public void testUniformMatchesDiscretizer() {
+        Duration discretization = Duration.ofMinutes(10);
+        OffsetDateTime end = START.plusHours(4).plusMinutes(5);
+        TimeGrid grid = TimeGrid.uniform(START, end, discretization);
+        Assert.assertEquals(DiscretizerUtil.getNumTimePeriods(START, end, discretization), grid.getNumTimePeriods());
+        for (int minutes = 0; minutes < 300; minutes += 7) {
+            OffsetDateTime time = START.plusMinutes(minutes);
+            Assert.assertEquals(DiscretizerUtil.timeToIndex(time, START, discretization), grid.timeToIndex(time));
+        }
+        for (int i = 0; i < grid.getNumTimePeriods(); i++) {
+            Assert.assertEquals(1.0, grid.getPeriodLengthInUnits(i), 1e-12);
+            Assert.assertEquals(i + 3, grid.getArrivalPeriod(3, i));
+        }
+        Assert.assertEquals(5, grid.durationToUnits(Duration.ofMinutes(55)));
+    }
+
+    @Test
+    public void testAdaptive() {
+        // Coarse half hours until 13:10, where the last one is cut short,
+        // then fine quarter hours until 14:00 and coarse ones until 15:00.
+        TimeGrid grid = TimeGrid.adaptive(START, START.plusHours(3), START.plusMinutes(70), START.plusHours(2),
+                Duration.ofMinutes(15), Duration.ofMinutes(30));
+        long[] minutes = {30, 30, 10, 15, 15, 15, 5, 30, 30};
+        Assert.assertEquals(minutes.length, grid.getNumTimePeriods());
+        for (int i = 0; i < minutes.length; i++) {
+            Assert.assertEquals(Duration.ofMinutes(minutes[i]), grid.getPeriodLength(i));
+        }
+        Assert.assertEquals(START.plusHours(3), grid.getEnd());
+        Assert.assertEquals(Duration.ofMinutes(15), grid.getUnit());
+        Assert.assertEquals(2.0, grid.getPeriodLengthInUnits(0), 1e-12);
+
+        Assert.assertEquals(2, grid.timeToIndex(START.plusMinutes(60)));
+        Assert.assertEquals(3, grid.timeToIndex(START.plusMinutes(70)));
+        Assert.assertEquals(7, grid.timeToIndex(START.plusMinutes(125)));
+        // Past the end, the grid continues with coarse periods.
+        Assert.assertEquals(10, grid.timeToIndex(START.plusMinutes(215)));
+
+        // Two units from 13:10 is 13:40; from 12:00 it is 12:30.
+        Assert.assertEquals(5, grid.getArrivalPeriod(2, 3));
+        Assert.assertEquals(1, grid.getArrivalPeriod(2, 0));
+        // A flight departing in the last period arrives after the horizon.
+        Assert.assertEquals(9, grid.getArrivalPeriod(2, 8));
+        for (int i = 0; i < grid.getNumTimePeriods(); i++) {
+            Assert.assertTrue(grid.getArrivalPeriod(0, i) == i);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFineMustNotBeCoarser() {
+        TimeGrid.adaptive(START, START.plusHours(3), START.plusHours(1), START.plusHours(2), Duration.ofMinutes(30),
+                Duration.ofMinutes(15));
+    }
+}